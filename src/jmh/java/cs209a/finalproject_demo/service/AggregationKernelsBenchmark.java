@@ -0,0 +1,58 @@
+package cs209a.finalproject_demo.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scalar and Vector API kernels on synthetic columns; {@code vector} falls back
+ * to scalar loops unless the fork runs with {@code jdk.incubator.vector}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class AggregationKernelsBenchmark {
+
+    @Param({"scalar", "auto", "vector"})
+    String mode;
+
+    @Param({"10000000"})
+    int size;
+
+    private AggregationKernels kernels;
+    private long[] dates;
+    private int[] views;
+    private long[] rows;
+    private long[] selection;
+
+    @Setup
+    public void columns() {
+        kernels = AggregationKernels.select(mode);
+        SplittableRandom random = new SplittableRandom(7);
+        dates = new long[size];
+        views = new int[size];
+        rows = new long[(size + 63) >>> 6];
+        selection = new long[rows.length];
+        for (int i = 0; i < size; i++) {
+            dates[i] = 1262304000L + random.nextLong(16L * 365 * 24 * 3600);
+            views[i] = random.nextInt(1_000_000);
+            if (random.nextBoolean()) {
+                rows[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    @Benchmark
+    public int selectRange() {
+        return kernels.selectRange(dates, 1420070400L, 1735689600L, selection);
+    }
+
+    @Benchmark
+    public long maskedSum() {
+        return kernels.maskedSum(views, rows);
+    }
+}
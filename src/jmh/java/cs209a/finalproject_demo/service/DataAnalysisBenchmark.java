@@ -0,0 +1,61 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the four analyses over an indexed dataset of synthetic questions, at
+ * several dataset sizes. Loading and indexing are done once per size in the setup, as they
+ * are once per load in the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAnalysisBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    private final DataAnalysisService service = new DataAnalysisService();
+    private QuestionDataset dataset;
+
+    @Setup
+    public void load() throws IOException {
+        File file = Files.createTempFile("benchmark-" + size + "-", ".json").toFile();
+        try {
+            new SyntheticDataGenerator().generate(file.getPath(), size, 42, ProgressListener.NONE);
+            dataset = service.index(new DataCollectionService().loadData(file.getPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> topicTrends() {
+        return service.analyzeTopicTrends(dataset, 3);
+    }
+
+    @Benchmark
+    public Map<String, Object> topicCooccurrence() {
+        return service.analyzeTopicCooccurrence(dataset, 10);
+    }
+
+    @Benchmark
+    public Map<String, Object> multithreadingPitfalls() {
+        return service.analyzeMultithreadingPitfalls(dataset, 8);
+    }
+
+    @Benchmark
+    public Map<String, Object> solvability() {
+        return service.analyzeSolvability(dataset);
+    }
+}
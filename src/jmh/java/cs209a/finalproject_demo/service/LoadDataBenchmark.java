@@ -0,0 +1,45 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse and prepare a data file ({@link DataCollectionService#loadData(String)}),
+ * the part of a load that does not depend on the analyses, for synthetic files of several sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoadDataBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    private final DataCollectionService service = new DataCollectionService();
+    private File file;
+
+    @Setup
+    public void write() throws IOException {
+        file = Files.createTempFile("benchmark-" + size + "-", ".json").toFile();
+        new SyntheticDataGenerator().generate(file.getPath(), size, 42, ProgressListener.NONE);
+    }
+
+    @TearDown
+    public void delete() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Question> loadData() throws IOException {
+        return service.loadData(file.getPath());
+    }
+}
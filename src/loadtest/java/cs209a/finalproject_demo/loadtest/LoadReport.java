@@ -0,0 +1,176 @@
+package cs209a.finalproject_demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency histograms, errors and throughput of the measured requests, per request of the
+ * mix and in total.
+ * <p>
+ * Latencies are recorded in microseconds into {@link LatencyHistogram}s, which are not
+ * thread-safe; responses complete on the client's threads, so recording takes the report's
+ * lock, which costs little next to a request. Every response, failed or not, is recorded
+ * at its latency: a timed-out request took at least the timeout, and leaving it out would
+ * hide exactly the stalls a load test is for. Failures are also counted by error, and the
+ * successful responses get a histogram of their own, so a burst of fast 429s can be told
+ * apart from fast answers.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final Endpoint total = new Endpoint();
+    private long measuredFrom;
+    private long lastDone;
+    private long maxSendLag;
+
+    LoadReport(List<String> names) {
+        for (String name : names) {
+            endpoints.put(name, new Endpoint());
+        }
+    }
+
+    void begin(long measuredFrom) {
+        this.measuredFrom = measuredFrom;
+        this.lastDone = measuredFrom;
+    }
+
+    /**
+     * How late the driver sent a request; a large lag means the client could not keep up
+     * with the rate (the corrected latencies still account for it)
+     */
+    synchronized void sendLag(long lagNanos) {
+        maxSendLag = Math.max(maxSendLag, lagNanos);
+    }
+
+    /**
+     * @param error         what went wrong, {@code null} for a successful response
+     * @param latencyNanos  from when the request was due to the response
+     * @param serviceNanos  from when the request was sent to the response
+     * @param doneNanos     when the response arrived
+     */
+    synchronized void record(String name, String error, long latencyNanos, long serviceNanos, long doneNanos) {
+        endpoints.get(name).record(error, latencyNanos, serviceNanos);
+        total.record(error, latencyNanos, serviceNanos);
+        lastDone = Math.max(lastDone, doneNanos);
+    }
+
+    synchronized Map<String, Object> toMap(Map<String, Object> description) {
+        double seconds = Math.max(1, lastDone - measuredFrom) / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>(description);
+        report.put("measuredSeconds", Math.round(seconds * 1000) / 1000.0);
+        report.put("maxSendLagMillis", millis(maxSendLag / 1000));
+        report.put("total", total.toMap(seconds));
+        Map<String, Object> byRequest = new LinkedHashMap<>();
+        endpoints.forEach((name, endpoint) -> byRequest.put(name, endpoint.toMap(seconds)));
+        report.put("requests", byRequest);
+        return report;
+    }
+
+    void write(Path file, Map<String, Object> description) throws IOException {
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), toMap(description));
+    }
+
+    /**
+     * The report as a table of corrected latencies in milliseconds, each row followed by its
+     * change from the same row of {@code baseline} when one is given
+     */
+    String format(Path baseline) throws IOException {
+        Map<String, Object> report = toMap(Map.of());
+        JsonNode before = baseline != null ? objectMapper.readTree(baseline.toFile()) : null;
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-48s %9s %7s %9s %8s %8s %8s %8s %8s%n",
+                "request", "requests", "errors", "req/s", "p50", "p90", "p99", "p999", "max"));
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> byRequest = (Map<String, Map<String, Object>>) report.get("requests");
+        for (Map.Entry<String, Map<String, Object>> row : byRequest.entrySet()) {
+            formatRow(table, row.getKey(), row.getValue(),
+                    before != null ? before.path("requests").path(row.getKey()) : null);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> totals = (Map<String, Object>) report.get("total");
+        formatRow(table, "total", totals, before != null ? before.path("total") : null);
+        table.append(String.format("Latency of every response, failed ones included, from when it was due; the client sent up to %.2f ms late%n",
+                (double) report.get("maxSendLagMillis")));
+        return table.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void formatRow(StringBuilder table, String name, Map<String, Object> row, JsonNode before) {
+        Map<String, Object> latency = (Map<String, Object>) row.get("latencyMillis");
+        long errors = ((Map<String, Long>) row.get("errors")).values().stream().mapToLong(Long::longValue).sum();
+        table.append(String.format("%-48s %9d %7d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                name.length() > 48 ? name.substring(0, 45) + "..." : name, row.get("requests"), errors,
+                row.get("throughput"), latency.get("p50"), latency.get("p90"), latency.get("p99"),
+                latency.get("p999"), latency.get("max")));
+        if (before == null || before.isMissingNode()) {
+            return;
+        }
+        JsonNode previous = before.path("latencyMillis");
+        table.append(String.format("%-48s %9s %7s %9s %8s %8s %8s %8s %8s%n", "  vs baseline", "", "",
+                change((double) row.get("throughput"), before.path("throughput").asDouble()),
+                change((double) latency.get("p50"), previous.path("p50").asDouble()),
+                change((double) latency.get("p90"), previous.path("p90").asDouble()),
+                change((double) latency.get("p99"), previous.path("p99").asDouble()),
+                change((double) latency.get("p999"), previous.path("p999").asDouble()),
+                change((double) latency.get("max"), previous.path("max").asDouble())));
+    }
+
+    private static String change(double now, double before) {
+        return before > 0 ? String.format("%+.1f%%", (now - before) * 100 / before) : "n/a";
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final LatencyHistogram successLatency = new LatencyHistogram();
+        final Map<String, Long> errors = new TreeMap<>();
+
+        void record(String error, long latencyNanos, long serviceNanos) {
+            long micros = Math.max(0, latencyNanos / 1000);
+            latency.record(micros);
+            serviceTime.record(Math.max(0, serviceNanos / 1000));
+            if (error != null) {
+                errors.merge(error, 1L, Long::sum);
+            } else {
+                successLatency.record(micros);
+            }
+        }
+
+        Map<String, Object> toMap(double seconds) {
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("requests", latency.getTotalCount());
+            endpoint.put("errors", new TreeMap<>(errors));
+            endpoint.put("throughput", Math.round(successLatency.getTotalCount() / seconds * 10) / 10.0);
+            endpoint.put("latencyMillis", percentiles(latency));
+            endpoint.put("serviceTimeMillis", percentiles(serviceTime));
+            endpoint.put("successLatencyMillis", percentiles(successLatency));
+            return endpoint;
+        }
+
+        private static Map<String, Object> percentiles(LatencyHistogram histogram) {
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("mean", millis(Math.round(histogram.getMean())));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                percentiles.put(PERCENTILE_NAMES[i], millis(histogram.getValueAtPercentile(PERCENTILES[i])));
+            }
+            percentiles.put("max", millis(histogram.getMax()));
+            return percentiles;
+        }
+    }
+}
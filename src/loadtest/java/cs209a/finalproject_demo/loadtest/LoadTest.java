@@ -0,0 +1,147 @@
+package cs209a.finalproject_demo.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Open-loop HTTP load test of the API: replays a weighted mix of {@code /api/*} requests at a
+ * fixed rate and reports latency percentiles and throughput per request, corrected for
+ * coordinated omission (see {@link OpenLoopDriver}).
+ * <p>
+ * Without {@code target=} it generates a synthetic dataset and starts the application in a
+ * child JVM on a free port ({@link LocalServer}), so runs are repeatable and the client does
+ * not share a heap with the server. Every run is written to
+ * {@code target/loadtest/<label>.json}; {@code baseline=} compares it with an earlier one.
+ * <p>
+ * Options are {@code key=value} arguments:
+ * <pre>
+ * target     base URL of a running server; empty starts one locally
+ * rate       requests per second (200)
+ * duration   measured seconds (30)
+ * warmup     seconds of traffic before measuring, not reported (10)
+ * mix        weighted requests, weight*path separated by ';' (dashboard traffic)
+ * dataset    dataset appended to every request; "loadtest" for the local server
+ * questions  synthetic questions of the local server's dataset (20000)
+ * seed       seed of the dataset and of the request sequence (42)
+ * timeout    seconds before a request counts as timed out (30)
+ * label      report name (load-yyyyMMdd-HHmmss)
+ * baseline   earlier report to compare with
+ * </pre>
+ */
+public final class LoadTest {
+
+    // A browser dashboard's refresh, a few charts redrawn alone and two ad-hoc queries
+    static final String DEFAULT_MIX = "4*/api/dashboard;2*/api/trends;1*/api/stats;1*/api/cooccurrence;"
+            + "1*/api/pitfalls;1*/api/solvability;2*/api/query?tag=spring&groupBy=year&metrics=count,avg(score);"
+            + "1*/api/query?answered=false&groupBy=tag&limit=20";
+
+    static final Path OUTPUT = Path.of("target", "loadtest");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Files.createDirectories(OUTPUT);
+
+        LocalServer server = null;
+        try {
+            String target = options.target;
+            if (target.isEmpty()) {
+                server = LocalServer.start(options.questions, options.seed);
+                target = server.baseUrl();
+            }
+            String dataset = options.dataset(server != null);
+            List<OpenLoopDriver.Request> mix = OpenLoopDriver.parseMix(options.mix, dataset);
+            OpenLoopDriver driver = new OpenLoopDriver(target, mix, options.timeoutSeconds);
+            driver.preload();
+
+            System.out.printf("Load test of %s: %d requests/s for %d s after %d s of warmup%n",
+                    target, options.rate, options.durationSeconds, options.warmupSeconds);
+            LoadReport report = driver.run(options.rate, options.warmupSeconds, options.durationSeconds, options.seed);
+
+            Path file = OUTPUT.resolve(options.label + ".json");
+            report.write(file, options.describe(target, dataset));
+            System.out.println(report.format(options.baseline.isEmpty() ? null : Path.of(options.baseline)));
+            System.out.println("Report written to " + file);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Options of one run, parsed from {@code key=value} arguments
+     */
+    static final class Options {
+        String target = "";
+        int rate = 200;
+        int durationSeconds = 30;
+        int warmupSeconds = 10;
+        String mix = DEFAULT_MIX;
+        String dataset;
+        int questions = 20000;
+        long seed = 42;
+        int timeoutSeconds = 30;
+        String label = "load-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        String baseline = "";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException("Options are key=value, got: " + arg);
+                }
+                String value = arg.substring(equals + 1).trim();
+                switch (arg.substring(0, equals).trim()) {
+                    case "target" -> options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    case "rate" -> options.rate = positive("rate", value);
+                    case "duration" -> options.durationSeconds = positive("duration", value);
+                    case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "mix" -> options.mix = value;
+                    case "dataset" -> options.dataset = value;
+                    case "questions" -> options.questions = positive("questions", value);
+                    case "seed" -> options.seed = Long.parseLong(value);
+                    case "timeout" -> options.timeoutSeconds = positive("timeout", value);
+                    case "label" -> options.label = value;
+                    case "baseline" -> options.baseline = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            return options;
+        }
+
+        private static int positive(String name, String value) {
+            int parsed = Integer.parseInt(value);
+            if (parsed <= 0) {
+                throw new IllegalArgumentException(name + " must be positive, got " + value);
+            }
+            return parsed;
+        }
+
+        String dataset(boolean local) {
+            return dataset != null ? dataset : local ? LocalServer.DATASET : "";
+        }
+
+        Map<String, Object> describe(String target, String dataset) {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("label", label);
+            description.put("target", target);
+            description.put("rate", rate);
+            description.put("durationSeconds", durationSeconds);
+            description.put("warmupSeconds", warmupSeconds);
+            description.put("mix", List.of(mix.split(";")));
+            description.put("dataset", dataset);
+            description.put("questions", this.target.isEmpty() ? questions : null);
+            description.put("seed", seed);
+            return description;
+        }
+    }
+}
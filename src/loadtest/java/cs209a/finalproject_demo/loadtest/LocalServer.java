@@ -0,0 +1,106 @@
+package cs209a.finalproject_demo.loadtest;
+
+import cs209a.finalproject_demo.FinalProjectDemoApplication;
+import cs209a.finalproject_demo.service.ProgressListener;
+import cs209a.finalproject_demo.service.SyntheticDataGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application started in a child JVM for a load test, serving a synthetic dataset.
+ * <p>
+ * The dataset is generated once per (questions, seed) under {@code target/loadtest} and
+ * registered as the {@code loadtest} dataset, so the working copy's
+ * {@code stackoverflow_data.json} is neither read nor overwritten. The server's output goes
+ * to {@code target/loadtest/server.log}.
+ */
+final class LocalServer {
+
+    static final String DATASET = "loadtest";
+
+    private static final long START_TIMEOUT_MILLIS = 120_000;
+
+    private final Process process;
+    private final int port;
+
+    private LocalServer(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    static LocalServer start(int questions, long seed) throws IOException, InterruptedException {
+        Path data = LoadTest.OUTPUT.resolve("loadtest-" + questions + "-" + seed + ".json").toAbsolutePath();
+        if (!Files.exists(data)) {
+            System.out.printf("Generating %d synthetic questions into %s%n", questions, data);
+            new SyntheticDataGenerator().generate(data.toString(), questions, seed, ProgressListener.NONE);
+        }
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        // The same module flags the pom gives the application (vector.module.args)
+        List<String> command = List.of(java, "--add-modules", "jdk.incubator.vector",
+                "-cp", System.getProperty("java.class.path"),
+                FinalProjectDemoApplication.class.getName(),
+                "--server.port=" + port,
+                "--analysis.datasets=" + DATASET + "=" + data,
+                "--logging.level.cs209a.finalproject_demo=INFO");
+        File log = LoadTest.OUTPUT.resolve("server.log").toFile();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        LocalServer server = new LocalServer(process, port);
+        try {
+            server.awaitHealthy(log);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            server.stop();
+            throw e;
+        }
+        return server;
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    void stop() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private void awaitHealthy(File log) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl() + "/actuator/health")).build();
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Server exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IOException("Server did not start within " + START_TIMEOUT_MILLIS + " ms, see " + log);
+    }
+}
@@ -0,0 +1,176 @@
+package cs209a.finalproject_demo.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests on a fixed schedule, whatever the server's response times.
+ * <p>
+ * Request {@code i} is due at {@code start + i / rate} and is sent asynchronously at that
+ * time, so a slow response never delays the next request. This is the open model of real
+ * users, unlike a closed loop of N clients that each wait for their previous response.
+ * Latency is measured from the due time, not from when the request was actually sent. A
+ * stall in the server or the client therefore counts against every request that should have
+ * gone out during it. This is the coordinated-omission correction. The uncorrected service
+ * time, from the actual send, is reported next to it.
+ * <p>
+ * Requests are picked from the weighted mix by a seeded random sequence, so two runs with
+ * the same seed send the same requests in the same order. The client is the JDK's
+ * asynchronous {@link HttpClient}: a few selector threads keep every in-flight request
+ * going, so the client needs no thread per request.
+ */
+final class OpenLoopDriver {
+
+    // Loading the dataset before the first request can take a while on a fresh server
+    private static final Duration PRELOAD_TIMEOUT = Duration.ofMinutes(5);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final List<Request> mix;
+    private final List<HttpRequest> requests = new ArrayList<>();
+    private final int[] cumulativeWeights;
+
+    OpenLoopDriver(String target, List<Request> mix, int timeoutSeconds) {
+        this.mix = mix;
+        this.cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            Request request = mix.get(i);
+            // Compressed, as the dashboard's browser asks for them
+            requests.add(HttpRequest.newBuilder(URI.create(target + request.path()))
+                    .header("Accept-Encoding", "gzip")
+                    .timeout(Duration.ofSeconds(timeoutSeconds))
+                    .GET()
+                    .build());
+            total += request.weight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * A request of the mix: its name in the report (the path as configured), weight and
+     * path with the dataset parameter
+     */
+    record Request(String name, int weight, String path) {
+    }
+
+    /**
+     * Parse a mix of {@code weight*path} entries separated by ';', such as
+     * {@link LoadTest#DEFAULT_MIX}; a missing weight is 1
+     * @param dataset appended to every path as {@code dataset=}, unless blank
+     */
+    static List<Request> parseMix(String mix, String dataset) {
+        List<Request> requests = new ArrayList<>();
+        for (String entry : mix.split(";")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int star = entry.indexOf('*');
+            int weight = star < 0 ? 1 : Integer.parseInt(entry.substring(0, star).trim());
+            String name = entry.substring(star + 1).trim();
+            if (weight <= 0 || !name.startsWith("/")) {
+                throw new IllegalArgumentException("Mix entries are weight*/path, got: " + entry);
+            }
+            String path = dataset.isBlank() ? name
+                    : name + (name.contains("?") ? "&" : "?") + "dataset=" + dataset;
+            requests.add(new Request(name, weight, path));
+        }
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no requests");
+        }
+        return requests;
+    }
+
+    /**
+     * Send every request of the mix once, one at a time: the first one loads the dataset,
+     * and a mistyped path fails here instead of in the report
+     */
+    void preload() throws IOException, InterruptedException {
+        for (int i = 0; i < mix.size(); i++) {
+            HttpRequest request = HttpRequest.newBuilder(requests.get(i), (name, value) -> true)
+                    .timeout(PRELOAD_TIMEOUT)
+                    .build();
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status >= 400) {
+                throw new IOException(request.uri() + " returned " + status);
+            }
+        }
+    }
+
+    /**
+     * Send {@code rate} requests per second for the warmup and then the measured seconds,
+     * wait for the last responses and report those of the measured requests
+     */
+    LoadReport run(int rate, int warmupSeconds, int durationSeconds, long seed) {
+        List<String> names = new ArrayList<>();
+        mix.forEach(request -> names.add(request.name()));
+        LoadReport report = new LoadReport(names);
+        Random random = new Random(seed);
+
+        long total = (long) (warmupSeconds + durationSeconds) * rate;
+        long firstMeasured = (long) warmupSeconds * rate;
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        long start = System.nanoTime();
+        report.begin(start + firstMeasured * 1_000_000_000L / rate);
+        for (long i = 0; i < total; i++) {
+            // Due times are computed from the start, so rounding never accumulates
+            long due = start + i * 1_000_000_000L / rate;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            int pick = pick(random);
+            String name = mix.get(pick).name();
+            boolean measured = i >= firstMeasured;
+            long sent = System.nanoTime();
+            if (measured) {
+                report.sendLag(sent - due);
+            }
+            pending.add(client.sendAsync(requests.get(pick), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        long done = System.nanoTime();
+                        if (measured) {
+                            report.record(name, error(response, failure), done - due, done - sent, done);
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        return report;
+    }
+
+    private int pick(Random random) {
+        int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= ticket) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * What went wrong with a request: its HTTP status (429 or 503 from admission control,
+     * for instance), "timeout" or the exception; {@code null} for a successful response
+     */
+    private static String error(HttpResponse<Void> response, Throwable failure) {
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            return cause instanceof HttpTimeoutException ? "timeout" : cause.getClass().getSimpleName();
+        }
+        return response.statusCode() < 400 ? null : String.valueOf(response.statusCode());
+    }
+}
@@ -0,0 +1,181 @@
+package cs209a.finalproject_demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.service.AdaptiveLimiter;
+import cs209a.finalproject_demo.service.ColdLoads;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control in front of the analysis endpoints: each endpoint has its own
+ * {@link AdaptiveLimiter}, so a burst of expensive dashboards cannot starve cheap stats
+ * requests. A request over the limit waits briefly for a slot; when that endpoint's queue
+ * is already full it gets 429 straight away, and when no slot frees up in time it gets
+ * 503, both with Retry-After. Runs after {@link ResponseCacheFilter}, so cached responses
+ * are never held up.
+ * <p>
+ * Streamed responses, whose duration depends on the client reading them, and requests that
+ * overlapped a dataset load or streaming pass ({@link ColdLoads}) hold a slot but do not
+ * adjust the limit.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_PATHS = Set.of("/api/stats", "/api/trends", "/api/cooccurrence",
+            "/api/pitfalls", "/api/solvability", "/api/dashboard", "/api/latency", "/api/experts", "/api/duplicates",
+            "/api/query", "/api/questions");
+
+    private static final Pattern RELATED_PATH = Pattern.compile("/api/questions/[^/]+/related");
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final ObjectMapper ERROR_WRITER = new ObjectMapper();
+
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final long latencyFloorMillis;
+    private final long queueTimeoutMillis;
+    private final int maxQueue;
+
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdmissionControlFilter(@Value("${analysis.admission.enabled:true}") boolean enabled,
+                                  @Value("${analysis.admission.initial-limit:8}") int initialLimit,
+                                  @Value("${analysis.admission.max-limit:64}") int maxLimit,
+                                  @Value("${analysis.admission.latency-tolerance:2.0}") double latencyTolerance,
+                                  @Value("${analysis.admission.latency-floor-millis:50}") long latencyFloorMillis,
+                                  @Value("${analysis.admission.queue-timeout-millis:250}") long queueTimeoutMillis,
+                                  @Value("${analysis.admission.max-queue:16}") int maxQueue) {
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.latencyFloorMillis = latencyFloorMillis;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxQueue = maxQueue;
+    }
+
+    /**
+     * State of every endpoint's limiter seen so far, by endpoint
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new TreeMap<>();
+        limiters.forEach((endpoint, limiter) -> description.put(endpoint, limiter.describe()));
+        return description;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || endpoint(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        AdaptiveLimiter limiter = limiters.computeIfAbsent(endpoint(request),
+                endpoint -> new AdaptiveLimiter(initialLimit, 1, maxLimit, latencyTolerance, latencyFloorMillis, maxQueue));
+
+        AdaptiveLimiter.Outcome outcome;
+        try {
+            outcome = limiter.acquire(queueTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Interrupted while waiting for capacity");
+            return;
+        }
+        if (outcome == AdaptiveLimiter.Outcome.QUEUE_FULL) {
+            reject(response, 429, "Too many concurrent requests for " + request.getRequestURI() + ", retry later");
+            return;
+        }
+        if (outcome == AdaptiveLimiter.Outcome.TIMED_OUT) {
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "No capacity for " + request.getRequestURI() + " within " + queueTimeoutMillis + " ms, retry later");
+            return;
+        }
+
+        long start = System.nanoTime();
+        long loads = ColdLoads.mark();
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streamed responses hold their slot until the body is written
+                request.getAsyncContext().addListener(new ReleasingListener(() -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release();
+                    }
+                }));
+            } else if (ColdLoads.quietSince(loads)) {
+                limiter.release(System.nanoTime() - start, response.getStatus() >= 500);
+            } else {
+                limiter.release();
+            }
+        }
+    }
+
+    // Endpoint a request counts against, or null if it is not limited
+    private static String endpoint(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (LIMITED_PATHS.contains(path)) {
+            return path;
+        }
+        return RELATED_PATH.matcher(path).matches() ? "/api/questions/{id}/related" : null;
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ERROR_WRITER.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -1,89 +1,309 @@
 package cs209a.finalproject_demo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.PartialAggregate;
 import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.service.ApproximateAnalysisService;
 import cs209a.finalproject_demo.service.DataAnalysisService;
 import cs209a.finalproject_demo.service.DataCollectionService;
+import cs209a.finalproject_demo.service.DatasetHolder;
+import cs209a.finalproject_demo.service.DatasetRegistry;
+import cs209a.finalproject_demo.service.DuplicateDetectionService;
+import cs209a.finalproject_demo.service.ExpertRankingService;
+import cs209a.finalproject_demo.service.JobService;
+import cs209a.finalproject_demo.service.QueryService;
+import cs209a.finalproject_demo.service.QuestionExportService;
+import cs209a.finalproject_demo.service.RelatedQuestionService;
+import cs209a.finalproject_demo.service.ShardCoordinator;
+import cs209a.finalproject_demo.service.StreamingAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class ApiController {
 
+    private static final ObjectMapper ERROR_WRITER = new ObjectMapper();
+
+    // Longest a request may wait for a job result before getting its progress instead
+    private static final long MAX_JOB_WAIT_MILLIS = 60_000;
+
+    // Trend window of streaming passes made for the other analyses, the /trends default
+    private static final int DEFAULT_TREND_YEARS = 3;
+
     @Autowired
     private DataCollectionService dataCollectionService;
 
     @Autowired
     private DataAnalysisService dataAnalysisService;
 
-    private List<Question> cachedQuestions = null;// Cache loaded questions to avoid reloading
+    @Autowired
+    private ExpertRankingService expertRankingService;
+
+    @Autowired
+    private DuplicateDetectionService duplicateDetectionService;
+
+    @Autowired
+    private RelatedQuestionService relatedQuestionService;
+
+    @Autowired
+    private StreamingAnalysisService streamingAnalysisService;
+
+    @Autowired
+    private ApproximateAnalysisService approximateAnalysisService;
+
+    @Autowired
+    private QuestionExportService questionExportService;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private QueryService queryService;
+
+    @Value("${analysis.jobs.timeout-millis:30000}")
+    private long defaultJobTimeoutMillis = 30_000;
+
+    @Autowired
+    private AdmissionControlFilter admissionControlFilter;
+
+    // Loaded datasets by name, each parsed once however many requests need it
+    @Autowired
+    private DatasetRegistry datasetRegistry;
+
+    @Autowired
+    private ShardCoordinator shardCoordinator;
 
     /**
-     * Initialize data - loads from stackoverflow_data.json file only
+     * Initialize data - loads a dataset's file (stackoverflow_data.json for the default dataset)
      * Please use a separate data collector to collect data and save it to stackoverflow_data.json
+     * <p>
+     * The load runs as a background job; the response (202) describes it and names its
+     * progress stream. Asking again while a load of that dataset is running returns the same job.
      */
     @PostMapping("/init")
-    public ResponseEntity<Map<String, Object>> initializeData() {
+    public ResponseEntity<Map<String, Object>> initializeData(
+            @RequestParam(name = "dataset", required = false) String datasetName) {
 
-        Map<String, Object> response = new HashMap<>();
+        try {
+            return accepted(jobService.startLoad(datasetName));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Collect questions from the Stack Exchange API as a background job, then save and load them
+     */
+    @PostMapping("/collect")
+    public ResponseEntity<Map<String, Object>> collectData(
+            @RequestParam(defaultValue = "1000") int maxQuestions,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
 
+        if (maxQuestions < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "maxQuestions must be positive"));
+        }
         try {
-            cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
+            return accepted(jobService.startCollect(datasetName, maxQuestions));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-            if (cachedQuestions != null && !cachedQuestions.isEmpty()) {
-                response.put("status", "loaded");
-                response.put("message", "Data loaded from stackoverflow_data.json");
-                response.put("dataType", "real");
-                response.put("collected", cachedQuestions.size());
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("status", "error");
-                response.put("message",
-                        "No data found in stackoverflow_data.json. Please run the data collector first.");
-                return ResponseEntity.status(404).body(response);
-            }
+    /**
+     * Generate synthetic questions as a background job, write them as the dataset's file and
+     * load it; the same seed always writes the same file
+     */
+    @PostMapping("/generate")
+    public ResponseEntity<Map<String, Object>> generateData(
+            @RequestParam(defaultValue = "100000") long questions,
+            @RequestParam(defaultValue = "42") long seed,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
 
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", "Failed to load stackoverflow_data.json: " + e.getMessage() +
-                    ". Please run the data collector first to generate the data file.");
-            return ResponseEntity.status(500).body(response);
+        if (questions < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "questions must be positive"));
+        }
+        try {
+            return accepted(jobService.startGenerate(datasetName, questions, seed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
     /**
-     * Get dataset statistics
+     * The datasets this server serves: data file, whether and which version is loaded
      */
-    @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStatistics() {
-        if (cachedQuestions == null || cachedQuestions.isEmpty()) {
-            try {
-                cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
-            } catch (Exception e) {
-                return ResponseEntity.status(404).body(Map.of("error", "No data available. Please initialize first."));
+    @GetMapping("/datasets")
+    public ResponseEntity<Map<String, Object>> getDatasets() {
+        return ResponseEntity.ok(datasetRegistry.describe());
+    }
+
+    /**
+     * Reload every dataset, each as its own background job; the loads run side by side
+     */
+    @PostMapping("/datasets/reload")
+    public ResponseEntity<Map<String, Object>> reloadDatasets() {
+
+        Map<String, Object> jobs = new LinkedHashMap<>();
+        for (String name : datasetRegistry.names()) {
+            jobs.put(name, accepted(jobService.startLoad(name)).getBody());
+        }
+        return ResponseEntity.accepted().body(jobs);
+    }
+
+    /**
+     * Progress of a background job
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable("id") String id) {
+
+        JobService.Job job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Unknown job: " + id));
+        }
+        return ResponseEntity.ok(job.describe());
+    }
+
+    /**
+     * Progress of a background job as server-sent events: {@code progress} while it runs,
+     * then {@code done} or {@code failed}
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getJobEvents(@PathVariable("id") String id) {
+
+        SseEmitter emitter = jobService.subscribe(id);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Run an analysis as a background job: {@code analysis} is one of stats, trends,
+     * cooccurrence, pitfalls, solvability, dashboard, latency, duplicates, query or experts, and
+     * the other parameters are those of its endpoint. {@code priority} (high, normal, low)
+     * orders the queue and the job is cancelled if it has not finished within
+     * {@code timeoutMillis}. Submitting an identical analysis while one is queued or running
+     * returns that job.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitJob(
+            @RequestParam String analysis,
+            @RequestParam(defaultValue = "normal") String priority,
+            @RequestParam(required = false) Long timeoutMillis,
+            @RequestParam Map<String, String> params) {
+
+        int queuePriority;
+        switch (priority.toLowerCase()) {
+            case "high" -> queuePriority = JobService.PRIORITY_HIGH;
+            case "normal" -> queuePriority = JobService.PRIORITY_NORMAL;
+            case "low" -> queuePriority = JobService.PRIORITY_LOW;
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("error", "priority must be high, normal or low"));
             }
         }
+        long timeout = timeoutMillis != null ? timeoutMillis : defaultJobTimeoutMillis;
+        if (timeout <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "timeoutMillis must be positive"));
+        }
 
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalQuestions", cachedQuestions.size());
-        stats.put("totalAnswers", cachedQuestions.stream()
-                .mapToInt(q -> q.getAnswers().size())
-                .sum());
-        stats.put("avgScore", cachedQuestions.stream()
-                .mapToInt(Question::getScore)
-                .average()
-                .orElse(0));
-        stats.put("answeredQuestions", cachedQuestions.stream()
-                .filter(Question::isAnswered)
-                .count());
+        JobService.AnalysisWork work;
+        try {
+            work = analysisWork(analysis, params);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
 
-        return ResponseEntity.ok(stats);
+        // Identical analyses share a job whatever their priority or deadline
+        Map<String, String> key = new TreeMap<>(params);
+        key.remove("priority");
+        key.remove("timeoutMillis");
+        try {
+            return accepted(jobService.submitAnalysis(analysis, key.toString(), queuePriority, timeout, work));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "1").body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Result of a background job, waiting up to {@code waitMillis} for it without holding
+     * a request thread: 200 with the result, the analysis' own error status if it failed,
+     * 409 if it was cancelled, or 202 with its progress if it is still running
+     */
+    @GetMapping("/jobs/{id}/result")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> getJobResult(
+            @PathVariable("id") String id,
+            @RequestParam(defaultValue = "0") long waitMillis) {
+
+        DeferredResult<ResponseEntity<Map<String, Object>>> deferred = new DeferredResult<>();
+        JobService.Job job = jobService.getJob(id);
+        if (job == null) {
+            deferred.setResult(ResponseEntity.status(404).body(Map.of("error", "Unknown job: " + id)));
+            return deferred;
+        }
+        if (job.isFinished() || waitMillis <= 0) {
+            deferred.setResult(jobResult(job));
+            return deferred;
+        }
+
+        deferred = new DeferredResult<>(Math.min(waitMillis, MAX_JOB_WAIT_MILLIS));
+        DeferredResult<ResponseEntity<Map<String, Object>>> result = deferred;
+        result.onTimeout(() -> result.setResult(jobResult(job)));
+        job.getCompletion().thenAccept(finished -> result.setResult(jobResult(finished)));
+        return result;
+    }
+
+    /**
+     * Cancel a background analysis; a job shared by identical submissions keeps running
+     * until all of them have cancelled it
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable("id") String id) {
+
+        JobService.Job job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Unknown job: " + id));
+        }
+        if (!jobService.cancel(job)) {
+            return ResponseEntity.status(409).body(Map.of("error", "Loading and collection jobs cannot be cancelled"));
+        }
+        return ResponseEntity.ok(job.describe());
+    }
+
+    /**
+     * Get dataset statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStatistics(
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(defaultValue = "false") boolean excludeDuplicates,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        return analyze(datasetName, mode, excludeDuplicates, DEFAULT_TREND_YEARS,
+                dataAnalysisService::analyzeStatistics,
+                dataAnalysisService::analyzeStatistics,
+                approximateAnalysisService::analyzeStatistics);
     }
 
     /**
@@ -91,18 +311,15 @@ public class ApiController {
      */
     @GetMapping("/trends")
     public ResponseEntity<Map<String, Object>> getTopicTrends(
-            @RequestParam(defaultValue = "3") int years) {
-
-        if (cachedQuestions == null || cachedQuestions.isEmpty()) {
-            try {
-                cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
-            } catch (Exception e) {
-                return ResponseEntity.status(404).body(Map.of("error", "No data available"));
-            }
-        }
+            @RequestParam(defaultValue = "3") int years,
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(defaultValue = "false") boolean excludeDuplicates,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
 
-        Map<String, Object> result = dataAnalysisService.analyzeTopicTrends(cachedQuestions, years);
-        return ResponseEntity.ok(result);
+        return analyze(datasetName, mode, excludeDuplicates, years,
+                dataset -> dataAnalysisService.analyzeTopicTrends(dataset, years),
+                partial -> dataAnalysisService.analyzeTopicTrends(partial, years),
+                sample -> approximateAnalysisService.analyzeTopicTrends(sample, years));
     }
 
     /**
@@ -110,18 +327,15 @@ public class ApiController {
      */
     @GetMapping("/cooccurrence")
     public ResponseEntity<Map<String, Object>> getTopicCooccurrence(
-            @RequestParam(defaultValue = "10") int topN) {
+            @RequestParam(defaultValue = "10") int topN,
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(defaultValue = "false") boolean excludeDuplicates,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
 
-        if (cachedQuestions == null || cachedQuestions.isEmpty()) {
-            try {
-                cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
-            } catch (Exception e) {
-                return ResponseEntity.status(404).body(Map.of("error", "No data available"));
-            }
-        }
-
-        Map<String, Object> result = dataAnalysisService.analyzeTopicCooccurrence(cachedQuestions, topN);
-        return ResponseEntity.ok(result);
+        return analyze(datasetName, mode, excludeDuplicates, DEFAULT_TREND_YEARS,
+                dataset -> dataAnalysisService.analyzeTopicCooccurrence(dataset, topN),
+                partial -> dataAnalysisService.analyzeTopicCooccurrence(partial, topN),
+                sample -> approximateAnalysisService.analyzeTopicCooccurrence(sample, topN));
     }
 
     /**
@@ -129,57 +343,510 @@ public class ApiController {
      */
     @GetMapping("/pitfalls")
     public ResponseEntity<Map<String, Object>> getMultithreadingPitfalls(
-            @RequestParam(defaultValue = "8") int topN) {
+            @RequestParam(defaultValue = "8") int topN,
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(defaultValue = "false") boolean excludeDuplicates,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        return analyze(datasetName, mode, excludeDuplicates, DEFAULT_TREND_YEARS,
+                dataset -> dataAnalysisService.analyzeMultithreadingPitfalls(dataset, topN),
+                partial -> dataAnalysisService.analyzeMultithreadingPitfalls(partial, topN),
+                sample -> approximateAnalysisService.analyzeMultithreadingPitfalls(sample, topN));
+    }
+
+    /**
+     * Analysis 4: Solvability Analysis
+     */
+    @GetMapping("/solvability")
+    public ResponseEntity<Map<String, Object>> getSolvabilityAnalysis(
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(defaultValue = "false") boolean excludeDuplicates,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        return analyze(datasetName, mode, excludeDuplicates, DEFAULT_TREND_YEARS,
+                dataAnalysisService::analyzeSolvability,
+                dataAnalysisService::analyzeSolvability,
+                approximateAnalysisService::analyzeSolvability);
+    }
+
+    /**
+     * Statistics and analyses for the dashboard in one response, computed in a single pass
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> getDashboard(
+            @RequestParam(required = false) String include,
+            @RequestParam(defaultValue = "3") int years,
+            @RequestParam(defaultValue = "10") int cooccurrenceTopN,
+            @RequestParam(defaultValue = "8") int pitfallsTopN,
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(defaultValue = "false") boolean excludeDuplicates,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        List<String> sections;
+        try {
+            sections = DataAnalysisService.dashboardSections(include);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        return analyze(datasetName, mode, excludeDuplicates, years,
+                dataset -> dataAnalysisService.analyzeDashboard(dataset, sections, years, cooccurrenceTopN, pitfallsTopN),
+                partial -> dataAnalysisService.analyzeDashboard(partial, sections, years, cooccurrenceTopN, pitfallsTopN),
+                sample -> approximateAnalysisService.analyzeDashboard(sample, sections, years, cooccurrenceTopN, pitfallsTopN));
+    }
+
+    /**
+     * Ad-hoc query: filter questions, group them and aggregate each group, using the time
+     * and tag indexes where they narrow the search
+     */
+    @GetMapping("/query")
+    public ResponseEntity<Map<String, Object>> query(
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Integer minScore,
+            @RequestParam(required = false) Integer maxScore,
+            @RequestParam(required = false) Integer minViews,
+            @RequestParam(required = false) Integer maxViews,
+            @RequestParam(required = false) Boolean answered,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(defaultValue = "count") String metrics,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        QuestionDataset dataset;
+        try {
+            dataset = datasetRegistry.get(datasetName).get().getDataset();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+        }
 
-        if (cachedQuestions == null || cachedQuestions.isEmpty()) {
+        try {
+            QueryService.Query query = new QueryService.Query();
+            query.setTags(tag);
+            query.setTopics(topic);
+            query.setFrom(from);
+            query.setTo(to);
+            query.setScore(minScore, maxScore);
+            query.setViews(minViews, maxViews);
+            query.setAnswered(answered);
+            query.setGroupBy(groupBy);
+            query.setMetrics(metrics);
+            query.setLimit(limit);
+            return ResponseEntity.ok(queryService.query(dataset, query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Current concurrency limit, requests in flight and rejections of each admission-controlled endpoint
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmission() {
+        return ResponseEntity.ok(admissionControlFilter.describe());
+    }
+
+    /**
+     * This server's part in a sharded deployment: the shard of the data it holds and, on a
+     * coordinator, the workers it scatters the analyses to
+     */
+    @GetMapping("/cluster")
+    public ResponseEntity<Map<String, Object>> getCluster() {
+        Map<String, Object> cluster = new LinkedHashMap<>();
+        cluster.put("shard", streamingAnalysisService.getShard());
+        cluster.put("coordinator", shardCoordinator.isEnabled() ? shardCoordinator.describe() : null);
+        return ResponseEntity.ok(cluster);
+    }
+
+    /**
+     * Worker side of a sharded deployment: the running totals over this server's shard,
+     * with the trend window the coordinator chose so that every shard's totals merge
+     */
+    @GetMapping("/partial")
+    public ResponseEntity<Map<String, Object>> getPartial(
+            @RequestParam long trendStart,
+            @RequestParam long trendEnd,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        if (trendStart > trendEnd) {
+            return ResponseEntity.badRequest().body(Map.of("error", "trendStart must not be after trendEnd"));
+        }
+        DatasetHolder holder;
+        try {
+            holder = datasetRegistry.get(datasetName);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        long[] window = {trendStart, trendEnd};
+        String dataFile = holder.getDataFile();
+        PartialAggregate partial;
+        if (streamingAnalysisService.isStreaming(dataFile)) {
             try {
-                cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
-            } catch (Exception e) {
+                partial = streamingAnalysisService.aggregate(dataFile, window);
+            } catch (FileNotFoundException e) {
                 return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+            } catch (IOException e) {
+                return ResponseEntity.status(500).body(Map.of("error", "Failed to read " + dataFile + ": " + e.getMessage()));
+            }
+        } else {
+            try {
+                partial = dataAnalysisService.aggregate(holder.get().getDataset(), window);
+            } catch (Exception e) {
+                return ResponseEntity.status(404).body(Map.of("error", "No data available. Please initialize first."));
             }
         }
 
-        Map<String, Object> result = dataAnalysisService.analyzeMultithreadingPitfalls(cachedQuestions, topN);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("shard", streamingAnalysisService.getShard());
+        response.put("partial", partial);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Time-to-first-answer and time-to-accepted-answer percentiles per topic and year
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getAnswerLatency(
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        QuestionDataset dataset;
+        try {
+            dataset = datasetRegistry.get(datasetName).get().getDataset();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+        }
+
+        Map<String, Object> result = dataAnalysisService.analyzeAnswerLatency(dataset);
         return ResponseEntity.ok(result);
     }
 
     /**
-     * Analysis 4: Solvability Analysis
+     * Expert ranking over the asker -> answerer graph, optionally for one topic
      */
-    @GetMapping("/solvability")
-    public ResponseEntity<Map<String, Object>> getSolvabilityAnalysis() {
+    @GetMapping("/experts")
+    public ResponseEntity<Map<String, Object>> getExperts(
+            @RequestParam(required = false) String topic,
+            @RequestParam(defaultValue = "10") int topN,
+            @RequestParam(defaultValue = "pagerank") String sortBy,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
 
-        if (cachedQuestions == null || cachedQuestions.isEmpty()) {
-            try {
-                cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
-            } catch (Exception e) {
-                return ResponseEntity.status(404).body(Map.of("error", "No data available"));
-            }
+        QuestionDataset dataset;
+        try {
+            dataset = datasetRegistry.get(datasetName).get().getDataset();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+        }
+
+        try {
+            Map<String, Object> result = expertRankingService.rankExperts(dataset, topic, topN, sortBy);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Near-duplicate question clusters found with MinHash LSH
+     */
+    @GetMapping("/duplicates")
+    public ResponseEntity<Map<String, Object>> getDuplicates(
+            @RequestParam(defaultValue = "0.8") double threshold,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        QuestionDataset dataset;
+        try {
+            dataset = datasetRegistry.get(datasetName).get().getDataset();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+        }
+
+        if (!(threshold > 0 && threshold <= 1)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "threshold must be in (0, 1]"));
+        }
+
+        Map<String, Object> result = duplicateDetectionService.analyzeDuplicates(dataset, threshold, limit);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * The k questions most similar to the given one (TF-IDF cosine over title, body and tags)
+     */
+    @GetMapping("/questions/{id}/related")
+    public ResponseEntity<Map<String, Object>> getRelatedQuestions(
+            @PathVariable("id") long questionId,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(name = "dataset", required = false) String datasetName) {
+
+        QuestionDataset dataset;
+        try {
+            dataset = datasetRegistry.get(datasetName).get().getDataset();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+        }
+
+        if (k < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "k must be positive"));
         }
 
-        Map<String, Object> result = dataAnalysisService.analyzeSolvability(cachedQuestions);
+        Map<String, Object> result = relatedQuestionService.findRelated(dataset, questionId, k);
+        if (result == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Unknown question: " + questionId));
+        }
         return ResponseEntity.ok(result);
     }
 
     /**
-     * Get all questions (for debugging)
+     * Page through the questions, as a JSON array (default) or as newline-delimited JSON
+     * ({@code format=ndjson} or {@code Accept: application/x-ndjson}). Questions are written
+     * to the response one at a time; {@code fields} keeps only the listed properties and the
+     * {@code X-Next-Cursor} header, when present, addresses the next page.
      */
     @GetMapping("/questions")
-    public ResponseEntity<List<Question>> getAllQuestions(
-            @RequestParam(defaultValue = "10") int limit) {
+    public ResponseEntity<StreamingResponseBody> getAllQuestions(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String format,
+            @RequestParam(name = "dataset", required = false) String datasetName,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        DatasetHolder.Snapshot snapshot;
+        try {
+            snapshot = datasetRegistry.get(datasetName).get();
+        } catch (IllegalArgumentException e) {
+            return streamedError(400, e.getMessage());
+        } catch (Exception e) {
+            return streamedError(404, "No data available");
+        }
 
-        if (cachedQuestions == null || cachedQuestions.isEmpty()) {
+        boolean ndjson = format == null
+                ? accept != null && accept.contains(QuestionExportService.NDJSON)
+                : "ndjson".equalsIgnoreCase(format);
+        if (format != null && !ndjson && !"json".equalsIgnoreCase(format)) {
+            return streamedError(400, "format must be json or ndjson");
+        }
+        if (limit != null && limit < 0) {
+            return streamedError(400, "limit must not be negative");
+        }
+
+        Set<String> projection;
+        int from;
+        try {
+            projection = questionExportService.fields(fields);
+            from = cursor == null ? 0 : questionExportService.row(cursor, snapshot.getVersion());
+        } catch (IllegalArgumentException e) {
+            return streamedError(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            return streamedError(410, e.getMessage());
+        }
+
+        // A JSON page keeps the old default of 10 questions, an NDJSON export runs to the end
+        List<Question> questions = snapshot.getQuestions();
+        int size = questions.size();
+        from = Math.min(from, size);
+        int to = limit != null ? (int) Math.min(size, (long) from + limit) : ndjson ? size : Math.min(size, from + 10);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (to < size) {
+            response.header("X-Next-Cursor", questionExportService.cursor(snapshot.getVersion(), to));
+        }
+        int start = from;
+        if (ndjson) {
+            return response.contentType(MediaType.parseMediaType(QuestionExportService.NDJSON))
+                    .body(out -> questionExportService.writeNdjson(out, questions, start, to, projection));
+        }
+        return response.contentType(MediaType.APPLICATION_JSON)
+                .body(out -> questionExportService.writeJson(out, questions, start, to, projection));
+    }
+
+    /**
+     * Run one of the analyses the way the request and the data size call for:
+     * exactly over the loaded dataset, exactly over a streaming pass when the data file is
+     * too big for the heap, exactly over the merged partials of the workers when this server
+     * coordinates a sharded deployment, or approximately over a stratified sample
+     * ({@code mode=approximate})
+     * @param trendYears trend window of a streaming pass or of the workers' partials
+     */
+    private ResponseEntity<Map<String, Object>> analyze(String datasetName, String mode, boolean excludeDuplicates,
+                                                        int trendYears,
+                                                        Function<QuestionDataset, Map<String, Object>> exact,
+                                                        Function<PartialAggregate, Map<String, Object>> streamed,
+                                                        Function<ApproximateAnalysisService.Sample, Map<String, Object>> approximate) {
+        boolean approximateMode = "approximate".equalsIgnoreCase(mode);
+        if (!approximateMode && !"exact".equalsIgnoreCase(mode)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "mode must be exact or approximate"));
+        }
+
+        DatasetHolder holder;
+        try {
+            holder = datasetRegistry.get(datasetName);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        if (shardCoordinator.isEnabled()) {
+            if (approximateMode || excludeDuplicates) {
+                return ResponseEntity.badRequest().body(Map.of("error",
+                        "mode=approximate and excludeDuplicates are not available across shards"));
+            }
             try {
-                cachedQuestions = dataCollectionService.loadData("stackoverflow_data.json");
-            } catch (Exception e) {
-                return ResponseEntity.status(404).body(null);
+                return ResponseEntity.ok(streamed.apply(
+                        shardCoordinator.aggregate(datasetName, dataAnalysisService.trendWindow(trendYears))));
+            } catch (IOException e) {
+                return ResponseEntity.status(502).body(Map.of("error", e.getMessage()));
             }
         }
 
-        List<Question> limitedQuestions = cachedQuestions.stream()
-                .limit(limit)
-                .toList();
+        String dataFile = holder.getDataFile();
+        if (streamingAnalysisService.isStreaming(dataFile)) {
+            if (excludeDuplicates) {
+                return ResponseEntity.badRequest().body(Map.of("error",
+                        "excludeDuplicates is not available while the data is analysed from disk"));
+            }
+            try {
+                return ResponseEntity.ok(approximateMode
+                        ? approximate.apply(streamingAnalysisService.sample(dataFile))
+                        : streamed.apply(streamingAnalysisService.aggregate(dataFile, trendYears)));
+            } catch (FileNotFoundException e) {
+                return ResponseEntity.status(404).body(Map.of("error", "No data available"));
+            } catch (IOException e) {
+                return ResponseEntity.status(500).body(Map.of("error", "Failed to read " + dataFile + ": " + e.getMessage()));
+            }
+        }
+
+        QuestionDataset dataset;
+        try {
+            dataset = holder.get().getDataset();
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(Map.of("error", "No data available. Please initialize first."));
+        }
+
+        dataset = analysisDataset(dataset, excludeDuplicates);
+        return ResponseEntity.ok(approximateMode
+                ? approximate.apply(approximateAnalysisService.sample(dataset))
+                : exact.apply(dataset));
+    }
 
-        return ResponseEntity.ok(limitedQuestions);
+    /**
+     * The dataset the analyses run on, without near-duplicates if requested
+     */
+    private QuestionDataset analysisDataset(QuestionDataset dataset, boolean excludeDuplicates) {
+        return excludeDuplicates ? duplicateDetectionService.withoutDuplicates(dataset) : dataset;
+    }
+
+    /**
+     * An error response with the usual {@code {"error": ...}} body, for endpoints that stream
+     */
+    private static ResponseEntity<StreamingResponseBody> streamedError(int status, String message) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON)
+                .body(out -> ERROR_WRITER.writeValue(out, Map.of("error", message)));
+    }
+
+    /**
+     * 202 with the job, where to poll it and where to follow its progress
+     */
+    private static ResponseEntity<Map<String, Object>> accepted(JobService.Job job) {
+        Map<String, Object> response = new LinkedHashMap<>(job.describe());
+        response.put("poll", "/api/jobs/" + job.getId());
+        response.put("events", "/api/jobs/" + job.getId() + "/events");
+        return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.getId())).body(response);
+    }
+
+    /**
+     * What an analysis job runs: the matching endpoint, with its parameters taken from
+     * {@code params} and its error responses turned into job failures
+     */
+    private JobService.AnalysisWork analysisWork(String analysis, Map<String, String> params) {
+        String datasetName = params.get("dataset");
+        String mode = params.getOrDefault("mode", "exact");
+        boolean excludeDuplicates = Boolean.parseBoolean(params.getOrDefault("excludeDuplicates", "false"));
+        Supplier<ResponseEntity<Map<String, Object>>> endpoint = switch (analysis) {
+            case "stats" -> () -> getStatistics(mode, excludeDuplicates, datasetName);
+            case "trends" -> {
+                int years = intParam(params, "years", 3);
+                yield () -> getTopicTrends(years, mode, excludeDuplicates, datasetName);
+            }
+            case "cooccurrence" -> {
+                int topN = intParam(params, "topN", 10);
+                yield () -> getTopicCooccurrence(topN, mode, excludeDuplicates, datasetName);
+            }
+            case "pitfalls" -> {
+                int topN = intParam(params, "topN", 8);
+                yield () -> getMultithreadingPitfalls(topN, mode, excludeDuplicates, datasetName);
+            }
+            case "solvability" -> () -> getSolvabilityAnalysis(mode, excludeDuplicates, datasetName);
+            case "dashboard" -> {
+                int years = intParam(params, "years", 3);
+                int cooccurrenceTopN = intParam(params, "cooccurrenceTopN", 10);
+                int pitfallsTopN = intParam(params, "pitfallsTopN", 8);
+                yield () -> getDashboard(params.get("include"), years, cooccurrenceTopN, pitfallsTopN,
+                        mode, excludeDuplicates, datasetName);
+            }
+            case "latency" -> () -> getAnswerLatency(datasetName);
+            case "duplicates" -> {
+                double threshold = Double.parseDouble(params.getOrDefault("threshold", "0.8"));
+                int limit = intParam(params, "limit", 20);
+                yield () -> getDuplicates(threshold, limit, datasetName);
+            }
+            case "query" -> {
+                Integer minScore = params.containsKey("minScore") ? intParam(params, "minScore", 0) : null;
+                Integer maxScore = params.containsKey("maxScore") ? intParam(params, "maxScore", 0) : null;
+                Integer minViews = params.containsKey("minViews") ? intParam(params, "minViews", 0) : null;
+                Integer maxViews = params.containsKey("maxViews") ? intParam(params, "maxViews", 0) : null;
+                Boolean answered = params.containsKey("answered") ? Boolean.valueOf(params.get("answered")) : null;
+                int limit = intParam(params, "limit", 100);
+                yield () -> query(params.get("tag"), params.get("topic"), params.get("from"), params.get("to"),
+                        minScore, maxScore, minViews, maxViews, answered, params.get("groupBy"),
+                        params.getOrDefault("metrics", "count"), limit, datasetName);
+            }
+            case "experts" -> {
+                int topN = intParam(params, "topN", 10);
+                yield () -> getExperts(params.get("topic"), topN, params.getOrDefault("sortBy", "pagerank"), datasetName);
+            }
+            default -> throw new IllegalArgumentException("Unknown analysis: " + analysis);
+        };
+        return () -> {
+            ResponseEntity<Map<String, Object>> response = endpoint.get();
+            Map<String, Object> body = response.getBody();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                Object error = body != null ? body.get("error") : null;
+                throw new JobService.JobFailedException(response.getStatusCode().value(),
+                        error != null ? error.toString() : "Analysis failed");
+            }
+            return body;
+        };
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer: " + value);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> jobResult(JobService.Job job) {
+        if (!job.isFinished()) {
+            return ResponseEntity.accepted().body(job.describe());
+        }
+        if ("done".equals(job.getState())) {
+            return ResponseEntity.ok(job.getResult());
+        }
+        return ResponseEntity.status(job.getStatus()).body(Map.of("error", job.getError()));
     }
 }
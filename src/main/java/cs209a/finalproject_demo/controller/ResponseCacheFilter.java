@@ -0,0 +1,139 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.service.ResponseCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Serves repeated GETs of the analysis endpoints from {@link ResponseCache}: the first
+ * request runs the controller and its 200 response is stored as bytes, later requests
+ * for the same parameters and data get those bytes copied out, gzipped when the client
+ * accepts it, with an entity tag for conditional requests.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> CACHED_PATHS = Set.of("/api/stats", "/api/trends", "/api/cooccurrence",
+            "/api/pitfalls", "/api/solvability", "/api/dashboard", "/api/latency", "/api/experts", "/api/duplicates",
+            "/api/query");
+
+    private static final Pattern RELATED_PATH = Pattern.compile("/api/questions/[^/]+/related");
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheFilter(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"GET".equals(request.getMethod()) || !responseCache.isEnabled()
+                || !(CACHED_PATHS.contains(path) || RELATED_PATH.matcher(path).matches());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String version = responseCache.versionToken(request.getParameter("dataset"));
+        if (version == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = version + " " + request.getRequestURI() + "?" + canonicalQuery(request);
+
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry != null) {
+            // The controller's @CrossOrigin does not run for cached responses
+            if (request.getHeader(HttpHeaders.ORIGIN) != null) {
+                response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+            }
+            write(request, response, entry);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        String contentType = wrapper.getContentType();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || contentType == null || !contentType.contains("json")) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        write(request, response, responseCache.put(key, contentType, wrapper.getContentAsByteArray()));
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, ResponseCache.Entry entry)
+            throws IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ETAG, entry.getEtag());
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(entry.getEtag()) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = entry.getIdentity();
+        if (entry.getGzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            body = entry.getGzip();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.getContentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // Accept-Encoding lists gzip (or *) without q=0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) == 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            return !refused;
+        }
+        return false;
+    }
+
+    // Parameters in name order, so equivalent URLs share an entry
+    private static String canonicalQuery(HttpServletRequest request) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                query.append(parameter.getKey()).append('=').append(value).append('&');
+            }
+        }
+        return query.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package cs209a.finalproject_demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
@@ -17,6 +18,10 @@ public class Answer {
 
     private String body;
 
+    // Derived from body at load time, see CodeBlockScanner
+    @JsonIgnore
+    private CodeFeatures codeFeatures;
+
     @JsonProperty("creation_date")
     private long creationDate;
 
@@ -26,7 +31,8 @@ public class Answer {
     private boolean accepted;
 
     private long ownerId;
-    private String ownerDisplayName;
+    @JsonIgnore
+    private int ownerNameId = StringDictionary.NO_ID;
     private int ownerReputation;
     private List<Comment> comments;
 
@@ -42,7 +48,7 @@ public class Answer {
                 this.ownerId = ownerNode.get("user_id").asLong();
             }
             if (ownerNode.has("display_name")) {
-                this.ownerDisplayName = ownerNode.get("display_name").asText();
+                this.ownerNameId = StringDictionary.OWNER_NAMES.internUnlessSkipped(ownerNode.get("display_name").asText());
             }
             if (ownerNode.has("reputation")) {
                 this.ownerReputation = ownerNode.get("reputation").asInt();
@@ -73,6 +79,19 @@ public class Answer {
 
     public void setBody(String body) {
         this.body = body;
+        this.codeFeatures = null;
+    }
+
+    /**
+     * Code features of the body, or {@code null} if they were not extracted yet
+     */
+    @JsonIgnore
+    public CodeFeatures getCodeFeatures() {
+        return codeFeatures;
+    }
+
+    public void setCodeFeatures(CodeFeatures codeFeatures) {
+        this.codeFeatures = codeFeatures;
     }
 
     public long getCreationDate() {
@@ -108,11 +127,16 @@ public class Answer {
     }
 
     public String getOwnerDisplayName() {
-        return ownerDisplayName;
+        return StringDictionary.OWNER_NAMES.lookup(ownerNameId);
     }
 
     public void setOwnerDisplayName(String ownerDisplayName) {
-        this.ownerDisplayName = ownerDisplayName;
+        this.ownerNameId = StringDictionary.OWNER_NAMES.intern(ownerDisplayName);
+    }
+
+    @JsonIgnore
+    public int getOwnerNameId() {
+        return ownerNameId;
     }
 
     public int getOwnerReputation() {
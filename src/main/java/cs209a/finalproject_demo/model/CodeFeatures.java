@@ -0,0 +1,63 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Code-related features of one post body, extracted once at load time by
+ * {@code CodeBlockScanner}.
+ */
+public final class CodeFeatures {
+
+    // Language hints, bit i of languageMask stands for LANGUAGES.get(i)
+    public static final List<String> LANGUAGES = List.of(
+            "java", "kotlin", "groovy", "scala", "xml", "json", "sql", "javascript",
+            "python", "bash", "c", "cpp", "other");
+
+    public static final CodeFeatures NONE = new CodeFeatures(0, 0, 0, false);
+
+    private final int blockCount;
+    private final int codeLength;
+    private final int languageMask;
+    private final boolean bracePair;
+
+    public CodeFeatures(int blockCount, int codeLength, int languageMask, boolean bracePair) {
+        this.blockCount = blockCount;
+        this.codeLength = codeLength;
+        this.languageMask = languageMask;
+        this.bracePair = bracePair;
+    }
+
+    /** Number of {@code <pre>}, {@code <code>} and fenced blocks (code nested in pre counts once) */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /** Characters inside code blocks, markup excluded */
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    public int getLanguageMask() {
+        return languageMask;
+    }
+
+    /** Whether a '{' is followed by a '}' anywhere in the body */
+    public boolean hasBracePair() {
+        return bracePair;
+    }
+
+    public boolean hasCode() {
+        return blockCount > 0;
+    }
+
+    public List<String> getLanguages() {
+        List<String> languages = new ArrayList<>();
+        for (int i = 0; i < LANGUAGES.size(); i++) {
+            if ((languageMask & (1 << i)) != 0) {
+                languages.add(LANGUAGES.get(i));
+            }
+        }
+        return languages;
+    }
+}
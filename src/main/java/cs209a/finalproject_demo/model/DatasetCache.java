@@ -0,0 +1,49 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Values derived from datasets (indexes, clusters, rankings), built once per dataset.
+ * <p>
+ * Several datasets can be in use at once, so a value is kept per dataset rather than for
+ * the last one used. Datasets are weakly held: a reloaded dataset's values go away with
+ * it, as long as they do not refer back to the dataset themselves. Concurrent callers
+ * for the same dataset wait for one build; builds for different datasets run side by side.
+ */
+public final class DatasetCache<V> {
+
+    private final Map<QuestionDataset, CompletableFuture<V>> values = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The value of a dataset, built by {@code builder} on first use
+     */
+    public V get(QuestionDataset dataset, Function<QuestionDataset, V> builder) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = values.putIfAbsent(dataset, created);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw e;
+            }
+        }
+        try {
+            V value = builder.apply(dataset);
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Let the next caller try again
+            values.remove(dataset, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Asker -> answerer graph in compressed sparse row form.
+ * <p>
+ * Nodes are users numbered {@code 0..nodeCount-1}. Every answer adds one edge from the
+ * question owner to the answer owner (self-answers and anonymous users are skipped), so
+ * parallel edges count repeated help. Both the forward ({@code out}) and reverse
+ * ({@code in}) adjacency are kept so rank iterations can pull from neighbours without
+ * synchronisation.
+ */
+public final class ExpertGraph {
+
+    private final int nodeCount;
+    private final long[] userIds;
+    private final int[] nameIds;
+
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private ExpertGraph(int nodeCount, long[] userIds, int[] nameIds, int[] edgeSources, int[] edgeTargets,
+                        int edgeCount) {
+        this.nodeCount = nodeCount;
+        this.userIds = userIds;
+        this.nameIds = nameIds;
+        this.outOffsets = new int[nodeCount + 1];
+        this.outTargets = new int[edgeCount];
+        this.inOffsets = new int[nodeCount + 1];
+        this.inSources = new int[edgeCount];
+
+        // Counting sort of the edge list into both adjacency directions
+        for (int e = 0; e < edgeCount; e++) {
+            outOffsets[edgeSources[e] + 1]++;
+            inOffsets[edgeTargets[e] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            outOffsets[node + 1] += outOffsets[node];
+            inOffsets[node + 1] += inOffsets[node];
+        }
+        int[] outCursor = Arrays.copyOf(outOffsets, nodeCount);
+        int[] inCursor = Arrays.copyOf(inOffsets, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            outTargets[outCursor[edgeSources[e]]++] = edgeTargets[e];
+            inSources[inCursor[edgeTargets[e]]++] = edgeSources[e];
+        }
+    }
+
+    /**
+     * Build the graph from the answers of the dataset rows accepted by {@code rowFilter}
+     */
+    public static ExpertGraph build(QuestionDataset dataset, IntPredicate rowFilter) {
+        List<Question> questions = dataset.getQuestions();
+        LongIntHashMap nodes = new LongIntHashMap(Math.max(16, questions.size()));
+        long[] userIds = new long[64];
+        int[] nameIds = new int[64];
+        int[] sources = new int[256];
+        int[] targets = new int[256];
+        int edgeCount = 0;
+
+        for (int row = 0; row < questions.size(); row++) {
+            if (!rowFilter.test(row)) {
+                continue;
+            }
+            Question question = questions.get(row);
+            long askerId = question.getOwnerId();
+            if (askerId <= 0 || question.getAnswers() == null) {
+                continue;
+            }
+            for (Answer answer : question.getAnswers()) {
+                long answererId = answer.getOwnerId();
+                if (answererId <= 0 || answererId == askerId) {
+                    continue;
+                }
+                int before = nodes.size();
+                int asker = nodes.getOrAssignNext(askerId);
+                int answerer = nodes.getOrAssignNext(answererId);
+                if (nodes.size() > userIds.length) {
+                    userIds = Arrays.copyOf(userIds, userIds.length * 2);
+                    nameIds = Arrays.copyOf(nameIds, nameIds.length * 2);
+                }
+                if (asker >= before) {
+                    userIds[asker] = askerId;
+                    nameIds[asker] = question.getOwnerNameId();
+                }
+                if (answerer >= before) {
+                    userIds[answerer] = answererId;
+                    nameIds[answerer] = answer.getOwnerNameId();
+                }
+
+                if (edgeCount == sources.length) {
+                    sources = Arrays.copyOf(sources, edgeCount * 2);
+                    targets = Arrays.copyOf(targets, edgeCount * 2);
+                }
+                sources[edgeCount] = asker;
+                targets[edgeCount] = answerer;
+                edgeCount++;
+            }
+        }
+
+        return new ExpertGraph(nodes.size(), userIds, nameIds, sources, targets, edgeCount);
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    public long userId(int node) {
+        return userIds[node];
+    }
+
+    public String displayName(int node) {
+        return StringDictionary.OWNER_NAMES.lookup(nameIds[node]);
+    }
+
+    public int outDegree(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    /** Number of answers the user gave in this graph */
+    public int inDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    public int[] outOffsets() {
+        return outOffsets;
+    }
+
+    public int[] outTargets() {
+        return outTargets;
+    }
+
+    public int[] inOffsets() {
+        return inOffsets;
+    }
+
+    public int[] inSources() {
+        return inSources;
+    }
+}
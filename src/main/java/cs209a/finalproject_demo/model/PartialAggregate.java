@@ -0,0 +1,295 @@
+package cs209a.finalproject_demo.model;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable running totals behind the statistics, topic trend, co-occurrence, pitfall and
+ * solvability analyses.
+ * <p>
+ * A partial is filled from the rows of any slice of the data (a streamed chunk, a worker's
+ * shard) and partials of disjoint slices are combined with {@link #merge}. Merging is
+ * associative; merging in slice order also keeps the pitfall examples in data order.
+ * Trends only count questions created inside the window given at construction, so only
+ * partials with the same window can be merged. Serialised by Jackson through its fields.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+public final class PartialAggregate {
+
+    // Example titles kept per pitfall
+    public static final int PITFALL_EXAMPLES = 3;
+
+    private int topicCount;
+    private long trendStart;
+    private long trendEnd;
+
+    private int questionCount;
+    private long answerCount;
+    private long scoreSum;
+    private int answeredCount;
+
+    // Creation month (year * 12 + month - 1) -> questions per topic, inside the trend window
+    private TreeMap<Integer, int[]> trendCounts = new TreeMap<>();
+    private int trendQuestions;
+
+    // Topic pair (i * topics + j, i < j) -> questions in both topics
+    private int[] pairCounts;
+
+    private int multithreadingCount;
+    private int[] pitfallCounts;
+    private List<List<String>> pitfallExamples;
+
+    private SolvabilityGroup solvable = new SolvabilityGroup();
+    private SolvabilityGroup hardToSolve = new SolvabilityGroup();
+
+    // For Jackson
+    private PartialAggregate() {
+    }
+
+    /**
+     * @param topicCount   number of tracked topics (bits of the topic masks)
+     * @param pitfallCount number of tracked pitfalls (bits of the pitfall masks)
+     * @param trendStart   first creation time counted by the trends, epoch seconds
+     * @param trendEnd     last creation time counted by the trends, epoch seconds
+     */
+    public PartialAggregate(int topicCount, int pitfallCount, long trendStart, long trendEnd) {
+        this.topicCount = topicCount;
+        this.trendStart = trendStart;
+        this.trendEnd = trendEnd;
+        this.pairCounts = new int[topicCount * topicCount];
+        this.pitfallCounts = new int[pitfallCount];
+        this.pitfallExamples = new ArrayList<>();
+        for (int i = 0; i < pitfallCount; i++) {
+            pitfallExamples.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Add row {@code row} of a columnar view
+     * @param multithreadingTopics topic mask of the topics whose questions are checked for pitfalls
+     */
+    public void record(QuestionColumns columns, int row, String title, int multithreadingTopics) {
+        questionCount++;
+        answerCount += columns.loadedAnswers[row];
+        scoreSum += columns.score[row];
+        if (QuestionColumns.get(columns.answered, row)) {
+            answeredCount++;
+        }
+
+        int topicMask = columns.topicMask[row];
+        long created = columns.creationDate[row];
+        if (created >= trendStart && created <= trendEnd) {
+            trendQuestions++;
+            int[] counts = trendCounts.computeIfAbsent(columns.epochMonth[row], m -> new int[topicCount]);
+            for (int mask = topicMask; mask != 0; mask &= mask - 1) {
+                counts[Integer.numberOfTrailingZeros(mask)]++;
+            }
+        }
+
+        for (int first = topicMask; first != 0; first &= first - 1) {
+            int i = Integer.numberOfTrailingZeros(first);
+            for (int second = first & (first - 1); second != 0; second &= second - 1) {
+                pairCounts[i * topicCount + Integer.numberOfTrailingZeros(second)]++;
+            }
+        }
+
+        if ((topicMask & multithreadingTopics) != 0) {
+            multithreadingCount++;
+            for (int mask = columns.pitfallMask[row]; mask != 0; mask &= mask - 1) {
+                int pitfall = Integer.numberOfTrailingZeros(mask);
+                pitfallCounts[pitfall]++;
+                if (pitfallExamples.get(pitfall).size() < PITFALL_EXAMPLES) {
+                    pitfallExamples.get(pitfall).add(title);
+                }
+            }
+        }
+
+        if (QuestionColumns.get(columns.solvable, row)) {
+            solvable.record(columns, row);
+        }
+        if (QuestionColumns.get(columns.hardToSolve, row)) {
+            hardToSolve.record(columns, row);
+        }
+    }
+
+    /**
+     * Add the totals of {@code other}, a partial over rows that come after this one's
+     */
+    public PartialAggregate merge(PartialAggregate other) {
+        if (other.topicCount != topicCount || other.pitfallCounts.length != pitfallCounts.length) {
+            throw new IllegalArgumentException("Partials track different topics or pitfalls");
+        }
+        if (other.trendStart != trendStart || other.trendEnd != trendEnd) {
+            throw new IllegalArgumentException("Partials cover different trend windows");
+        }
+        questionCount += other.questionCount;
+        answerCount += other.answerCount;
+        scoreSum += other.scoreSum;
+        answeredCount += other.answeredCount;
+
+        other.trendCounts.forEach((month, counts) -> {
+            int[] mine = trendCounts.computeIfAbsent(month, m -> new int[counts.length]);
+            for (int i = 0; i < counts.length; i++) {
+                mine[i] += counts[i];
+            }
+        });
+        trendQuestions += other.trendQuestions;
+
+        for (int i = 0; i < pairCounts.length; i++) {
+            pairCounts[i] += other.pairCounts[i];
+        }
+
+        multithreadingCount += other.multithreadingCount;
+        for (int i = 0; i < pitfallCounts.length; i++) {
+            pitfallCounts[i] += other.pitfallCounts[i];
+            List<String> examples = pitfallExamples.get(i);
+            for (String example : other.pitfallExamples.get(i)) {
+                if (examples.size() >= PITFALL_EXAMPLES) {
+                    break;
+                }
+                examples.add(example);
+            }
+        }
+
+        solvable.merge(other.solvable);
+        hardToSolve.merge(other.hardToSolve);
+        return this;
+    }
+
+    public int getTopicCount() {
+        return topicCount;
+    }
+
+    public long getTrendStart() {
+        return trendStart;
+    }
+
+    public long getTrendEnd() {
+        return trendEnd;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    /** Answers present in the data, not the reported answer counts */
+    public long getAnswerCount() {
+        return answerCount;
+    }
+
+    public long getScoreSum() {
+        return scoreSum;
+    }
+
+    public int getAnsweredCount() {
+        return answeredCount;
+    }
+
+    /** Creation month -> questions per topic, for the questions inside the trend window */
+    public Map<Integer, int[]> getTrendCounts() {
+        return trendCounts;
+    }
+
+    public int getTrendQuestions() {
+        return trendQuestions;
+    }
+
+    public int[] getPairCounts() {
+        return pairCounts;
+    }
+
+    public int getMultithreadingCount() {
+        return multithreadingCount;
+    }
+
+    public int[] getPitfallCounts() {
+        return pitfallCounts;
+    }
+
+    public List<List<String>> getPitfallExamples() {
+        return pitfallExamples;
+    }
+
+    public SolvabilityGroup getSolvable() {
+        return solvable;
+    }
+
+    public SolvabilityGroup getHardToSolve() {
+        return hardToSolve;
+    }
+
+    /**
+     * Totals over the solvable or the hard-to-solve questions
+     */
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+            getterVisibility = JsonAutoDetect.Visibility.NONE,
+            isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+    public static final class SolvabilityGroup {
+        private int count;
+        private int answerHasCode;
+        private long titleLengthSum;
+        private int titleCount;
+        private long reputationSum;
+        private long tagSum;
+        private long viewSum;
+
+        void record(QuestionColumns columns, int row) {
+            count++;
+            if (QuestionColumns.get(columns.answerHasCode, row)) {
+                answerHasCode++;
+            }
+            if (columns.titleLength[row] >= 0) {
+                titleLengthSum += columns.titleLength[row];
+                titleCount++;
+            }
+            reputationSum += columns.ownerReputation[row];
+            tagSum += columns.tagCount[row];
+            viewSum += columns.viewCount[row];
+        }
+
+        void merge(SolvabilityGroup other) {
+            count += other.count;
+            answerHasCode += other.answerHasCode;
+            titleLengthSum += other.titleLengthSum;
+            titleCount += other.titleCount;
+            reputationSum += other.reputationSum;
+            tagSum += other.tagSum;
+            viewSum += other.viewSum;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getAnswerHasCode() {
+            return answerHasCode;
+        }
+
+        public long getTitleLengthSum() {
+            return titleLengthSum;
+        }
+
+        /** Questions with a title */
+        public int getTitleCount() {
+            return titleCount;
+        }
+
+        public long getReputationSum() {
+            return reputationSum;
+        }
+
+        public long getTagSum() {
+            return tagSum;
+        }
+
+        public long getViewSum() {
+            return viewSum;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.Arrays;
+
+/**
+ * Secondary indexes over a {@link QuestionDataset} for ad-hoc queries: the rows in
+ * creation-time order, so a date range is a binary search away, and one posting list of
+ * rows per tag. Posting lists are in row order, so they intersect with a merge.
+ * Holds no reference to the dataset, so it can be cached per dataset.
+ */
+public final class QueryIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final int[] byTime;
+    private final long[] sortedDates;
+    private final int[][] postings;
+
+    public QueryIndex(QuestionDataset dataset) {
+        int size = dataset.size();
+        long[] creationDate = dataset.getColumns().creationDate();
+
+        // Sort (date, row) pairs packed into longs instead of boxing every row
+        long minDate = Long.MAX_VALUE;
+        for (int row = 0; row < size; row++) {
+            minDate = Math.min(minDate, creationDate[row]);
+        }
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = (creationDate[row] - minDate) << 32 | row;
+        }
+        Arrays.parallelSort(keys);
+        this.byTime = new int[size];
+        this.sortedDates = new long[size];
+        for (int i = 0; i < size; i++) {
+            byTime[i] = (int) keys[i];
+            sortedDates[i] = creationDate[byTime[i]];
+        }
+
+        int tags = 0;
+        int[] counts = new int[StringDictionary.TAGS.size()];
+        for (Question question : dataset.getQuestions()) {
+            int[] tagIds = question.getTagIds();
+            for (int i = 0; i < tagIds.length; i++) {
+                if (!isIndexedTag(tagIds, i)) {
+                    continue;
+                }
+                int tag = tagIds[i];
+                if (tag >= counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(tag + 1, counts.length * 2));
+                }
+                counts[tag]++;
+                tags = Math.max(tags, tag + 1);
+            }
+        }
+        this.postings = new int[tags][];
+        for (int tag = 0; tag < tags; tag++) {
+            postings[tag] = counts[tag] == 0 ? NO_ROWS : new int[counts[tag]];
+        }
+        int[] filled = new int[tags];
+        for (int row = 0; row < size; row++) {
+            int[] tagIds = dataset.getQuestions().get(row).getTagIds();
+            for (int i = 0; i < tagIds.length; i++) {
+                if (isIndexedTag(tagIds, i)) {
+                    postings[tagIds[i]][filled[tagIds[i]]++] = row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the i-th tag of a question goes into a posting list (or a tag group): not a null tag
+     * ({@link StringDictionary#NO_ID}) and not a repeat of an earlier tag, so every row is
+     * listed once per tag. Questions have a handful of tags, so the scan is cheaper than a set.
+     */
+    public static boolean isIndexedTag(int[] tagIds, int i) {
+        if (tagIds[i] < 0) {
+            return false;
+        }
+        for (int j = 0; j < i; j++) {
+            if (tagIds[j] == tagIds[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Rows in creation-time order */
+    public int[] byTime() {
+        return byTime;
+    }
+
+    /**
+     * Positions in {@link #byTime()} of the questions created in {@code [from, to)}
+     * @return {@code {start, end}}
+     */
+    public int[] timeRange(long from, long to) {
+        return new int[]{lowerBound(from), lowerBound(to)};
+    }
+
+    /** Rows tagged with a tag id, in row order; empty for an unknown tag */
+    public int[] postings(int tagId) {
+        return tagId >= 0 && tagId < postings.length ? postings[tagId] : NO_ROWS;
+    }
+
+    /** Rows present in both sorted row lists */
+    public static int[] intersect(int[] rows, int[] other) {
+        int[] result = new int[Math.min(rows.length, other.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < rows.length && j < other.length; ) {
+            if (rows[i] < other[j]) {
+                i++;
+            } else if (rows[i] > other[j]) {
+                j++;
+            } else {
+                result[size++] = rows[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // First position whose date is >= the given one
+    private int lowerBound(long date) {
+        int low = 0;
+        int high = sortedDates.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedDates[middle] < date) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
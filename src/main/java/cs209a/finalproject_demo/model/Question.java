@@ -1,10 +1,12 @@
 package cs209a.finalproject_demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +17,21 @@ public class Question {
 
     private String title;
     private String body;
-    private List<String> tags;
+
+    // Derived from body at load time, see CodeBlockScanner
+    @JsonIgnore
+    private CodeFeatures codeFeatures;
+
+    // Normalized "title body" text (no markup, lower case) as UTF-8, see TextNormalizer
+    @JsonIgnore
+    private byte[] searchText;
+
+    // MinHash signature of the search text, see MinHasher
+    @JsonIgnore
+    private int[] minHash;
+    // Tags are interned through StringDictionary.TAGS and kept as ids
+    @JsonIgnore
+    private int[] tagIds;
 
     @JsonProperty("creation_date")
     private long creationDate;
@@ -35,7 +51,8 @@ public class Question {
     private Long acceptedAnswerId;
 
     private long ownerId;
-    private String ownerDisplayName;
+    @JsonIgnore
+    private int ownerNameId = StringDictionary.NO_ID;
     private int ownerReputation;
 
     @JsonProperty("answers_data")
@@ -43,8 +60,10 @@ public class Question {
 
     private List<Comment> comments;
 
+    private static final int[] EMPTY_TAGS = new int[0];
+
     public Question() {
-        this.tags = new ArrayList<>();
+        this.tagIds = EMPTY_TAGS;
         this.answers = new ArrayList<>();
         this.comments = new ArrayList<>();
     }
@@ -57,7 +76,7 @@ public class Question {
                 this.ownerId = ownerNode.get("user_id").asLong();
             }
             if (ownerNode.has("display_name")) {
-                this.ownerDisplayName = ownerNode.get("display_name").asText();
+                this.ownerNameId = StringDictionary.OWNER_NAMES.internUnlessSkipped(ownerNode.get("display_name").asText());
             }
             if (ownerNode.has("reputation")) {
                 this.ownerReputation = ownerNode.get("reputation").asInt();
@@ -80,6 +99,8 @@ public class Question {
 
     public void setTitle(String title) {
         this.title = title;
+        this.searchText = null;
+        this.minHash = null;
     }
 
     public String getBody() {
@@ -88,14 +109,72 @@ public class Question {
 
     public void setBody(String body) {
         this.body = body;
+        this.codeFeatures = null;
+        this.searchText = null;
+        this.minHash = null;
+    }
+
+    /**
+     * Code features of the body, or {@code null} if they were not extracted yet
+     */
+    @JsonIgnore
+    public CodeFeatures getCodeFeatures() {
+        return codeFeatures;
+    }
+
+    public void setCodeFeatures(CodeFeatures codeFeatures) {
+        this.codeFeatures = codeFeatures;
+    }
+
+    /**
+     * Normalized search text, or {@code null} if it was not built yet
+     */
+    @JsonIgnore
+    public byte[] getSearchText() {
+        return searchText;
+    }
+
+    public void setSearchText(byte[] searchText) {
+        this.searchText = searchText;
+        this.minHash = null;
+    }
+
+    /**
+     * MinHash signature of the search text, or {@code null} if it was not computed yet
+     */
+    @JsonIgnore
+    public int[] getMinHash() {
+        return minHash;
+    }
+
+    public void setMinHash(int[] minHash) {
+        this.minHash = minHash;
     }
 
     public List<String> getTags() {
-        return tags;
+        return new TagList(tagIds);
     }
 
     public void setTags(List<String> tags) {
-        this.tags = tags;
+        if (tags == null || tags.isEmpty()) {
+            this.tagIds = EMPTY_TAGS;
+            return;
+        }
+        int[] ids = new int[tags.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = StringDictionary.TAGS.intern(tags.get(i));
+        }
+        this.tagIds = ids;
+    }
+
+    @JsonIgnore
+    public int[] getTagIds() {
+        return tagIds;
+    }
+
+    @JsonIgnore
+    public int getTagCount() {
+        return tagIds.length;
     }
 
     public long getCreationDate() {
@@ -155,11 +234,16 @@ public class Question {
     }
 
     public String getOwnerDisplayName() {
-        return ownerDisplayName;
+        return StringDictionary.OWNER_NAMES.lookup(ownerNameId);
     }
 
     public void setOwnerDisplayName(String ownerDisplayName) {
-        this.ownerDisplayName = ownerDisplayName;
+        this.ownerNameId = StringDictionary.OWNER_NAMES.intern(ownerDisplayName);
+    }
+
+    @JsonIgnore
+    public int getOwnerNameId() {
+        return ownerNameId;
     }
 
     public int getOwnerReputation() {
@@ -185,4 +269,25 @@ public class Question {
     public void setComments(List<Comment> comments) {
         this.comments = comments;
     }
+
+    /**
+     * Read-only view that decodes tag ids back to their strings on access
+     */
+    private static final class TagList extends AbstractList<String> {
+        private final int[] ids;
+
+        TagList(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public String get(int index) {
+            return StringDictionary.TAGS.lookup(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
 }
@@ -0,0 +1,187 @@
+package cs209a.finalproject_demo.model;
+
+/**
+ * Struct-of-arrays view of a question list.
+ * <p>
+ * Row {@code i} of every column describes the i-th question of the dataset. Boolean
+ * columns are bitmaps packed into {@code long} words. The arrays are exposed directly
+ * for scanning and must be treated as read-only once the view is built.
+ */
+public final class QuestionColumns {
+
+    private final int size;
+
+    final long[] creationDate;
+    final int[] epochMonth;
+    final int[] score;
+    final int[] viewCount;
+    final int[] answerCount;
+    final int[] loadedAnswers;
+    final int[] ownerReputation;
+    final int[] titleLength;
+    final int[] tagCount;
+    final int[] topicMask;
+    final int[] pitfallMask;
+
+    final long[] answered;
+    final long[] accepted;
+    final long[] solvable;
+    final long[] hardToSolve;
+    final long[] answerHasCode;
+
+    public QuestionColumns(int size) {
+        this.size = size;
+        this.creationDate = new long[size];
+        this.epochMonth = new int[size];
+        this.score = new int[size];
+        this.viewCount = new int[size];
+        this.answerCount = new int[size];
+        this.loadedAnswers = new int[size];
+        this.ownerReputation = new int[size];
+        this.titleLength = new int[size];
+        this.tagCount = new int[size];
+        this.topicMask = new int[size];
+        this.pitfallMask = new int[size];
+        int words = (size + 63) >>> 6;
+        this.answered = new long[words];
+        this.accepted = new long[words];
+        this.solvable = new long[words];
+        this.hardToSolve = new long[words];
+        this.answerHasCode = new long[words];
+    }
+
+    /**
+     * Copy the scalar fields of a question into row {@code row}.
+     * Safe to call concurrently for different rows; bitmaps are filled by {@link #setFlags}.
+     */
+    public void setRow(int row, Question question, int epochMonth, int topicMask, int pitfallMask) {
+        creationDate[row] = question.getCreationDate();
+        this.epochMonth[row] = epochMonth;
+        score[row] = question.getScore();
+        viewCount[row] = question.getViewCount();
+        answerCount[row] = question.getAnswerCount();
+        loadedAnswers[row] = question.getAnswers() != null ? question.getAnswers().size() : 0;
+        ownerReputation[row] = question.getOwnerReputation();
+        titleLength[row] = question.getTitle() != null ? question.getTitle().length() : -1;
+        tagCount[row] = question.getTagCount();
+        this.topicMask[row] = topicMask;
+        this.pitfallMask[row] = pitfallMask;
+    }
+
+    /**
+     * Set the boolean columns of row {@code row}. Not thread-safe: bits share words.
+     */
+    public void setFlags(int row, boolean answered, boolean accepted, boolean solvable,
+                         boolean hardToSolve, boolean answerHasCode) {
+        set(this.answered, row, answered);
+        set(this.accepted, row, accepted);
+        set(this.solvable, row, solvable);
+        set(this.hardToSolve, row, hardToSolve);
+        set(this.answerHasCode, row, answerHasCode);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Creation time in epoch seconds */
+    public long[] creationDate() {
+        return creationDate;
+    }
+
+    /** Creation month as {@code year * 12 + (month - 1)} in the server time zone */
+    public int[] epochMonth() {
+        return epochMonth;
+    }
+
+    public int[] score() {
+        return score;
+    }
+
+    public int[] viewCount() {
+        return viewCount;
+    }
+
+    public int[] answerCount() {
+        return answerCount;
+    }
+
+    /** Number of answers actually present in the dataset */
+    public int[] loadedAnswers() {
+        return loadedAnswers;
+    }
+
+    public int[] ownerReputation() {
+        return ownerReputation;
+    }
+
+    /** Title length in chars, -1 when the question has no title */
+    public int[] titleLength() {
+        return titleLength;
+    }
+
+    public int[] tagCount() {
+        return tagCount;
+    }
+
+    /** Bitmask over {@code TopicMatcher.JAVA_TOPICS} */
+    public int[] topicMask() {
+        return topicMask;
+    }
+
+    /** Bitmask over {@code TopicMatcher.PITFALLS}, only filled for multithreading questions */
+    public int[] pitfallMask() {
+        return pitfallMask;
+    }
+
+    public long[] answered() {
+        return answered;
+    }
+
+    /** Questions with an accepted answer id */
+    public long[] accepted() {
+        return accepted;
+    }
+
+    public long[] solvable() {
+        return solvable;
+    }
+
+    public long[] hardToSolve() {
+        return hardToSolve;
+    }
+
+    public long[] answerHasCode() {
+        return answerHasCode;
+    }
+
+    // Bitmap helpers
+
+    public static boolean get(long[] bits, int row) {
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static int cardinality(long[] bits, long[] other) {
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            count += Long.bitCount(bits[i] & other[i]);
+        }
+        return count;
+    }
+
+    private static void set(long[] bits, int row, boolean value) {
+        if (value) {
+            bits[row >>> 6] |= 1L << row;
+        } else {
+            bits[row >>> 6] &= ~(1L << row);
+        }
+    }
+}
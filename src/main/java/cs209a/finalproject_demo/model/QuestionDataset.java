@@ -0,0 +1,34 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.List;
+
+/**
+ * A loaded question list together with its columnar view.
+ * Row {@code i} of {@link #getColumns()} corresponds to {@code getQuestions().get(i)}.
+ */
+public final class QuestionDataset {
+
+    private final List<Question> questions;
+    private final QuestionColumns columns;
+
+    public QuestionDataset(List<Question> questions, QuestionColumns columns) {
+        this.questions = questions;
+        this.columns = columns;
+    }
+
+    public List<Question> getQuestions() {
+        return questions;
+    }
+
+    public QuestionColumns getColumns() {
+        return columns;
+    }
+
+    public int size() {
+        return questions.size();
+    }
+
+    public boolean isEmpty() {
+        return questions.isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package cs209a.finalproject_demo.model;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+/**
+ * The part of the data one worker of a sharded deployment holds: shard {@code index} of
+ * {@code count}, questions assigned either by a hash of their id (even shards) or by their
+ * creation year (a year's questions stay together). Years are taken in UTC so every worker
+ * assigns a question to the same shard whatever its time zone.
+ */
+public final class Shard {
+
+    /** Everything, the shard of a server that is not a worker */
+    public static final Shard ALL = new Shard(0, 1, By.HASH);
+
+    public enum By {HASH, YEAR}
+
+    private final int index;
+    private final int count;
+    private final By by;
+
+    public Shard(int index, int count, By by) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard " + index + " of " + count + " does not exist");
+        }
+        this.index = index;
+        this.count = count;
+        this.by = by;
+    }
+
+    /**
+     * @param spec {@code index/count}, for example {@code 0/3}; blank for {@link #ALL}
+     * @param by   {@code hash} or {@code year}
+     * @throws IllegalArgumentException for anything else
+     */
+    public static Shard parse(String spec, String by) {
+        if (spec == null || spec.isBlank()) {
+            return ALL;
+        }
+        By partitioning;
+        try {
+            partitioning = By.valueOf(by.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Shards are assigned by hash or year, not " + by);
+        }
+        String[] parts = spec.trim().split("/");
+        try {
+            if (parts.length == 2) {
+                return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), partitioning);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("A shard is given as index/count, for example 0/3, not " + spec);
+    }
+
+    public boolean contains(Question question) {
+        if (count == 1) {
+            return true;
+        }
+        long key = by == By.HASH
+                ? mix(question.getQuestionId())
+                : Instant.ofEpochSecond(question.getCreationDate()).atZone(ZoneOffset.UTC).getYear();
+        return Math.floorMod(key, count) == index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public By getBy() {
+        return by;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count + " by " + by.name().toLowerCase(Locale.ROOT);
+    }
+
+    // Ids are mostly sequential, so spread them before taking the remainder
+    private static long mix(long id) {
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        return id;
+    }
+}
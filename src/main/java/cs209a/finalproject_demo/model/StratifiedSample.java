@@ -0,0 +1,97 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Uniform reservoir sample of questions per (creation year, primary topic) stratum.
+ * <p>
+ * The primary topic is the lowest topic bit of the question, so every question falls in
+ * exactly one stratum. Each stratum keeps at most {@code capacity} questions (Algorithm R)
+ * and counts every question offered, which the estimators use to weight the sample back
+ * up to the population. Offers are serialised; a sample costs O(strata * capacity) memory
+ * however many questions stream past.
+ */
+public final class StratifiedSample {
+
+    // Primary topic of questions without any topic
+    private static final int NO_TOPIC = 31;
+
+    private final int capacity;
+    private final Random random;
+    private final Map<Integer, Reservoir> reservoirs = new TreeMap<>();
+
+    public StratifiedSample(int capacity, long seed) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Reservoir capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.random = new Random(seed);
+    }
+
+    public static int stratum(int year, int topicMask) {
+        return year * 32 + (topicMask == 0 ? NO_TOPIC : Integer.numberOfTrailingZeros(topicMask));
+    }
+
+    public synchronized void offer(Question question, int year, int topicMask) {
+        Reservoir reservoir = reservoirs.computeIfAbsent(stratum(year, topicMask), key -> new Reservoir());
+        reservoir.population++;
+        if (reservoir.questions.size() < capacity) {
+            reservoir.questions.add(question);
+        } else {
+            long slot = (long) (random.nextDouble() * reservoir.population);
+            if (slot < capacity) {
+                reservoir.questions.set((int) slot, question);
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Snapshot of the strata, ordered by stratum key
+     */
+    public synchronized List<Stratum> strata() {
+        List<Stratum> strata = new ArrayList<>(reservoirs.size());
+        reservoirs.forEach((key, reservoir) ->
+                strata.add(new Stratum(key, reservoir.population, List.copyOf(reservoir.questions))));
+        return strata;
+    }
+
+    public static final class Stratum {
+        private final int key;
+        private final long population;
+        private final List<Question> questions;
+
+        Stratum(int key, long population, List<Question> questions) {
+            this.key = key;
+            this.population = population;
+            this.questions = questions;
+        }
+
+        /** {@code year * 32 + primary topic}, see {@link #stratum} */
+        public int getKey() {
+            return key;
+        }
+
+        /** Questions offered to this stratum */
+        public long getPopulation() {
+            return population;
+        }
+
+        /** The sampled questions, at most the capacity */
+        public List<Question> getQuestions() {
+            return questions;
+        }
+    }
+
+    private static final class Reservoir {
+        long population;
+        final List<Question> questions = new ArrayList<>();
+    }
+}
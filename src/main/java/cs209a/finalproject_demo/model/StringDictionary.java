@@ -0,0 +1,95 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary that maps frequently repeated strings (tags, owner display names)
+ * to dense int ids. Ids are stable for the lifetime of the JVM and start at 0, so they
+ * can be used directly as array indexes by the analyses.
+ */
+public final class StringDictionary {
+
+    public static final StringDictionary TAGS = new StringDictionary();
+    public static final StringDictionary OWNER_NAMES = new StringDictionary();
+
+    public static final int NO_ID = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[256];
+    private int size; // guarded by this
+
+    // Set on threads parsing records that are dropped after use, see #skipOnThisThread
+    private final ThreadLocal<Boolean> skipping = new ThreadLocal<>();
+
+    /**
+     * Return the id for the given value, assigning a new one on first sight
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            int next = size;
+            String[] current = values;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            // Publish the array before the id so readers never see an id without its value
+            values = current;
+            size = next + 1;
+            ids.put(value, next);
+            return next;
+        }
+    }
+
+    /**
+     * {@link #intern}, or {@link #NO_ID} without adding the value while this thread skips it
+     */
+    public int internUnlessSkipped(String value) {
+        return skipping.get() != null ? NO_ID : intern(value);
+    }
+
+    /**
+     * Whether {@link #internUnlessSkipped} on this thread leaves values out, for passes that
+     * parse more distinct values than the JVM should keep and never read them
+     */
+    public void skipOnThisThread(boolean skip) {
+        if (skip) {
+            skipping.set(Boolean.TRUE);
+        } else {
+            skipping.remove();
+        }
+    }
+
+    /**
+     * Return the id of an already interned value, or {@link #NO_ID}
+     */
+    public int idOf(String value) {
+        if (value == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(value);
+        return id != null ? id : NO_ID;
+    }
+
+    public String lookup(int id) {
+        if (id < 0) {
+            return null;
+        }
+        return values[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,150 @@
+package cs209a.finalproject_demo.model;
+
+import java.util.Arrays;
+
+/**
+ * Sparse TF-IDF vectors of a document set and the inverted index over them.
+ * <p>
+ * Documents are numbered {@code 0..docCount-1} (dataset rows) and terms {@code 0..termCount-1}.
+ * Term weights are {@code (1 + ln tf) * ln(N / df)}, L2-normalised per document, so the
+ * dot product of two vectors is their cosine similarity. Both directions are stored in
+ * compressed sparse row form: the terms of each document, and the postings of each term
+ * sorted by document, together with the largest weight of every posting list.
+ */
+public final class TfIdfIndex {
+
+    private final int docCount;
+    private final int termCount;
+
+    private final int[] docOffsets;
+    private final int[] docTerms;
+    private final float[] docWeights;
+
+    private final int[] postingOffsets;
+    private final int[] postingDocs;
+    private final float[] postingWeights;
+    private final float[] maxWeight;
+
+    private TfIdfIndex(int docCount, int termCount, int[] docOffsets, int[] docTerms, float[] docWeights) {
+        this.docCount = docCount;
+        this.termCount = termCount;
+        this.docOffsets = docOffsets;
+        this.docTerms = docTerms;
+        this.docWeights = docWeights;
+        this.postingOffsets = new int[termCount + 1];
+        this.postingDocs = new int[docTerms.length];
+        this.postingWeights = new float[docTerms.length];
+        this.maxWeight = new float[termCount];
+
+        // Counting sort of the document vectors into posting lists; documents are
+        // visited in order, so every list comes out sorted by document
+        for (int term : docTerms) {
+            postingOffsets[term + 1]++;
+        }
+        for (int term = 0; term < termCount; term++) {
+            postingOffsets[term + 1] += postingOffsets[term];
+        }
+        int[] cursor = Arrays.copyOf(postingOffsets, termCount);
+        for (int doc = 0; doc < docCount; doc++) {
+            for (int i = docOffsets[doc]; i < docOffsets[doc + 1]; i++) {
+                int term = docTerms[i];
+                int slot = cursor[term]++;
+                postingDocs[slot] = doc;
+                postingWeights[slot] = docWeights[i];
+                maxWeight[term] = Math.max(maxWeight[term], docWeights[i]);
+            }
+        }
+    }
+
+    /**
+     * Build the index from per-document term frequencies
+     * @param termHashes for every document its distinct term hashes (non-zero)
+     * @param termFreqs  the matching term frequencies
+     */
+    public static TfIdfIndex build(long[][] termHashes, int[][] termFreqs) {
+        int docCount = termHashes.length;
+        int entries = 0;
+        for (long[] hashes : termHashes) {
+            entries += hashes.length;
+        }
+
+        LongIntHashMap terms = new LongIntHashMap(Math.max(16, entries / 4));
+        int[] docOffsets = new int[docCount + 1];
+        int[] docTerms = new int[entries];
+        int[] documentFrequency = new int[64];
+        int entry = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            for (long hash : termHashes[doc]) {
+                int term = terms.getOrAssignNext(hash);
+                if (term >= documentFrequency.length) {
+                    documentFrequency = Arrays.copyOf(documentFrequency, documentFrequency.length * 2);
+                }
+                documentFrequency[term]++;
+                docTerms[entry++] = term;
+            }
+            docOffsets[doc + 1] = entry;
+        }
+
+        int termCount = terms.size();
+        float[] idf = new float[termCount];
+        for (int term = 0; term < termCount; term++) {
+            idf[term] = (float) Math.log((double) docCount / documentFrequency[term]);
+        }
+
+        float[] docWeights = new float[entries];
+        for (int doc = 0; doc < docCount; doc++) {
+            double norm = 0;
+            for (int i = docOffsets[doc], k = 0; i < docOffsets[doc + 1]; i++, k++) {
+                float weight = (float) (1 + Math.log(termFreqs[doc][k])) * idf[docTerms[i]];
+                docWeights[i] = weight;
+                norm += (double) weight * weight;
+            }
+            if (norm > 0) {
+                float scale = (float) (1 / Math.sqrt(norm));
+                for (int i = docOffsets[doc]; i < docOffsets[doc + 1]; i++) {
+                    docWeights[i] *= scale;
+                }
+            }
+        }
+
+        return new TfIdfIndex(docCount, termCount, docOffsets, docTerms, docWeights);
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public int[] docOffsets() {
+        return docOffsets;
+    }
+
+    public int[] docTerms() {
+        return docTerms;
+    }
+
+    public float[] docWeights() {
+        return docWeights;
+    }
+
+    public int[] postingOffsets() {
+        return postingOffsets;
+    }
+
+    /** Documents of every posting list, ascending */
+    public int[] postingDocs() {
+        return postingDocs;
+    }
+
+    public float[] postingWeights() {
+        return postingWeights;
+    }
+
+    /** Largest weight in the posting list of every term, the upper bound used for pruning */
+    public float[] maxWeight() {
+        return maxWeight;
+    }
+}
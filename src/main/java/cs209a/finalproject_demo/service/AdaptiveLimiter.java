@@ -0,0 +1,171 @@
+package cs209a.finalproject_demo.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit that adapts to latency (AIMD): every request that finishes within the
+ * latency target raises the limit by {@code 1/limit}, so about one per limit's worth of
+ * requests, while the limit is in use; every slower or failed one cuts it by
+ * {@code BACKOFF}. Requests over the limit wait in a short queue, and are turned away at
+ * once when the queue is full or when they have waited too long, so an overloaded
+ * endpoint sheds load instead of letting everyone's latency grow.
+ * <p>
+ * The target is relative to the endpoint's own baseline, the fastest latency of the last
+ * {@code BASELINE_WINDOW} to {@code 2 * BASELINE_WINDOW} samples, times a tolerance (but
+ * never below a floor, so that noise on very fast endpoints is not taken for queueing). An
+ * endpoint that is slow even when idle therefore keeps its limit; only latency growing
+ * beyond what the endpoint does unloaded counts as overload.
+ */
+public class AdaptiveLimiter {
+
+        public enum Outcome {
+                ADMITTED,
+                QUEUE_FULL,
+                TIMED_OUT
+        }
+
+        private static final double BACKOFF = 0.9;
+
+        private static final int BASELINE_WINDOW = 500;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final double latencyTolerance;
+        private final long latencyFloorNanos;
+        private final int maxQueue;
+
+        private double limit;
+        // Fastest latency of the previous and of the current window of samples
+        private long previousMinNanos = Long.MAX_VALUE;
+        private long currentMinNanos = Long.MAX_VALUE;
+        private int samplesInWindow;
+        private int inFlight;
+        private int waiting;
+        private long admitted;
+        private long rejected;
+        private long timedOut;
+
+        /**
+         * @param latencyTolerance   how many times its baseline latency a request may take
+         *                           before the limit backs off
+         * @param latencyFloorMillis the lowest latency ever taken for overload
+         */
+        public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                               long latencyFloorMillis, int maxQueue) {
+                if (minLimit < 1 || maxLimit < minLimit) {
+                        throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max: " + minLimit + ", " + maxLimit);
+                }
+                if (latencyTolerance < 1) {
+                        throw new IllegalArgumentException("Latency tolerance must be at least 1: " + latencyTolerance);
+                }
+                this.minLimit = minLimit;
+                this.maxLimit = maxLimit;
+                this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+                this.latencyTolerance = latencyTolerance;
+                this.latencyFloorNanos = TimeUnit.MILLISECONDS.toNanos(latencyFloorMillis);
+                this.maxQueue = maxQueue;
+        }
+
+        /**
+         * Take a slot, waiting up to {@code timeoutMillis} behind the requests in flight;
+         * {@link #release} must follow an {@code ADMITTED}
+         */
+        public synchronized Outcome acquire(long timeoutMillis) throws InterruptedException {
+                if (inFlight < (int) limit) {
+                        inFlight++;
+                        admitted++;
+                        return Outcome.ADMITTED;
+                }
+                if (waiting >= maxQueue) {
+                        rejected++;
+                        return Outcome.QUEUE_FULL;
+                }
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                waiting++;
+                try {
+                        while (inFlight >= (int) limit) {
+                                long remaining = deadline - System.nanoTime();
+                                if (remaining <= 0) {
+                                        timedOut++;
+                                        return Outcome.TIMED_OUT;
+                                }
+                                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        }
+                } finally {
+                        waiting--;
+                }
+                inFlight++;
+                admitted++;
+                return Outcome.ADMITTED;
+        }
+
+        /**
+         * Give back a slot and adjust the limit by how the request went
+         */
+        public synchronized void release(long latencyNanos, boolean failed) {
+                inFlight--;
+                if (!failed) {
+                        sample(latencyNanos);
+                }
+                if (failed || latencyNanos > latencyTargetNanos()) {
+                        limit = Math.max(minLimit, limit * BACKOFF);
+                } else if (waiting > 0 || inFlight + 1 >= limit / 2) {
+                        // Only grow a limit that is actually being used
+                        limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+                notifyAll();
+        }
+
+        /**
+         * Give back a slot without adjusting the limit, for a request whose latency says
+         * nothing about load: a streamed body paced by the client, or one that waited for a
+         * dataset load
+         */
+        public synchronized void release() {
+                inFlight--;
+                notifyAll();
+        }
+
+        private void sample(long latencyNanos) {
+                currentMinNanos = Math.min(currentMinNanos, latencyNanos);
+                if (++samplesInWindow == BASELINE_WINDOW) {
+                        previousMinNanos = currentMinNanos;
+                        currentMinNanos = Long.MAX_VALUE;
+                        samplesInWindow = 0;
+                }
+        }
+
+        private long latencyTargetNanos() {
+                long baseline = Math.min(previousMinNanos, currentMinNanos);
+                return baseline == Long.MAX_VALUE ? Long.MAX_VALUE
+                                : Math.max(latencyFloorNanos, (long) (baseline * latencyTolerance));
+        }
+
+        public synchronized int getLimit() {
+                return (int) limit;
+        }
+
+        public synchronized int getInFlight() {
+                return inFlight;
+        }
+
+        /**
+         * @return a {@code Map<String, Object>} with {@code "limit"}, {@code "latencyTargetMillis"}
+         *         ({@code null} before the first sample), {@code "inFlight"}, {@code "waiting"},
+         *         {@code "admitted"}, {@code "rejected"} (queue full) and {@code "timedOut"}
+         */
+        public synchronized Map<String, Object> describe() {
+                Map<String, Object> description = new LinkedHashMap<>();
+                long target = latencyTargetNanos();
+                description.put("limit", (int) limit);
+                description.put("latencyTargetMillis", target == Long.MAX_VALUE ? null : target / 1_000_000.0);
+                description.put("inFlight", inFlight);
+                description.put("waiting", waiting);
+                description.put("admitted", admitted);
+                description.put("rejected", rejected);
+                description.put("timedOut", timedOut);
+                return description;
+        }
+}
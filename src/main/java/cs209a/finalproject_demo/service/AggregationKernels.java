@@ -0,0 +1,59 @@
+package cs209a.finalproject_demo.service;
+
+/**
+ * Numeric kernels used by the analyses to scan {@code QuestionColumns}.
+ * <p>
+ * Row sets are bitmaps packed into {@code long} words: bit {@code r & 63} of word
+ * {@code r >>> 6} stands for row {@code r}. Two implementations exist: a portable scalar
+ * one and a SIMD one on the incubating Vector API, see {@link #select(String)}.
+ */
+public interface AggregationKernels {
+
+    /**
+     * Mark every row whose value lies in {@code [from, to]} in {@code selection}
+     * (which must be zeroed and hold at least {@code (values.length + 63) / 64} words)
+     * @return number of selected rows
+     */
+    int selectRange(long[] values, long from, long to, long[] selection);
+
+    /**
+     * Sum of {@code values[r]} over the rows in {@code rows}
+     */
+    long maskedSum(int[] values, long[] rows);
+
+    /**
+     * Sum of the non-negative {@code values[r]} over the rows in {@code rows}
+     */
+    long maskedSumNonNegative(int[] values, long[] rows);
+
+    /**
+     * Number of rows in {@code rows} whose value is non-negative
+     */
+    int maskedCountNonNegative(int[] values, long[] rows);
+
+    String name();
+
+    /**
+     * Pick the kernels for a mode: {@code "scalar"}, {@code "vector"} or {@code "auto"}.
+     * <p>
+     * {@code "auto"} vectorizes the range filter only: on JDK 17 {@code VectorMask.fromLong}
+     * is not intrinsified and the masked reductions are slower than the scalar bit loop.
+     * {@code "vector"} forces every kernel onto the Vector API. Vector kernels need the JVM
+     * started with {@code --add-modules jdk.incubator.vector}; without it every mode falls
+     * back to scalar.
+     */
+    static AggregationKernels select(String mode) {
+        if (!"scalar".equalsIgnoreCase(mode) && isVectorApiAvailable()) {
+            try {
+                return new VectorAggregationKernels("vector".equalsIgnoreCase(mode));
+            } catch (LinkageError e) {
+                // Module resolved but unusable on this JVM, keep the scalar path
+            }
+        }
+        return ScalarAggregationKernels.INSTANCE;
+    }
+
+    static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
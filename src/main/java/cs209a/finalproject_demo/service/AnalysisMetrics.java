@@ -0,0 +1,104 @@
+package cs209a.finalproject_demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters of the loads, analyses and the collector, in one place so their names and tags
+ * stay consistent.
+ * <p>
+ * They are registered with Micrometer's global registry, which Spring Boot adds its
+ * Prometheus registry to, so services record without being handed a registry; outside the
+ * application (tests, benchmarks) the global registry is empty and recording costs a clock
+ * read. Scraped from {@code /actuator/prometheus}, next to the per-endpoint latency
+ * histograms of {@code http.server.requests}.
+ */
+final class AnalysisMetrics {
+
+        // Gauges only hold weak references, so their values are kept here
+        private static final Map<String, AtomicLong> GAUGES = new ConcurrentHashMap<>();
+
+        private AnalysisMetrics() {
+        }
+
+        static Timer.Sample start() {
+                return Timer.start(Metrics.globalRegistry);
+        }
+
+        /**
+         * Time spent in one stage of an analysis or a load: {@code analysis.stage} tagged with
+         * the analysis (trends, cooccurrence, pitfalls, solvability, partial, load, streaming)
+         * and the stage (filter, match, aggregate, parse, prepare, index, sample ...)
+         * @return the time recorded, in nanoseconds
+         */
+        static long stage(Timer.Sample sample, String analysis, String stage) {
+                return sample.stop(Timer.builder("analysis.stage")
+                                .tags("analysis", analysis, "stage", stage)
+                                .register(Metrics.globalRegistry));
+        }
+
+        /**
+         * Records and bytes of a data file parsed, by loads and streaming passes alike
+         */
+        static void parsed(String file, long records, long bytes) {
+                Metrics.counter("analysis.dataset.records.parsed", "file", file).increment(records);
+                Metrics.counter("analysis.dataset.bytes.parsed", "file", file).increment(bytes);
+        }
+
+        /**
+         * A finished load: its duration, and the questions it holds with the heap they take
+         * @param heapBytes growth of the used heap across the load, 0 if a collection hid it
+         */
+        static void loaded(String file, Timer.Sample sample, int questions, long heapBytes) {
+                sample.stop(Timer.builder("analysis.dataset.load")
+                                .tag("file", file)
+                                .register(Metrics.globalRegistry));
+                gauge("analysis.dataset.questions", Tags.of("file", file)).set(questions);
+                if (questions > 0 && heapBytes > 0) {
+                        gauge("analysis.dataset.heap.bytes.per.question", Tags.of("file", file)).set(heapBytes / questions);
+                }
+        }
+
+        /**
+         * One Stack Exchange API request: {@code collector.requests} tagged with its outcome
+         * (ok, throttled, error)
+         */
+        static void collectorRequest(Timer.Sample sample, String outcome) {
+                sample.stop(Timer.builder("collector.requests")
+                                .tag("outcome", outcome)
+                                .register(Metrics.globalRegistry));
+        }
+
+        static void collectorRetry() {
+                Counter.builder("collector.retries").register(Metrics.globalRegistry).increment();
+        }
+
+        /**
+         * Requests left in the API quota, as reported by the last response
+         */
+        static void collectorQuota(long remaining) {
+                gauge("collector.quota.remaining", Tags.empty()).set(remaining);
+        }
+
+        /**
+         * Heap currently in use, for the before/after estimate of a load's footprint
+         */
+        static long usedHeap() {
+                Runtime runtime = Runtime.getRuntime();
+                return runtime.totalMemory() - runtime.freeMemory();
+        }
+
+        private static AtomicLong gauge(String name, Tags tags) {
+                return GAUGES.computeIfAbsent(name + tags, key -> {
+                        AtomicLong value = new AtomicLong();
+                        Metrics.gauge(name, tags, value);
+                        return value;
+                });
+        }
+}
@@ -0,0 +1,372 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.PartialAggregate;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionColumns;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.model.StratifiedSample;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+import static cs209a.finalproject_demo.service.StratifiedEstimator.Estimate;
+
+/**
+ * Approximate analyses over a stratified reservoir sample.
+ * <p>
+ * The sample is drawn while a dataset is ingested (see {@link #ingest}) or while the data
+ * file is streamed, with one reservoir per (creation year, primary topic) stratum. The
+ * analyses return the same fields as the exact ones, filled with estimates, plus
+ * {@code "approximate"}, {@code "sampleSize"}, {@code "confidenceLevel"} and 95% confidence
+ * intervals: an {@code "interval"} on every listed pair or pitfall and an {@code "intervals"}
+ * map for the remaining figures.
+ */
+@Service
+public class ApproximateAnalysisService {
+
+        private static final long SEED = 209L;
+
+        private static final List<String> JAVA_TOPICS = TopicMatcher.JAVA_TOPICS;
+
+        private final DataAnalysisService dataAnalysisService;
+
+        @Value("${analysis.sample.per-stratum:200}")
+        private int perStratum = 200;
+
+        // Samples of the datasets in use (the loaded one and its deduplicated subset)
+        private final Map<QuestionDataset, Sample> samples = Collections.synchronizedMap(new WeakHashMap<>());
+
+        public ApproximateAnalysisService(DataAnalysisService dataAnalysisService) {
+                this.dataAnalysisService = dataAnalysisService;
+        }
+
+        public void setPerStratum(int perStratum) {
+                this.perStratum = perStratum;
+        }
+
+        /**
+         * An empty sample to offer questions to during ingestion
+         */
+        public StratifiedSample newSample() {
+                return new StratifiedSample(perStratum, SEED);
+        }
+
+        /**
+         * Draw the sample of a loaded dataset, so approximate queries find it ready
+         */
+        public void ingest(QuestionDataset dataset) {
+                sample(dataset);
+        }
+
+        /**
+         * The sample of a dataset, drawn on first use
+         */
+        public Sample sample(QuestionDataset dataset) {
+                Sample sample = samples.get(dataset);
+                if (sample == null) {
+                        StratifiedSample drawn = newSample();
+                        offer(drawn, dataset);
+                        sample = sample(drawn);
+                        samples.put(dataset, sample);
+                }
+                return sample;
+        }
+
+        /**
+         * Offer every row of an indexed dataset to a sample
+         */
+        public void offer(StratifiedSample sample, QuestionDataset dataset) {
+                QuestionColumns columns = dataset.getColumns();
+                int[] epochMonth = columns.epochMonth();
+                int[] topicMask = columns.topicMask();
+                List<Question> questions = dataset.getQuestions();
+                for (int row = 0; row < questions.size(); row++) {
+                        sample.offer(questions.get(row), epochMonth[row] / 12, topicMask[row]);
+                }
+        }
+
+        /**
+         * Index the sampled questions for the analyses
+         */
+        public Sample sample(StratifiedSample drawn) {
+                List<StratifiedSample.Stratum> strata = drawn.strata();
+                long[] population = new long[strata.size()];
+                List<Question> questions = new ArrayList<>();
+                int[] stratumOfRow = new int[strata.stream().mapToInt(s -> s.getQuestions().size()).sum()];
+                for (int h = 0; h < strata.size(); h++) {
+                        population[h] = strata.get(h).getPopulation();
+                        for (Question question : strata.get(h).getQuestions()) {
+                                stratumOfRow[questions.size()] = h;
+                                questions.add(question);
+                        }
+                }
+                return new Sample(dataAnalysisService.index(questions), new StratifiedEstimator(stratumOfRow, population));
+        }
+
+        /**
+         * Estimated dashboard, see {@link DataAnalysisService#analyzeDashboard(QuestionDataset, Collection, int, int, int)}
+         */
+        public Map<String, Object> analyzeDashboard(Sample sample, Collection<String> sections,
+                                                    int yearsPast, int cooccurrenceTopN, int pitfallsTopN) {
+                return DataAnalysisService.dashboardResult(sections, section -> switch (section) {
+                        case "stats" -> analyzeStatistics(sample);
+                        case "trends" -> analyzeTopicTrends(sample, yearsPast);
+                        case "cooccurrence" -> analyzeTopicCooccurrence(sample, cooccurrenceTopN);
+                        case "pitfalls" -> analyzeMultithreadingPitfalls(sample, pitfallsTopN);
+                        default -> analyzeSolvability(sample);
+                });
+        }
+
+        /**
+         * Estimated dataset statistics, see {@link DataAnalysisService#analyzeStatistics(QuestionDataset)}
+         */
+        public Map<String, Object> analyzeStatistics(Sample sample) {
+                QuestionColumns columns = sample.rows.getColumns();
+                StratifiedEstimator estimator = sample.estimator;
+                long population = estimator.populationSize();
+
+                Estimate answers = estimator.total(row -> columns.loadedAnswers()[row]);
+                Estimate score = estimator.total(row -> columns.score()[row]);
+                Estimate answered = estimator.count(row -> QuestionColumns.get(columns.answered(), row));
+                Estimate avgScore = score.scale(population > 0 ? 1.0 / population : 0);
+
+                Map<String, Object> stats = DataAnalysisService.statisticsResult((int) population,
+                                Math.round(answers.value), Math.round(score.value), Math.round(answered.value));
+                stats.put("avgScore", avgScore.value);
+                Map<String, Object> intervals = new LinkedHashMap<>();
+                intervals.put("totalAnswers", answers.interval(0, 0));
+                intervals.put("avgScore", avgScore.interval(2, Double.NEGATIVE_INFINITY));
+                intervals.put("answeredQuestions", answered.interval(0, 0));
+                return approximate(stats, sample, intervals);
+        }
+
+        /**
+         * Estimated topic trends, see {@link DataAnalysisService#analyzeTopicTrends(QuestionDataset, int)}
+         */
+        public Map<String, Object> analyzeTopicTrends(Sample sample, int yearsPast) {
+                long[] window = dataAnalysisService.trendWindow(yearsPast);
+                boolean aggregateByYear = yearsPast > 5;
+                QuestionColumns columns = sample.rows.getColumns();
+                StratifiedEstimator estimator = sample.estimator;
+
+                // (period month, topic) -> sampled questions per stratum; yearly periods use month year * 12
+                Map<Integer, int[][]> cells = new TreeMap<>();
+                int[] inWindow = new int[estimator.strata()];
+                for (int row = 0; row < columns.size(); row++) {
+                        long created = columns.creationDate()[row];
+                        if (created < window[0] || created > window[1]) {
+                                continue;
+                        }
+                        int stratum = estimator.stratumOf(row);
+                        inWindow[stratum]++;
+                        int month = columns.epochMonth()[row];
+                        int period = aggregateByYear ? month / 12 * 12 : month;
+                        int[][] counts = cells.computeIfAbsent(period, p -> new int[JAVA_TOPICS.size()][estimator.strata()]);
+                        for (int mask = columns.topicMask()[row]; mask != 0; mask &= mask - 1) {
+                                counts[Integer.numberOfTrailingZeros(mask)][stratum]++;
+                        }
+                }
+
+                Map<Integer, int[]> countsByMonth = new TreeMap<>();
+                Map<String, Map<String, List<Double>>> intervals = new TreeMap<>();
+                cells.forEach((period, counts) -> {
+                        int[] estimates = new int[JAVA_TOPICS.size()];
+                        for (int topic = 0; topic < estimates.length; topic++) {
+                                Estimate estimate = estimator.count(counts[topic]);
+                                estimates[topic] = (int) Math.round(estimate.value);
+                                if (estimates[topic] > 0) {
+                                        String label = aggregateByYear
+                                                        ? String.valueOf(period / 12)
+                                                        : String.format("%d-%02d", period / 12, period % 12 + 1);
+                                        intervals.computeIfAbsent(JAVA_TOPICS.get(topic), t -> new TreeMap<>())
+                                                        .put(label, estimate.interval(0, 0));
+                                }
+                        }
+                        countsByMonth.put(period, estimates);
+                });
+
+                Estimate total = estimator.count(inWindow);
+                Map<String, Object> result = DataAnalysisService.topicTrendsResult(countsByMonth, yearsPast,
+                                (int) Math.round(total.value));
+                Map<String, Object> resultIntervals = new LinkedHashMap<>();
+                resultIntervals.put("totalQuestions", total.interval(0, 0));
+                resultIntervals.put("topicTrends", intervals);
+                return approximate(result, sample, resultIntervals);
+        }
+
+        /**
+         * Estimated topic co-occurrence, see {@link DataAnalysisService#analyzeTopicCooccurrence(QuestionDataset, int)}
+         */
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> analyzeTopicCooccurrence(Sample sample, int topN) {
+                int topicCount = JAVA_TOPICS.size();
+                StratifiedEstimator estimator = sample.estimator;
+                int[] topicMask = sample.rows.getColumns().topicMask();
+                int[][] pairSampleCounts = new int[topicCount * topicCount][];
+                for (int row = 0; row < topicMask.length; row++) {
+                        for (int first = topicMask[row]; first != 0; first &= first - 1) {
+                                int i = Integer.numberOfTrailingZeros(first);
+                                for (int second = first & (first - 1); second != 0; second &= second - 1) {
+                                        int pair = i * topicCount + Integer.numberOfTrailingZeros(second);
+                                        if (pairSampleCounts[pair] == null) {
+                                                pairSampleCounts[pair] = new int[estimator.strata()];
+                                        }
+                                        pairSampleCounts[pair][estimator.stratumOf(row)]++;
+                                }
+                        }
+                }
+
+                int[] pairCounts = new int[topicCount * topicCount];
+                Map<String, Estimate> estimates = new HashMap<>();
+                for (int pair = 0; pair < pairCounts.length; pair++) {
+                        if (pairSampleCounts[pair] != null) {
+                                Estimate estimate = estimator.count(pairSampleCounts[pair]);
+                                pairCounts[pair] = (int) Math.round(estimate.value);
+                                estimates.put(pairKey(pair / topicCount, pair % topicCount), estimate);
+                        }
+                }
+
+                Map<String, Object> result = DataAnalysisService.topicCooccurrenceResult(pairCounts, topN);
+                for (Map<String, Object> pair : (List<Map<String, Object>>) result.get("topPairs")) {
+                        pair.put("interval", estimates.get((String) pair.get("topics")).interval(0, 0));
+                }
+                return approximate(result, sample, null);
+        }
+
+        /**
+         * Estimated multithreading pitfalls, see
+         * {@link DataAnalysisService#analyzeMultithreadingPitfalls(QuestionDataset, int)}
+         */
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> analyzeMultithreadingPitfalls(Sample sample, int topN) {
+                int pitfallKinds = TopicMatcher.PITFALLS.size();
+                StratifiedEstimator estimator = sample.estimator;
+                QuestionColumns columns = sample.rows.getColumns();
+                int[] multithreading = new int[estimator.strata()];
+                int[][] pitfallSampleCounts = new int[pitfallKinds][estimator.strata()];
+                List<List<String>> examples = new ArrayList<>();
+                for (int i = 0; i < pitfallKinds; i++) {
+                        examples.add(new ArrayList<>());
+                }
+                for (int row = 0; row < columns.size(); row++) {
+                        if ((columns.topicMask()[row] & TopicMatcher.MULTITHREADING_TOPICS) == 0) {
+                                continue;
+                        }
+                        int stratum = estimator.stratumOf(row);
+                        multithreading[stratum]++;
+                        for (int mask = columns.pitfallMask()[row]; mask != 0; mask &= mask - 1) {
+                                int pitfall = Integer.numberOfTrailingZeros(mask);
+                                pitfallSampleCounts[pitfall][stratum]++;
+                                if (examples.get(pitfall).size() < PartialAggregate.PITFALL_EXAMPLES) {
+                                        examples.get(pitfall).add(sample.rows.getQuestions().get(row).getTitle());
+                                }
+                        }
+                }
+
+                Estimate total = estimator.count(multithreading);
+                int[] counts = new int[pitfallKinds];
+                Map<String, Estimate> estimates = new HashMap<>();
+                for (int pitfall = 0; pitfall < pitfallKinds; pitfall++) {
+                        Estimate estimate = estimator.count(pitfallSampleCounts[pitfall]);
+                        counts[pitfall] = (int) Math.round(estimate.value);
+                        estimates.put(TopicMatcher.PITFALLS.get(pitfall), estimate);
+                }
+
+                Map<String, Object> result = DataAnalysisService.multithreadingPitfallsResult(counts, examples,
+                                (int) Math.round(total.value), topN);
+                for (Map<String, Object> pitfall : (List<Map<String, Object>>) result.get("topPitfalls")) {
+                        pitfall.put("interval", estimates.get((String) pitfall.get("name")).interval(0, 0));
+                }
+                return approximate(result, sample, Map.of("totalMultithreadingQuestions", total.interval(0, 0)));
+        }
+
+        /**
+         * Estimated solvability factors, see {@link DataAnalysisService#analyzeSolvability(QuestionDataset)}
+         */
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> analyzeSolvability(Sample sample) {
+                QuestionColumns columns = sample.rows.getColumns();
+                StratifiedEstimator estimator = sample.estimator;
+                IntPredicate solvable = row -> QuestionColumns.get(columns.solvable(), row);
+                IntPredicate hard = row -> QuestionColumns.get(columns.hardToSolve(), row);
+                Estimate solvableCount = estimator.count(solvable);
+                Estimate hardCount = estimator.count(hard);
+                Estimate[] solvableFactors = factors(estimator, columns, solvable);
+                Estimate[] hardFactors = factors(estimator, columns, hard);
+
+                Map<String, Object> result = DataAnalysisService.solvabilityResult(
+                                (int) Math.round(solvableCount.value), (int) Math.round(hardCount.value),
+                                values(solvableFactors), values(hardFactors));
+
+                Map<String, Object> intervals = new LinkedHashMap<>();
+                intervals.put("solvableCount", solvableCount.interval(0, 0));
+                intervals.put("hardToSolveCount", hardCount.interval(0, 0));
+                List<String> factorNames = new ArrayList<>(((Map<String, ?>) result.get("factors")).keySet());
+                for (int i = 0; i < factorNames.size(); i++) {
+                        intervals.put(factorNames.get(i), Map.of(
+                                        "solvable", solvableFactors[i].interval(2, 0),
+                                        "hardToSolve", hardFactors[i].interval(2, 0)));
+                }
+                return approximate(result, sample, intervals);
+        }
+
+        // In the order of DataAnalysisService.solvabilityResult
+        private static Estimate[] factors(StratifiedEstimator estimator, QuestionColumns columns, IntPredicate group) {
+                IntPredicate hasTitle = row -> group.test(row) && columns.titleLength()[row] >= 0;
+                return new Estimate[]{
+                                estimator.mean(row -> QuestionColumns.get(columns.answerHasCode(), row) ? 100 : 0, group),
+                                estimator.mean(row -> columns.titleLength()[row], hasTitle),
+                                estimator.mean(column(columns.ownerReputation()), group),
+                                estimator.mean(column(columns.tagCount()), group),
+                                estimator.mean(column(columns.viewCount()), group)};
+        }
+
+        private static IntToDoubleFunction column(int[] values) {
+                return row -> values[row];
+        }
+
+        private static double[] values(Estimate[] estimates) {
+                return Arrays.stream(estimates).mapToDouble(estimate -> estimate.value).toArray();
+        }
+
+        private static String pairKey(int i, int j) {
+                String topic1 = JAVA_TOPICS.get(i);
+                String topic2 = JAVA_TOPICS.get(j);
+                return topic1.compareTo(topic2) < 0 ? topic1 + " & " + topic2 : topic2 + " & " + topic1;
+        }
+
+        private static Map<String, Object> approximate(Map<String, Object> result, Sample sample,
+                                                       Map<String, ?> intervals) {
+                result.put("approximate", true);
+                result.put("sampleSize", sample.size());
+                result.put("confidenceLevel", 0.95);
+                if (intervals != null) {
+                        result.put("intervals", intervals);
+                }
+                return result;
+        }
+
+        /**
+         * Indexed sample rows with the estimator that weights them back to the population
+         */
+        public static final class Sample {
+                final QuestionDataset rows;
+                final StratifiedEstimator estimator;
+
+                Sample(QuestionDataset rows, StratifiedEstimator estimator) {
+                        this.rows = rows;
+                        this.estimator = estimator;
+                }
+
+                public int size() {
+                        return rows.size();
+                }
+
+                public long populationSize() {
+                        return estimator.populationSize();
+                }
+        }
+}
@@ -0,0 +1,48 @@
+package cs209a.finalproject_demo.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cooperative cancellation of the analysis a job is running.
+ * <p>
+ * {@link JobService} installs the job's check on its worker thread while the job runs.
+ * Long analyses read it with {@link #current()} on the calling thread, before they fan out
+ * to the common ForkJoin pool where the job thread's state is not visible, and
+ * {@link #check} it between chunks or iterations. A cancelled or overdue job therefore stops
+ * within one chunk and frees its worker. Outside a job the check never fires.
+ */
+final class Cancellation {
+
+        private static final BooleanSupplier NEVER = () -> false;
+
+        private static final ThreadLocal<BooleanSupplier> CURRENT = new ThreadLocal<>();
+
+        private Cancellation() {
+        }
+
+        /**
+         * The cancellation check of the job running on this thread, or one that never fires
+         */
+        static BooleanSupplier current() {
+                BooleanSupplier cancelled = CURRENT.get();
+                return cancelled != null ? cancelled : NEVER;
+        }
+
+        /**
+         * @throws CancellationException if {@code cancelled} fires
+         */
+        static void check(BooleanSupplier cancelled) {
+                if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("The analysis was cancelled");
+                }
+        }
+
+        static void enter(BooleanSupplier cancelled) {
+                CURRENT.set(cancelled);
+        }
+
+        static void exit() {
+                CURRENT.remove();
+        }
+}
@@ -0,0 +1,162 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.CodeFeatures;
+
+import java.util.Locale;
+
+/**
+ * Single-pass scanner that finds code in a Stack Overflow HTML body.
+ * <p>
+ * Recognises {@code <pre>} and {@code <code>} elements (with or without attributes) and
+ * Markdown fences. Every character is inspected a bounded number of times, so the cost
+ * is linear in the body length whatever the input looks like.
+ */
+public final class CodeBlockScanner {
+
+        private static final int OTHER_LANGUAGE = CodeFeatures.LANGUAGES.indexOf("other");
+
+        // Only the start of a tag is searched for a language class
+        private static final int MAX_TAG_LENGTH = 200;
+
+        private CodeBlockScanner() {
+        }
+
+        public static CodeFeatures scan(String body) {
+                if (body == null || body.isEmpty()) {
+                        return CodeFeatures.NONE;
+                }
+
+                int length = body.length();
+                int blockCount = 0;
+                int codeLength = 0;
+                int languageMask = 0;
+                boolean openBraceSeen = false;
+                boolean bracePair = false;
+                int preDepth = 0;
+                int codeDepth = 0;
+                boolean inFence = false;
+
+                int i = 0;
+                while (i < length) {
+                        char c = body.charAt(i);
+
+                        if (c == '<') {
+                                boolean pre = isOpeningTag(body, i, "<pre");
+                                if (pre || isOpeningTag(body, i, "<code")) {
+                                        if (preDepth == 0 && codeDepth == 0 && !inFence) {
+                                                blockCount++;
+                                        }
+                                        if (pre) {
+                                                preDepth++;
+                                        } else {
+                                                codeDepth++;
+                                        }
+                                        // Skip the attributes; the scan resumes after '>' so nothing is read twice
+                                        int tagEnd = body.indexOf('>', i);
+                                        tagEnd = tagEnd < 0 ? length : tagEnd;
+                                        languageMask |= languageOfTag(body, i, tagEnd);
+                                        i = tagEnd + 1;
+                                        continue;
+                                }
+                                if (body.regionMatches(true, i, "</pre>", 0, 6)) {
+                                        preDepth = Math.max(0, preDepth - 1);
+                                        i += 6;
+                                        continue;
+                                }
+                                if (body.regionMatches(true, i, "</code>", 0, 7)) {
+                                        codeDepth = Math.max(0, codeDepth - 1);
+                                        i += 7;
+                                        continue;
+                                }
+                        }
+
+                        if (c == '`' && body.startsWith("```", i)) {
+                                if (!inFence) {
+                                        if (preDepth == 0 && codeDepth == 0) {
+                                                blockCount++;
+                                        }
+                                        int lineEnd = body.indexOf('\n', i + 3);
+                                        int infoEnd = lineEnd < 0 ? length : lineEnd;
+                                        String info = body.substring(i + 3, Math.min(infoEnd, i + 3 + 32)).trim();
+                                        languageMask |= languageOf(info.split("\\s+", 2)[0]);
+                                        inFence = true;
+                                        i = infoEnd;
+                                } else {
+                                        inFence = false;
+                                        i += 3;
+                                }
+                                continue;
+                        }
+
+                        if (c == '{') {
+                                openBraceSeen = true;
+                        } else if (c == '}' && openBraceSeen) {
+                                bracePair = true;
+                        }
+                        if (preDepth > 0 || codeDepth > 0 || inFence) {
+                                codeLength++;
+                        }
+                        i++;
+                }
+
+                return new CodeFeatures(blockCount, codeLength, languageMask, bracePair);
+        }
+
+        // "<pre" or "<code" followed by '>', '/' or whitespace, so "<preview>" does not match
+        private static boolean isOpeningTag(String body, int start, String name) {
+                int next = start + name.length();
+                if (next >= body.length() || !body.regionMatches(true, start, name, 0, name.length())) {
+                        return false;
+                }
+                char c = body.charAt(next);
+                return c == '>' || c == '/' || Character.isWhitespace(c);
+        }
+
+        // Language from class="lang-java" / class="language-java" attributes
+        private static int languageOfTag(String body, int start, int tagEnd) {
+                String tag = body.substring(start, Math.min(tagEnd, start + MAX_TAG_LENGTH)).toLowerCase(Locale.ROOT);
+                int hint = tag.indexOf("lang-");
+                int prefix = 5;
+                if (tag.contains("language-")) {
+                        hint = tag.indexOf("language-");
+                        prefix = 9;
+                }
+                if (hint < 0) {
+                        return 0;
+                }
+                int end = hint + prefix;
+                while (end < tag.length() && (Character.isLetterOrDigit(tag.charAt(end)) || tag.charAt(end) == '+')) {
+                        end++;
+                }
+                return languageOf(tag.substring(hint + prefix, end));
+        }
+
+        private static int languageOf(String hint) {
+                if (hint.isEmpty()) {
+                        return 0;
+                }
+                String language = hint.toLowerCase(Locale.ROOT);
+                switch (language) {
+                        case "js":
+                                language = "javascript";
+                                break;
+                        case "kt":
+                                language = "kotlin";
+                                break;
+                        case "sh":
+                        case "shell":
+                                language = "bash";
+                                break;
+                        case "c++":
+                                language = "cpp";
+                                break;
+                        case "html":
+                                language = "xml";
+                                break;
+                        default:
+                                break;
+                }
+                int index = CodeFeatures.LANGUAGES.indexOf(language);
+                return 1 << (index >= 0 ? index : OTHER_LANGUAGE);
+        }
+}
@@ -0,0 +1,46 @@
+package cs209a.finalproject_demo.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells whether a dataset load or a streaming pass ran during a request.
+ * <p>
+ * Such a request either waited for the data to be read or competed with it for the CPU, so
+ * its latency reflects the cold start rather than the load on its endpoint; admission
+ * control leaves it out of its latency samples. Take a {@link #mark()} when the request
+ * starts and ask {@link #quietSince} when it ends.
+ */
+public final class ColdLoads {
+
+        private static final AtomicInteger RUNNING = new AtomicInteger();
+        private static final AtomicLong STARTED = new AtomicLong();
+
+        private ColdLoads() {
+        }
+
+        static void begin() {
+                // Running first, so a mark taken in between sees either one
+                RUNNING.incrementAndGet();
+                STARTED.incrementAndGet();
+        }
+
+        static void end() {
+                RUNNING.decrementAndGet();
+        }
+
+        /**
+         * The loads started so far, or -1 while one is running
+         */
+        public static long mark() {
+                long started = STARTED.get();
+                return RUNNING.get() > 0 ? -1 : started;
+        }
+
+        /**
+         * Whether no load ran since {@code mark} was taken
+         */
+        public static boolean quietSince(long mark) {
+                return mark >= 0 && RUNNING.get() == 0 && STARTED.get() == mark;
+        }
+}
@@ -1,25 +1,173 @@
 package cs209a.finalproject_demo.service;
 
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.CodeFeatures;
+import cs209a.finalproject_demo.model.LatencyHistogram;
+import cs209a.finalproject_demo.model.PartialAggregate;
 import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionColumns;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class DataAnalysisService {
 
         // Java topics to track
-        private static final List<String> JAVA_TOPICS = Arrays.asList(
-                        "generics", "collections", "io", "lambda", "stream",
-                        "multithreading", "concurrency", "thread", "socket",
-                        "reflection", "spring", "spring-boot", "jpa", "hibernate",
-                        "exception", "testing", "junit", "annotation","android");
+        private static final List<String> JAVA_TOPICS = TopicMatcher.JAVA_TOPICS;
+
+        private static final int MULTITHREADING_TOPICS = TopicMatcher.MULTITHREADING_TOPICS;
+
+        // Analyses the dashboard endpoint can combine, in response order
+        public static final List<String> DASHBOARD_SECTIONS =
+                        List.of("stats", "trends", "cooccurrence", "pitfalls", "solvability");
+
+        private AggregationKernels kernels = AggregationKernels.select("auto");
+
+        /**
+         * Switch between SIMD and scalar kernels ({@code analysis.kernels=auto|vector|scalar})
+         */
+        @Value("${analysis.kernels:auto}")
+        public void setKernels(String mode) {
+                this.kernels = AggregationKernels.select(mode);
+        }
+
+        public AggregationKernels getKernels() {
+                return kernels;
+        }
+
+        /**
+         * Build the columnar view the analyses scan.
+         * <p>
+         * Topic matching and solvability classification run once per question here,
+         * instead of once per topic on every request.
+         */
+        public QuestionDataset index(List<Question> questions) {
+                QuestionColumns columns = new QuestionColumns(questions.size());
+                ZoneId zone = ZoneId.systemDefault();
+
+                Timer.Sample stage = AnalysisMetrics.start();
+                IntStream.range(0, questions.size()).parallel().forEach(row -> {
+                        Question question = questions.get(row);
+                        int topicMask = TopicMatcher.topicMask(question);
+                        int pitfallMask = (topicMask & MULTITHREADING_TOPICS) != 0
+                                        ? TopicMatcher.pitfallMask(question)
+                                        : 0;
+                        columns.setRow(row, question, getEpochMonth(question.getCreationDate(), zone),
+                                        topicMask, pitfallMask);
+                });
+                AnalysisMetrics.stage(stage, "index", "match");
+
+                // Bitmap words are shared between rows, so flags are set sequentially
+                for (int row = 0; row < questions.size(); row++) {
+                        Question question = questions.get(row);
+                        columns.setFlags(row, question.isAnswered(), question.getAcceptedAnswerId() != null,
+                                        isSolvable(question), isHardToSolve(question),
+                                        hasCodeSnippetInAnswers(question));
+                }
+                AnalysisMetrics.stage(stage, "index", "classify");
+
+                return new QuestionDataset(questions, columns);
+        }
+
+        /**
+         * Running totals of the statistics, trends, co-occurrence, pitfall and solvability
+         * analyses over the dataset; rows are split across cores and the partials merged in order
+         * @param yearsPast trend window, see {@link #trendWindow(int)}
+         */
+        public PartialAggregate aggregate(QuestionDataset dataset, int yearsPast) {
+                return aggregate(dataset, trendWindow(yearsPast));
+        }
+
+        /**
+         * {@link #aggregate(QuestionDataset, int)} with an explicit trend window, for partials
+         * that are merged with partials of other servers
+         */
+        public PartialAggregate aggregate(QuestionDataset dataset, long[] window) {
+                int size = dataset.size();
+                int chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, size / 1024));
+                Timer.Sample stage = AnalysisMetrics.start();
+                BooleanSupplier cancelled = Cancellation.current();
+                PartialAggregate total = IntStream.range(0, chunks).parallel()
+                                .mapToObj(chunk -> {
+                                        Cancellation.check(cancelled);
+                                        PartialAggregate partial = newPartial(window);
+                                        accumulate(partial, dataset, (int) ((long) size * chunk / chunks),
+                                                        (int) ((long) size * (chunk + 1) / chunks));
+                                        return partial;
+                                })
+                                .reduce(PartialAggregate::merge)
+                                .orElseGet(() -> newPartial(window));
+                AnalysisMetrics.stage(stage, "partial", "aggregate");
+                return total;
+        }
+
+        /**
+         * Empty running totals for the given {@link #trendWindow(int)}
+         */
+        public PartialAggregate newPartial(long[] window) {
+                return new PartialAggregate(JAVA_TOPICS.size(), TopicMatcher.PITFALLS.size(), window[0], window[1]);
+        }
+
+        /**
+         * Add rows {@code from..to-1} of an indexed dataset to the running totals
+         */
+        public void accumulate(PartialAggregate partial, QuestionDataset dataset, int from, int to) {
+                QuestionColumns columns = dataset.getColumns();
+                List<Question> questions = dataset.getQuestions();
+                for (int row = from; row < to; row++) {
+                        partial.record(columns, row, questions.get(row).getTitle(), MULTITHREADING_TOPICS);
+                }
+        }
+
+        /**
+         * Dataset statistics shown in the dashboard header
+         * @return a {@code Map<String, Object>} with {@code "totalQuestions"}, {@code "totalAnswers"},
+         *         {@code "avgScore"} and {@code "answeredQuestions"}
+         */
+        public Map<String, Object> analyzeStatistics(QuestionDataset dataset) {
+                QuestionColumns columns = dataset.getColumns();
+                int size = columns.size();
+                int[] loadedAnswers = columns.loadedAnswers();
+                int[] score = columns.score();
+
+                long totalAnswers = 0;
+                long totalScore = 0;
+                for (int row = 0; row < size; row++) {
+                        totalAnswers += loadedAnswers[row];
+                        totalScore += score[row];
+                }
+
+                return statisticsResult(size, totalAnswers, totalScore, QuestionColumns.cardinality(columns.answered()));
+        }
+
+        /**
+         * Dataset statistics from running totals, see {@link #analyzeStatistics(QuestionDataset)}
+         */
+        public Map<String, Object> analyzeStatistics(PartialAggregate partial) {
+                return statisticsResult(partial.getQuestionCount(), partial.getAnswerCount(), partial.getScoreSum(),
+                                partial.getAnsweredCount());
+        }
+
+        static Map<String, Object> statisticsResult(int size, long totalAnswers, long totalScore,
+                                                    long answered) {
+                Map<String, Object> stats = new HashMap<>();
+                stats.put("totalQuestions", size);
+                stats.put("totalAnswers", (int) totalAnswers);
+                stats.put("avgScore", size > 0 ? (double) totalScore / size : 0.0);
+                stats.put("answeredQuestions", answered);
+                return stats;
+        }
 
     /**
      * Part I.1: Topic Trends Analysis
@@ -41,8 +189,71 @@ public class DataAnalysisService {
      *         </ul>
      */
     public Map<String, Object> analyzeTopicTrends(List<Question> questions, int yearsPast) {
-                Map<String, Object> result = new HashMap<>();
+                return analyzeTopicTrends(index(questions), yearsPast);
+        }
+
+        public Map<String, Object> analyzeTopicTrends(QuestionDataset dataset, int yearsPast) {
+                long[] window = trendWindow(yearsPast);
+                long startTime = window[0];
+                long currentTime = window[1];
+
+                QuestionColumns columns = dataset.getColumns();
+                long[] creationDate = columns.creationDate();
+                int[] epochMonth = columns.epochMonth();
+                int[] topicMask = columns.topicMask();
+
+                // Filter questions within time range into a row bitmap
+                Timer.Sample stage = AnalysisMetrics.start();
+                long[] selected = new long[(columns.size() + 63) >>> 6];
+                int filteredCount = kernels.selectRange(creationDate, startTime, currentTime, selected);
+                int minMonth = Integer.MAX_VALUE;
+                int maxMonth = Integer.MIN_VALUE;
+                for (int word = 0; word < selected.length; word++) {
+                        for (long bits = selected[word]; bits != 0; bits &= bits - 1) {
+                                int month = epochMonth[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                                minMonth = Math.min(minMonth, month);
+                                maxMonth = Math.max(maxMonth, month);
+                        }
+                }
+                AnalysisMetrics.stage(stage, "trends", "filter");
+
+                // Group questions by time period and topic
+                Map<Integer, int[]> countsByMonth = new TreeMap<>();
+                if (filteredCount > 0) {
+                        int[][] counts = new int[maxMonth - minMonth + 1][JAVA_TOPICS.size()];
+                        for (int word = 0; word < selected.length; word++) {
+                                long bits = selected[word];
+                                while (bits != 0) {
+                                        int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                                        bits &= bits - 1;
+                                        int[] monthCounts = counts[epochMonth[row] - minMonth];
+                                        for (int mask = topicMask[row]; mask != 0; mask &= mask - 1) {
+                                                monthCounts[Integer.numberOfTrailingZeros(mask)]++;
+                                        }
+                                }
+                        }
+                        for (int month = 0; month < counts.length; month++) {
+                                countsByMonth.put(minMonth + month, counts[month]);
+                        }
+                }
+                AnalysisMetrics.stage(stage, "trends", "aggregate");
 
+                return topicTrendsResult(countsByMonth, yearsPast, filteredCount);
+        }
+
+        /**
+         * Topic trends from running totals, see {@link #analyzeTopicTrends(QuestionDataset, int)}.
+         * The partial must have been built with {@link #trendWindow(int)} of the same {@code yearsPast}.
+         */
+        public Map<String, Object> analyzeTopicTrends(PartialAggregate partial, int yearsPast) {
+                return topicTrendsResult(partial.getTrendCounts(), yearsPast, partial.getTrendQuestions());
+        }
+
+        /**
+         * Creation time range {@code {start, end}} (epoch seconds) of the topic trends
+         * over the past {@code yearsPast} years
+         */
+        public long[] trendWindow(int yearsPast) {
                 // Calculate date range - support full range when yearsPast >= 15
                 long currentTime = System.currentTimeMillis() / 1000;
                 long startTime;
@@ -52,40 +263,41 @@ public class DataAnalysisService {
                 } else {
                         startTime = currentTime - (yearsPast * 365L * 24 * 60 * 60);
                 }
+                return new long[]{startTime, currentTime};
+        }
 
-                // Filter questions within time range
-                List<Question> filteredQuestions = questions.stream()
-                                .filter(q -> q.getCreationDate() >= startTime && q.getCreationDate() <= currentTime)
-                                .collect(Collectors.toList());
+        // countsByMonth: creation month -> questions per topic
+        static Map<String, Object> topicTrendsResult(Map<Integer, int[]> countsByMonth, int yearsPast,
+                                                     int filteredCount) {
+                Map<String, Object> result = new HashMap<>();
 
                 // For long time ranges (>5 years), aggregate by year instead of year-month
                 boolean aggregateByYear = yearsPast > 5;
 
                 // Group questions by topic and time period
                 Map<String, Map<String, Integer>> topicTrends = new HashMap<>();
-
-                for (String topic : JAVA_TOPICS) {
+                for (int topic = 0; topic < JAVA_TOPICS.size(); topic++) {
                         Map<String, Integer> periodCount = new TreeMap<>();
-
-                        for (Question question : filteredQuestions) {
-                                // Check if question is related to this topic
-                                if (isQuestionRelatedToTopic(question, topic)) {
+                        for (Map.Entry<Integer, int[]> entry : countsByMonth.entrySet()) {
+                                int count = entry.getValue()[topic];
+                                if (count > 0) {
+                                        int absoluteMonth = entry.getKey();
                                         String period = aggregateByYear
-                                                        ? getYear(question.getCreationDate())
-                                                        : getYearMonth(question.getCreationDate());
-                                        periodCount.put(period, periodCount.getOrDefault(period, 0) + 1);
+                                                        ? String.valueOf(absoluteMonth / 12)
+                                                        : formatYearMonth(absoluteMonth);
+                                        periodCount.merge(period, count, Integer::sum);
                                 }
                         }
 
                         if (!periodCount.isEmpty()) {
-                                topicTrends.put(topic, periodCount);
+                                topicTrends.put(JAVA_TOPICS.get(topic), periodCount);
                         }
                 }
 
                 result.put("topicTrends", topicTrends);
                 result.put("aggregateByYear", aggregateByYear);
                 result.put("yearsPast", yearsPast);
-                result.put("totalQuestions", filteredQuestions.size());
+                result.put("totalQuestions", filteredCount);
 
                 return result;
         }
@@ -107,40 +319,62 @@ public class DataAnalysisService {
          *
          */
         public Map<String, Object> analyzeTopicCooccurrence(List<Question> questions, int topN) {
-                Map<String, Object> result = new HashMap<>();
-
-                // Count co-occurrences
-                Map<String, Integer> cooccurrenceCount = new HashMap<>();//string is "topic1 & topic2", integer is count
-
-                for (Question question : questions) {
-                        List<String> relatedTopics = new ArrayList<>();
+                return analyzeTopicCooccurrence(index(questions), topN);
+        }
 
-                        // Find all topics related to this question
-                        for (String topic : JAVA_TOPICS) {
-                                if (isQuestionRelatedToTopic(question, topic)) {
-                                        relatedTopics.add(topic);
+        public Map<String, Object> analyzeTopicCooccurrence(QuestionDataset dataset, int topN) {
+                // Count co-occurrences on topic index pairs
+                int topicCount = JAVA_TOPICS.size();
+                int[] pairCounts = new int[topicCount * topicCount];
+                int[] topicMask = dataset.getColumns().topicMask();
+
+                Timer.Sample stage = AnalysisMetrics.start();
+                for (int mask : topicMask) {
+                        for (int first = mask; first != 0; first &= first - 1) {
+                                int i = Integer.numberOfTrailingZeros(first);
+                                for (int second = first & (first - 1); second != 0; second &= second - 1) {
+                                        pairCounts[i * topicCount + Integer.numberOfTrailingZeros(second)]++;
                                 }
                         }
+                }
+                AnalysisMetrics.stage(stage, "cooccurrence", "aggregate");
 
-                        // Count pairs
-                        for (int i = 0; i < relatedTopics.size(); i++) {
-                                for (int j = i + 1; j < relatedTopics.size(); j++) {
-                                        String topic1 = relatedTopics.get(i);
-                                        String topic2 = relatedTopics.get(j);
+                return topicCooccurrenceResult(pairCounts, topN);
+        }
+
+        /**
+         * Topic co-occurrence from running totals, see {@link #analyzeTopicCooccurrence(QuestionDataset, int)}
+         */
+        public Map<String, Object> analyzeTopicCooccurrence(PartialAggregate partial, int topN) {
+                return topicCooccurrenceResult(partial.getPairCounts(), topN);
+        }
+
+        // pairCounts[i * topics + j], i < j: questions in both topics i and j
+        static Map<String, Object> topicCooccurrenceResult(int[] pairCounts, int topN) {
+                Map<String, Object> result = new HashMap<>();
+                int topicCount = JAVA_TOPICS.size();
+
+                Map<String, Integer> cooccurrenceCount = new HashMap<>();//string is "topic1 & topic2", integer is count
+                for (int i = 0; i < topicCount; i++) {
+                        for (int j = i + 1; j < topicCount; j++) {
+                                int count = pairCounts[i * topicCount + j];
+                                if (count > 0) {
+                                        String topic1 = JAVA_TOPICS.get(i);
+                                        String topic2 = JAVA_TOPICS.get(j);
 
                                         // Create a sorted pair key
                                         String pairKey = topic1.compareTo(topic2) < 0
                                                         ? topic1 + " & " + topic2
                                                         : topic2 + " & " + topic1;
-
-                                        cooccurrenceCount.put(pairKey, cooccurrenceCount.getOrDefault(pairKey, 0) + 1);
+                                        cooccurrenceCount.put(pairKey, count);
                                 }
                         }
                 }
 
                 // Get top N pairs
                 List<Map.Entry<String, Integer>> topPairs = cooccurrenceCount.entrySet().stream()
-                                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                                                .thenComparing(Map.Entry.comparingByKey()))
                                 .limit(topN)
                                 .collect(Collectors.toList());
 
@@ -180,70 +414,67 @@ public class DataAnalysisService {
          *         </ul>
          */
         public Map<String, Object> analyzeMultithreadingPitfalls(List<Question> questions, int topN) {
-                Map<String, Object> result = new HashMap<>();
+                return analyzeMultithreadingPitfalls(index(questions), topN);
+        }
 
-                // Filter multithreading related questions
-                List<Question> mtQuestions = questions.stream()
-                                .filter(q -> isQuestionRelatedToTopic(q, "multithreading")
-                                                || isQuestionRelatedToTopic(q, "concurrency")
-                                                || isQuestionRelatedToTopic(q, "thread"))
-                                .collect(Collectors.toList());
+        public Map<String, Object> analyzeMultithreadingPitfalls(QuestionDataset dataset, int topN) {
+                // Filter multithreading related questions; pitfalls were matched by index()
+                int[] topicMask = dataset.getColumns().topicMask();
+                int[] pitfallMask = dataset.getColumns().pitfallMask();
+                int pitfallKinds = TopicMatcher.PITFALLS.size();
+                int[] counts = new int[pitfallKinds];
+                List<List<String>> examples = new ArrayList<>();
+                for (int i = 0; i < pitfallKinds; i++) {
+                        examples.add(new ArrayList<>());
+                }
+                int mtQuestionCount = 0;
+                Timer.Sample stage = AnalysisMetrics.start();
+                for (int row = 0; row < topicMask.length; row++) {
+                        if ((topicMask[row] & MULTITHREADING_TOPICS) == 0) {
+                                continue;
+                        }
+                        mtQuestionCount++;
+                        for (int mask = pitfallMask[row]; mask != 0; mask &= mask - 1) {
+                                int pitfall = Integer.numberOfTrailingZeros(mask);
+                                counts[pitfall]++;
+                                if (examples.get(pitfall).size() < PartialAggregate.PITFALL_EXAMPLES) {
+                                        examples.get(pitfall).add(dataset.getQuestions().get(row).getTitle());
+                                }
+                        }
+                }
+                AnalysisMetrics.stage(stage, "pitfalls", "aggregate");
 
-                // Define common pitfalls patterns
-                Map<String, List<String>> pitfallPatterns = new HashMap<>();
-                pitfallPatterns.put("Race Condition", Arrays.asList(
-                                "race condition", "race-condition", "concurrent modification",
-                                "shared variable", "thread safety", "thread-safety"));
-                pitfallPatterns.put("Deadlock", Arrays.asList(
-                                "deadlock", "dead lock", "circular wait", "thread blocked"));
-                pitfallPatterns.put("Thread Synchronization", Arrays.asList(
-                                "synchroniz", "volatile", "atomic", "lock", "mutex"));
-                pitfallPatterns.put("Thread Pool Issues", Arrays.asList(
-                                "thread pool", "executor", "threadpool", "executorservice"));
-                pitfallPatterns.put("Wait/Notify Problems", Arrays.asList(
-                                "wait\\(\\)", "notify", "notifyall", "IllegalMonitorStateException"));
-                pitfallPatterns.put("ConcurrentModificationException", Arrays.asList(
-                                "ConcurrentModificationException", "concurrent modification exception"));
-                pitfallPatterns.put("Memory Visibility", Arrays.asList(
-                                "memory visibility", "happens-before", "volatile keyword", "cache coherence"));
-                pitfallPatterns.put("Livelock", Arrays.asList(
-                                "livelock", "live lock", "thread starvation", "starvation"));
+                return multithreadingPitfallsResult(counts, examples, mtQuestionCount, topN);
+        }
+
+        /**
+         * Multithreading pitfalls from running totals, see
+         * {@link #analyzeMultithreadingPitfalls(QuestionDataset, int)}
+         */
+        public Map<String, Object> analyzeMultithreadingPitfalls(PartialAggregate partial, int topN) {
+                return multithreadingPitfallsResult(partial.getPitfallCounts(), partial.getPitfallExamples(),
+                                partial.getMultithreadingCount(), topN);
+        }
+
+        static Map<String, Object> multithreadingPitfallsResult(int[] counts, List<List<String>> examples,
+                                                                int mtQuestionCount, int topN) {
+                Map<String, Object> result = new HashMap<>();
+                int pitfallKinds = TopicMatcher.PITFALLS.size();
 
                 // Count pitfalls
                 Map<String, Integer> pitfallCount = new HashMap<>();
                 Map<String, List<String>> pitfallExamples = new HashMap<>();
-
-                for (Map.Entry<String, List<String>> entry : pitfallPatterns.entrySet()) {
-                        String pitfallName = entry.getKey();
-                        List<String> patterns = entry.getValue();
-                        int count = 0;
-                        List<String> examples = new ArrayList<>();
-
-                        for (Question question : mtQuestions) {
-                                String title = question.getTitle() != null ? question.getTitle() : "";
-                                String body = question.getBody() != null ? question.getBody() : "";
-                                String searchText = (title + " " + body).toLowerCase();
-
-                                for (String pattern : patterns) {
-                                        if (searchText.matches(".*\\b" + pattern.toLowerCase() + ".*")) {
-                                                count++;
-                                                if (examples.size() < 3) {
-                                                        examples.add(question.getTitle());
-                                                }
-                                                break;
-                                        }
-                                }
-                        }
-
-                        if (count > 0) {
-                                pitfallCount.put(pitfallName, count);
-                                pitfallExamples.put(pitfallName, examples);
+                for (int pitfall = 0; pitfall < pitfallKinds; pitfall++) {
+                        if (counts[pitfall] > 0) {
+                                pitfallCount.put(TopicMatcher.PITFALLS.get(pitfall), counts[pitfall]);
+                                pitfallExamples.put(TopicMatcher.PITFALLS.get(pitfall), examples.get(pitfall));
                         }
                 }
 
                 // Get top N pitfalls
                 List<Map.Entry<String, Integer>> topPitfalls = pitfallCount.entrySet().stream()
-                                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                                                .thenComparing(Map.Entry.comparingByKey()))
                                 .limit(topN)
                                 .collect(Collectors.toList());
 
@@ -254,13 +485,13 @@ public class DataAnalysisService {
                         pitfall.put("name", entry.getKey());
                         pitfall.put("count", entry.getValue());
                         pitfall.put("percentage", String.format("%.2f%%",
-                                        (entry.getValue() * 100.0) / mtQuestions.size()));
+                                        (entry.getValue() * 100.0) / mtQuestionCount));
                         pitfall.put("examples", pitfallExamples.get(entry.getKey()));
                         formattedPitfalls.add(pitfall);
                 }
 
                 result.put("topPitfalls", formattedPitfalls);
-                result.put("totalMultithreadingQuestions", mtQuestions.size());
+                result.put("totalMultithreadingQuestions", mtQuestionCount);
                 result.put("topN", topN);
 
                 return result;
@@ -288,170 +519,346 @@ public class DataAnalysisService {
          *         </ul>
          */
         public Map<String, Object> analyzeSolvability(List<Question> questions) {
-                Map<String, Object> result = new HashMap<>();
-
-                // Classify questions - use more relaxed criteria
-                // Solvable: has accepted answer OR is marked as answered OR has answers with
-                // positive score
-                List<Question> solvableQuestions = questions.stream()
-                                .filter(q -> q.getAcceptedAnswerId() != null ||
-                                                q.isAnswered() ||
-                                                (q.getAnswerCount() > 0 && q.getAnswers() != null &&
-                                                                !q.getAnswers().isEmpty() &&
-                                                                q.getAnswers().stream()
-                                                                                .anyMatch(a -> a.getScore() >= 1)))
-                                .collect(Collectors.toList());
+                return analyzeSolvability(index(questions));
+        }
 
-                // Hard-to-solve: no accepted answer, not marked as answered, and either no
-                // answers or all answers have score < 1
-                List<Question> hardQuestions = questions.stream()
-                                .filter(q -> q.getAcceptedAnswerId() == null &&
-                                                !q.isAnswered() &&
-                                                (q.getAnswerCount() == 0 ||
-                                                                q.getAnswers() == null ||
-                                                                q.getAnswers().isEmpty() ||
-                                                                q.getAnswers().stream()
-                                                                                .allMatch(a -> a.getScore() < 1)))
-                                .collect(Collectors.toList());
+        public Map<String, Object> analyzeSolvability(QuestionDataset dataset) {
+                // Classification is precomputed by index(), see isSolvable / isHardToSolve
+                QuestionColumns columns = dataset.getColumns();
+                Timer.Sample stage = AnalysisMetrics.start();
+                long[] solvable = columns.solvable();
+                long[] hard = columns.hardToSolve();
+                int solvableCount = QuestionColumns.cardinality(solvable);
+                int hardCount = QuestionColumns.cardinality(hard);
 
                 // Handle case where solvableQuestions is empty to avoid NaN
-                int solvableSize = Math.max(1, solvableQuestions.size());
-                int hardSize = Math.max(1, hardQuestions.size());
+                int solvableSize = Math.max(1, solvableCount);
+                int hardSize = Math.max(1, hardCount);
 
                 // Factor 1: Code Snippet Presence (check in answers since question body may not
                 // be available)
-                double solvableWithCode = solvableQuestions.stream()
-                                .filter(this::hasCodeSnippetInAnswers)
-                                .count() * 100.0 / solvableSize;
-
-                double hardWithCode = hardQuestions.stream()
-                                .filter(this::hasCodeSnippetInAnswers)
-                                .count() * 100.0 / hardSize;
+                double solvableWithCode = QuestionColumns.cardinality(solvable, columns.answerHasCode())
+                                * 100.0 / solvableSize;
+                double hardWithCode = QuestionColumns.cardinality(hard, columns.answerHasCode())
+                                * 100.0 / hardSize;
 
                 // Factor 2: Title Length (as proxy for clarity, since body may not be
                 // available)
-                double avgSolvableLength = solvableQuestions.stream()
-                                .filter(q -> q.getTitle() != null)
-                                .mapToInt(q -> q.getTitle().length())
-                                .average()
-                                .orElse(0);
-
-                double avgHardLength = hardQuestions.stream()
-                                .filter(q -> q.getTitle() != null)
-                                .mapToInt(q -> q.getTitle().length())
-                                .average()
-                                .orElse(0);
+                double avgSolvableLength = averageNonNegative(columns.titleLength(), solvable);
+                double avgHardLength = averageNonNegative(columns.titleLength(), hard);
 
                 // Factor 3: Owner Reputation
-                double avgSolvableReputation = solvableQuestions.stream()
-                                .mapToInt(Question::getOwnerReputation)
-                                .average()
-                                .orElse(0);
-
-                double avgHardReputation = hardQuestions.stream()
-                                .mapToInt(Question::getOwnerReputation)
-                                .average()
-                                .orElse(0);
+                double avgSolvableReputation = average(columns.ownerReputation(), solvable);
+                double avgHardReputation = average(columns.ownerReputation(), hard);
 
                 // Factor 4: Number of Tags
-                double avgSolvableTags = solvableQuestions.stream()
-                                .mapToInt(q -> q.getTags().size())
-                                .average()
-                                .orElse(0);
-
-                double avgHardTags = hardQuestions.stream()
-                                .mapToInt(q -> q.getTags().size())
-                                .average()
-                                .orElse(0);
+                double avgSolvableTags = average(columns.tagCount(), solvable);
+                double avgHardTags = average(columns.tagCount(), hard);
 
                 // Factor 5: View Count (popularity)
-                double avgSolvableViews = solvableQuestions.stream()
-                                .mapToInt(Question::getViewCount)
-                                .average()
-                                .orElse(0);
+                double avgSolvableViews = average(columns.viewCount(), solvable);
+                double avgHardViews = average(columns.viewCount(), hard);
+                AnalysisMetrics.stage(stage, "solvability", "aggregate");
+
+                return solvabilityResult(solvableCount, hardCount,
+                                new double[]{solvableWithCode, avgSolvableLength, avgSolvableReputation,
+                                                avgSolvableTags, avgSolvableViews},
+                                new double[]{hardWithCode, avgHardLength, avgHardReputation, avgHardTags, avgHardViews});
+        }
+
+        /**
+         * Solvability from running totals, see {@link #analyzeSolvability(QuestionDataset)}
+         */
+        public Map<String, Object> analyzeSolvability(PartialAggregate partial) {
+                PartialAggregate.SolvabilityGroup solvable = partial.getSolvable();
+                PartialAggregate.SolvabilityGroup hard = partial.getHardToSolve();
+                return solvabilityResult(solvable.getCount(), hard.getCount(), factors(solvable), factors(hard));
+        }
 
-                double avgHardViews = hardQuestions.stream()
-                                .mapToInt(Question::getViewCount)
-                                .average()
-                                .orElse(0);
+        // Factors of one group in the order of solvabilityResult
+        private static double[] factors(PartialAggregate.SolvabilityGroup group) {
+                int count = group.getCount();
+                return new double[]{
+                                group.getAnswerHasCode() * 100.0 / Math.max(1, count),
+                                group.getTitleCount() > 0 ? (double) group.getTitleLengthSum() / group.getTitleCount() : 0,
+                                count > 0 ? (double) group.getReputationSum() / count : 0,
+                                count > 0 ? (double) group.getTagSum() / count : 0,
+                                count > 0 ? (double) group.getViewSum() / count : 0};
+        }
+
+        // Factors of each group: answer-has-code percentage, average title length,
+        // reputation, tag count and view count
+        static Map<String, Object> solvabilityResult(int solvableCount, int hardCount,
+                                                     double[] solvableFactors, double[] hardFactors) {
+                Map<String, Object> result = new HashMap<>();
 
                 // Prepare results
                 Map<String, Map<String, Object>> factors = new LinkedHashMap<>();
 
                 factors.put("Answer Has Code Snippet", Map.of(
-                                "solvable", String.format("%.2f%%", solvableWithCode),
-                                "hardToSolve", String.format("%.2f%%", hardWithCode),
+                                "solvable", String.format("%.2f%%", solvableFactors[0]),
+                                "hardToSolve", String.format("%.2f%%", hardFactors[0]),
                                 "insight", "Questions with code snippets in answers indicate better explanations"));
 
                 factors.put("Title Length", Map.of(
-                                "solvable", String.format("%.0f chars", avgSolvableLength),
-                                "hardToSolve", String.format("%.0f chars", avgHardLength),
+                                "solvable", String.format("%.0f chars", solvableFactors[1]),
+                                "hardToSolve", String.format("%.0f chars", hardFactors[1]),
                                 "insight",
                                 "Clear and descriptive titles help questions get better answers"));
 
                 factors.put("Owner Reputation", Map.of(
-                                "solvable", String.format("%.0f", avgSolvableReputation),
-                                "hardToSolve", String.format("%.0f", avgHardReputation),
+                                "solvable", String.format("%.0f", solvableFactors[2]),
+                                "hardToSolve", String.format("%.0f", hardFactors[2]),
                                 "insight", "User reputation affects question visibility and response quality"));
 
                 factors.put("Number of Tags", Map.of(
-                                "solvable", String.format("%.2f", avgSolvableTags),
-                                "hardToSolve", String.format("%.2f", avgHardTags),
+                                "solvable", String.format("%.2f", solvableFactors[3]),
+                                "hardToSolve", String.format("%.2f", hardFactors[3]),
                                 "insight", "Appropriate tagging helps questions reach the right audience"));
 
                 factors.put("View Count", Map.of(
-                                "solvable", String.format("%.0f", avgSolvableViews),
-                                "hardToSolve", String.format("%.0f", avgHardViews),
+                                "solvable", String.format("%.0f", solvableFactors[4]),
+                                "hardToSolve", String.format("%.0f", hardFactors[4]),
                                 "insight", "Higher visibility correlates with better chances of getting answers"));
 
-                result.put("solvableCount", solvableQuestions.size());
-                result.put("hardToSolveCount", hardQuestions.size());
+                result.put("solvableCount", solvableCount);
+                result.put("hardToSolveCount", hardCount);
                 result.put("factors", factors);
 
                 return result;
         }
 
-        // Helper methods
+        /**
+         * Dashboard
+         * <p>
+         * The statistics and analyses the dashboard shows, all from one fused parallel pass
+         * over the dataset (see {@link #aggregate(QuestionDataset, int)}) instead of one scan
+         * per analysis.
+         * @param sections which of {@link #DASHBOARD_SECTIONS} to include
+         * @return a {@code Map<String, Object>} keyed by section, each value being the result of
+         *         the matching analysis ({@code "stats"}, {@code "trends"}, {@code "cooccurrence"},
+         *         {@code "pitfalls"}, {@code "solvability"})
+         */
+        public Map<String, Object> analyzeDashboard(QuestionDataset dataset, Collection<String> sections,
+                                                    int yearsPast, int cooccurrenceTopN, int pitfallsTopN) {
+                return analyzeDashboard(aggregate(dataset, yearsPast), sections, yearsPast, cooccurrenceTopN, pitfallsTopN);
+        }
+
+        /**
+         * Dashboard from running totals whose trend window covers {@code yearsPast} years
+         */
+        public Map<String, Object> analyzeDashboard(PartialAggregate partial, Collection<String> sections,
+                                                    int yearsPast, int cooccurrenceTopN, int pitfallsTopN) {
+                return dashboardResult(sections, section -> switch (section) {
+                        case "stats" -> analyzeStatistics(partial);
+                        case "trends" -> analyzeTopicTrends(partial, yearsPast);
+                        case "cooccurrence" -> analyzeTopicCooccurrence(partial, cooccurrenceTopN);
+                        case "pitfalls" -> analyzeMultithreadingPitfalls(partial, pitfallsTopN);
+                        default -> analyzeSolvability(partial);
+                });
+        }
+
+        /**
+         * Parse a comma-separated list of dashboard sections; blank means all of them
+         * @throws IllegalArgumentException for an unknown section
+         */
+        public static List<String> dashboardSections(String include) {
+                if (include == null || include.isBlank()) {
+                        return DASHBOARD_SECTIONS;
+                }
+                Set<String> sections = new LinkedHashSet<>();
+                for (String section : include.split(",")) {
+                        String name = section.trim().toLowerCase();
+                        if (!DASHBOARD_SECTIONS.contains(name)) {
+                                throw new IllegalArgumentException("Unknown dashboard section: " + section.trim()
+                                                + ", expected one of " + DASHBOARD_SECTIONS);
+                        }
+                        sections.add(name);
+                }
+                return List.copyOf(sections);
+        }
+
+        static Map<String, Object> dashboardResult(Collection<String> sections,
+                                                   Function<String, Map<String, Object>> analysis) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                for (String section : sections) {
+                        result.put(section, analysis.apply(section));
+                }
+                return result;
+        }
 
-        private boolean isQuestionRelatedToTopic(Question question, String topic) {
-                // Check in tags
-                if (question.getTags() != null) {
-                        for (String tag : question.getTags()) {
-                                if (tag != null && tag.toLowerCase().contains(topic.toLowerCase())) {
-                                        return true;
+        /**
+         * Answer Latency Analysis
+         * <p>
+         * Distribution of the time from asking to the first answer and to the accepted
+         * answer, overall, per topic and per year. Rows are split across cores; every worker
+         * records into its own log-bucketed histograms which are merged at the end.
+         * @return a {@code Map<String, Object>} containing answer latency results, each entry
+         *         being a {@code Map} with {@code "firstAnswer"} and {@code "acceptedAnswer"}
+         *         summaries ({@code "count"}, {@code "mean"}, {@code "p50"}, {@code "p90"},
+         *         {@code "p99"}, {@code "max"}, all in seconds):
+         *         <ul>
+         *           <li>{@code "overall"} – latencies over the whole dataset</li>
+         *           <li>{@code "byTopic"} – a {@code Map<String, Map<String, Object>>} keyed by topic</li>
+         *           <li>{@code "byYear"} – a {@code Map<String, Map<String, Object>>} keyed by year</li>
+         *           <li>{@code "unit"} – always {@code "seconds"}</li>
+         *         </ul>
+         */
+        public Map<String, Object> analyzeAnswerLatency(QuestionDataset dataset) {
+                List<Question> questions = dataset.getQuestions();
+                int[] topicMask = dataset.getColumns().topicMask();
+                int[] epochMonth = dataset.getColumns().epochMonth();
+
+                LatencyHistograms histograms = IntStream.range(0, questions.size()).parallel()
+                                .collect(LatencyHistograms::new,
+                                                (acc, row) -> acc.record(questions.get(row), topicMask[row],
+                                                                epochMonth[row] / 12),
+                                                LatencyHistograms::merge);
+
+                Map<String, Object> byTopic = new LinkedHashMap<>();
+                for (int topic = 0; topic < JAVA_TOPICS.size(); topic++) {
+                        if (histograms.byTopic[topic].hasData()) {
+                                byTopic.put(JAVA_TOPICS.get(topic), histograms.byTopic[topic].summary());
+                        }
+                }
+                Map<String, Object> byYear = new LinkedHashMap<>();
+                histograms.byYear.forEach((year, pair) -> byYear.put(String.valueOf(year), pair.summary()));
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("overall", histograms.overall.summary());
+                result.put("byTopic", byTopic);
+                result.put("byYear", byYear);
+                result.put("unit", "seconds");
+                return result;
+        }
+
+        // Per-worker histograms of analyzeAnswerLatency
+        private static final class LatencyHistograms {
+                final LatencyPair overall = new LatencyPair();
+                final LatencyPair[] byTopic = new LatencyPair[JAVA_TOPICS.size()];
+                final Map<Integer, LatencyPair> byYear = new TreeMap<>();
+
+                LatencyHistograms() {
+                        for (int i = 0; i < byTopic.length; i++) {
+                                byTopic[i] = new LatencyPair();
+                        }
+                }
+
+                void record(Question question, int topicMask, int year) {
+                        if (question.getAnswers() == null) {
+                                return;
+                        }
+                        long firstAnswer = Long.MAX_VALUE;
+                        long acceptedAnswer = -1;
+                        for (Answer answer : question.getAnswers()) {
+                                long delay = answer.getCreationDate() - question.getCreationDate();
+                                if (delay < 0) {
+                                        continue;
+                                }
+                                firstAnswer = Math.min(firstAnswer, delay);
+                                if (answer.isAccepted() || (question.getAcceptedAnswerId() != null
+                                                && question.getAcceptedAnswerId() == answer.getAnswerId())) {
+                                        acceptedAnswer = delay;
                                 }
                         }
+                        if (firstAnswer == Long.MAX_VALUE) {
+                                return;
+                        }
+
+                        overall.record(firstAnswer, acceptedAnswer);
+                        byYear.computeIfAbsent(year, y -> new LatencyPair()).record(firstAnswer, acceptedAnswer);
+                        for (int mask = topicMask; mask != 0; mask &= mask - 1) {
+                                byTopic[Integer.numberOfTrailingZeros(mask)].record(firstAnswer, acceptedAnswer);
+                        }
                 }
 
-                // Check in title and body
-                String title = question.getTitle() != null ? question.getTitle() : "";
-                String body = question.getBody() != null ? question.getBody() : "";
-                String searchText = (title + " " + body).toLowerCase();
-                return searchText.contains(topic.toLowerCase());
+                void merge(LatencyHistograms other) {
+                        overall.merge(other.overall);
+                        for (int i = 0; i < byTopic.length; i++) {
+                                byTopic[i].merge(other.byTopic[i]);
+                        }
+                        other.byYear.forEach((year, pair) ->
+                                        byYear.computeIfAbsent(year, y -> new LatencyPair()).merge(pair));
+                }
         }
 
-        private String getYearMonth(long epochSeconds) {
-                LocalDate date = Instant.ofEpochSecond(epochSeconds)
-                                .atZone(ZoneId.systemDefault())
-                                .toLocalDate();
-                return String.format("%d-%02d", date.getYear(), date.getMonthValue());
+        private static final class LatencyPair {
+                final LatencyHistogram firstAnswer = new LatencyHistogram();
+                final LatencyHistogram acceptedAnswer = new LatencyHistogram();
+
+                void record(long firstAnswerDelay, long acceptedAnswerDelay) {
+                        firstAnswer.record(firstAnswerDelay);
+                        if (acceptedAnswerDelay >= 0) {
+                                acceptedAnswer.record(acceptedAnswerDelay);
+                        }
+                }
+
+                void merge(LatencyPair other) {
+                        firstAnswer.merge(other.firstAnswer);
+                        acceptedAnswer.merge(other.acceptedAnswer);
+                }
+
+                boolean hasData() {
+                        return firstAnswer.getTotalCount() > 0;
+                }
+
+                Map<String, Object> summary() {
+                        Map<String, Object> summary = new LinkedHashMap<>();
+                        summary.put("firstAnswer", firstAnswer.summary());
+                        summary.put("acceptedAnswer", acceptedAnswer.summary());
+                        return summary;
+                }
+        }
+
+        // Helper methods
+
+        /**
+         * Solvable: has accepted answer OR is marked as answered OR has answers with
+         * positive score
+         */
+        private boolean isSolvable(Question q) {
+                return q.getAcceptedAnswerId() != null ||
+                                q.isAnswered() ||
+                                (q.getAnswerCount() > 0 && q.getAnswers() != null &&
+                                                !q.getAnswers().isEmpty() &&
+                                                q.getAnswers().stream()
+                                                                .anyMatch(a -> a.getScore() >= 1));
+        }
+
+        /**
+         * Hard-to-solve: no accepted answer, not marked as answered, and either no
+         * answers or all answers have score < 1
+         */
+        private boolean isHardToSolve(Question q) {
+                return q.getAcceptedAnswerId() == null &&
+                                !q.isAnswered() &&
+                                (q.getAnswerCount() == 0 ||
+                                                q.getAnswers() == null ||
+                                                q.getAnswers().isEmpty() ||
+                                                q.getAnswers().stream()
+                                                                .allMatch(a -> a.getScore() < 1));
+        }
+
+        private double average(int[] column, long[] rows) {
+                int count = QuestionColumns.cardinality(rows);
+                return count > 0 ? (double) kernels.maskedSum(column, rows) / count : 0;
         }
 
-        private String getYear(long epochSeconds) {
+        // Like average(), skipping rows whose value is negative (missing)
+        private double averageNonNegative(int[] column, long[] rows) {
+                int count = kernels.maskedCountNonNegative(column, rows);
+                return count > 0 ? (double) kernels.maskedSumNonNegative(column, rows) / count : 0;
+        }
+
+        private static int getEpochMonth(long epochSeconds, ZoneId zone) {
                 LocalDate date = Instant.ofEpochSecond(epochSeconds)
-                                .atZone(ZoneId.systemDefault())
+                                .atZone(zone)
                                 .toLocalDate();
-                return String.valueOf(date.getYear());
+                return date.getYear() * 12 + date.getMonthValue() - 1;
         }
 
-        private boolean hasCodeSnippet(Question question) {
-                String body = question.getBody();
-                if (body == null || body.isEmpty()) {
-                        return false;
-                }
-                // Check for common code markers
-                return body.contains("<code>") || body.contains("```") ||
-                                body.contains("<pre>") || body.matches("(?s).*\\{.*\\}.*");
+        private static String formatYearMonth(int epochMonth) {
+                return String.format("%d-%02d", epochMonth / 12, epochMonth % 12 + 1);
         }
 
         /**
@@ -461,14 +868,16 @@ public class DataAnalysisService {
                 if (question.getAnswers() == null || question.getAnswers().isEmpty()) {
                         return false;
                 }
-                return question.getAnswers().stream()
-                                .anyMatch(answer -> {
-                                        String body = answer.getBody();
-                                        if (body == null || body.isEmpty()) {
-                                                return false;
-                                        }
-                                        return body.contains("<code>") || body.contains("```") ||
-                                                        body.contains("<pre>");
-                                });
+                for (Answer answer : question.getAnswers()) {
+                        if (codeFeatures(answer.getCodeFeatures(), answer.getBody()).hasCode()) {
+                                return true;
+                        }
+                }
+                return false;
+        }
+
+        // Features extracted at load time, scanning on the spot for posts built elsewhere
+        private static CodeFeatures codeFeatures(CodeFeatures extracted, String body) {
+                return extracted != null ? extracted : CodeBlockScanner.scan(body);
         }
 }
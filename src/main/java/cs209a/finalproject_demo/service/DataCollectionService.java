@@ -1,10 +1,13 @@
 package cs209a.finalproject_demo.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import cs209a.finalproject_demo.model.Answer;
 import cs209a.finalproject_demo.model.Comment;
 import cs209a.finalproject_demo.model.Question;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
@@ -16,6 +19,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.zip.GZIPInputStream;
 
 @Service
@@ -26,6 +30,13 @@ public class DataCollectionService {
     private static final String DATA_FILE = "stackoverflow_data.json";
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Questions parsed between two progress reports
+    private static final int PROGRESS_EVERY = 1000;
+
+    // Attempts of one API request, and the wait before the first retry
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
     /**
      * Collect questions with 'java' tag from Stack Overflow
      * 
@@ -33,7 +44,16 @@ public class DataCollectionService {
      * @return List of questions with answers and comments
      */
     public List<Question> collectData(int maxQuestions) throws Exception {
+        return collectData(maxQuestions, ProgressListener.NONE);
+    }
+
+    /**
+     * Collect questions, reporting every question fetched (API responses are not counted
+     * as bytes read)
+     */
+    public List<Question> collectData(int maxQuestions, ProgressListener listener) throws Exception {
         List<Question> allQuestions = new ArrayList<>();
+        listener.phase("collecting");
         int page = 1;
         int pageSize = 100;
 
@@ -60,11 +80,13 @@ public class DataCollectionService {
 
                 // Fetch answers for this question
                 question.setAnswers(fetchAnswers(question.getQuestionId()));
+                prepare(question);
 
                 // Small delay to avoid rate limiting
                 Thread.sleep(100);
 
                 allQuestions.add(question);
+                listener.progress(allQuestions.size(), 0);
             }
 
             // Check if there are more pages
@@ -176,28 +198,58 @@ public class DataCollectionService {
     }
 
     /**
-     * Make API request and handle compression
+     * Make API request and handle compression. Connection failures, throttling (429) and
+     * server errors are retried up to {@code MAX_ATTEMPTS} times with a doubling delay; a
+     * {@code backoff} the API asks for is honoured before returning.
      */
     private JsonNode makeApiRequest(String urlString) throws Exception {
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Accept-Encoding", "gzip");
-
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("HTTP error code: " + responseCode);
-        }
+        long delay = RETRY_DELAY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            Timer.Sample sample = AnalysisMetrics.start();
+            IOException failure;
+            int responseCode = 0;
+            try {
+                URL url = new URL(urlString);
+                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+                conn.setRequestMethod("GET");
+                conn.setRequestProperty("Accept-Encoding", "gzip");
+
+                responseCode = conn.getResponseCode();
+                if (responseCode != 200) {
+                    throw new IOException("HTTP error code: " + responseCode);
+                }
 
-        InputStream inputStream = conn.getInputStream();
+                InputStream inputStream = conn.getInputStream();
 
-        // Check if response is gzipped
-        String encoding = conn.getContentEncoding();
-        if ("gzip".equalsIgnoreCase(encoding)) {
-            inputStream = new GZIPInputStream(inputStream);
-        }
+                // Check if response is gzipped
+                String encoding = conn.getContentEncoding();
+                if ("gzip".equalsIgnoreCase(encoding)) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+
+                JsonNode response = objectMapper.readTree(inputStream);
+                AnalysisMetrics.collectorRequest(sample, "ok");
+                if (response.has("quota_remaining")) {
+                    AnalysisMetrics.collectorQuota(response.get("quota_remaining").asLong());
+                }
+                if (response.has("backoff")) {
+                    Thread.sleep(response.get("backoff").asLong() * 1000);
+                }
+                return response;
+            } catch (IOException e) {
+                failure = e;
+            }
 
-        return objectMapper.readTree(inputStream);
+            // Client errors other than throttling will not go away on a retry
+            AnalysisMetrics.collectorRequest(sample, responseCode == 429 ? "throttled" : "error");
+            boolean retryable = responseCode == 429 || responseCode < 400 || responseCode >= 500;
+            if (!retryable || attempt == MAX_ATTEMPTS) {
+                throw failure;
+            }
+            AnalysisMetrics.collectorRetry();
+            Thread.sleep(delay);
+            delay *= 2;
+        }
     }
 
     /**
@@ -212,12 +264,75 @@ public class DataCollectionService {
      * Load data from JSON file
      */
     public List<Question> loadData(String filename) throws IOException {
+        return loadData(filename, ProgressListener.NONE);
+    }
+
+    /**
+     * Load data from JSON file, reporting questions parsed and bytes read every
+     * {@code PROGRESS_EVERY} questions
+     */
+    public List<Question> loadData(String filename, ProgressListener listener) throws IOException {
+        return loadData(filename, question -> true, listener);
+    }
+
+    /**
+     * Load the questions of a JSON file that {@code keep} accepts, such as those of one
+     * shard; the others are dropped as they are parsed
+     */
+    public List<Question> loadData(String filename, Predicate<Question> keep, ProgressListener listener)
+            throws IOException {
         File file = new File(filename);
         if (!file.exists()) {
             return new ArrayList<>();
         }
 
-        Question[] questions = objectMapper.readValue(file, Question[].class);
-        return List.of(questions);
+        List<Question> questions = new ArrayList<>();
+        listener.phase("parsing");
+        Timer.Sample stage = AnalysisMetrics.start();
+        int parsed = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(filename + " is not a JSON array of questions");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Question question = objectMapper.readValue(parser, Question.class);
+                if (keep.test(question)) {
+                    questions.add(question);
+                }
+                if (++parsed % PROGRESS_EVERY == 0) {
+                    listener.progress(questions.size(), parser.currentLocation().getByteOffset());
+                }
+            }
+            // A null element or a truncated file must not load as a shorter dataset
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException(filename + ": expected a question or the end of the array at byte "
+                        + parser.currentLocation().getByteOffset() + ", found " + token);
+            }
+        }
+        listener.progress(questions.size(), file.length());
+        AnalysisMetrics.stage(stage, "load", "parse");
+        AnalysisMetrics.parsed(file.getName(), parsed, file.length());
+
+        listener.phase("preparing");
+        stage = AnalysisMetrics.start();
+        questions.parallelStream().forEach(this::prepare);
+        AnalysisMetrics.stage(stage, "load", "prepare");
+        return List.copyOf(questions);
+    }
+
+    /**
+     * Load-time preparation: extract the per-post features, the normalized
+     * search text and its MinHash signature the analyses look up
+     */
+    private void prepare(Question question) {
+        question.setCodeFeatures(CodeBlockScanner.scan(question.getBody()));
+        question.setSearchText(TextNormalizer.normalize(question.getTitle(), question.getBody()));
+        question.setMinHash(MinHasher.signature(question.getSearchText()));
+        if (question.getAnswers() != null) {
+            for (Answer answer : question.getAnswers()) {
+                answer.setCodeFeatures(CodeBlockScanner.scan(answer.getBody()));
+            }
+        }
     }
 }
@@ -0,0 +1,216 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The loaded data file, shared by every request.
+ * <p>
+ * Loads are single-flight: the first caller that finds nothing loaded parses the file and
+ * every concurrent caller waits on the same future, so a burst of requests at startup
+ * parses it once. A finished load is published as an immutable {@link Snapshot} through an
+ * atomic reference; readers never lock and a request that took a snapshot keeps seeing the
+ * same questions even if a reload replaces it meanwhile.
+ */
+@Service
+public class DatasetHolder {
+
+        static final String DATA_FILE = "stackoverflow_data.json";
+
+        // Shared by all holders, so no two snapshots of any datasets have the same version
+        private static final AtomicLong VERSIONS = new AtomicLong();
+
+        private final DataCollectionService dataCollectionService;
+        private final DataAnalysisService dataAnalysisService;
+        private final RelatedQuestionService relatedQuestionService;
+        private final ApproximateAnalysisService approximateAnalysisService;
+        private final StreamingAnalysisService streamingAnalysisService;
+        private final QueryService queryService;
+
+        private final AtomicReference<Snapshot> current = new AtomicReference<>();
+        private final AtomicReference<CompletableFuture<Snapshot>> loading = new AtomicReference<>();
+
+        private String dataFile = DATA_FILE;
+
+        public DatasetHolder(DataCollectionService dataCollectionService,
+                             DataAnalysisService dataAnalysisService,
+                             RelatedQuestionService relatedQuestionService,
+                             ApproximateAnalysisService approximateAnalysisService,
+                             StreamingAnalysisService streamingAnalysisService,
+                             QueryService queryService) {
+                this.dataCollectionService = dataCollectionService;
+                this.dataAnalysisService = dataAnalysisService;
+                this.relatedQuestionService = relatedQuestionService;
+                this.approximateAnalysisService = approximateAnalysisService;
+                this.streamingAnalysisService = streamingAnalysisService;
+                this.queryService = queryService;
+        }
+
+        /**
+         * A holder of another data file, built with the same services
+         */
+        public DatasetHolder forFile(String dataFile) {
+                DatasetHolder holder = new DatasetHolder(dataCollectionService, dataAnalysisService,
+                                relatedQuestionService, approximateAnalysisService, streamingAnalysisService, queryService);
+                holder.setDataFile(dataFile);
+                return holder;
+        }
+
+        public String getDataFile() {
+                return dataFile;
+        }
+
+        public void setDataFile(String dataFile) {
+                this.dataFile = dataFile;
+        }
+
+        /**
+         * The current snapshot, loading the data file first if nothing (or only an empty
+         * file) has been loaded yet
+         * @throws IOException if the file cannot be read or is too large to load
+         */
+        public Snapshot get() throws IOException {
+                Snapshot snapshot = current.get();
+                return snapshot != null && !snapshot.isEmpty() ? snapshot : load(false, ProgressListener.NONE);
+        }
+
+        /**
+         * The current snapshot without loading anything, {@code null} before the first load
+         */
+        public Snapshot current() {
+                return current.get();
+        }
+
+        /**
+         * Version of the current snapshot without loading anything, 0 while nothing (or only
+         * an empty file) is loaded
+         */
+        public long currentVersion() {
+                Snapshot snapshot = current.get();
+                return snapshot != null && !snapshot.isEmpty() ? snapshot.getVersion() : 0;
+        }
+
+        /**
+         * Load the data file again and publish it as a new snapshot. Joins a load that is
+         * already running instead of starting a second one.
+         */
+        public Snapshot reload() throws IOException {
+                return load(true, ProgressListener.NONE);
+        }
+
+        /**
+         * {@link #reload()}, reporting progress to {@code listener} if this call does the load
+         */
+        public Snapshot reload(ProgressListener listener) throws IOException {
+                return load(true, listener);
+        }
+
+        private Snapshot load(boolean force, ProgressListener listener) throws IOException {
+                CompletableFuture<Snapshot> mine = new CompletableFuture<>();
+                CompletableFuture<Snapshot> running = loading.compareAndExchange(null, mine);
+                if (running == null) {
+                        try {
+                                // A load may have finished between the caller's check and winning the race
+                                Snapshot snapshot = current.get();
+                                if (force || snapshot == null || snapshot.isEmpty()) {
+                                        ColdLoads.begin();
+                                        try {
+                                                snapshot = read(listener);
+                                        } finally {
+                                                ColdLoads.end();
+                                        }
+                                        current.set(snapshot);
+                                }
+                                mine.complete(snapshot);
+                        } catch (Throwable e) {
+                                mine.completeExceptionally(e);
+                        } finally {
+                                loading.set(null);
+                        }
+                        running = mine;
+                }
+                try {
+                        return running.join();
+                } catch (CompletionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException io) {
+                                throw io;
+                        }
+                        if (cause instanceof RuntimeException runtime) {
+                                throw runtime;
+                        }
+                        throw e;
+                }
+        }
+
+        /**
+         * Parse the data file, keep the questions of this server's shard and build their
+         * columnar view, related-questions and query indexes and sample
+         */
+        private Snapshot read(ProgressListener listener) throws IOException {
+                if (streamingAnalysisService.isStreaming(dataFile)) {
+                        throw new IOException(dataFile + " is too large to load, only the streaming analyses are available");
+                }
+                Timer.Sample load = AnalysisMetrics.start();
+                long heapBefore = AnalysisMetrics.usedHeap();
+                List<Question> questions = dataCollectionService.loadData(dataFile,
+                                streamingAnalysisService.getShard()::contains, listener);
+                listener.phase("indexing");
+                QuestionDataset dataset = dataAnalysisService.index(questions);
+                Timer.Sample stage = AnalysisMetrics.start();
+                relatedQuestionService.buildIndex(dataset);
+                AnalysisMetrics.stage(stage, "load", "related-index");
+                stage = AnalysisMetrics.start();
+                queryService.buildIndex(dataset);
+                AnalysisMetrics.stage(stage, "load", "query-index");
+                stage = AnalysisMetrics.start();
+                approximateAnalysisService.ingest(dataset);
+                AnalysisMetrics.stage(stage, "load", "sample");
+                // The previous snapshot is still held, so the growth approximates this one's footprint
+                AnalysisMetrics.loaded(new File(dataFile).getName(), load, questions.size(),
+                                AnalysisMetrics.usedHeap() - heapBefore);
+                return new Snapshot(VERSIONS.incrementAndGet(), questions, dataset);
+        }
+
+        /**
+         * One load of the data file: its questions, their columnar view and a version that
+         * grows with every load
+         */
+        public static final class Snapshot {
+                private final long version;
+                private final List<Question> questions;
+                private final QuestionDataset dataset;
+
+                Snapshot(long version, List<Question> questions, QuestionDataset dataset) {
+                        this.version = version;
+                        this.questions = List.copyOf(questions);
+                        this.dataset = dataset;
+                }
+
+                public long getVersion() {
+                        return version;
+                }
+
+                public List<Question> getQuestions() {
+                        return questions;
+                }
+
+                public QuestionDataset getDataset() {
+                        return dataset;
+                }
+
+                public boolean isEmpty() {
+                        return questions.isEmpty();
+                }
+        }
+}
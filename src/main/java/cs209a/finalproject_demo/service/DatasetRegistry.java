@@ -0,0 +1,87 @@
+package cs209a.finalproject_demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The datasets this server can analyse, by name.
+ * <p>
+ * {@code default} is {@code stackoverflow_data.json}; {@code analysis.datasets} adds more
+ * as {@code name=file} pairs, for example {@code spring=spring_data.json,android=android_data.json}.
+ * Every dataset has its own {@link DatasetHolder}, so each one loads, reloads and is
+ * versioned independently, and loads of different datasets can run at the same time.
+ * Tags and owner names are interned in the JVM-wide {@code StringDictionary}s, so strings
+ * common to several corpora are stored once.
+ */
+@Service
+public class DatasetRegistry {
+
+        public static final String DEFAULT = "default";
+
+        private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+        private final Map<String, DatasetHolder> holders;
+
+        public DatasetRegistry(DatasetHolder defaultHolder, @Value("${analysis.datasets:}") String datasets) {
+                Map<String, DatasetHolder> holders = new LinkedHashMap<>();
+                holders.put(DEFAULT, defaultHolder);
+                for (String dataset : datasets.split(",")) {
+                        if (dataset.isBlank()) {
+                                continue;
+                        }
+                        int equals = dataset.indexOf('=');
+                        String name = equals < 0 ? "" : dataset.substring(0, equals).trim();
+                        String file = equals < 0 ? "" : dataset.substring(equals + 1).trim();
+                        if (!NAME.matcher(name).matches() || file.isEmpty()) {
+                                throw new IllegalArgumentException("analysis.datasets expects name=file pairs, got: " + dataset);
+                        }
+                        if (holders.putIfAbsent(name, defaultHolder.forFile(file)) != null) {
+                                throw new IllegalArgumentException("Dataset " + name + " is configured twice");
+                        }
+                }
+                this.holders = Collections.unmodifiableMap(holders);
+        }
+
+        /**
+         * The holder of a dataset
+         * @param name a dataset name, {@code null} or blank for {@link #DEFAULT}
+         * @throws IllegalArgumentException for an unknown dataset
+         */
+        public DatasetHolder get(String name) {
+                DatasetHolder holder = holders.get(name == null || name.isBlank() ? DEFAULT : name.trim());
+                if (holder == null) {
+                        throw new IllegalArgumentException("Unknown dataset: " + name + ", expected one of " + holders.keySet());
+                }
+                return holder;
+        }
+
+        public Set<String> names() {
+                return holders.keySet();
+        }
+
+        /**
+         * @return a {@code Map<String, Object>} per dataset with {@code "file"},
+         *         {@code "fileBytes"}, {@code "loaded"}, {@code "version"} and {@code "questions"}
+         */
+        public Map<String, Object> describe() {
+                Map<String, Object> description = new LinkedHashMap<>();
+                holders.forEach((name, holder) -> {
+                        DatasetHolder.Snapshot snapshot = holder.current();
+                        Map<String, Object> dataset = new LinkedHashMap<>();
+                        dataset.put("file", holder.getDataFile());
+                        dataset.put("fileBytes", new File(holder.getDataFile()).length());
+                        dataset.put("loaded", snapshot != null && !snapshot.isEmpty());
+                        dataset.put("version", holder.currentVersion());
+                        dataset.put("questions", snapshot != null ? snapshot.getQuestions().size() : 0);
+                        description.put(name, dataset);
+                });
+                return description;
+        }
+}
@@ -0,0 +1,322 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.DatasetCache;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+@Service
+public class DuplicateDetectionService {
+
+        // Similarity above which two questions count as duplicates
+        public static final double DEFAULT_THRESHOLD = 0.8;
+
+        // LSH banding of the signature: BANDS * ROWS_PER_BAND == MinHasher.SIGNATURE_LENGTH
+        private static final int BANDS = 32;
+        private static final int ROWS_PER_BAND = MinHasher.SIGNATURE_LENGTH / BANDS;
+
+        // Questions of one bucket are compared against at most this many earlier ones,
+        // so a bucket shared by thousands of questions stays linear
+        private static final int MAX_BUCKET_LEADERS = 8;
+
+        // Thresholds whose clusters are kept per dataset, least recently used dropped first
+        private static final int MAX_CACHED_THRESHOLDS = 8;
+
+        private final DataAnalysisService dataAnalysisService;
+
+        // Clusters of each dataset in use, keyed by the positions a threshold needs to agree
+        private final DatasetCache<ClusterCache> caches = new DatasetCache<>();
+
+        public DuplicateDetectionService(DataAnalysisService dataAnalysisService) {
+                this.dataAnalysisService = dataAnalysisService;
+        }
+
+        /**
+         * Near-Duplicate Questions
+         * <p>
+         * Groups questions whose MinHash signatures agree on at least {@code threshold} of
+         * their positions. The earliest question of a group is its original.
+         * @param threshold estimated Jaccard similarity of the word shingles, in (0, 1]
+         * @param limit number of clusters to return, largest first
+         * @return a {@code Map<String, Object>} containing:
+         *         <ul>
+         *           <li>{@code "clusters"} – a {@code List<Map<String, Object>>} where each map contains
+         *               {@code "original"} ({@code "questionId"}, {@code "title"}), {@code "duplicates"}
+         *               (the same plus {@code "similarity"} to the original) and {@code "size"}</li>
+         *           <li>{@code "clusterCount"} – number of duplicate clusters</li>
+         *           <li>{@code "duplicateQuestions"} – questions that are not the original of their cluster</li>
+         *           <li>{@code "totalQuestions"} / {@code "threshold"}</li>
+         *         </ul>
+         */
+        public Map<String, Object> analyzeDuplicates(QuestionDataset dataset, double threshold, int limit) {
+                Clusters clusters = findClusters(dataset, threshold);
+                List<Question> questions = dataset.getQuestions();
+
+                List<Map<String, Object>> clusterList = new ArrayList<>();
+                for (int[] cluster : clusters.clusters) {
+                        if (clusterList.size() >= limit) {
+                                break;
+                        }
+                        Question original = questions.get(cluster[0]);
+                        int[] originalSignature = signature(original);
+                        List<Map<String, Object>> duplicates = new ArrayList<>();
+                        for (int i = 1; i < cluster.length; i++) {
+                                Question duplicate = questions.get(cluster[i]);
+                                Map<String, Object> entry = summary(duplicate);
+                                entry.put("similarity", MinHasher.similarity(originalSignature, signature(duplicate)));
+                                duplicates.add(entry);
+                        }
+
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("original", summary(original));
+                        entry.put("duplicates", duplicates);
+                        entry.put("size", cluster.length);
+                        clusterList.add(entry);
+                }
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("clusters", clusterList);
+                result.put("clusterCount", clusters.clusters.size());
+                result.put("duplicateQuestions", clusters.duplicateCount);
+                result.put("totalQuestions", dataset.size());
+                result.put("threshold", threshold);
+                return result;
+        }
+
+        /**
+         * The dataset with every duplicate removed, keeping the original of each cluster
+         */
+        public QuestionDataset withoutDuplicates(QuestionDataset dataset) {
+                ClusterCache current = cache(dataset);
+                QuestionDataset deduplicated = current.deduplicated;
+                if (deduplicated == null) {
+                        Clusters clusters = findClusters(dataset, DEFAULT_THRESHOLD);
+                        if (clusters.duplicateCount == 0) {
+                                // Not cached: a cached value must not refer to its own dataset
+                                return dataset;
+                        }
+                        List<Question> questions = dataset.getQuestions();
+                        List<Question> kept = new ArrayList<>(questions.size() - clusters.duplicateCount);
+                        for (int row = 0; row < questions.size(); row++) {
+                                if (!clusters.duplicate.get(row)) {
+                                        kept.add(questions.get(row));
+                                }
+                        }
+                        deduplicated = dataAnalysisService.index(kept);
+                        current.deduplicated = deduplicated;
+                }
+                return deduplicated;
+        }
+
+        /**
+         * Clusters at {@code threshold}, built once per dataset and signature resolution:
+         * signatures agree on a whole number of their {@link MinHasher#SIGNATURE_LENGTH}
+         * positions, so every threshold between two steps gives the same clusters. Concurrent
+         * callers wait for one build, which runs outside the cache's lock.
+         */
+        Clusters findClusters(QuestionDataset dataset, double threshold) {
+                int agreeing = Math.max(1, Math.min(MinHasher.SIGNATURE_LENGTH,
+                                (int) Math.ceil(threshold * MinHasher.SIGNATURE_LENGTH - 1e-9)));
+                Map<Integer, CompletableFuture<Clusters>> cached = cache(dataset).clusters;
+                BooleanSupplier cancelled = Cancellation.current();
+                while (true) {
+                        CompletableFuture<Clusters> created = new CompletableFuture<>();
+                        CompletableFuture<Clusters> existing = cached.putIfAbsent(agreeing, created);
+                        if (existing != null) {
+                                try {
+                                        return existing.join();
+                                } catch (CancellationException e) {
+                                        // The job building them was cancelled, not necessarily this one
+                                        Cancellation.check(cancelled);
+                                        continue;
+                                } catch (CompletionException e) {
+                                        if (e.getCause() instanceof RuntimeException runtime) {
+                                                throw runtime;
+                                        }
+                                        throw e;
+                                }
+                        }
+                        try {
+                                Clusters clusters = cluster(dataset, (double) agreeing / MinHasher.SIGNATURE_LENGTH);
+                                created.complete(clusters);
+                                return clusters;
+                        } catch (RuntimeException | Error e) {
+                                // Let the next caller try again
+                                cached.remove(agreeing, created);
+                                created.completeExceptionally(e);
+                                throw e;
+                        }
+                }
+        }
+
+        private ClusterCache cache(QuestionDataset dataset) {
+                return caches.get(dataset, d -> new ClusterCache());
+        }
+
+        private Clusters cluster(QuestionDataset dataset, double threshold) {
+                List<Question> questions = dataset.getQuestions();
+                int size = questions.size();
+                int[][] signatures = new int[size][];
+                IntStream.range(0, size).parallel().forEach(row -> signatures[row] = signature(questions.get(row)));
+
+                // Every band is bucketed independently; a row is only compared with the
+                // leaders of its bucket, so the work is O(rows * bands * MAX_BUCKET_LEADERS)
+                BooleanSupplier cancelled = Cancellation.current();
+                long[][] bandPairs = IntStream.range(0, BANDS).parallel()
+                                .mapToObj(band -> {
+                                        Cancellation.check(cancelled);
+                                        return candidatePairs(signatures, band, threshold);
+                                })
+                                .toArray(long[][]::new);
+
+                int[] parent = new int[size];
+                for (int row = 0; row < size; row++) {
+                        parent[row] = row;
+                }
+                for (long[] pairs : bandPairs) {
+                        for (long pair : pairs) {
+                                union(parent, (int) (pair >>> 32), (int) pair);
+                        }
+                }
+
+                int[] groupSize = new int[size];
+                for (int row = 0; row < size; row++) {
+                        groupSize[find(parent, row)]++;
+                }
+                Map<Integer, List<Integer>> groups = new HashMap<>();
+                for (int row = 0; row < size; row++) {
+                        int root = find(parent, row);
+                        if (groupSize[root] > 1) {
+                                groups.computeIfAbsent(root, r -> new ArrayList<>()).add(row);
+                        }
+                }
+
+                long[] creationDate = dataset.getColumns().creationDate();
+                BitSet duplicate = new BitSet(size);
+                List<int[]> clusters = new ArrayList<>();
+                for (List<Integer> group : groups.values()) {
+                        // The earliest question is the original
+                        int[] cluster = group.stream()
+                                        .sorted(Comparator.<Integer>comparingLong(row -> creationDate[row])
+                                                        .thenComparingInt(row -> row))
+                                        .mapToInt(Integer::intValue)
+                                        .toArray();
+                        for (int i = 1; i < cluster.length; i++) {
+                                duplicate.set(cluster[i]);
+                        }
+                        clusters.add(cluster);
+                }
+                clusters.sort(Comparator.<int[]>comparingInt(cluster -> -cluster.length)
+                                .thenComparingInt(cluster -> cluster[0]));
+                return new Clusters(clusters, duplicate, duplicate.cardinality());
+        }
+
+        // Verified pairs (row << 32 | other) of the rows sharing a bucket in this band
+        private static long[] candidatePairs(int[][] signatures, int band, double threshold) {
+                Map<Long, int[]> leaders = new HashMap<>();
+                long[] pairs = new long[16];
+                int pairCount = 0;
+                for (int row = 0; row < signatures.length; row++) {
+                        int[] signature = signatures[row];
+                        if (signature.length != MinHasher.SIGNATURE_LENGTH) {
+                                continue;
+                        }
+                        long key = bandKey(signature, band);
+                        int[] bucket = leaders.get(key);
+                        if (bucket == null) {
+                                leaders.put(key, new int[]{row});
+                                continue;
+                        }
+                        boolean matched = false;
+                        for (int leader : bucket) {
+                                if (MinHasher.similarity(signatures[leader], signature) >= threshold) {
+                                        if (pairCount == pairs.length) {
+                                                pairs = Arrays.copyOf(pairs, pairCount * 2);
+                                        }
+                                        pairs[pairCount++] = ((long) leader << 32) | row;
+                                        matched = true;
+                                        break;
+                                }
+                        }
+                        if (!matched && bucket.length < MAX_BUCKET_LEADERS) {
+                                int[] grown = Arrays.copyOf(bucket, bucket.length + 1);
+                                grown[bucket.length] = row;
+                                leaders.put(key, grown);
+                        }
+                }
+                return Arrays.copyOf(pairs, pairCount);
+        }
+
+        private static long bandKey(int[] signature, int band) {
+                long key = band;
+                for (int i = band * ROWS_PER_BAND; i < (band + 1) * ROWS_PER_BAND; i++) {
+                        key = key * 0x100000001B3L + signature[i];
+                }
+                return key;
+        }
+
+        private static int find(int[] parent, int row) {
+                while (parent[row] != row) {
+                        parent[row] = parent[parent[row]];
+                        row = parent[row];
+                }
+                return row;
+        }
+
+        private static void union(int[] parent, int a, int b) {
+                int rootA = find(parent, a);
+                int rootB = find(parent, b);
+                if (rootA != rootB) {
+                        parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+                }
+        }
+
+        // Signature computed at load time, or now for questions that skipped the loader
+        private static int[] signature(Question question) {
+                int[] signature = question.getMinHash();
+                if (signature == null) {
+                        signature = MinHasher.signature(TopicMatcher.searchText(question));
+                        question.setMinHash(signature);
+                }
+                return signature;
+        }
+
+        private static Map<String, Object> summary(Question question) {
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("questionId", question.getQuestionId());
+                summary.put("title", question.getTitle());
+                return summary;
+        }
+
+        private static final class ClusterCache {
+                final Map<Integer, CompletableFuture<Clusters>> clusters = Collections.synchronizedMap(
+                                new LinkedHashMap<>(16, 0.75f, true) {
+                                        @Override
+                                        protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<Clusters>> eldest) {
+                                                return size() > MAX_CACHED_THRESHOLDS;
+                                        }
+                                });
+                volatile QuestionDataset deduplicated;
+        }
+
+        static final class Clusters {
+                // Rows of each cluster, original first; largest clusters first
+                final List<int[]> clusters;
+                // Rows that are not the original of their cluster
+                final BitSet duplicate;
+                final int duplicateCount;
+
+                Clusters(List<int[]> clusters, BitSet duplicate, int duplicateCount) {
+                        this.clusters = clusters;
+                        this.duplicate = duplicate;
+                        this.duplicateCount = duplicateCount;
+                }
+        }
+}
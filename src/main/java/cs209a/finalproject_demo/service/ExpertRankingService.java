@@ -0,0 +1,262 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.DatasetCache;
+import cs209a.finalproject_demo.model.ExpertGraph;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+@Service
+public class ExpertRankingService {
+
+        private static final double DAMPING = 0.85;
+        private static final int MAX_ITERATIONS = 100;
+        private static final double TOLERANCE = 1e-9;
+
+        // Rankings of each dataset in use, keyed by topic ("all" for the whole graph)
+        private final DatasetCache<Map<String, CompletableFuture<Ranking>>> rankings = new DatasetCache<>();
+
+        /**
+         * Expert Ranking
+         * <p>
+         * Builds the asker -> answerer graph of the dataset (optionally restricted to one
+         * topic) and ranks answerers with PageRank and HITS authority scores.
+         * @param topic a topic of {@link TopicMatcher#JAVA_TOPICS}, or {@code null} for all questions
+         * @param sortBy {@code "pagerank"} or {@code "authority"}
+         * @return a {@code Map<String, Object>} containing:
+         *         <ul>
+         *           <li>{@code "topExperts"} – a {@code List<Map<String, Object>>} where each map contains
+         *               {@code "userId"}, {@code "displayName"}, {@code "answers"}, {@code "pageRank"},
+         *               {@code "authority"} and {@code "hub"}</li>
+         *           <li>{@code "topic"} – the topic analysed, {@code "all"} for the whole dataset</li>
+         *           <li>{@code "users"} / {@code "edges"} – size of the graph</li>
+         *           <li>{@code "topN"} – the number of experts requested</li>
+         *         </ul>
+         */
+        public Map<String, Object> rankExperts(QuestionDataset dataset, String topic, int topN, String sortBy) {
+                String key = topic == null ? "all" : topic;
+                int topicIndex = topic == null ? -1 : TopicMatcher.topicIndex(topic);
+                if (topic != null && topicIndex < 0) {
+                        throw new IllegalArgumentException("Unknown topic: " + topic);
+                }
+
+                Ranking ranking = ranking(dataset, key, topicIndex);
+
+                double[] order = "authority".equalsIgnoreCase(sortBy) ? ranking.authority : ranking.pageRank;
+                ExpertGraph graph = ranking.graph;
+                List<Map<String, Object>> topExperts = new ArrayList<>();
+                for (int node : topNodes(order, graph, topN)) {
+                        Map<String, Object> expert = new LinkedHashMap<>();
+                        expert.put("userId", graph.userId(node));
+                        expert.put("displayName", graph.displayName(node));
+                        expert.put("answers", graph.inDegree(node));
+                        expert.put("pageRank", ranking.pageRank[node]);
+                        expert.put("authority", ranking.authority[node]);
+                        expert.put("hub", ranking.hub[node]);
+                        topExperts.add(expert);
+                }
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("topExperts", topExperts);
+                result.put("topic", key);
+                result.put("users", graph.nodeCount());
+                result.put("edges", graph.edgeCount());
+                result.put("topN", topN);
+                return result;
+        }
+
+        /**
+         * The ranking of one topic, built once per dataset. Concurrent callers wait for one
+         * build, which runs outside the map's lock, as {@link DatasetCache} does for datasets.
+         */
+        private Ranking ranking(QuestionDataset dataset, String key, int topicIndex) {
+                Map<String, CompletableFuture<Ranking>> cached = rankings.get(dataset, d -> new ConcurrentHashMap<>());
+                BooleanSupplier cancelled = Cancellation.current();
+                while (true) {
+                        CompletableFuture<Ranking> created = new CompletableFuture<>();
+                        CompletableFuture<Ranking> existing = cached.putIfAbsent(key, created);
+                        if (existing != null) {
+                                try {
+                                        return existing.join();
+                                } catch (CancellationException e) {
+                                        // The job building it was cancelled, not necessarily this one
+                                        Cancellation.check(cancelled);
+                                        continue;
+                                } catch (CompletionException e) {
+                                        if (e.getCause() instanceof RuntimeException runtime) {
+                                                throw runtime;
+                                        }
+                                        throw e;
+                                }
+                        }
+                        try {
+                                int[] topicMask = dataset.getColumns().topicMask();
+                                IntPredicate rows = topicIndex < 0
+                                                ? row -> true
+                                                : row -> (topicMask[row] & (1 << topicIndex)) != 0;
+                                Ranking ranking = rank(ExpertGraph.build(dataset, rows));
+                                created.complete(ranking);
+                                return ranking;
+                        } catch (RuntimeException | Error e) {
+                                // Let the next caller try again
+                                cached.remove(key, created);
+                                created.completeExceptionally(e);
+                                throw e;
+                        }
+                }
+        }
+
+        Ranking rank(ExpertGraph graph) {
+                double[][] hits = hits(graph);
+                return new Ranking(graph, pageRank(graph), hits[0], hits[1]);
+        }
+
+        /**
+         * Pull-based PageRank: each node sums the contributions of its in-neighbours,
+         * so the parallel loop writes only to its own slot
+         */
+        double[] pageRank(ExpertGraph graph) {
+                int n = graph.nodeCount();
+                double[] rank = new double[n];
+                if (n == 0) {
+                        return rank;
+                }
+                Arrays.fill(rank, 1.0 / n);
+                double[] contribution = new double[n];
+                double[] next = new double[n];
+                int[] inOffsets = graph.inOffsets();
+                int[] inSources = graph.inSources();
+                BooleanSupplier cancelled = Cancellation.current();
+
+                for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+                        Cancellation.check(cancelled);
+                        double[] current = rank;
+                        double danglingMass = IntStream.range(0, n).parallel()
+                                        .mapToDouble(node -> {
+                                                int degree = graph.outDegree(node);
+                                                contribution[node] = degree > 0 ? current[node] / degree : 0;
+                                                return degree > 0 ? 0 : current[node];
+                                        })
+                                        .sum();
+                        double base = (1 - DAMPING) / n + DAMPING * danglingMass / n;
+
+                        double[] target = next;
+                        IntStream.range(0, n).parallel().forEach(node -> {
+                                double sum = 0;
+                                for (int e = inOffsets[node]; e < inOffsets[node + 1]; e++) {
+                                        sum += contribution[inSources[e]];
+                                }
+                                target[node] = base + DAMPING * sum;
+                        });
+
+                        double delta = IntStream.range(0, n).parallel()
+                                        .mapToDouble(node -> Math.abs(target[node] - current[node]))
+                                        .sum();
+                        next = rank;
+                        rank = target;
+                        if (delta < TOLERANCE) {
+                                break;
+                        }
+                }
+                return rank;
+        }
+
+        /**
+         * HITS hub and authority scores, L2-normalised after every step
+         * @return {@code {authority, hub}}
+         */
+        double[][] hits(ExpertGraph graph) {
+                int n = graph.nodeCount();
+                double[] authority = new double[n];
+                double[] hub = new double[n];
+                Arrays.fill(hub, 1.0);
+                int[] inOffsets = graph.inOffsets();
+                int[] inSources = graph.inSources();
+                int[] outOffsets = graph.outOffsets();
+                int[] outTargets = graph.outTargets();
+                BooleanSupplier cancelled = Cancellation.current();
+
+                for (int iteration = 0; iteration < MAX_ITERATIONS && n > 0; iteration++) {
+                        Cancellation.check(cancelled);
+                        double[] previousAuthority = authority.clone();
+
+                        IntStream.range(0, n).parallel().forEach(node -> {
+                                double sum = 0;
+                                for (int e = inOffsets[node]; e < inOffsets[node + 1]; e++) {
+                                        sum += hub[inSources[e]];
+                                }
+                                authority[node] = sum;
+                        });
+                        normalize(authority);
+
+                        IntStream.range(0, n).parallel().forEach(node -> {
+                                double sum = 0;
+                                for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+                                        sum += authority[outTargets[e]];
+                                }
+                                hub[node] = sum;
+                        });
+                        normalize(hub);
+
+                        double delta = IntStream.range(0, n).parallel()
+                                        .mapToDouble(node -> Math.abs(authority[node] - previousAuthority[node]))
+                                        .sum();
+                        if (delta < TOLERANCE) {
+                                break;
+                        }
+                }
+                return new double[][]{authority, hub};
+        }
+
+        private static void normalize(double[] scores) {
+                double norm = Math.sqrt(IntStream.range(0, scores.length).parallel()
+                                .mapToDouble(i -> scores[i] * scores[i])
+                                .sum());
+                if (norm > 0) {
+                        IntStream.range(0, scores.length).parallel().forEach(i -> scores[i] /= norm);
+                }
+        }
+
+        // Indexes of the topN highest scores among users that answered at least once
+        private static int[] topNodes(double[] scores, ExpertGraph graph, int topN) {
+                PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.comparingDouble(node -> scores[node]));
+                for (int node = 0; node < scores.length; node++) {
+                        if (graph.inDegree(node) == 0) {
+                                continue;
+                        }
+                        if (heap.size() < topN) {
+                                heap.add(node);
+                        } else if (topN > 0 && scores[node] > scores[heap.peek()]) {
+                                heap.poll();
+                                heap.add(node);
+                        }
+                }
+                int[] top = new int[heap.size()];
+                for (int i = top.length - 1; i >= 0; i--) {
+                        top[i] = heap.poll();
+                }
+                return top;
+        }
+
+        static final class Ranking {
+                final ExpertGraph graph;
+                final double[] pageRank;
+                final double[] authority;
+                final double[] hub;
+
+                Ranking(ExpertGraph graph, double[] pageRank, double[] authority, double[] hub) {
+                        this.graph = graph;
+                        this.pageRank = pageRank;
+                        this.authority = authority;
+                        this.hub = hub;
+                }
+        }
+}
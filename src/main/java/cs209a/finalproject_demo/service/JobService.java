@@ -0,0 +1,648 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.PartialAggregate;
+import cs209a.finalproject_demo.model.Question;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background jobs with progress that clients can poll, await or follow as server-sent events.
+ * <p>
+ * Loading a dataset's file, and collecting data from the Stack Exchange API or generating
+ * synthetic data into it, are data jobs: they run one at a time per dataset on their own threads, so different
+ * datasets load side by side, and asking for one while another job of the same dataset
+ * is running returns the job already under way.
+ * <p>
+ * Analyses submitted as jobs run on a small pool ({@code analysis.jobs.threads}) fed by a
+ * priority queue of at most {@code analysis.jobs.queue-capacity} jobs, so heavy analyses
+ * never hold request threads and a burst of them queues instead of piling onto the CPU.
+ * Submitting an analysis identical to one still queued or running joins that job, and the
+ * job is only cancelled once every submitter has cancelled it. A job that misses its
+ * deadline is cancelled too. A cancelled job that has not started is taken off the queue,
+ * freeing its slot; one that has stops at its next {@link Cancellation} check, which frees
+ * the worker, and its result is discarded.
+ * <p>
+ * The request that starts a job returns at once; subscribers get a {@code progress} event
+ * every {@code PROGRESS_INTERVAL_MILLIS} and a final {@code done}, {@code failed} or
+ * {@code cancelled} event. Finished jobs are kept for a while so late callers still see
+ * how they ended.
+ */
+@Service
+public class JobService {
+
+        public static final int PRIORITY_HIGH = 0;
+        public static final int PRIORITY_NORMAL = 1;
+        public static final int PRIORITY_LOW = 2;
+
+        private static final long PROGRESS_INTERVAL_MILLIS = 250;
+
+        private static final long EMITTER_TIMEOUT_MILLIS = 10 * 60_000;
+
+        // Finished jobs kept for polling, oldest dropped first
+        private static final int FINISHED_JOBS_KEPT = 100;
+
+        private final DataCollectionService dataCollectionService;
+        private final DatasetRegistry datasetRegistry;
+        private final StreamingAnalysisService streamingAnalysisService;
+        private final SyntheticDataGenerator syntheticDataGenerator;
+
+        private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+        private final Queue<String> finished = new ConcurrentLinkedQueue<>();
+        // Running data jobs by data file
+        private final Map<String, Job> dataJobs = new ConcurrentHashMap<>();
+        // Queued or running analysis jobs by what they compute
+        private final Map<String, Job> analysesInFlight = new ConcurrentHashMap<>();
+
+        private final ExecutorService dataExecutor = Executors.newCachedThreadPool(daemonThreads("data-job"));
+        private final ThreadPoolExecutor analysisExecutor;
+        private final int queueCapacity;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong submissions = new AtomicLong();
+        private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(daemonThreads("job-progress"));
+
+        public JobService(DataCollectionService dataCollectionService, DatasetRegistry datasetRegistry,
+                          StreamingAnalysisService streamingAnalysisService,
+                          SyntheticDataGenerator syntheticDataGenerator,
+                          @Value("${analysis.jobs.threads:2}") int threads,
+                          @Value("${analysis.jobs.queue-capacity:64}") int queueCapacity) {
+                this.dataCollectionService = dataCollectionService;
+                this.datasetRegistry = datasetRegistry;
+                this.streamingAnalysisService = streamingAnalysisService;
+                this.syntheticDataGenerator = syntheticDataGenerator;
+                this.queueCapacity = queueCapacity;
+                // Only execute() is used, so the queue holds AnalysisTasks and orders them by priority
+                this.analysisExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                new PriorityBlockingQueue<>(), daemonThreads("analysis-job"));
+                ticker.scheduleAtFixedRate(this::tick, PROGRESS_INTERVAL_MILLIS, PROGRESS_INTERVAL_MILLIS,
+                                TimeUnit.MILLISECONDS);
+        }
+
+        @PreDestroy
+        public void shutdown() {
+                ticker.shutdownNow();
+                dataExecutor.shutdownNow();
+                analysisExecutor.shutdownNow();
+        }
+
+        /**
+         * Load a dataset's file in the background: into memory, or as a streaming pass when it
+         * is too large for the heap
+         * @param dataset a dataset name, {@code null} for the default one
+         * @throws IllegalArgumentException for an unknown dataset
+         */
+        public Job startLoad(String dataset) {
+                DatasetHolder holder = datasetRegistry.get(dataset);
+                return startDataJob("load", holder, job -> {
+                        job.totalBytes = new File(holder.getDataFile()).length();
+                        return loadResult(job, holder);
+                });
+        }
+
+        /**
+         * Collect up to {@code maxQuestions} questions from the Stack Exchange API in the
+         * background, save them as a dataset's file and load it
+         * @param dataset a dataset name, {@code null} for the default one
+         * @throws IllegalArgumentException for an unknown dataset
+         */
+        public Job startCollect(String dataset, int maxQuestions) {
+                DatasetHolder holder = datasetRegistry.get(dataset);
+                return startDataJob("collect", holder, job -> {
+                        job.totalRecords = maxQuestions;
+                        List<Question> questions = dataCollectionService.collectData(maxQuestions, job);
+                        String dataFile = holder.getDataFile();
+                        dataCollectionService.saveData(questions, dataFile);
+
+                        job.records = 0;
+                        job.totalRecords = -1;
+                        job.totalBytes = new File(dataFile).length();
+                        return loadResult(job, holder);
+                });
+        }
+
+        /**
+         * Generate {@code questions} synthetic questions from {@code seed} in the background,
+         * write them as a dataset's file and load it
+         * @param dataset a dataset name, {@code null} for the default one
+         * @throws IllegalArgumentException for an unknown dataset
+         */
+        public Job startGenerate(String dataset, long questions, long seed) {
+                DatasetHolder holder = datasetRegistry.get(dataset);
+                return startDataJob("generate", holder, job -> {
+                        job.totalRecords = questions;
+                        String dataFile = holder.getDataFile();
+                        syntheticDataGenerator.generate(dataFile, questions, seed, job);
+
+                        job.records = 0;
+                        job.totalRecords = -1;
+                        job.totalBytes = new File(dataFile).length();
+                        return loadResult(job, holder);
+                });
+        }
+
+        /**
+         * Queue an analysis, or join the identical one already queued or running
+         * @param kind          name of the analysis, shown in the job description
+         * @param key           what the analysis computes; equal keys share one job
+         * @param priority      {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL} or {@link #PRIORITY_LOW}
+         * @param timeoutMillis time from now by which the job must finish or be cancelled
+         * @param work          computes the result on a job thread
+         * @throws RejectedExecutionException if the queue is full
+         */
+        public Job submitAnalysis(String kind, String key, int priority, long timeoutMillis, AnalysisWork work) {
+                while (true) {
+                        Job running = analysesInFlight.get(key);
+                        if (running != null) {
+                                if (running.join()) {
+                                        return running;
+                                }
+                                // Finished or fully cancelled meanwhile, start a new one
+                                analysesInFlight.remove(key, running);
+                                continue;
+                        }
+                        if (!reserveQueueSlot()) {
+                                throw new RejectedExecutionException("The analysis queue is full (" + queueCapacity
+                                                + " jobs), try again later");
+                        }
+                        Job job = new Job(kind);
+                        job.key = key;
+                        job.priority = priority;
+                        job.deadline = System.currentTimeMillis() + timeoutMillis;
+                        if (analysesInFlight.putIfAbsent(key, job) != null) {
+                                queued.decrementAndGet();
+                                continue;
+                        }
+                        AnalysisTask task = new AnalysisTask(job, work, submissions.incrementAndGet());
+                        job.task = task;
+                        jobs.put(job.id, job);
+                        analysisExecutor.execute(task);
+                        return job;
+                }
+        }
+
+        /**
+         * Cancel one submitter's interest in a job. An analysis that other submitters still
+         * wait for keeps running; otherwise it is dropped from the queue or interrupted.
+         * @return {@code false} if the job cannot be cancelled (a data job)
+         */
+        public boolean cancel(Job job) {
+                if (job.key == null) {
+                        return false;
+                }
+                if (job.leave()) {
+                        cancel(job, "Cancelled");
+                }
+                return true;
+        }
+
+        public Job getJob(String id) {
+                return jobs.get(id);
+        }
+
+        /**
+         * Follow a job as server-sent events
+         * @return {@code null} if the job is unknown
+         */
+        public SseEmitter subscribe(String id) {
+                Job job = jobs.get(id);
+                if (job == null) {
+                        return null;
+                }
+                SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+                emitter.onCompletion(() -> job.emitters.remove(emitter));
+                emitter.onTimeout(() -> job.emitters.remove(emitter));
+                emitter.onError(e -> job.emitters.remove(emitter));
+                job.emitters.add(emitter);
+                if (job.isFinished()) {
+                        finish(job, emitter);
+                } else {
+                        send(job, emitter, "progress");
+                }
+                return emitter;
+        }
+
+        private Map<String, Object> loadResult(Job job, DatasetHolder holder) throws IOException {
+                String dataFile = holder.getDataFile();
+                Map<String, Object> result = new LinkedHashMap<>();
+                if (streamingAnalysisService.isStreaming(dataFile)) {
+                        PartialAggregate partial = streamingAnalysisService.aggregate(dataFile,
+                                        StreamingAnalysisService.DEFAULT_TREND_YEARS, job);
+                        result.put("status", "streaming");
+                        result.put("message", dataFile + " is analysed from disk, one chunk at a time");
+                        result.put("collected", partial.getQuestionCount());
+                        return result;
+                }
+                DatasetHolder.Snapshot snapshot = holder.reload(job);
+                if (snapshot.isEmpty()) {
+                        throw new IOException("No data found in " + dataFile + ". Please run the data collector first.");
+                }
+                result.put("status", "loaded");
+                result.put("message", "Data loaded from " + dataFile);
+                result.put("collected", snapshot.getQuestions().size());
+                result.put("version", snapshot.getVersion());
+                return result;
+        }
+
+        private Job startDataJob(String kind, DatasetHolder holder, DataWork work) {
+                Job job = new Job(kind);
+                job.dataFile = holder.getDataFile();
+                Job running = dataJobs.putIfAbsent(job.dataFile, job);
+                if (running != null) {
+                        return running;
+                }
+                jobs.put(job.id, job);
+                dataExecutor.execute(() -> {
+                        job.start();
+                        try {
+                                complete(job, "done", work.run(job), null, 200);
+                        } catch (Exception e) {
+                                complete(job, "failed", null, message(e), 500);
+                        } finally {
+                                dataJobs.remove(job.dataFile, job);
+                        }
+                });
+                return job;
+        }
+
+        private boolean reserveQueueSlot() {
+                while (true) {
+                        int size = queued.get();
+                        if (size >= queueCapacity) {
+                                return false;
+                        }
+                        if (queued.compareAndSet(size, size + 1)) {
+                                return true;
+                        }
+                }
+        }
+
+        private void cancel(Job job, String reason) {
+                if (complete(job, "cancelled", null, reason, 409)) {
+                        // The analysis itself stops at its next Cancellation check; the interrupt
+                        // wakes it from blocking waits. Under the lock the worker clears the thread
+                        // with, so it never lands on the worker's next job.
+                        synchronized (job) {
+                                if (job.thread != null) {
+                                        job.thread.interrupt();
+                                }
+                        }
+                        // A queued job leaves the queue now, so its slot is free for the next
+                        // submission; if a worker took it first, the worker gives the slot back
+                        Runnable task = job.task;
+                        if (task != null && analysisExecutor.remove(task)) {
+                                queued.decrementAndGet();
+                        }
+                }
+        }
+
+        /**
+         * Record how a job ended, once; later outcomes (a cancelled job that finishes
+         * anyway) are discarded
+         */
+        private boolean complete(Job job, String state, Map<String, Object> result, String error, int status) {
+                if (!job.completed.compareAndSet(false, true)) {
+                        return false;
+                }
+                synchronized (job) {
+                        job.result = result;
+                        job.error = error;
+                        job.status = status;
+                        job.state = state;
+                        job.finishedAt = System.currentTimeMillis();
+                }
+                if (job.key != null) {
+                        analysesInFlight.remove(job.key, job);
+                }
+                for (SseEmitter emitter : job.emitters) {
+                        finish(job, emitter);
+                }
+                job.completion.complete(job);
+                finished.add(job.id);
+                while (finished.size() > FINISHED_JOBS_KEPT) {
+                        String oldest = finished.poll();
+                        if (oldest != null) {
+                                jobs.remove(oldest);
+                        }
+                }
+                return true;
+        }
+
+        // Progress events and deadlines
+        private void tick() {
+                long now = System.currentTimeMillis();
+                for (Job job : jobs.values()) {
+                        if (job.isFinished()) {
+                                continue;
+                        }
+                        if (job.deadline != 0 && now > job.deadline) {
+                                cancel(job, "Deadline exceeded");
+                                continue;
+                        }
+                        for (SseEmitter emitter : job.emitters) {
+                                send(job, emitter, "progress");
+                        }
+                }
+        }
+
+        // The final event goes out once per emitter, whoever removes it first sends it
+        private static void finish(Job job, SseEmitter emitter) {
+                if (job.emitters.remove(emitter) && send(job, emitter, job.state)) {
+                        emitter.complete();
+                }
+        }
+
+        private static boolean send(Job job, SseEmitter emitter, String event) {
+                try {
+                        emitter.send(SseEmitter.event().name(event).data(job.describe()));
+                        return true;
+                } catch (IOException | IllegalStateException e) {
+                        // The client went away
+                        job.emitters.remove(emitter);
+                        return false;
+                }
+        }
+
+        private static String message(Throwable e) {
+                return e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        private static ThreadFactory daemonThreads(String name) {
+                AtomicInteger count = new AtomicInteger();
+                return runnable -> {
+                        Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                };
+        }
+
+        @FunctionalInterface
+        private interface DataWork {
+                Map<String, Object> run(Job job) throws Exception;
+        }
+
+        /**
+         * The body of an analysis job
+         */
+        @FunctionalInterface
+        public interface AnalysisWork {
+                /**
+                 * @throws JobFailedException to fail the job with an HTTP status and message
+                 */
+                Map<String, Object> run() throws Exception;
+        }
+
+        /**
+         * An analysis rejected its parameters or found nothing to analyse
+         */
+        public static class JobFailedException extends Exception {
+                private static final long serialVersionUID = 1L;
+
+                private final int status;
+
+                public JobFailedException(int status, String message) {
+                        super(message);
+                        this.status = status;
+                }
+
+                public int getStatus() {
+                        return status;
+                }
+        }
+
+        // Highest priority first, then first come first served
+        private final class AnalysisTask implements Runnable, Comparable<AnalysisTask> {
+                private final Job job;
+                private final AnalysisWork work;
+                private final long sequence;
+
+                AnalysisTask(Job job, AnalysisWork work, long sequence) {
+                        this.job = job;
+                        this.work = work;
+                        this.sequence = sequence;
+                }
+
+                @Override
+                public int compareTo(AnalysisTask other) {
+                        int byPriority = Integer.compare(job.priority, other.job.priority);
+                        return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+                }
+
+                @Override
+                public void run() {
+                        queued.decrementAndGet();
+                        if (job.isFinished()) {
+                                // Cancelled or past its deadline while queued
+                                return;
+                        }
+                        synchronized (job) {
+                                job.thread = Thread.currentThread();
+                        }
+                        job.start();
+                        Cancellation.enter(job::isFinished);
+                        try {
+                                complete(job, "done", work.run(), null, 200);
+                        } catch (JobFailedException e) {
+                                complete(job, "failed", null, e.getMessage(), e.getStatus());
+                        } catch (Exception e) {
+                                complete(job, "failed", null, message(e), 500);
+                        } finally {
+                                Cancellation.exit();
+                                synchronized (job) {
+                                        job.thread = null;
+                                }
+                                // Do not leak a cancellation interrupt into the next job
+                                Thread.interrupted();
+                        }
+                }
+        }
+
+        /**
+         * A background job and its progress: records handled, bytes read, throughput and an
+         * estimate of the time left in the current phase
+         */
+        public static final class Job implements ProgressListener {
+                private final String id = UUID.randomUUID().toString();
+                private final String kind;
+                private final long createdAt = System.currentTimeMillis();
+                private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+                private final AtomicBoolean completed = new AtomicBoolean();
+                private final CompletableFuture<Job> completion = new CompletableFuture<>();
+                // Submitters still interested in an analysis job
+                private final AtomicInteger holders = new AtomicInteger(1);
+
+                private String key;
+                // Data file a data job loads
+                private String dataFile;
+                private int priority = PRIORITY_NORMAL;
+                private long deadline;
+
+                private volatile String state = "queued";
+                private volatile String phase;
+                private volatile long records;
+                private volatile long bytesRead;
+                private volatile long totalRecords = -1;
+                private volatile long totalBytes = -1;
+                private volatile long startedAt;
+                private volatile long finishedAt;
+                private volatile Map<String, Object> result;
+                private volatile String error;
+                private volatile int status;
+                private volatile Thread thread;
+                // Queued task of an analysis job
+                private volatile Runnable task;
+
+                Job(String kind) {
+                        this.kind = kind;
+                }
+
+                @Override
+                public void progress(long records, long bytesRead) {
+                        this.records = records;
+                        this.bytesRead = bytesRead;
+                }
+
+                @Override
+                public void phase(String phase) {
+                        this.phase = phase;
+                }
+
+                public String getId() {
+                        return id;
+                }
+
+                public String getState() {
+                        return state;
+                }
+
+                public boolean isFinished() {
+                        return completed.get();
+                }
+
+                /**
+                 * The result of a job that is {@code done}, otherwise {@code null}
+                 */
+                public Map<String, Object> getResult() {
+                        return result;
+                }
+
+                public String getError() {
+                        return error;
+                }
+
+                /**
+                 * HTTP status matching how the job ended: 200 when done, 409 when cancelled,
+                 * the analysis' own status or 500 when failed
+                 */
+                public int getStatus() {
+                        return status;
+                }
+
+                /**
+                 * Completes with this job once it is done, failed or cancelled
+                 */
+                public CompletableFuture<Job> getCompletion() {
+                        return completion;
+                }
+
+                // Synchronised with complete(), so a cancelled job never shows as running
+                private synchronized void start() {
+                        startedAt = System.currentTimeMillis();
+                        if (!isFinished()) {
+                                state = "running";
+                        }
+                }
+
+                // Another submitter shares the job, unless nobody holds it any more
+                private boolean join() {
+                        while (true) {
+                                int count = holders.get();
+                                if (count == 0 || isFinished()) {
+                                        return false;
+                                }
+                                if (holders.compareAndSet(count, count + 1)) {
+                                        return true;
+                                }
+                        }
+                }
+
+                // True when the last submitter left
+                private boolean leave() {
+                        while (true) {
+                                int count = holders.get();
+                                if (count == 0) {
+                                        return false;
+                                }
+                                if (holders.compareAndSet(count, count - 1)) {
+                                        return count == 1;
+                                }
+                        }
+                }
+
+                /**
+                 * @return a {@code Map<String, Object>} with {@code "id"}, {@code "kind"}, {@code "dataFile"}
+                 *         for data jobs,
+                 *         {@code "state"} (queued, running, done, failed or cancelled), {@code "phase"},
+                 *         {@code "records"}, {@code "bytesRead"}, {@code "totalBytes"},
+                 *         {@code "recordsPerSecond"}, {@code "bytesPerSecond"}, {@code "etaSeconds"}
+                 *         ({@code null} while unknown), {@code "elapsedMillis"}, {@code "priority"}
+                 *         and {@code "deadline"} for analyses, {@code "result"} once done and
+                 *         {@code "error"} once failed or cancelled
+                 */
+                public Map<String, Object> describe() {
+                        long records = this.records;
+                        long bytesRead = this.bytesRead;
+                        long end = finishedAt != 0 ? finishedAt : System.currentTimeMillis();
+                        long elapsed = startedAt != 0 ? Math.max(0, end - startedAt) : 0;
+                        double seconds = elapsed / 1000.0;
+                        double recordsPerSecond = seconds > 0 ? records / seconds : 0;
+                        double bytesPerSecond = seconds > 0 ? bytesRead / seconds : 0;
+
+                        Double eta = null;
+                        if (isFinished()) {
+                                eta = 0.0;
+                        } else if (totalBytes > 0 && bytesRead > 0) {
+                                eta = Math.max(0, totalBytes - bytesRead) / bytesPerSecond;
+                        } else if (totalRecords > 0 && records > 0) {
+                                eta = Math.max(0, totalRecords - records) / recordsPerSecond;
+                        }
+
+                        Map<String, Object> description = new LinkedHashMap<>();
+                        description.put("id", id);
+                        description.put("kind", kind);
+                        if (dataFile != null) {
+                                description.put("dataFile", dataFile);
+                        }
+                        description.put("state", state);
+                        description.put("phase", phase);
+                        description.put("records", records);
+                        description.put("bytesRead", bytesRead);
+                        description.put("totalBytes", totalBytes >= 0 ? totalBytes : null);
+                        description.put("recordsPerSecond", Math.round(recordsPerSecond * 10) / 10.0);
+                        description.put("bytesPerSecond", Math.round(bytesPerSecond));
+                        description.put("etaSeconds", eta != null ? Math.round(eta * 10) / 10.0 : null);
+                        description.put("elapsedMillis", elapsed);
+                        description.put("createdAt", createdAt);
+                        if (key != null) {
+                                description.put("priority", priority == PRIORITY_HIGH ? "high"
+                                                : priority == PRIORITY_LOW ? "low" : "normal");
+                                description.put("deadline", deadline);
+                        }
+                        if (result != null) {
+                                description.put("result", result);
+                        }
+                        if (error != null) {
+                                description.put("error", error);
+                        }
+                        return description;
+                }
+        }
+}
@@ -0,0 +1,129 @@
+package cs209a.finalproject_demo.service;
+
+/**
+ * MinHash signatures over word shingles of the normalized search text.
+ * <p>
+ * Uses one-permutation hashing: every shingle is hashed once, the hash picks one of
+ * {@link #SIGNATURE_LENGTH} bins and the minimum per bin is kept. Empty bins borrow the
+ * value of the next filled bin, so two signatures agree at a position with probability
+ * close to the Jaccard similarity of the shingle sets, at O(shingles) cost per text
+ * instead of O(shingles * hashes).
+ */
+public final class MinHasher {
+
+        public static final int SIGNATURE_LENGTH = 128;
+
+        // Words per shingle; shorter texts become a single shingle
+        private static final int SHINGLE_WORDS = 3;
+
+        private static final int BIN_SHIFT = 64 - Integer.numberOfTrailingZeros(SIGNATURE_LENGTH);
+
+        private static final int[] EMPTY = new int[0];
+
+        private MinHasher() {
+        }
+
+        /**
+         * Signature of a normalized text, an empty array when the text has no words
+         */
+        public static int[] signature(byte[] searchText) {
+                if (searchText == null || searchText.length == 0) {
+                        return EMPTY;
+                }
+
+                int[] signature = new int[SIGNATURE_LENGTH];
+                boolean[] filled = new boolean[SIGNATURE_LENGTH];
+                long[] window = new long[SHINGLE_WORDS];
+                int words = 0;
+                int start = 0;
+                for (int i = 0; i <= searchText.length; i++) {
+                        if (i < searchText.length && searchText[i] != ' ') {
+                                continue;
+                        }
+                        if (i > start) {
+                                window[words % SHINGLE_WORDS] = wordHash(searchText, start, i);
+                                words++;
+                                if (words >= SHINGLE_WORDS) {
+                                        add(signature, filled, shingleHash(window, words));
+                                }
+                        }
+                        start = i + 1;
+                }
+                if (words == 0) {
+                        return EMPTY;
+                }
+                if (words < SHINGLE_WORDS) {
+                        add(signature, filled, shingleHash(window, words));
+                }
+                densify(signature, filled);
+                return signature;
+        }
+
+        /**
+         * Estimated Jaccard similarity: the fraction of positions where the signatures agree
+         */
+        public static double similarity(int[] a, int[] b) {
+                if (a.length != SIGNATURE_LENGTH || b.length != SIGNATURE_LENGTH) {
+                        return 0;
+                }
+                int equal = 0;
+                for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                        if (a[i] == b[i]) {
+                                equal++;
+                        }
+                }
+                return (double) equal / SIGNATURE_LENGTH;
+        }
+
+        private static void add(int[] signature, boolean[] filled, long hash) {
+                int bin = (int) (hash >>> BIN_SHIFT);
+                int value = (int) hash;
+                if (!filled[bin] || value < signature[bin]) {
+                        signature[bin] = value;
+                        filled[bin] = true;
+                }
+        }
+
+        // Empty bins take the value of the next filled bin to the right, shifted by the distance
+        private static void densify(int[] signature, boolean[] filled) {
+                for (int bin = 0; bin < SIGNATURE_LENGTH; bin++) {
+                        if (filled[bin]) {
+                                continue;
+                        }
+                        for (int distance = 1; distance < SIGNATURE_LENGTH; distance++) {
+                                int source = (bin + distance) & (SIGNATURE_LENGTH - 1);
+                                if (filled[source]) {
+                                        signature[bin] = signature[source] + distance * 0x9E3779B9;
+                                        break;
+                                }
+                        }
+                }
+        }
+
+        // Hash of the last min(words, SHINGLE_WORDS) words, in order
+        private static long shingleHash(long[] window, int words) {
+                int count = Math.min(words, SHINGLE_WORDS);
+                long hash = 0;
+                for (int k = count; k > 0; k--) {
+                        hash = hash * 0x100000001B3L + window[(words - k) % SHINGLE_WORDS];
+                }
+                return mix(hash);
+        }
+
+        // FNV-1a over the bytes of one word
+        private static long wordHash(byte[] text, int from, int to) {
+                long hash = 0xCBF29CE484222325L;
+                for (int i = from; i < to; i++) {
+                        hash ^= text[i] & 0xFF;
+                        hash *= 0x100000001B3L;
+                }
+                return hash;
+        }
+
+        // SplitMix64 finalizer
+        private static long mix(long z) {
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                return z ^ (z >>> 31);
+        }
+}
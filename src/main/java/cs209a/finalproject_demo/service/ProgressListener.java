@@ -0,0 +1,21 @@
+package cs209a.finalproject_demo.service;
+
+/**
+ * Receives progress of a long-running load: records handled so far and bytes of input
+ * consumed, plus the phase the work is in. Called from the worker thread, so
+ * implementations must be cheap and thread-safe.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (records, bytesRead) -> {
+    };
+
+    void progress(long records, long bytesRead);
+
+    /**
+     * The work moved on to another phase, e.g. from parsing to indexing
+     */
+    default void phase(String phase) {
+    }
+}
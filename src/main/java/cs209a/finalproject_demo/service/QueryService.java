@@ -0,0 +1,445 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.DatasetCache;
+import cs209a.finalproject_demo.model.QueryIndex;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionColumns;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.model.StringDictionary;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ad-hoc filter / group-by / aggregate queries over the loaded questions.
+ * <p>
+ * A small planner picks the cheapest way to find candidate rows: the posting lists of the
+ * requested tags (intersected, smallest first), the creation-time order narrowed to the
+ * date range by binary search, or a full scan when neither is asked for. The filters the
+ * chosen access path does not already guarantee are then checked against the columns of
+ * each candidate, and the matches are grouped and aggregated in the same pass.
+ */
+@Service
+public class QueryService {
+
+        public static final List<String> GROUP_BYS = List.of("none", "year", "month", "tag", "topic");
+
+        // Numeric columns metrics can aggregate, by query name
+        public static final List<String> FIELDS = List.of("score", "views", "answers", "reputation");
+
+        private static final Pattern METRIC = Pattern.compile("(sum|avg|min|max|p(\\d{1,3}(?:\\.\\d+)?))\\((\\w+)\\)");
+
+        private static final int DEFAULT_LIMIT = 100;
+
+        private final DatasetCache<QueryIndex> indexes = new DatasetCache<>();
+
+        /**
+         * Build the time and tag indexes of the dataset. Later calls with the same dataset
+         * return at once.
+         */
+        public void buildIndex(QuestionDataset dataset) {
+                index(dataset);
+        }
+
+        /**
+         * Run a query
+         * @return a {@code Map<String, Object>} with {@code "groupBy"}, {@code "metrics"},
+         *         {@code "matched"} (questions passing the filters), {@code "groups"} (a list of
+         *         maps with {@code "key"} and one entry per metric, at most {@code limit} of them)
+         *         and {@code "plan"} ({@code "access"}, {@code "candidates"} and
+         *         {@code "residualFilters"})
+         */
+        public Map<String, Object> query(QuestionDataset dataset, Query query) {
+                QueryIndex index = index(dataset);
+                QuestionColumns columns = dataset.getColumns();
+                List<Question> questions = dataset.getQuestions();
+
+                // Access path: whichever index leaves the fewest candidates
+                int[] rows = null;
+                int from = 0;
+                int to = dataset.size();
+                String access = "scan";
+                boolean datesChecked = false;
+                boolean tagsChecked = false;
+                if (!query.tagIds.isEmpty()) {
+                        int[] tagged = tagged(index, query.tagIds);
+                        if (tagged.length < to - from) {
+                                rows = tagged;
+                                to = tagged.length;
+                                access = "tagPostings";
+                                tagsChecked = true;
+                        }
+                }
+                if (query.from != Long.MIN_VALUE || query.to != Long.MAX_VALUE) {
+                        int[] range = index.timeRange(query.from, query.to);
+                        if (range[1] - range[0] < to - from) {
+                                rows = index.byTime();
+                                from = range[0];
+                                to = range[1];
+                                access = "timeRange";
+                                datesChecked = true;
+                                tagsChecked = false;
+                        }
+                }
+
+                List<String> residual = new ArrayList<>();
+                boolean checkDates = !datesChecked && (query.from != Long.MIN_VALUE || query.to != Long.MAX_VALUE);
+                boolean checkTags = !tagsChecked && !query.tagIds.isEmpty();
+                if (checkDates) {
+                        residual.add("date");
+                }
+                if (checkTags) {
+                        residual.add("tag");
+                }
+                if (query.topicMask != 0) {
+                        residual.add("topic");
+                }
+                if (query.minScore != Integer.MIN_VALUE || query.maxScore != Integer.MAX_VALUE) {
+                        residual.add("score");
+                }
+                if (query.minViews != Integer.MIN_VALUE || query.maxViews != Integer.MAX_VALUE) {
+                        residual.add("views");
+                }
+                if (query.answered != null) {
+                        residual.add("answered");
+                }
+
+                long[] creationDate = columns.creationDate();
+                int[] score = columns.score();
+                int[] views = columns.viewCount();
+                int[] topicMask = columns.topicMask();
+                int[][] fieldColumns = {score, views, columns.answerCount(), columns.ownerReputation()};
+
+                Map<Integer, Group> groups = new HashMap<>();
+                int matched = 0;
+                for (int i = from; i < to; i++) {
+                        int row = rows == null ? i : rows[i];
+                        if (checkDates && (creationDate[row] < query.from || creationDate[row] >= query.to)) {
+                                continue;
+                        }
+                        if ((topicMask[row] & query.topicMask) != query.topicMask
+                                        || score[row] < query.minScore || score[row] > query.maxScore
+                                        || views[row] < query.minViews || views[row] > query.maxViews) {
+                                continue;
+                        }
+                        if (query.answered != null && QuestionColumns.get(columns.answered(), row) != query.answered) {
+                                continue;
+                        }
+                        if (checkTags && !hasTags(questions.get(row).getTagIds(), query.tagIds)) {
+                                continue;
+                        }
+                        matched++;
+                        switch (query.groupBy) {
+                                case "year" -> group(groups, columns.epochMonth()[row] / 12, query).add(fieldColumns, row);
+                                case "month" -> group(groups, columns.epochMonth()[row], query).add(fieldColumns, row);
+                                case "tag" -> {
+                                        int[] tagIds = questions.get(row).getTagIds();
+                                        for (int t = 0; t < tagIds.length; t++) {
+                                                if (QueryIndex.isIndexedTag(tagIds, t)) {
+                                                        group(groups, tagIds[t], query).add(fieldColumns, row);
+                                                }
+                                        }
+                                }
+                                case "topic" -> {
+                                        for (int mask = topicMask[row]; mask != 0; mask &= mask - 1) {
+                                                group(groups, Integer.numberOfTrailingZeros(mask), query).add(fieldColumns, row);
+                                        }
+                                }
+                                default -> group(groups, 0, query).add(fieldColumns, row);
+                        }
+                }
+
+                List<Map.Entry<Integer, Group>> ordered = new ArrayList<>(groups.entrySet());
+                if (query.groupBy.equals("tag") || query.groupBy.equals("topic")) {
+                        ordered.sort((a, b) -> a.getValue().count != b.getValue().count
+                                        ? Long.compare(b.getValue().count, a.getValue().count)
+                                        : Integer.compare(a.getKey(), b.getKey()));
+                } else {
+                        ordered.sort(Map.Entry.comparingByKey());
+                }
+                List<Map<String, Object>> groupList = new ArrayList<>();
+                for (Map.Entry<Integer, Group> entry : ordered.subList(0, Math.min(query.limit, ordered.size()))) {
+                        Map<String, Object> group = new LinkedHashMap<>();
+                        group.put("key", groupKey(query.groupBy, entry.getKey()));
+                        for (Metric metric : query.metrics) {
+                                group.put(metric.name, entry.getValue().value(metric));
+                        }
+                        groupList.add(group);
+                }
+
+                Map<String, Object> plan = new LinkedHashMap<>();
+                plan.put("access", access);
+                plan.put("candidates", to - from);
+                plan.put("residualFilters", residual);
+
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("groupBy", query.groupBy);
+                result.put("metrics", query.metrics.stream().map(metric -> metric.name).toList());
+                result.put("matched", matched);
+                result.put("groups", groupList);
+                result.put("plan", plan);
+                return result;
+        }
+
+        private QueryIndex index(QuestionDataset dataset) {
+                return indexes.get(dataset, QueryIndex::new);
+        }
+
+        // Rows carrying every tag, intersecting the shortest posting lists first
+        private static int[] tagged(QueryIndex index, List<Integer> tagIds) {
+                List<int[]> lists = new ArrayList<>();
+                for (int tag : tagIds) {
+                        lists.add(index.postings(tag));
+                }
+                lists.sort(Comparator.comparingInt(list -> list.length));
+                int[] rows = lists.get(0);
+                for (int i = 1; i < lists.size() && rows.length > 0; i++) {
+                        rows = QueryIndex.intersect(rows, lists.get(i));
+                }
+                return rows;
+        }
+
+        private static boolean hasTags(int[] tagIds, List<Integer> required) {
+                for (int tag : required) {
+                        boolean found = false;
+                        for (int id : tagIds) {
+                                found |= id == tag;
+                        }
+                        if (!found) {
+                                return false;
+                        }
+                }
+                return true;
+        }
+
+        private static Group group(Map<Integer, Group> groups, int key, Query query) {
+                return groups.computeIfAbsent(key, k -> new Group(query.metrics));
+        }
+
+        private static Object groupKey(String groupBy, int key) {
+                return switch (groupBy) {
+                        case "year" -> key;
+                        case "month" -> String.format("%d-%02d", key / 12, key % 12 + 1);
+                        case "tag" -> StringDictionary.TAGS.lookup(key);
+                        case "topic" -> TopicMatcher.JAVA_TOPICS.get(key);
+                        default -> "all";
+                };
+        }
+
+        /**
+         * Filters, grouping and metrics of a query, checked as they are set
+         */
+        public static final class Query {
+                private List<Integer> tagIds = List.of();
+                private int topicMask;
+                private long from = Long.MIN_VALUE;
+                private long to = Long.MAX_VALUE;
+                private int minScore = Integer.MIN_VALUE;
+                private int maxScore = Integer.MAX_VALUE;
+                private int minViews = Integer.MIN_VALUE;
+                private int maxViews = Integer.MAX_VALUE;
+                private Boolean answered;
+                private String groupBy = "none";
+                private List<Metric> metrics = List.of(new Metric("count", "count", -1, 0));
+                private int limit = DEFAULT_LIMIT;
+
+                /**
+                 * Comma-separated tags a question must all carry
+                 */
+                public void setTags(String tags) {
+                        if (tags == null || tags.isBlank()) {
+                                return;
+                        }
+                        List<Integer> ids = new ArrayList<>();
+                        for (String tag : tags.split(",")) {
+                                // An unknown tag matches nothing, which its empty posting list gives
+                                int id = StringDictionary.TAGS.idOf(tag.trim().toLowerCase(Locale.ROOT));
+                                ids.add(id);
+                        }
+                        this.tagIds = ids;
+                }
+
+                /**
+                 * Comma-separated topics (see {@code TopicMatcher.JAVA_TOPICS}) a question must all match
+                 */
+                public void setTopics(String topics) {
+                        if (topics == null || topics.isBlank()) {
+                                return;
+                        }
+                        for (String topic : topics.split(",")) {
+                                int index = TopicMatcher.topicIndex(topic.trim().toLowerCase(Locale.ROOT));
+                                if (index < 0) {
+                                        throw new IllegalArgumentException("Unknown topic: " + topic + ", expected one of "
+                                                        + TopicMatcher.JAVA_TOPICS);
+                                }
+                                topicMask |= 1 << index;
+                        }
+                }
+
+                /**
+                 * Created on or after this day ({@code yyyy-MM-dd}, server time zone)
+                 */
+                public void setFrom(String from) {
+                        if (from != null && !from.isBlank()) {
+                                this.from = startOfDay(from, 0);
+                        }
+                }
+
+                /**
+                 * Created on or before this day ({@code yyyy-MM-dd}, server time zone)
+                 */
+                public void setTo(String to) {
+                        if (to != null && !to.isBlank()) {
+                                this.to = startOfDay(to, 1);
+                        }
+                }
+
+                public void setScore(Integer min, Integer max) {
+                        this.minScore = min != null ? min : Integer.MIN_VALUE;
+                        this.maxScore = max != null ? max : Integer.MAX_VALUE;
+                }
+
+                public void setViews(Integer min, Integer max) {
+                        this.minViews = min != null ? min : Integer.MIN_VALUE;
+                        this.maxViews = max != null ? max : Integer.MAX_VALUE;
+                }
+
+                public void setAnswered(Boolean answered) {
+                        this.answered = answered;
+                }
+
+                /**
+                 * One of {@link #GROUP_BYS}; blank means a single group
+                 */
+                public void setGroupBy(String groupBy) {
+                        if (groupBy == null || groupBy.isBlank()) {
+                                return;
+                        }
+                        String name = groupBy.trim().toLowerCase(Locale.ROOT);
+                        if (!GROUP_BYS.contains(name)) {
+                                throw new IllegalArgumentException("Unknown groupBy: " + groupBy + ", expected one of " + GROUP_BYS);
+                        }
+                        this.groupBy = name;
+                }
+
+                /**
+                 * Comma-separated metrics: {@code count}, {@code sum(f)}, {@code avg(f)},
+                 * {@code min(f)}, {@code max(f)} or a percentile such as {@code p90(f)}, where
+                 * {@code f} is one of {@link #FIELDS}
+                 */
+                public void setMetrics(String metrics) {
+                        if (metrics == null || metrics.isBlank()) {
+                                return;
+                        }
+                        List<Metric> parsed = new ArrayList<>();
+                        for (String metric : metrics.split(",")) {
+                                String name = metric.trim().toLowerCase(Locale.ROOT);
+                                if (name.equals("count")) {
+                                        parsed.add(new Metric(name, "count", -1, 0));
+                                        continue;
+                                }
+                                Matcher matcher = METRIC.matcher(name);
+                                if (!matcher.matches() || !FIELDS.contains(matcher.group(3))) {
+                                        throw new IllegalArgumentException("Unknown metric: " + metric
+                                                        + ", expected count, sum|avg|min|max|pNN(field) with field one of " + FIELDS);
+                                }
+                                int field = FIELDS.indexOf(matcher.group(3));
+                                if (matcher.group(2) != null) {
+                                        double percentile = Double.parseDouble(matcher.group(2));
+                                        if (percentile <= 0 || percentile > 100) {
+                                                throw new IllegalArgumentException("Percentile must be in (0, 100]: " + metric);
+                                        }
+                                        parsed.add(new Metric(name, "percentile", field, percentile));
+                                } else {
+                                        parsed.add(new Metric(name, matcher.group(1), field, 0));
+                                }
+                        }
+                        this.metrics = parsed;
+                }
+
+                public void setLimit(int limit) {
+                        if (limit < 1) {
+                                throw new IllegalArgumentException("limit must be at least 1");
+                        }
+                        this.limit = limit;
+                }
+
+                private static long startOfDay(String day, int plusDays) {
+                        try {
+                                return LocalDate.parse(day.trim()).plusDays(plusDays)
+                                                .atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+                        } catch (DateTimeParseException e) {
+                                throw new IllegalArgumentException("Expected a yyyy-MM-dd date: " + day);
+                        }
+                }
+        }
+
+        private record Metric(String name, String kind, int field, double percentile) {
+        }
+
+        // Running count, sums, minima, maxima and (for percentiles) values of one group
+        private static final class Group {
+                private long count;
+                private final long[] sums = new long[FIELDS.size()];
+                private final int[] minima = new int[FIELDS.size()];
+                private final int[] maxima = new int[FIELDS.size()];
+                private final int[][] values = new int[FIELDS.size()][];
+                private boolean sorted;
+
+                Group(List<Metric> metrics) {
+                        Arrays.fill(minima, Integer.MAX_VALUE);
+                        Arrays.fill(maxima, Integer.MIN_VALUE);
+                        for (Metric metric : metrics) {
+                                if (metric.kind.equals("percentile")) {
+                                        values[metric.field] = new int[16];
+                                }
+                        }
+                }
+
+                void add(int[][] columns, int row) {
+                        for (int field = 0; field < columns.length; field++) {
+                                int value = columns[field][row];
+                                sums[field] += value;
+                                minima[field] = Math.min(minima[field], value);
+                                maxima[field] = Math.max(maxima[field], value);
+                                if (values[field] != null) {
+                                        if (count == values[field].length) {
+                                                values[field] = Arrays.copyOf(values[field], values[field].length * 2);
+                                        }
+                                        values[field][(int) count] = value;
+                                }
+                        }
+                        count++;
+                }
+
+                Object value(Metric metric) {
+                        return switch (metric.kind) {
+                                case "count" -> count;
+                                case "sum" -> sums[metric.field];
+                                case "avg" -> Math.round(sums[metric.field] * 100.0 / count) / 100.0;
+                                case "min" -> minima[metric.field];
+                                case "max" -> maxima[metric.field];
+                                default -> percentile(metric);
+                        };
+                }
+
+                // Nearest-rank percentile
+                private int percentile(Metric metric) {
+                        if (!sorted) {
+                                for (int[] column : values) {
+                                        if (column != null) {
+                                                Arrays.sort(column, 0, (int) count);
+                                        }
+                                }
+                                sorted = true;
+                        }
+                        int rank = (int) Math.ceil(metric.percentile / 100 * count);
+                        return values[metric.field][Math.max(0, rank - 1)];
+                }
+        }
+}
@@ -0,0 +1,164 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import cs209a.finalproject_demo.model.Question;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes pages of questions straight to a response stream, as a JSON array or as
+ * newline-delimited JSON (one question per line).
+ * <p>
+ * Questions are serialised one at a time into the stream, so exporting the whole dataset
+ * needs no more memory than one question. A field projection drops the other properties
+ * at serialisation time, so bodies and answers that were not asked for are never written.
+ * Pages are addressed by opaque cursors that carry the dataset version, so a client paging
+ * through a dataset that is reloaded meanwhile is told to start again instead of silently
+ * skipping or repeating questions.
+ */
+@Service
+public class QuestionExportService {
+
+        public static final String NDJSON = "application/x-ndjson";
+
+        private static final String FIELDS_FILTER = "fields";
+
+        private final ObjectMapper objectMapper = new ObjectMapper()
+                        .addMixIn(Question.class, ProjectedQuestion.class)
+                        // The generator buffers; flushing after every question would write tiny chunks
+                        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        private final Set<String> fieldNames;
+
+        public QuestionExportService() {
+                BeanDescription description = objectMapper.getSerializationConfig()
+                                .introspect(objectMapper.constructType(Question.class));
+                Set<String> names = new TreeSet<>();
+                for (BeanPropertyDefinition property : description.findProperties()) {
+                        if (property.couldSerialize()) {
+                                names.add(property.getName());
+                        }
+                }
+                this.fieldNames = Collections.unmodifiableSet(names);
+        }
+
+        /**
+         * JSON names of the question properties that can be projected
+         */
+        public Set<String> getFieldNames() {
+                return fieldNames;
+        }
+
+        /**
+         * Parse a comma-separated field projection; blank means every field
+         * @return the fields to keep, or {@code null} for all of them
+         * @throws IllegalArgumentException for an unknown field
+         */
+        public Set<String> fields(String fields) {
+                if (fields == null || fields.isBlank()) {
+                        return null;
+                }
+                Set<String> projection = new LinkedHashSet<>();
+                for (String field : fields.split(",")) {
+                        String name = field.trim();
+                        if (!fieldNames.contains(name)) {
+                                throw new IllegalArgumentException("Unknown field: " + name + ", expected some of " + fieldNames);
+                        }
+                        projection.add(name);
+                }
+                return projection;
+        }
+
+        /**
+         * Cursor of the page starting at {@code row} of dataset version {@code version}
+         */
+        public String cursor(long version, int row) {
+                String position = version + ":" + row;
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * First row of the page a cursor points to
+         * @throws IllegalArgumentException if the cursor is malformed
+         * @throws IllegalStateException    if it was issued for another version of the dataset
+         */
+        public int row(String cursor, long version) {
+                long cursorVersion;
+                int row;
+                try {
+                        String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                        int colon = position.indexOf(':');
+                        cursorVersion = Long.parseLong(position.substring(0, colon));
+                        row = Integer.parseInt(position.substring(colon + 1));
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                        throw new IllegalArgumentException("Malformed cursor: " + cursor);
+                }
+                if (row < 0) {
+                        throw new IllegalArgumentException("Malformed cursor: " + cursor);
+                }
+                if (cursorVersion != version) {
+                        throw new IllegalStateException("The data was reloaded since this cursor was issued, start again without one");
+                }
+                return row;
+        }
+
+        /**
+         * Write questions {@code from..to-1} as a JSON array
+         * @param fields fields to keep, {@code null} for all
+         */
+        public void writeJson(OutputStream out, List<Question> questions, int from, int to, Set<String> fields)
+                        throws IOException {
+                ObjectWriter writer = writer(fields);
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                        generator.writeStartArray();
+                        for (int row = from; row < to; row++) {
+                                writer.writeValue(generator, questions.get(row));
+                        }
+                        generator.writeEndArray();
+                }
+        }
+
+        /**
+         * Write questions {@code from..to-1} as newline-delimited JSON
+         * @param fields fields to keep, {@code null} for all
+         */
+        public void writeNdjson(OutputStream out, List<Question> questions, int from, int to, Set<String> fields)
+                        throws IOException {
+                ObjectWriter writer = writer(fields);
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                        generator.setRootValueSeparator(new SerializedString("\n"));
+                        for (int row = from; row < to; row++) {
+                                writer.writeValue(generator, questions.get(row));
+                        }
+                        if (to > from) {
+                                generator.writeRaw('\n');
+                        }
+                }
+        }
+
+        private ObjectWriter writer(Set<String> fields) {
+                SimpleBeanPropertyFilter filter = fields == null
+                                ? SimpleBeanPropertyFilter.serializeAll()
+                                : SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+                return objectMapper.writer(new SimpleFilterProvider().addFilter(FIELDS_FILTER, filter));
+        }
+
+        // Attaches the projection filter to Question without touching the application's mapper
+        @JsonFilter(FIELDS_FILTER)
+        private abstract static class ProjectedQuestion {
+        }
+}
@@ -0,0 +1,349 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.DatasetCache;
+import cs209a.finalproject_demo.model.LongIntHashMap;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.model.StringDictionary;
+import cs209a.finalproject_demo.model.TfIdfIndex;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+@Service
+public class RelatedQuestionService {
+
+        // Results are computed for this many neighbours and cut down to the requested k
+        static final int MAX_CACHED_K = 20;
+
+        // Most viewed questions whose neighbours are computed as soon as the index is built
+        private static final int HOT_QUESTIONS = 256;
+
+        // Further results kept per dataset, least recently used evicted first
+        private static final int CACHE_SIZE = 4096;
+
+        // Words too common in Stack Overflow text to tell questions apart
+        private static final Set<String> STOP_WORDS = Set.of(
+                        "the", "and", "for", "that", "this", "with", "but", "not", "are", "was", "you",
+                        "have", "has", "can", "how", "what", "when", "why", "which", "from", "there",
+                        "its", "it's", "use", "using", "get", "any", "all", "one", "would", "should",
+                        "could", "will", "also", "only", "into", "out", "then", "than", "some", "does",
+                        "doesn't", "don't", "like", "just", "want", "need", "here", "code", "is", "to",
+                        "in", "of", "it", "on", "an", "be", "if", "or", "as", "at", "by", "do", "so",
+                        "my", "me", "we", "no", "i'm");
+
+        private static final long[] STOP_WORD_HASHES = STOP_WORDS.stream()
+                        .mapToLong(word -> termHash(TextNormalizer.keyword(word), 0, word.length()))
+                        .sorted()
+                        .toArray();
+
+        private final DatasetCache<RelatedIndex> indexes = new DatasetCache<>();
+
+        /**
+         * Build the TF-IDF index of the dataset and precompute the neighbours of its
+         * most viewed questions. Later calls with the same dataset return at once.
+         */
+        public void buildIndex(QuestionDataset dataset) {
+                index(dataset);
+        }
+
+        /**
+         * Related Questions
+         * <p>
+         * The {@code k} questions whose TF-IDF vectors (title, body and tags) have the highest
+         * cosine similarity with the given one. Scored with max-score pruning over the
+         * inverted index, so posting lists that cannot lift a document into the top k are
+         * only probed, never scanned.
+         * @return a {@code Map<String, Object>} with {@code "questionId"}, {@code "title"} and
+         *         {@code "related"}, a list of maps with {@code "questionId"}, {@code "title"},
+         *         {@code "tags"} and {@code "similarity"}; {@code null} if the question is unknown
+         */
+        public Map<String, Object> findRelated(QuestionDataset dataset, long questionId, int k) {
+                RelatedIndex index = index(dataset);
+                int row = index.rows.get(questionId, -1);
+                if (row < 0) {
+                        return null;
+                }
+
+                Neighbours neighbours;
+                if (k > MAX_CACHED_K) {
+                        neighbours = search(index.tfIdf, row, k);
+                } else {
+                        neighbours = index.cache.get(row);
+                        if (neighbours == null) {
+                                neighbours = search(index.tfIdf, row, MAX_CACHED_K);
+                                index.cache.put(row, neighbours);
+                        }
+                }
+
+                List<Question> questions = dataset.getQuestions();
+                List<Map<String, Object>> related = new ArrayList<>();
+                for (int i = 0; i < Math.min(k, neighbours.rows.length); i++) {
+                        Question question = questions.get(neighbours.rows[i]);
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("questionId", question.getQuestionId());
+                        entry.put("title", question.getTitle());
+                        entry.put("tags", question.getTags());
+                        entry.put("similarity", neighbours.scores[i]);
+                        related.add(entry);
+                }
+
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("questionId", questionId);
+                result.put("title", questions.get(row).getTitle());
+                result.put("related", related);
+                return result;
+        }
+
+        private RelatedIndex index(QuestionDataset dataset) {
+                return indexes.get(dataset, d -> {
+                        RelatedIndex index = new RelatedIndex(d, buildTfIdf(d));
+                        precomputeHot(index, d);
+                        return index;
+                });
+        }
+
+        static TfIdfIndex buildTfIdf(QuestionDataset dataset) {
+                List<Question> questions = dataset.getQuestions();
+                long[][] termHashes = new long[questions.size()][];
+                int[][] termFreqs = new int[questions.size()][];
+                IntStream.range(0, questions.size()).parallel().forEach(row -> {
+                        long[] hashes = terms(questions.get(row));
+                        Arrays.sort(hashes);
+                        int distinct = 0;
+                        int[] freqs = new int[hashes.length];
+                        for (int i = 0; i < hashes.length; i++) {
+                                if (distinct > 0 && hashes[distinct - 1] == hashes[i]) {
+                                        freqs[distinct - 1]++;
+                                } else {
+                                        hashes[distinct] = hashes[i];
+                                        freqs[distinct++] = 1;
+                                }
+                        }
+                        termHashes[row] = Arrays.copyOf(hashes, distinct);
+                        termFreqs[row] = Arrays.copyOf(freqs, distinct);
+                });
+                return TfIdfIndex.build(termHashes, termFreqs);
+        }
+
+        private static void precomputeHot(RelatedIndex index, QuestionDataset dataset) {
+                int[] viewCount = dataset.getColumns().viewCount();
+                int[] hot = IntStream.range(0, viewCount.length)
+                                .boxed()
+                                .sorted(Comparator.comparingInt((Integer row) -> -viewCount[row]))
+                                .limit(HOT_QUESTIONS)
+                                .mapToInt(Integer::intValue)
+                                .toArray();
+                Neighbours[] results = new Neighbours[hot.length];
+                IntStream.range(0, hot.length).parallel()
+                                .forEach(i -> results[i] = search(index.tfIdf, hot[i], MAX_CACHED_K));
+                for (int i = 0; i < hot.length; i++) {
+                        index.cache.put(hot[i], results[i]);
+                }
+        }
+
+        /**
+         * Document-at-a-time max-score search for the k documents most similar to {@code doc}.
+         * <p>
+         * Query terms are ordered by their score upper bound (query weight times the largest
+         * posting weight). The longest prefix of low-bound terms whose bounds together cannot
+         * reach the current k-th score is "non-essential": only documents found in the other
+         * lists are candidates, and non-essential lists are probed by binary search until the
+         * remaining bound shows the candidate cannot make it.
+         */
+        static Neighbours search(TfIdfIndex index, int doc, int k) {
+                if (k <= 0) {
+                        return new Neighbours(new int[0], new double[0]);
+                }
+                int[] docOffsets = index.docOffsets();
+                int termCount = docOffsets[doc + 1] - docOffsets[doc];
+                int[] postingOffsets = index.postingOffsets();
+                int[] postingDocs = index.postingDocs();
+                float[] postingWeights = index.postingWeights();
+                float[] maxWeight = index.maxWeight();
+
+                Integer[] order = new Integer[termCount];
+                float[] bound = new float[termCount];
+                for (int i = 0; i < termCount; i++) {
+                        order[i] = i;
+                        bound[i] = index.docWeights()[docOffsets[doc] + i] * maxWeight[index.docTerms()[docOffsets[doc] + i]];
+                }
+                Arrays.sort(order, Comparator.comparingDouble(i -> bound[i]));
+
+                int[] term = new int[termCount];
+                float[] queryWeight = new float[termCount];
+                float[] upperBound = new float[termCount];
+                // prefixBound[i]: sum of the bounds of terms 0..i-1
+                float[] prefixBound = new float[termCount + 1];
+                int[] cursor = new int[termCount];
+                int[] end = new int[termCount];
+                for (int i = 0; i < termCount; i++) {
+                        int entry = docOffsets[doc] + order[i];
+                        term[i] = index.docTerms()[entry];
+                        queryWeight[i] = index.docWeights()[entry];
+                        upperBound[i] = bound[order[i]];
+                        prefixBound[i + 1] = prefixBound[i] + upperBound[i];
+                        cursor[i] = postingOffsets[term[i]];
+                        end[i] = postingOffsets[term[i] + 1];
+                }
+
+                // Min-heap of the best k (score, doc) seen so far
+                PriorityQueue<long[]> heap = new PriorityQueue<>(Comparator.comparingDouble(e -> Double.longBitsToDouble(e[0])));
+                float threshold = 0;
+                int firstEssential = 0;
+
+                while (true) {
+                        int candidate = Integer.MAX_VALUE;
+                        for (int i = firstEssential; i < termCount; i++) {
+                                if (cursor[i] < end[i]) {
+                                        candidate = Math.min(candidate, postingDocs[cursor[i]]);
+                                }
+                        }
+                        if (candidate == Integer.MAX_VALUE) {
+                                break;
+                        }
+
+                        float score = 0;
+                        for (int i = firstEssential; i < termCount; i++) {
+                                if (cursor[i] < end[i] && postingDocs[cursor[i]] == candidate) {
+                                        score += queryWeight[i] * postingWeights[cursor[i]];
+                                        cursor[i]++;
+                                }
+                        }
+                        if (candidate == doc) {
+                                continue;
+                        }
+                        for (int i = firstEssential - 1; i >= 0; i--) {
+                                if (heap.size() == k && score + prefixBound[i + 1] <= threshold) {
+                                        break;
+                                }
+                                // Candidates only increase, so the cursor of a probed list only moves forward
+                                int slot = Arrays.binarySearch(postingDocs, cursor[i], end[i], candidate);
+                                if (slot >= 0) {
+                                        score += queryWeight[i] * postingWeights[slot];
+                                        cursor[i] = slot + 1;
+                                } else {
+                                        cursor[i] = -slot - 1;
+                                }
+                        }
+
+                        if (heap.size() < k) {
+                                heap.add(new long[]{Double.doubleToLongBits(score), candidate});
+                        } else if (score > threshold) {
+                                heap.poll();
+                                heap.add(new long[]{Double.doubleToLongBits(score), candidate});
+                        } else {
+                                continue;
+                        }
+                        if (heap.size() == k) {
+                                threshold = (float) Double.longBitsToDouble(heap.peek()[0]);
+                                while (firstEssential < termCount && prefixBound[firstEssential + 1] <= threshold) {
+                                        firstEssential++;
+                                }
+                        }
+                }
+
+                int size = heap.size();
+                int[] rows = new int[size];
+                double[] scores = new double[size];
+                for (int i = size - 1; i >= 0; i--) {
+                        long[] entry = heap.poll();
+                        rows[i] = (int) entry[1];
+                        scores[i] = Double.longBitsToDouble(entry[0]);
+                }
+                return new Neighbours(rows, scores);
+        }
+
+        // Hashes of the title and body words and of the tags, one per occurrence
+        private static long[] terms(Question question) {
+                byte[] text = TopicMatcher.searchText(question);
+                long[] hashes = new long[16];
+                int count = 0;
+                int start = -1;
+                for (int i = 0; i <= text.length; i++) {
+                        if (i < text.length && isTermByte(text[i])) {
+                                if (start < 0) {
+                                        start = i;
+                                }
+                                continue;
+                        }
+                        if (start >= 0 && i - start >= 2) {
+                                long hash = termHash(text, start, i);
+                                if (Arrays.binarySearch(STOP_WORD_HASHES, hash) < 0) {
+                                        if (count == hashes.length) {
+                                                hashes = Arrays.copyOf(hashes, count * 2);
+                                        }
+                                        hashes[count++] = hash;
+                                }
+                        }
+                        start = -1;
+                }
+
+                int[] tagIds = question.getTagIds();
+                if (count + tagIds.length > hashes.length) {
+                        hashes = Arrays.copyOf(hashes, count + tagIds.length);
+                }
+                for (int tagId : tagIds) {
+                        String tag = StringDictionary.TAGS.lookup(tagId);
+                        if (tag != null) {
+                                // '#' is not a term byte, so tag terms never collide with words
+                                byte[] bytes = TextNormalizer.keyword("#" + tag);
+                                hashes[count++] = termHash(bytes, 0, bytes.length);
+                        }
+                }
+                return Arrays.copyOf(hashes, count);
+        }
+
+        // Letters, digits, '_' and '\'' plus all non-ASCII bytes
+        private static boolean isTermByte(byte b) {
+                return (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '_' || b == '\'' || b < 0;
+        }
+
+        // FNV-1a, never 0 (reserved by LongIntHashMap)
+        private static long termHash(byte[] text, int from, int to) {
+                long hash = 0xCBF29CE484222325L;
+                for (int i = from; i < to; i++) {
+                        hash ^= text[i] & 0xFF;
+                        hash *= 0x100000001B3L;
+                }
+                return hash != 0 ? hash : 1;
+        }
+
+        // Must not refer to its dataset, see DatasetCache
+        private static final class RelatedIndex {
+                final TfIdfIndex tfIdf;
+                // question id -> dataset row
+                final LongIntHashMap rows;
+                final Map<Integer, Neighbours> cache = Collections.synchronizedMap(
+                                new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+                                        @Override
+                                        protected boolean removeEldestEntry(Map.Entry<Integer, Neighbours> eldest) {
+                                                return size() > CACHE_SIZE;
+                                        }
+                                });
+
+                RelatedIndex(QuestionDataset dataset, TfIdfIndex tfIdf) {
+                        this.tfIdf = tfIdf;
+                        List<Question> questions = dataset.getQuestions();
+                        this.rows = new LongIntHashMap(Math.max(16, questions.size()));
+                        for (int row = 0; row < questions.size(); row++) {
+                                long questionId = questions.get(row).getQuestionId();
+                                if (questionId != 0) {
+                                        rows.put(questionId, row);
+                                }
+                        }
+                }
+        }
+
+        static final class Neighbours {
+                // Rows in descending similarity
+                final int[] rows;
+                final double[] scores;
+
+                Neighbours(int[] rows, double[] scores) {
+                        this.rows = rows;
+                        this.scores = scores;
+                }
+        }
+}
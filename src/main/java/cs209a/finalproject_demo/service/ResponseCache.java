@@ -0,0 +1,175 @@
+package cs209a.finalproject_demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished analysis responses kept as bytes, both as they are and gzipped, so a repeated
+ * request is answered by copying bytes instead of running the analysis and serialising
+ * the result again.
+ * <p>
+ * Keys start with {@link #versionToken(String)}, which changes whenever the data does (a new
+ * snapshot, or a changed file in streaming mode) and every day, since trend windows are
+ * relative to today; entries of older versions are never hit again and age out. The cache
+ * holds at most {@code analysis.response-cache.max-bytes} bytes, least recently used
+ * entries evicted first; 0 turns it off.
+ */
+@Service
+public class ResponseCache {
+
+        // Responses this small are not worth gzipping
+        private static final int MIN_GZIP_LENGTH = 256;
+
+        private final DatasetRegistry datasetRegistry;
+        private final StreamingAnalysisService streamingAnalysisService;
+        private final ShardCoordinator shardCoordinator;
+
+        @Value("${analysis.response-cache.max-bytes:33554432}")
+        private long maxBytes = 32 * 1024 * 1024;
+
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes;
+
+        public ResponseCache(DatasetRegistry datasetRegistry, StreamingAnalysisService streamingAnalysisService,
+                             ShardCoordinator shardCoordinator) {
+                this.datasetRegistry = datasetRegistry;
+                this.streamingAnalysisService = streamingAnalysisService;
+                this.shardCoordinator = shardCoordinator;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+                this.maxBytes = maxBytes;
+        }
+
+        public boolean isEnabled() {
+                return maxBytes > 0;
+        }
+
+        /**
+         * Identifies the data responses are computed from, {@code null} while there is none
+         * loaded, the dataset is unknown or the data is on the workers of a sharded deployment,
+         * which reload without telling the coordinator (responses are not cached then)
+         * @param dataset a dataset name, {@code null} for the default one
+         */
+        public String versionToken(String dataset) {
+                if (shardCoordinator.isEnabled()) {
+                        return null;
+                }
+                DatasetHolder datasetHolder;
+                try {
+                        datasetHolder = datasetRegistry.get(dataset);
+                } catch (IllegalArgumentException e) {
+                        return null;
+                }
+                String dataFile = datasetHolder.getDataFile();
+                if (streamingAnalysisService.isStreaming(dataFile)) {
+                        File file = new File(dataFile);
+                        return file.exists()
+                                        ? "file:" + dataFile + ":" + file.lastModified() + ":" + file.length() + "@" + LocalDate.now()
+                                        : null;
+                }
+                long version = datasetHolder.currentVersion();
+                return version != 0 ? "v" + version + "@" + LocalDate.now() : null;
+        }
+
+        public synchronized Entry get(String key) {
+                return entries.get(key);
+        }
+
+        /**
+         * Store a response body, gzipping it once here rather than on every request
+         */
+        public Entry put(String key, String contentType, byte[] body) {
+                Entry entry = new Entry(contentType, body, body.length >= MIN_GZIP_LENGTH ? gzip(body) : null);
+                if (entry.size() > maxBytes) {
+                        return entry;
+                }
+                synchronized (this) {
+                        Entry previous = entries.put(key, entry);
+                        bytes += entry.size() - (previous != null ? previous.size() : 0);
+                        Iterator<Entry> eldest = entries.values().iterator();
+                        while (bytes > maxBytes && eldest.hasNext()) {
+                                bytes -= eldest.next().size();
+                                eldest.remove();
+                        }
+                }
+                return entry;
+        }
+
+        public synchronized void clear() {
+                entries.clear();
+                bytes = 0;
+        }
+
+        /**
+         * @return a {@code Map<String, Object>} with {@code "entries"}, {@code "bytes"} and
+         *         {@code "maxBytes"}
+         */
+        public synchronized Map<String, Object> describe() {
+                Map<String, Object> description = new LinkedHashMap<>();
+                description.put("entries", entries.size());
+                description.put("bytes", bytes);
+                description.put("maxBytes", maxBytes);
+                return description;
+        }
+
+        private static byte[] gzip(byte[] body) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                        gzip.write(body);
+                } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                }
+                return out.toByteArray();
+        }
+
+        /**
+         * One cached response: its content type, its bytes, their gzipped form (or
+         * {@code null} when too small to bother) and an entity tag
+         */
+        public static final class Entry {
+                private final String contentType;
+                private final byte[] identity;
+                private final byte[] gzip;
+                private final String etag;
+
+                Entry(String contentType, byte[] identity, byte[] gzip) {
+                        this.contentType = contentType;
+                        this.identity = identity;
+                        this.gzip = gzip;
+                        this.etag = "\"" + Integer.toHexString(Arrays.hashCode(identity)) + "-"
+                                        + Integer.toHexString(identity.length) + "\"";
+                }
+
+                public String getContentType() {
+                        return contentType;
+                }
+
+                public byte[] getIdentity() {
+                        return identity;
+                }
+
+                public byte[] getGzip() {
+                        return gzip;
+                }
+
+                public String getEtag() {
+                        return etag;
+                }
+
+                long size() {
+                        return identity.length + (gzip != null ? gzip.length : 0);
+                }
+        }
+}
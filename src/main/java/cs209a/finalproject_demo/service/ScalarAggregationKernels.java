@@ -0,0 +1,75 @@
+package cs209a.finalproject_demo.service;
+
+/**
+ * Plain loop implementation of {@link AggregationKernels}, used when the Vector API
+ * is not available or the scalar mode is forced.
+ */
+public final class ScalarAggregationKernels implements AggregationKernels {
+
+    public static final ScalarAggregationKernels INSTANCE = new ScalarAggregationKernels();
+
+    private ScalarAggregationKernels() {
+    }
+
+    @Override
+    public int selectRange(long[] values, long from, long to, long[] selection) {
+        int count = 0;
+        for (int row = 0; row < values.length; row++) {
+            long value = values[row];
+            if (value >= from && value <= to) {
+                selection[row >>> 6] |= 1L << row;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long maskedSum(int[] values, long[] rows) {
+        long sum = 0;
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            while (bits != 0) {
+                sum += values[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public long maskedSumNonNegative(int[] values, long[] rows) {
+        long sum = 0;
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            while (bits != 0) {
+                int value = values[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                if (value >= 0) {
+                    sum += value;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int maskedCountNonNegative(int[] values, long[] rows) {
+        int count = 0;
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            while (bits != 0) {
+                if (values[(word << 6) + Long.numberOfTrailingZeros(bits)] >= 0) {
+                    count++;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
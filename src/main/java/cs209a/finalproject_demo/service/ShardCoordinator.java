@@ -0,0 +1,141 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.PartialAggregate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The coordinator of a sharded deployment: the analyses backed by a {@link PartialAggregate}
+ * are scattered to the workers listed in {@code analysis.workers}, each of which holds one
+ * shard of the data ({@code analysis.shard}), and their partials are gathered and merged.
+ * <p>
+ * Every worker is asked for the same trend window, so the partials can be merged; counts,
+ * topic pair counts and solvability accumulators add up, and top-k lists (co-occurring
+ * pairs, pitfalls) are ranked from the merged counts, so they are exact. Partials are
+ * merged in shard order, which keeps the pitfall examples stable. The workers must report
+ * shards {@code 0..n-1} of {@code n}, once each, or the answer would miss or double-count
+ * questions.
+ */
+@Service
+public class ShardCoordinator {
+
+        private final List<String> workers;
+        private final Duration timeout;
+        private final HttpClient client;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        public ShardCoordinator(@Value("${analysis.workers:}") String workers,
+                                @Value("${analysis.workers.timeout-millis:30000}") long timeoutMillis) {
+                this.workers = Arrays.stream(workers.split(","))
+                                .map(String::trim)
+                                .filter(worker -> !worker.isEmpty())
+                                .map(worker -> worker.endsWith("/") ? worker.substring(0, worker.length() - 1) : worker)
+                                .toList();
+                for (String worker : this.workers) {
+                        URI uri = URI.create(worker);
+                        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+                                throw new IllegalArgumentException("analysis.workers expects http(s) base URLs, got: " + worker);
+                        }
+                }
+                this.timeout = Duration.ofMillis(timeoutMillis);
+                this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        }
+
+        /**
+         * Whether this server coordinates workers instead of analysing data of its own
+         */
+        public boolean isEnabled() {
+                return !workers.isEmpty();
+        }
+
+        /**
+         * Ask every worker for its partial over the trend window and merge them
+         * @param dataset a dataset name the workers know, {@code null} for the default one
+         * @param window  trend window, see {@link DataAnalysisService#trendWindow(int)}
+         * @throws IOException if a worker cannot be reached, fails or the shards do not add up
+         *                     (missing, repeated or split by different {@code analysis.shard-by})
+         */
+        public PartialAggregate aggregate(String dataset, long[] window) throws IOException {
+                String query = "/api/partial?trendStart=" + window[0] + "&trendEnd=" + window[1]
+                                + (dataset != null ? "&dataset=" + URLEncoder.encode(dataset, StandardCharsets.UTF_8) : "");
+                List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+                for (String worker : workers) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(worker + query))
+                                        .timeout(timeout)
+                                        .header("Accept", "application/json")
+                                        .GET()
+                                        .build();
+                        responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+                }
+
+                PartialAggregate[] partials = new PartialAggregate[workers.size()];
+                String by = null;
+                for (int i = 0; i < workers.size(); i++) {
+                        String worker = workers.get(i);
+                        HttpResponse<String> response;
+                        try {
+                                response = responses.get(i).join();
+                        } catch (CompletionException e) {
+                                throw new IOException("Worker " + worker + " did not answer: " + e.getCause(), e.getCause());
+                        }
+                        if (response.statusCode() != 200) {
+                                throw new IOException("Worker " + worker + " answered " + response.statusCode() + ": "
+                                                + response.body());
+                        }
+                        JsonNode body = objectMapper.readTree(response.body());
+                        int index = body.path("shard").path("index").asInt(-1);
+                        int count = body.path("shard").path("count").asInt(-1);
+                        if (count != workers.size() || index < 0 || index >= count || partials[index] != null) {
+                                throw new IOException("Worker " + worker + " holds shard " + index + "/" + count
+                                                + ", but " + workers.size() + " distinct shards are expected");
+                        }
+                        // Hash and year shards of the same count overlap and leave gaps
+                        String workerBy = body.path("shard").path("by").asText();
+                        if (by == null) {
+                                by = workerBy;
+                        } else if (!by.equals(workerBy)) {
+                                throw new IOException("Worker " + worker + " shards by " + workerBy + ", but other workers by "
+                                                + by + "; every worker needs the same analysis.shard-by");
+                        }
+                        partials[index] = objectMapper.treeToValue(body.path("partial"), PartialAggregate.class);
+                }
+
+                PartialAggregate total = partials[0];
+                try {
+                        for (int i = 1; i < partials.length; i++) {
+                                total.merge(partials[i]);
+                        }
+                } catch (IllegalArgumentException e) {
+                        throw new IOException("Workers sent partials that cannot be merged: " + e.getMessage(), e);
+                }
+                return total;
+        }
+
+        /**
+         * @return a {@code Map<String, Object>} with {@code "workers"} and {@code "timeoutMillis"}
+         */
+        public Map<String, Object> describe() {
+                Map<String, Object> description = new LinkedHashMap<>();
+                description.put("workers", workers);
+                description.put("timeoutMillis", timeout.toMillis());
+                return description;
+        }
+}
@@ -0,0 +1,168 @@
+package cs209a.finalproject_demo.service;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Population estimates from a stratified simple random sample, with normal-approximation
+ * confidence intervals.
+ * <p>
+ * A total is estimated as {@code sum_h N_h * mean_h} with variance
+ * {@code sum_h N_h^2 (1 - n_h / N_h) s_h^2 / n_h}; ratios and means use the linearised
+ * (Taylor) variance of the ratio estimator. Strata with a single sampled row contribute
+ * no variance.
+ */
+final class StratifiedEstimator {
+
+        // Two-sided 95% normal quantile
+        static final double Z_95 = 1.959964;
+
+        private final int[] stratumOfRow;
+        private final long[] population;
+        private final int[] sampleSize;
+
+        /**
+         * @param stratumOfRow stratum index (0..strata-1) of every sample row
+         * @param population   population size of every stratum
+         */
+        StratifiedEstimator(int[] stratumOfRow, long[] population) {
+                this.stratumOfRow = stratumOfRow;
+                this.population = population;
+                this.sampleSize = new int[population.length];
+                for (int stratum : stratumOfRow) {
+                        sampleSize[stratum]++;
+                }
+        }
+
+        int strata() {
+                return population.length;
+        }
+
+        int stratumOf(int row) {
+                return stratumOfRow[row];
+        }
+
+        long populationSize() {
+                long total = 0;
+                for (long size : population) {
+                        total += size;
+                }
+                return total;
+        }
+
+        /**
+         * Number of population rows matching a predicate, from per-stratum sample counts
+         */
+        Estimate count(int[] sampleCounts) {
+                double value = 0;
+                double variance = 0;
+                for (int h = 0; h < population.length; h++) {
+                        int n = sampleSize[h];
+                        if (n == 0) {
+                                continue;
+                        }
+                        double p = (double) sampleCounts[h] / n;
+                        value += population[h] * p;
+                        if (n > 1) {
+                                double s2 = p * (1 - p) * n / (n - 1);
+                                variance += stratumVariance(h, s2);
+                        }
+                }
+                return new Estimate(value, variance);
+        }
+
+        Estimate count(IntPredicate rows) {
+                int[] counts = new int[population.length];
+                for (int row = 0; row < stratumOfRow.length; row++) {
+                        if (rows.test(row)) {
+                                counts[stratumOfRow[row]]++;
+                        }
+                }
+                return count(counts);
+        }
+
+        /**
+         * Population total of a per-row value
+         */
+        Estimate total(IntToDoubleFunction y) {
+                double[] sum = new double[population.length];
+                double[] sumOfSquares = new double[population.length];
+                for (int row = 0; row < stratumOfRow.length; row++) {
+                        double value = y.applyAsDouble(row);
+                        sum[stratumOfRow[row]] += value;
+                        sumOfSquares[stratumOfRow[row]] += value * value;
+                }
+                double value = 0;
+                double variance = 0;
+                for (int h = 0; h < population.length; h++) {
+                        int n = sampleSize[h];
+                        if (n == 0) {
+                                continue;
+                        }
+                        double mean = sum[h] / n;
+                        value += population[h] * mean;
+                        if (n > 1) {
+                                double s2 = Math.max(0, (sumOfSquares[h] - n * mean * mean) / (n - 1));
+                                variance += stratumVariance(h, s2);
+                        }
+                }
+                return new Estimate(value, variance);
+        }
+
+        /**
+         * Mean of a per-row value over the population rows matching {@code domain}
+         */
+        Estimate mean(IntToDoubleFunction y, IntPredicate domain) {
+                return ratio(row -> domain.test(row) ? y.applyAsDouble(row) : 0, row -> domain.test(row) ? 1 : 0);
+        }
+
+        /**
+         * Ratio of two population totals, {@code Y / X}
+         */
+        Estimate ratio(IntToDoubleFunction y, IntToDoubleFunction x) {
+                double totalY = total(y).value;
+                double totalX = total(x).value;
+                if (totalX == 0) {
+                        return new Estimate(0, 0);
+                }
+                double r = totalY / totalX;
+                Estimate residual = total(row -> y.applyAsDouble(row) - r * x.applyAsDouble(row));
+                return new Estimate(r, residual.variance / (totalX * totalX));
+        }
+
+        private double stratumVariance(int h, double s2) {
+                double n = sampleSize[h];
+                double size = population[h];
+                return size * size * (1 - n / size) * s2 / n;
+        }
+
+        static final class Estimate {
+                final double value;
+                final double variance;
+
+                Estimate(double value, double variance) {
+                        this.value = value;
+                        this.variance = variance;
+                }
+
+                Estimate scale(double factor) {
+                        return new Estimate(value * factor, variance * factor * factor);
+                }
+
+                double margin() {
+                        return Z_95 * Math.sqrt(variance);
+                }
+
+                /**
+                 * {@code [low, high]} of the 95% interval, rounded to {@code decimals} places and
+                 * clamped at {@code floor}
+                 */
+                List<Double> interval(int decimals, double floor) {
+                        double scale = Math.pow(10, decimals);
+                        double low = Math.max(floor, value - margin());
+                        double high = Math.max(floor, value + margin());
+                        return List.of(Math.round(low * scale) / scale, Math.round(high * scale) / scale);
+                }
+        }
+}
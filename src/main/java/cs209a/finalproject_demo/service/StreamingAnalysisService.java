@@ -0,0 +1,353 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.PartialAggregate;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.model.Shard;
+import cs209a.finalproject_demo.model.StratifiedSample;
+import cs209a.finalproject_demo.model.StringDictionary;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Out-of-core analytics: runs the analyses as a pass over the data file instead of
+ * over questions held in memory.
+ * <p>
+ * Questions are parsed one record at a time and buffered into chunks of
+ * {@code analysis.streaming.chunk-size}. Each chunk is indexed (in parallel), folded into
+ * a {@link PartialAggregate} and dropped. Owner display names, which no streamed analysis
+ * reads, are not interned into the JVM-wide {@link StringDictionary}, so memory stays
+ * bounded by the chunk size (plus the distinct tags) whatever the file size. Every pass
+ * also draws a stratified sample for the approximate analyses. The totals of recent passes are kept per file and trend window until the file
+ * changes, and concurrent requests for the same file and trend window wait for one pass
+ * instead of each making their own.
+ * <p>
+ * Also knows which {@link Shard} of the data this server holds when it is a worker of a
+ * sharded deployment ({@code analysis.shard}); passes and loads skip the other questions.
+ */
+@Service
+public class StreamingAnalysisService {
+
+        // Passes over the past years are reused for this long, so the trend window moves on eventually
+        private static final long PASS_TTL_MILLIS = 60_000;
+
+        // Completed passes kept, the oldest dropped first
+        private static final int MAX_PASSES = 16;
+
+        // Trend window of passes made only to draw a sample
+        static final int DEFAULT_TREND_YEARS = 3;
+
+        private final DataAnalysisService dataAnalysisService;
+        private final ApproximateAnalysisService approximateAnalysisService;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        @Value("${analysis.storage:auto}")
+        private String storage = "auto";
+
+        @Value("${analysis.streaming.chunk-size:2048}")
+        private int chunkSize = 2048;
+
+        private Shard shard = Shard.ALL;
+
+        // Completed passes by file and trend window; a file's passes go when the file changes
+        private final ConcurrentHashMap<String, Pass> passes = new ConcurrentHashMap<>();
+
+        // Passes in progress by file and trend window, joined by concurrent requests
+        private final ConcurrentHashMap<String, CompletableFuture<Pass>> running = new ConcurrentHashMap<>();
+
+        public StreamingAnalysisService(DataAnalysisService dataAnalysisService,
+                                        ApproximateAnalysisService approximateAnalysisService) {
+                this.dataAnalysisService = dataAnalysisService;
+                this.approximateAnalysisService = approximateAnalysisService;
+        }
+
+        /**
+         * Whether analyses of {@code filename} should stream it: always with
+         * {@code analysis.storage=streaming}, never with {@code memory}, and with {@code auto}
+         * when the file is larger than a quarter of the maximum heap (parsed questions take
+         * several times their JSON size)
+         */
+        public boolean isStreaming(String filename) {
+                if ("streaming".equalsIgnoreCase(storage)) {
+                        return true;
+                }
+                if ("memory".equalsIgnoreCase(storage)) {
+                        return false;
+                }
+                return new File(filename).length() > Runtime.getRuntime().maxMemory() / 4;
+        }
+
+        public void setStorage(String storage) {
+                this.storage = storage;
+        }
+
+        public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+        }
+
+        /**
+         * The shard this server holds ({@code analysis.shard=index/count}, blank for all the
+         * data), its questions assigned by {@code analysis.shard-by=hash|year}
+         */
+        @Autowired
+        public void setShard(@Value("${analysis.shard:}") String spec, @Value("${analysis.shard-by:hash}") String by) {
+                setShard(Shard.parse(spec, by));
+        }
+
+        public void setShard(Shard shard) {
+                this.shard = shard;
+                passes.clear();
+        }
+
+        public Shard getShard() {
+                return shard;
+        }
+
+        /**
+         * Running totals over every question of {@code filename}, with topic trends over the
+         * past {@code yearsPast} years; reuses the last such pass when it is still valid
+         */
+        public PartialAggregate aggregate(String filename, int yearsPast) throws IOException {
+                return aggregate(filename, yearsPast, ProgressListener.NONE);
+        }
+
+        /**
+         * {@link #aggregate(String, int)}, reporting questions folded and bytes read if a pass is made
+         */
+        public PartialAggregate aggregate(String filename, int yearsPast, ProgressListener listener) throws IOException {
+                File file = new File(filename);
+                if (!file.exists()) {
+                        throw new FileNotFoundException(filename);
+                }
+                // Keyed by years rather than by the window, which moves every second
+                return pass(file, dataAnalysisService.trendWindow(yearsPast), file.getAbsolutePath() + "|years=" + yearsPast,
+                                pass -> pass.isOf(file) && System.currentTimeMillis() - pass.createdAt < PASS_TTL_MILLIS,
+                                listener).partial;
+        }
+
+        /**
+         * Running totals over every question of {@code filename}, with topic trends over an
+         * explicit {@link DataAnalysisService#trendWindow(int) window}, so that partials of
+         * several servers can be merged; reuses the last pass with the same window
+         */
+        public PartialAggregate aggregate(String filename, long[] window) throws IOException {
+                File file = new File(filename);
+                if (!file.exists()) {
+                        throw new FileNotFoundException(filename);
+                }
+                return pass(file, window, file.getAbsolutePath() + "|window=" + window[0] + "-" + window[1],
+                                pass -> pass.isOf(file), ProgressListener.NONE).partial;
+        }
+
+        /**
+         * The stratified sample drawn by a kept pass over {@code filename}, making a pass
+         * if the file changed since. Samples do not depend on the trend window, so they are
+         * reused for as long as the file stays the same.
+         */
+        public ApproximateAnalysisService.Sample sample(String filename) throws IOException {
+                File file = new File(filename);
+                if (!file.exists()) {
+                        throw new FileNotFoundException(filename);
+                }
+                for (Pass pass : passes.values()) {
+                        if (pass.isOf(file)) {
+                                return pass.sample;
+                        }
+                }
+                return pass(file, dataAnalysisService.trendWindow(DEFAULT_TREND_YEARS),
+                                file.getAbsolutePath() + "|years=" + DEFAULT_TREND_YEARS,
+                                pass -> pass.isOf(file), ProgressListener.NONE).sample;
+        }
+
+        /**
+         * The kept pass under {@code key} if {@code reusable} accepts it, otherwise a new pass
+         * over {@code file}, kept under {@code key}.
+         * Only one pass per key runs at a time: later callers wait for it, as
+         * {@link DatasetHolder} does for loads. A waiter whose job is cancelled stops waiting;
+         * if the caller making the pass is cancelled, the others start it again.
+         */
+        private Pass pass(File file, long[] window, String key, Predicate<Pass> reusable,
+                          ProgressListener listener) throws IOException {
+                Pass last = passes.get(key);
+                if (last != null && reusable.test(last)) {
+                        return last;
+                }
+                BooleanSupplier cancelled = Cancellation.current();
+                while (true) {
+                        CompletableFuture<Pass> mine = new CompletableFuture<>();
+                        CompletableFuture<Pass> flight = running.putIfAbsent(key, mine);
+                        if (flight == null) {
+                                try {
+                                        // A pass may have finished between the caller's check and winning the race
+                                        last = passes.get(key);
+                                        if (last == null || !reusable.test(last)) {
+                                                last = scan(file, window, listener);
+                                                keep(key, last);
+                                        }
+                                        mine.complete(last);
+                                } catch (Throwable e) {
+                                        mine.completeExceptionally(e);
+                                } finally {
+                                        running.remove(key, mine);
+                                }
+                                flight = mine;
+                        }
+                        try {
+                                return await(flight, cancelled);
+                        } catch (CancellationException e) {
+                                if (flight == mine || cancelled.getAsBoolean()) {
+                                        throw e;
+                                }
+                                // The caller that made the pass was cancelled, not this one
+                        }
+                }
+        }
+
+        // Drop the passes over an older version of the file, and the oldest beyond MAX_PASSES
+        private void keep(String key, Pass pass) {
+                passes.values().removeIf(kept -> kept.path.equals(pass.path)
+                                && (kept.lastModified != pass.lastModified || kept.length != pass.length));
+                passes.put(key, pass);
+                while (passes.size() > MAX_PASSES) {
+                        passes.values().stream()
+                                        .min(Comparator.comparingLong(kept -> kept.createdAt))
+                                        .ifPresent(oldest -> passes.values().remove(oldest));
+                }
+        }
+
+        private static Pass await(CompletableFuture<Pass> flight, BooleanSupplier cancelled) throws IOException {
+                while (true) {
+                        Cancellation.check(cancelled);
+                        try {
+                                return flight.get(100, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException e) {
+                                // Still running, look at the cancellation again
+                        } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new InterruptedIOException("Interrupted while waiting for a streaming pass");
+                        } catch (ExecutionException e) {
+                                Throwable cause = e.getCause();
+                                if (cause instanceof IOException io) {
+                                        throw io;
+                                }
+                                if (cause instanceof RuntimeException runtime) {
+                                        throw runtime;
+                                }
+                                if (cause instanceof Error error) {
+                                        throw error;
+                                }
+                                throw new IOException(cause);
+                        }
+                }
+        }
+
+        /**
+         * One streaming pass, which requests running meanwhile see as a {@link ColdLoads cold load}
+         */
+        Pass scan(File file, long[] window, ProgressListener listener) throws IOException {
+                ColdLoads.begin();
+                StringDictionary.OWNER_NAMES.skipOnThisThread(true);
+                try {
+                        return scanChunks(file, window, listener);
+                } finally {
+                        StringDictionary.OWNER_NAMES.skipOnThisThread(false);
+                        ColdLoads.end();
+                }
+        }
+
+        // Parse a chunk, fold it into a chunk partial, merge, repeat
+        private Pass scanChunks(File file, long[] window, ProgressListener listener) throws IOException {
+                long startedAt = System.currentTimeMillis();
+                Timer.Sample timing = AnalysisMetrics.start();
+                long parsed = 0;
+                PartialAggregate total = dataAnalysisService.newPartial(window);
+                StratifiedSample sample = approximateAnalysisService.newSample();
+                try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+                        if (parser.nextToken() != JsonToken.START_ARRAY) {
+                                throw new IOException(file + " is not a JSON array of questions");
+                        }
+                        listener.phase("streaming");
+                        List<Question> chunk = new ArrayList<>(chunkSize);
+                        BooleanSupplier cancelled = Cancellation.current();
+                        JsonToken token;
+                        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                                Question question = objectMapper.readValue(parser, Question.class);
+                                parsed++;
+                                if (shard.contains(question)) {
+                                        chunk.add(question);
+                                }
+                                if (chunk.size() == chunkSize) {
+                                        Cancellation.check(cancelled);
+                                        total.merge(fold(chunk, window, sample));
+                                        chunk = new ArrayList<>(chunkSize);
+                                        listener.progress(total.getQuestionCount(), parser.currentLocation().getByteOffset());
+                                }
+                        }
+                        // A null element or a truncated file must not pass for a shorter dataset
+                        if (token != JsonToken.END_ARRAY) {
+                                throw new IOException(file + ": expected a question or the end of the array at byte "
+                                                + parser.currentLocation().getByteOffset() + ", found " + token);
+                        }
+                        if (!chunk.isEmpty()) {
+                                total.merge(fold(chunk, window, sample));
+                        }
+                }
+                listener.progress(total.getQuestionCount(), file.length());
+                AnalysisMetrics.stage(timing, "streaming", "pass");
+                AnalysisMetrics.parsed(file.getName(), parsed, file.length());
+                return new Pass(file, startedAt, total, approximateAnalysisService.sample(sample));
+        }
+
+        private PartialAggregate fold(List<Question> chunk, long[] window, StratifiedSample sample) {
+                QuestionDataset indexed = dataAnalysisService.index(chunk);
+                PartialAggregate partial = dataAnalysisService.newPartial(window);
+                dataAnalysisService.accumulate(partial, indexed, 0, chunk.size());
+                approximateAnalysisService.offer(sample, indexed);
+                return partial;
+        }
+
+        static final class Pass {
+                final String path;
+                final long lastModified;
+                final long length;
+                final long createdAt;
+                final PartialAggregate partial;
+                final ApproximateAnalysisService.Sample sample;
+
+                Pass(File file, long createdAt, PartialAggregate partial, ApproximateAnalysisService.Sample sample) {
+                        this.path = file.getAbsolutePath();
+                        this.lastModified = file.lastModified();
+                        this.length = file.length();
+                        this.createdAt = createdAt;
+                        this.partial = partial;
+                        this.sample = sample;
+                }
+
+                // Made over the file as it is now
+                boolean isOf(File file) {
+                        return path.equals(file.getAbsolutePath()) && lastModified == file.lastModified()
+                                        && length == file.length();
+                }
+        }
+}
@@ -0,0 +1,333 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes synthetic Stack Overflow questions, with their answers, in the format
+ * {@link DataCollectionService#loadData(String)} reads, for load tests and benchmarks at
+ * sizes the API quota does not allow.
+ * <p>
+ * Question {@code i} is drawn from a random generator seeded with the seed and {@code i}
+ * alone, so a seed always produces the same file, whatever the number of threads. Blocks of
+ * questions are rendered to bytes on {@code analysis.generator.threads} threads and written
+ * in order; at most two blocks per thread are in flight, so memory stays flat however many
+ * questions are written.
+ * <p>
+ * Tags, scores, views and askers follow Zipf distributions (a few tags and users account
+ * for most questions, most scores are small), creation dates are spread over 2010-2025,
+ * bodies are HTML with Java code blocks and, in concurrency questions, the phrases the
+ * pitfall analysis looks for.
+ */
+@Service
+public class SyntheticDataGenerator {
+
+        // Questions rendered by one task
+        static final int BLOCK_SIZE = 2048;
+
+        private static final long START = 1262304000L;      // 2010-01-01
+        private static final long END = 1767225600L;        // 2026-01-01
+        private static final int MAX_ANSWERS = 8;
+        private static final int USERS = 200_000;
+
+        // Most frequent first, as Zipf ranks
+        private static final List<String> TAGS = List.of(
+                        "spring", "android", "spring-boot", "multithreading", "hibernate", "collections", "generics",
+                        "java-stream", "lambda", "jpa", "maven", "junit", "concurrency", "exception", "arrays",
+                        "string", "io", "json", "reflection", "jdbc", "swing", "gradle", "rest", "annotations",
+                        "jvm", "thread", "sockets", "performance", "testing", "servlets", "kotlin", "xml",
+                        "regex", "date", "jackson", "intellij-idea", "eclipse", "mockito", "tomcat", "security",
+                        "executorservice", "completable-future", "garbage-collection", "memory-leaks", "unicode");
+
+        private static final List<String> CONCURRENCY_TAGS = List.of(
+                        "multithreading", "concurrency", "thread", "executorservice", "completable-future");
+
+        private static final List<String> VERBS = List.of(
+                        "convert", "sort", "parse", "configure", "test", "serialize", "iterate over", "inject",
+                        "map", "filter", "close", "cache", "synchronize", "stream", "mock", "validate");
+
+        private static final List<String> OBJECTS = List.of(
+                        "a list of maps", "a nested JSON object", "a lazy collection", "an Optional", "a bean",
+                        "a date string", "a large file", "a REST response", "an enum", "a generic array",
+                        "a shared counter", "a blocking queue", "a checked exception", "a custom annotation");
+
+        private static final List<String> SENTENCES = List.of(
+                        "I am trying to %s %s but it does not work as expected.",
+                        "The documentation for %s is not clear about %s.",
+                        "After upgrading, %s stopped working with %s.",
+                        "What is the idiomatic way to handle %s when using %s?",
+                        "My code compiles, but %s fails at runtime with %s.");
+
+        private static final List<String> PITFALL_PHRASES = List.of(
+                        "I suspect a race condition on a shared variable.",
+                        "The application hangs and the thread dump shows a deadlock.",
+                        "Even with synchronized blocks and a volatile flag the value is stale.",
+                        "The executor service thread pool never shuts down.",
+                        "Calling wait() outside the monitor throws IllegalMonitorStateException.",
+                        "Iterating the list from two threads throws ConcurrentModificationException.",
+                        "Is this a memory visibility problem without a happens-before edge?",
+                        "The worker threads are alive but make no progress, some kind of livelock or starvation.");
+
+        private static final List<String> SNIPPETS = List.of(
+                        "List&lt;String&gt; names = people.stream()\n    .map(Person::getName)\n    .collect(Collectors.toList());",
+                        "synchronized (lock) {\n    while (!ready) {\n        lock.wait();\n    }\n}",
+                        "ExecutorService pool = Executors.newFixedThreadPool(4);\npool.submit(() -&gt; process(item));",
+                        "@Autowired\nprivate UserRepository repository;",
+                        "Map&lt;String, Integer&gt; counts = new HashMap&lt;&gt;();\ncounts.merge(word, 1, Integer::sum);",
+                        "try (BufferedReader reader = Files.newBufferedReader(path)) {\n    return reader.readLine();\n}",
+                        "public static &lt;T extends Comparable&lt;T&gt;&gt; T max(List&lt;T&gt; values) { ... }",
+                        "ObjectMapper mapper = new ObjectMapper();\nNode node = mapper.readValue(json, Node.class);");
+
+        private static final Zipf TAG_RANKS = new Zipf(TAGS.size(), 1.0);
+        private static final Zipf USER_RANKS = new Zipf(USERS, 1.1);
+        private static final Zipf SCORES = new Zipf(5000, 1.6);
+        private static final Zipf VIEWS = new Zipf(100_000, 0.9);
+
+        private final JsonFactory jsonFactory = new JsonFactory();
+
+        @Value("${analysis.generator.threads:0}")
+        private int threads;
+
+        public void setThreads(int threads) {
+                this.threads = threads;
+        }
+
+        /**
+         * Write {@code count} questions to {@code filename}, replacing it only once the whole
+         * file is written
+         * @throws InterruptedIOException if the calling thread is interrupted
+         */
+        public void generate(String filename, long count, long seed, ProgressListener listener) throws IOException {
+                Path target = Path.of(filename).toAbsolutePath();
+                Path partial = target.resolveSibling(target.getFileName() + ".part");
+                int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+                ExecutorService executor = Executors.newFixedThreadPool(workers);
+                listener.phase("generating");
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 20)) {
+                        out.write('[');
+                        long bytes = 1;
+                        long blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                        long submitted = 0;
+                        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+                        for (long block = 0; block < blocks; block++) {
+                                while (submitted < blocks && inFlight.size() < workers * 2) {
+                                        long from = submitted * BLOCK_SIZE;
+                                        long to = Math.min(count, from + BLOCK_SIZE);
+                                        inFlight.add(executor.submit(() -> render(seed, from, to)));
+                                        submitted++;
+                                }
+                                byte[] rendered = await(inFlight.poll());
+                                out.write(rendered);
+                                bytes += rendered.length;
+                                listener.progress(Math.min(count, (block + 1) * BLOCK_SIZE), bytes);
+                        }
+                        out.write(']');
+                } catch (IOException | RuntimeException e) {
+                        Files.deleteIfExists(partial);
+                        throw e;
+                } finally {
+                        executor.shutdownNow();
+                }
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private static byte[] await(Future<byte[]> block) throws IOException {
+                try {
+                        return block.get();
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Generation was interrupted");
+                } catch (ExecutionException e) {
+                        if (e.getCause() instanceof UncheckedIOException io) {
+                                throw io.getCause();
+                        }
+                        throw new IOException("Generation failed", e.getCause());
+                }
+        }
+
+        /**
+         * Questions {@code from..to-1} as JSON objects, each preceded by a comma but the very first
+         */
+        private byte[] render(long seed, long from, long to) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(BLOCK_SIZE * 1024);
+                try (JsonGenerator json = jsonFactory.createGenerator(bytes)) {
+                        for (long index = from; index < to; index++) {
+                                if (index > 0) {
+                                        json.writeRaw(',');
+                                }
+                                writeQuestion(json, index, seed);
+                        }
+                } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                }
+                return bytes.toByteArray();
+        }
+
+        private void writeQuestion(JsonGenerator json, long index, long seed) throws IOException {
+                SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+                long questionId = index + 1;
+
+                String[] tags = tags(random);
+                boolean concurrency = false;
+                for (String tag : tags) {
+                        concurrency |= CONCURRENCY_TAGS.contains(tag);
+                }
+                String subject = tags.length > 1 ? tags[1] : "java";
+                String verb = pick(random, VERBS);
+                String object = pick(random, OBJECTS);
+                long created = START + random.nextLong(END - START);
+                int score = random.nextInt(10) == 0 ? -random.nextInt(1, 6) : SCORES.sample(random) - 1;
+                int views = VIEWS.sample(random) * 10 + Math.max(0, score) * random.nextInt(50, 500);
+                int answers = Math.min(MAX_ANSWERS, (int) (-Math.log(1 - random.nextDouble()) * 1.5));
+                int accepted = answers > 0 && random.nextInt(100) < 55 ? random.nextInt(answers) : -1;
+
+                json.writeStartObject();
+                json.writeNumberField("question_id", questionId);
+                json.writeStringField("title", "How to " + verb + " " + object + " with " + subject + "?");
+                json.writeStringField("body", body(random, verb, object, subject, concurrency, 0.6));
+                json.writeArrayFieldStart("tags");
+                for (String tag : tags) {
+                        json.writeString(tag);
+                }
+                json.writeEndArray();
+                json.writeNumberField("creation_date", created);
+                json.writeNumberField("score", score);
+                json.writeNumberField("view_count", views);
+                json.writeNumberField("answer_count", answers);
+                json.writeBooleanField("is_answered", accepted >= 0 || answers > 1);
+                if (accepted >= 0) {
+                        json.writeNumberField("accepted_answer_id", answerId(index, accepted));
+                }
+                writeOwner(json, random);
+                json.writeArrayFieldStart("answers_data");
+                long answeredAt = created;
+                for (int answer = 0; answer < answers; answer++) {
+                        // Answers arrive minutes to weeks apart
+                        answeredAt += (long) Math.exp(random.nextDouble(4, 14));
+                        json.writeStartObject();
+                        json.writeNumberField("answer_id", answerId(index, answer));
+                        json.writeNumberField("question_id", questionId);
+                        json.writeStringField("body", body(random, verb, object, subject, concurrency, 0.7));
+                        json.writeNumberField("creation_date", Math.min(answeredAt, END - 1));
+                        json.writeNumberField("score", answer == accepted
+                                        ? SCORES.sample(random) + random.nextInt(5)
+                                        : SCORES.sample(random) - 1);
+                        json.writeBooleanField("is_accepted", answer == accepted);
+                        writeOwner(json, random);
+                        json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+        }
+
+        // Answer ids follow the question ids of any file up to a billion questions
+        private static long answerId(long index, int answer) {
+                return 1_000_000_000L + index * MAX_ANSWERS + answer;
+        }
+
+        private static String[] tags(SplittableRandom random) {
+                String[] tags = new String[1 + random.nextInt(1, 5)];
+                tags[0] = "java";
+                int size = 1;
+                for (int attempt = 0; attempt < 8 && size < tags.length; attempt++) {
+                        String tag = TAGS.get(TAG_RANKS.sample(random) - 1);
+                        boolean repeated = false;
+                        for (int i = 0; i < size; i++) {
+                                repeated |= tags[i].equals(tag);
+                        }
+                        if (!repeated) {
+                                tags[size++] = tag;
+                        }
+                }
+                return size == tags.length ? tags : Arrays.copyOf(tags, size);
+        }
+
+        private static String body(SplittableRandom random, String verb, String object, String subject,
+                                   boolean concurrency, double codeChance) {
+                StringBuilder body = new StringBuilder(512);
+                for (int paragraph = random.nextInt(1, 4); paragraph > 0; paragraph--) {
+                        String sentence = pick(random, SENTENCES);
+                        body.append("<p>").append(random.nextBoolean()
+                                        ? String.format(sentence, verb, object)
+                                        : String.format(sentence, verb + " " + object, subject));
+                        if (concurrency && random.nextInt(3) > 0) {
+                                body.append(' ').append(pick(random, PITFALL_PHRASES));
+                        }
+                        body.append("</p>\n");
+                }
+                if (random.nextDouble() < codeChance) {
+                        body.append("<pre><code>").append(pick(random, SNIPPETS)).append("</code></pre>\n");
+                }
+                return body.toString();
+        }
+
+        private static void writeOwner(JsonGenerator json, SplittableRandom random) throws IOException {
+                int user = USER_RANKS.sample(random);
+                json.writeObjectFieldStart("owner");
+                json.writeNumberField("user_id", user);
+                json.writeStringField("display_name", "user" + user);
+                // Frequent posters have the high reputations
+                json.writeNumberField("reputation", 1 + (int) (500_000.0 / Math.pow(user, 0.8)));
+                json.writeEndObject();
+        }
+
+        private static String pick(SplittableRandom random, List<String> values) {
+                return values.get(random.nextInt(values.size()));
+        }
+
+        /**
+         * Ranks {@code 1..n} drawn with probability proportional to {@code 1 / rank^exponent},
+         * by binary search over the cumulative distribution
+         */
+        private static final class Zipf {
+                private final double[] cumulative;
+
+                Zipf(int n, double exponent) {
+                        cumulative = new double[n];
+                        double total = 0;
+                        for (int rank = 1; rank <= n; rank++) {
+                                total += 1 / Math.pow(rank, exponent);
+                                cumulative[rank - 1] = total;
+                        }
+                        for (int i = 0; i < n; i++) {
+                                cumulative[i] /= total;
+                        }
+                }
+
+                int sample(SplittableRandom random) {
+                        double u = random.nextDouble();
+                        int low = 0;
+                        int high = cumulative.length - 1;
+                        while (low < high) {
+                                int middle = (low + high) >>> 1;
+                                if (cumulative[middle] < u) {
+                                        low = middle + 1;
+                                } else {
+                                        high = middle;
+                                }
+                        }
+                        return low + 1;
+                }
+        }
+}
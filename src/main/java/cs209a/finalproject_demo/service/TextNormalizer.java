@@ -0,0 +1,180 @@
+package cs209a.finalproject_demo.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns a question title and HTML body into the search text all matchers read.
+ * <p>
+ * Tags are dropped, entities decoded, letters lower-cased and whitespace runs collapsed
+ * into one space. The result is kept as UTF-8 bytes: Stack Overflow text is almost all
+ * ASCII, so this costs one byte per character, and ASCII keywords can be searched for
+ * directly in the bytes.
+ */
+public final class TextNormalizer {
+
+        private static final byte[] EMPTY = new byte[0];
+
+        // Entities longer than this are left as they are
+        private static final int MAX_ENTITY_LENGTH = 10;
+
+        private TextNormalizer() {
+        }
+
+        public static byte[] normalize(String title, String body) {
+                int capacity = (title != null ? title.length() : 0) + (body != null ? body.length() : 0) + 1;
+                StringBuilder out = new StringBuilder(capacity);
+                appendText(out, title);
+                appendSpace(out);
+                appendText(out, body);
+                int length = out.length();
+                if (length > 0 && out.charAt(length - 1) == ' ') {
+                        out.setLength(length - 1);
+                }
+                return out.length() == 0 ? EMPTY : out.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        public static byte[] keyword(String keyword) {
+                return keyword.toLowerCase().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Whether {@code needle} occurs anywhere in {@code text}
+         */
+        public static boolean contains(byte[] text, byte[] needle) {
+                return indexOf(text, needle, 0) >= 0;
+        }
+
+        /**
+         * Whether {@code needle} occurs at the start of a word, like the regex {@code \bneedle}
+         */
+        public static boolean containsWordPrefix(byte[] text, byte[] needle) {
+                for (int from = 0; ; ) {
+                        int index = indexOf(text, needle, from);
+                        if (index < 0) {
+                                return false;
+                        }
+                        if (index == 0 || !isWordByte(text[index - 1]) || !isWordByte(needle[0])) {
+                                return true;
+                        }
+                        from = index + 1;
+                }
+        }
+
+        static int indexOf(byte[] text, byte[] needle, int from) {
+                if (needle.length == 0) {
+                        return from;
+                }
+                byte first = needle[0];
+                int last = text.length - needle.length;
+                outer:
+                for (int i = from; i <= last; i++) {
+                        if (text[i] != first) {
+                                continue;
+                        }
+                        for (int j = 1; j < needle.length; j++) {
+                                if (text[i + j] != needle[j]) {
+                                        continue outer;
+                                }
+                        }
+                        return i;
+                }
+                return -1;
+        }
+
+        private static boolean isWordByte(byte b) {
+                return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+        }
+
+        private static void appendText(StringBuilder out, String html) {
+                if (html == null) {
+                        return;
+                }
+                int length = html.length();
+                // Position of the next '>', remembered so runs of '<' without one stay linear
+                int tagEnd = -1;
+                boolean noMoreTagEnds = false;
+                int i = 0;
+                while (i < length) {
+                        char c = html.charAt(i);
+                        if (c == '<') {
+                                if (!noMoreTagEnds && tagEnd < i) {
+                                        tagEnd = html.indexOf('>', i);
+                                        noMoreTagEnds = tagEnd < 0;
+                                }
+                                if (!noMoreTagEnds) {
+                                        // Tags separate words: "<p>a</p><p>b</p>" reads "a b"
+                                        appendSpace(out);
+                                        i = tagEnd + 1;
+                                        continue;
+                                }
+                        } else if (c == '&') {
+                                int entityEnd = entityEnd(html, i);
+                                if (entityEnd > i + 1) {
+                                        int decoded = decodeEntity(html, i + 1, entityEnd);
+                                        if (decoded >= 0) {
+                                                appendChar(out, decoded);
+                                                i = entityEnd + 1;
+                                                continue;
+                                        }
+                                }
+                        }
+                        appendChar(out, c);
+                        i++;
+                }
+        }
+
+        private static void appendChar(StringBuilder out, int codePoint) {
+                if (Character.isWhitespace(codePoint) || codePoint == 0xA0) {
+                        appendSpace(out);
+                } else {
+                        out.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+        }
+
+        private static void appendSpace(StringBuilder out) {
+                if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+                        out.append(' ');
+                }
+        }
+
+        private static int entityEnd(String html, int ampersand) {
+                int limit = Math.min(html.length(), ampersand + MAX_ENTITY_LENGTH + 1);
+                for (int i = ampersand + 1; i < limit; i++) {
+                        if (html.charAt(i) == ';') {
+                                return i;
+                        }
+                }
+                return -1;
+        }
+
+        // Code point of the entity between '&' and ';', or -1 if unknown
+        private static int decodeEntity(String html, int start, int end) {
+                if (html.charAt(start) == '#') {
+                        try {
+                                boolean hex = end - start > 1 && (html.charAt(start + 1) == 'x' || html.charAt(start + 1) == 'X');
+                                int codePoint = hex
+                                                ? Integer.parseInt(html, start + 2, end, 16)
+                                                : Integer.parseInt(html, start + 1, end, 10);
+                                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+                        } catch (NumberFormatException e) {
+                                return -1;
+                        }
+                }
+                switch (html.substring(start, end)) {
+                        case "lt":
+                                return '<';
+                        case "gt":
+                                return '>';
+                        case "amp":
+                                return '&';
+                        case "quot":
+                                return '"';
+                        case "apos":
+                                return '\'';
+                        case "nbsp":
+                                return ' ';
+                        default:
+                                return -1;
+                }
+        }
+}
@@ -0,0 +1,179 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StringDictionary;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which Java topics and multithreading pitfalls a question belongs to.
+ * <p>
+ * Tags are matched through their dictionary ids: the topic bitmask of every tag id is
+ * computed once and cached, so tag checks never lower-case or hash strings again.
+ * Title and body are matched on the normalized search text built at load time.
+ */
+public final class TopicMatcher {
+
+        // Java topics to track, bit i of a topic mask stands for JAVA_TOPICS.get(i)
+        public static final List<String> JAVA_TOPICS = Arrays.asList(
+                        "generics", "collections", "io", "lambda", "stream",
+                        "multithreading", "concurrency", "thread", "socket",
+                        "reflection", "spring", "spring-boot", "jpa", "hibernate",
+                        "exception", "testing", "junit", "annotation","android");
+
+        public static final int ALL_TOPICS = (1 << JAVA_TOPICS.size()) - 1;
+
+        // Common pitfalls patterns, matched at the start of a word; bit i of a pitfall mask stands for PITFALLS.get(i)
+        private static final Map<String, List<String>> PITFALL_PATTERNS = new LinkedHashMap<>();
+        static {
+                PITFALL_PATTERNS.put("Race Condition", Arrays.asList(
+                                "race condition", "race-condition", "concurrent modification",
+                                "shared variable", "thread safety", "thread-safety"));
+                PITFALL_PATTERNS.put("Deadlock", Arrays.asList(
+                                "deadlock", "dead lock", "circular wait", "thread blocked"));
+                PITFALL_PATTERNS.put("Thread Synchronization", Arrays.asList(
+                                "synchroniz", "volatile", "atomic", "lock", "mutex"));
+                PITFALL_PATTERNS.put("Thread Pool Issues", Arrays.asList(
+                                "thread pool", "executor", "threadpool", "executorservice"));
+                PITFALL_PATTERNS.put("Wait/Notify Problems", Arrays.asList(
+                                "wait()", "notify", "notifyall", "IllegalMonitorStateException"));
+                PITFALL_PATTERNS.put("ConcurrentModificationException", Arrays.asList(
+                                "ConcurrentModificationException", "concurrent modification exception"));
+                PITFALL_PATTERNS.put("Memory Visibility", Arrays.asList(
+                                "memory visibility", "happens-before", "volatile keyword", "cache coherence"));
+                PITFALL_PATTERNS.put("Livelock", Arrays.asList(
+                                "livelock", "live lock", "thread starvation", "starvation"));
+        }
+
+        public static final List<String> PITFALLS = List.copyOf(PITFALL_PATTERNS.keySet());
+
+        // Questions in any of these topics are searched for pitfalls
+        public static final int MULTITHREADING_TOPICS = (1 << JAVA_TOPICS.indexOf("multithreading"))
+                        | (1 << JAVA_TOPICS.indexOf("concurrency"))
+                        | (1 << JAVA_TOPICS.indexOf("thread"));
+
+        private static final byte[][] TOPIC_KEYWORDS = JAVA_TOPICS.stream()
+                        .map(TextNormalizer::keyword)
+                        .toArray(byte[][]::new);
+
+        private static final byte[][][] PITFALL_KEYWORDS = PITFALL_PATTERNS.values().stream()
+                        .map(patterns -> patterns.stream().map(TextNormalizer::keyword).toArray(byte[][]::new))
+                        .toArray(byte[][][]::new);
+
+        private static volatile int[] tagTopicMasks = new int[0];
+
+        private TopicMatcher() {
+        }
+
+        public static int topicIndex(String topic) {
+                return JAVA_TOPICS.indexOf(topic);
+        }
+
+        /**
+         * Topic bitmask of a single interned tag
+         */
+        public static int tagTopicMask(int tagId) {
+                int[] masks = tagTopicMasks;
+                if (tagId >= masks.length) {
+                        masks = growTagMasks(tagId);
+                }
+                return masks[tagId];
+        }
+
+        /**
+         * Union of the topic bitmasks of all tags of the question
+         */
+        public static int tagTopicMask(Question question) {
+                int mask = 0;
+                for (int tagId : question.getTagIds()) {
+                        if (tagId >= 0) {
+                                mask |= tagTopicMask(tagId);
+                        }
+                }
+                return mask;
+        }
+
+        public static boolean isRelated(Question question, int topicIndex) {
+                if ((tagTopicMask(question) & (1 << topicIndex)) != 0) {
+                        return true;
+                }
+
+                // Check in title and body
+                return TextNormalizer.contains(searchText(question), TOPIC_KEYWORDS[topicIndex]);
+        }
+
+        /**
+         * Bitmask of every topic the question is related to, by tag or by title/body text
+         */
+        public static int topicMask(Question question) {
+                int mask = tagTopicMask(question);
+                if (mask == ALL_TOPICS) {
+                        return mask;
+                }
+
+                byte[] searchText = searchText(question);
+                for (int i = 0; i < TOPIC_KEYWORDS.length; i++) {
+                        if ((mask & (1 << i)) == 0 && TextNormalizer.contains(searchText, TOPIC_KEYWORDS[i])) {
+                                mask |= 1 << i;
+                        }
+                }
+                return mask;
+        }
+
+        /**
+         * Bitmask over {@link #PITFALLS} of the pitfalls mentioned in title or body
+         */
+        public static int pitfallMask(Question question) {
+                byte[] searchText = searchText(question);
+                int mask = 0;
+                for (int i = 0; i < PITFALL_KEYWORDS.length; i++) {
+                        for (byte[] keyword : PITFALL_KEYWORDS[i]) {
+                                if (TextNormalizer.containsWordPrefix(searchText, keyword)) {
+                                        mask |= 1 << i;
+                                        break;
+                                }
+                        }
+                }
+                return mask;
+        }
+
+        /**
+         * Normalized text of the question, built now for questions that skipped the loader
+         */
+        public static byte[] searchText(Question question) {
+                byte[] searchText = question.getSearchText();
+                if (searchText == null) {
+                        searchText = TextNormalizer.normalize(question.getTitle(), question.getBody());
+                        question.setSearchText(searchText);
+                }
+                return searchText;
+        }
+
+        private static synchronized int[] growTagMasks(int tagId) {
+                int[] masks = tagTopicMasks;
+                if (tagId < masks.length) {
+                        return masks;
+                }
+                int size = Math.max(tagId + 1, StringDictionary.TAGS.size());
+                int[] grown = Arrays.copyOf(masks, size);
+                for (int id = masks.length; id < size; id++) {
+                        String tag = StringDictionary.TAGS.lookup(id);
+                        grown[id] = tag != null ? computeTagMask(tag.toLowerCase()) : 0;
+                }
+                tagTopicMasks = grown;
+                return grown;
+        }
+
+        private static int computeTagMask(String tag) {
+                int mask = 0;
+                for (int i = 0; i < JAVA_TOPICS.size(); i++) {
+                        if (tag.contains(JAVA_TOPICS.get(i))) {
+                                mask |= 1 << i;
+                        }
+                }
+                return mask;
+        }
+}
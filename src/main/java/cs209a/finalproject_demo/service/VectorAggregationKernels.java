@@ -0,0 +1,170 @@
+package cs209a.finalproject_demo.service;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link AggregationKernels} on {@code jdk.incubator.vector}.
+ * <p>
+ * Uses the widest long species of the CPU (4 lanes on AVX2, 8 on AVX-512). Int columns
+ * are widened to long lanes before summing so large view counts cannot overflow. Row
+ * bitmaps map directly onto vector masks with {@link VectorMask#fromLong}; unless
+ * {@code vectorReductions} is set the masked reductions delegate to the scalar kernels.
+ * Only instantiate through {@link AggregationKernels#select(String)}.
+ */
+final class VectorAggregationKernels implements AggregationKernels {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+    private static final int LANES = LONGS.length();
+
+    private final boolean vectorReductions;
+
+    VectorAggregationKernels(boolean vectorReductions) {
+        // Touch the species so a missing module fails here, inside select()
+        LONGS.length();
+        this.vectorReductions = vectorReductions;
+    }
+
+    @Override
+    public int selectRange(long[] values, long from, long to, long[] selection) {
+        int count = 0;
+        int row = 0;
+        int bound = values.length & ~63;
+        for (; row < bound; row += 64) {
+            long word = 0;
+            for (int lane = 0; lane < 64; lane += LANES) {
+                LongVector v = LongVector.fromArray(LONGS, values, row + lane);
+                VectorMask<Long> inRange = v.compare(VectorOperators.GE, from)
+                        .and(v.compare(VectorOperators.LE, to));
+                word |= inRange.toLong() << lane;
+            }
+            selection[row >>> 6] = word;
+            count += Long.bitCount(word);
+        }
+        for (; row < values.length; row++) {
+            long value = values[row];
+            if (value >= from && value <= to) {
+                selection[row >>> 6] |= 1L << row;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long maskedSum(int[] values, long[] rows) {
+        if (!vectorReductions) {
+            return ScalarAggregationKernels.INSTANCE.maskedSum(values, rows);
+        }
+        LongVector acc = LongVector.zero(LONGS);
+        long tail = 0;
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            if (bits == 0) {
+                continue;
+            }
+            int base = word << 6;
+            if (base + 64 > values.length) {
+                tail += scalarSum(values, base, bits, false);
+                continue;
+            }
+            for (int lane = 0; lane < 64 && bits >>> lane != 0; lane += LANES) {
+                VectorMask<Long> mask = VectorMask.fromLong(LONGS, bits >>> lane);
+                acc = acc.add(widen(values, base + lane), mask);
+            }
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + tail;
+    }
+
+    @Override
+    public long maskedSumNonNegative(int[] values, long[] rows) {
+        if (!vectorReductions) {
+            return ScalarAggregationKernels.INSTANCE.maskedSumNonNegative(values, rows);
+        }
+        LongVector acc = LongVector.zero(LONGS);
+        long tail = 0;
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            if (bits == 0) {
+                continue;
+            }
+            int base = word << 6;
+            if (base + 64 > values.length) {
+                tail += scalarSum(values, base, bits, true);
+                continue;
+            }
+            for (int lane = 0; lane < 64 && bits >>> lane != 0; lane += LANES) {
+                LongVector v = widen(values, base + lane);
+                VectorMask<Long> mask = VectorMask.fromLong(LONGS, bits >>> lane)
+                        .and(v.compare(VectorOperators.GE, 0L));
+                acc = acc.add(v, mask);
+            }
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + tail;
+    }
+
+    @Override
+    public int maskedCountNonNegative(int[] values, long[] rows) {
+        if (!vectorReductions) {
+            return ScalarAggregationKernels.INSTANCE.maskedCountNonNegative(values, rows);
+        }
+        int count = 0;
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            if (bits == 0) {
+                continue;
+            }
+            int base = word << 6;
+            if (base + 64 > values.length) {
+                count += scalarCountNonNegative(values, base, bits);
+                continue;
+            }
+            for (int lane = 0; lane < 64 && bits >>> lane != 0; lane += LANES) {
+                VectorMask<Long> mask = VectorMask.fromLong(LONGS, bits >>> lane)
+                        .and(widen(values, base + lane).compare(VectorOperators.GE, 0L));
+                count += mask.trueCount();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String name() {
+        return (vectorReductions ? "vector-" : "vector-filter-") + LONGS.vectorBitSize();
+    }
+
+    private static LongVector widen(int[] values, int offset) {
+        return (LongVector) IntVector.fromArray(INTS, values, offset)
+                .convertShape(VectorOperators.I2L, LONGS, 0);
+    }
+
+    // Scalar handling of the last, partially filled bitmap word
+    private static long scalarSum(int[] values, int base, long bits, boolean nonNegativeOnly) {
+        long sum = 0;
+        while (bits != 0) {
+            int value = values[base + Long.numberOfTrailingZeros(bits)];
+            if (!nonNegativeOnly || value >= 0) {
+                sum += value;
+            }
+            bits &= bits - 1;
+        }
+        return sum;
+    }
+
+    private static int scalarCountNonNegative(int[] values, int base, long bits) {
+        int count = 0;
+        while (bits != 0) {
+            if (values[base + Long.numberOfTrailingZeros(bits)] >= 0) {
+                count++;
+            }
+            bits &= bits - 1;
+        }
+        return count;
+    }
+}
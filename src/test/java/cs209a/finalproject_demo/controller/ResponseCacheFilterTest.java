@@ -0,0 +1,105 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.service.ResponseCache;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private static final String BODY = "{\"topPitfalls\":[" + "{\"pitfall\":\"deadlock\",\"count\":3},".repeat(20)
+            + "{}],\"topN\":8}";
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private String version = "v1";
+    private final ResponseCache cache = new ResponseCache(null, null, null) {
+        @Override
+        public String versionToken(String dataset) {
+            return version;
+        }
+    };
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(cache);
+
+    private final FilterChain controller = (request, response) -> {
+        calls.incrementAndGet();
+        response.setContentType("application/json");
+        response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void repeatedRequestsAreServedFromBytes() throws Exception {
+        MockHttpServletResponse first = get("/api/pitfalls", "topN=8&mode=exact", null);
+        MockHttpServletResponse second = get("/api/pitfalls", "mode=exact&topN=8", null);
+
+        assertEquals(1, calls.get());
+        assertEquals(BODY, first.getContentAsString());
+        assertEquals(BODY, second.getContentAsString());
+        assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+
+        // Other parameters or a new data version run the controller again
+        get("/api/pitfalls", "topN=3", null);
+        version = "v2";
+        get("/api/pitfalls", "topN=8&mode=exact", null);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void gzipIsNegotiated() throws Exception {
+        get("/api/dashboard", "", null);
+        MockHttpServletResponse gzipped = get("/api/dashboard", "", "br, gzip;q=0.8");
+        MockHttpServletResponse refused = get("/api/dashboard", "", "gzip;q=0, identity");
+
+        assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertEquals(BODY, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertNull(refused.getHeader("Content-Encoding"));
+        assertEquals(BODY, refused.getContentAsString());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void conditionalRequestsAndUncachedPaths() throws Exception {
+        String etag = get("/api/stats", "", null).getHeader("ETag");
+        MockHttpServletRequest request = request("/api/stats", "");
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentLength());
+
+        get("/api/questions", "limit=5", null);
+        get("/api/questions", "limit=5", null);
+        assertEquals(3, calls.get());
+    }
+
+    private MockHttpServletResponse get(String path, String query, String acceptEncoding) throws Exception {
+        MockHttpServletRequest request = request(path, query);
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setQueryString(query);
+        for (String parameter : query.split("&")) {
+            if (!parameter.isEmpty()) {
+                String[] pair = parameter.split("=", 2);
+                request.addParameter(pair[0], pair[1]);
+            }
+        }
+        return request;
+    }
+}
@@ -0,0 +1,72 @@
+package cs209a.finalproject_demo.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesStayWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 60);
+        }
+
+        assertEquals(100_000, histogram.getTotalCount());
+        assertEquals(50_000 * 60, histogram.getValueAtPercentile(50), 50_000 * 60 * 0.01);
+        assertEquals(99_000 * 60, histogram.getValueAtPercentile(99), 99_000 * 60 * 0.01);
+        assertEquals(100_000 * 60, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(5, 3);
+
+        assertEquals(3, histogram.getValueAtPercentile(25));
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(3, histogram.getMin());
+    }
+
+    @Test
+    void mergeEqualsRecordingIntoOne() {
+        LatencyHistogram left = new LatencyHistogram();
+        LatencyHistogram right = new LatencyHistogram();
+        LatencyHistogram both = new LatencyHistogram();
+        for (long value = 0; value < 10_000; value++) {
+            long sample = value * value;
+            (value % 2 == 0 ? left : right).record(sample);
+            both.record(sample);
+        }
+
+        left.merge(right);
+
+        assertEquals(both.summary(), left.summary());
+    }
+
+    @Test
+    void bucketBoundsContainTheirValues() {
+        for (long value = 0; value < 1L << 40; value = value * 3 + 1) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestEquivalentValue(index - 1) < value);
+        }
+    }
+
+    @Test
+    void reportedValuesOverstateByLessThanASixtyFourth() {
+        double worst = 0;
+        for (int bit = 7; bit < 40; bit++) {
+            for (long value = (1L << bit) - 1; value <= (1L << bit) + 2; value++) {
+                long reported = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value));
+                double error = (double) (reported - value) / value;
+                assertTrue(error >= 0 && error < 1.0 / 64, value + " reported as " + reported);
+                worst = Math.max(worst, error);
+            }
+        }
+        // Just above a power of two the bucket is widest relative to its values
+        assertTrue(worst > 0.015, "worst " + worst);
+    }
+}
@@ -0,0 +1,40 @@
+package cs209a.finalproject_demo.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void tagsAndOwnerNamesAreInterned() throws Exception {
+        String json = "[{\"question_id\":1,\"tags\":[\"java\",\"spring-boot\"],"
+                + "\"owner\":{\"user_id\":7,\"display_name\":\"alice\",\"reputation\":10}},"
+                + "{\"question_id\":2,\"tags\":[\"java\"],\"owner\":{\"display_name\":\"alice\"}}]";
+
+        Question[] questions = objectMapper.readValue(json, Question[].class);
+
+        assertEquals(List.of("java", "spring-boot"), questions[0].getTags());
+        assertEquals(questions[0].getTagIds()[0], questions[1].getTagIds()[0]);
+        assertEquals("alice", questions[1].getOwnerDisplayName());
+        assertEquals(questions[0].getOwnerNameId(), questions[1].getOwnerNameId());
+    }
+
+    @Test
+    void serializedFormRoundTrips() throws Exception {
+        Question question = new Question();
+        question.setQuestionId(3);
+        question.setTags(List.of("java", "generics"));
+        question.setOwnerDisplayName("bob");
+
+        Question copy = objectMapper.readValue(objectMapper.writeValueAsString(question), Question.class);
+
+        assertEquals(question.getTags(), copy.getTags());
+        assertEquals("bob", copy.getOwnerDisplayName());
+    }
+}
@@ -0,0 +1,119 @@
+package cs209a.finalproject_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void limitGrowsWhenFastAndShrinksWhenSlow() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 16, 2.0, 1, 0);
+
+        for (int round = 0; round < 40; round++) {
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                assertEquals(AdaptiveLimiter.Outcome.ADMITTED, limiter.acquire(0));
+            }
+            for (int i = limiter.getInFlight(); i > 0; i--) {
+                limiter.release(FAST, false);
+            }
+        }
+        assertEquals(16, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(0);
+            limiter.release(SLOW, false);
+        }
+        assertTrue(limiter.getLimit() < 4, "limit " + limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(0);
+            limiter.release(FAST, true);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void slowButUnloadedEndpointKeepsItsLimit() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(8, 1, 64, 2.0, 1, 0);
+        // A cold load is not a sample, so it does not set the baseline
+        limiter.acquire(0);
+        limiter.release();
+
+        for (int i = 0; i < 2000; i++) {
+            limiter.acquire(0);
+            limiter.release(SLOW + (i % 10) * SLOW / 20, false);
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(1000.0, limiter.describe().get("latencyTargetMillis"));
+
+        // Three times its usual latency is overload, even for a slow endpoint
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(0);
+            limiter.release(3 * SLOW, false);
+        }
+        assertTrue(limiter.getLimit() < 8, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void coldLoadsSpoilTheRequestsTheyOverlap() {
+        long before = ColdLoads.mark();
+        assertTrue(ColdLoads.quietSince(before));
+
+        ColdLoads.begin();
+        long during = ColdLoads.mark();
+        ColdLoads.end();
+        assertEquals(-1, during);
+        assertFalse(ColdLoads.quietSince(during));
+        assertFalse(ColdLoads.quietSince(before));
+        assertTrue(ColdLoads.quietSince(ColdLoads.mark()));
+    }
+
+    @Test
+    void rejectsAtOnceWhenTheQueueIsFull() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 2.0, 1, 0);
+
+        assertEquals(AdaptiveLimiter.Outcome.ADMITTED, limiter.acquire(0));
+        long start = System.nanoTime();
+        assertEquals(AdaptiveLimiter.Outcome.QUEUE_FULL, limiter.acquire(10_000));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1L, limiter.describe().get("rejected"));
+    }
+
+    @Test
+    void queuedRequestsTakeFreedSlotsOrTimeOut() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 2.0, 1, 4);
+        assertEquals(AdaptiveLimiter.Outcome.ADMITTED, limiter.acquire(0));
+
+        assertEquals(AdaptiveLimiter.Outcome.TIMED_OUT, limiter.acquire(20));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Future<AdaptiveLimiter.Outcome> queued = executor.submit(() -> {
+                started.countDown();
+                return limiter.acquire(10_000);
+            });
+            started.await();
+            while (!Integer.valueOf(1).equals(limiter.describe().get("waiting"))) {
+                Thread.sleep(1);
+            }
+            limiter.release(FAST, false);
+
+            assertEquals(AdaptiveLimiter.Outcome.ADMITTED, queued.get(5, TimeUnit.SECONDS));
+            assertEquals(1, limiter.getInFlight());
+            assertEquals(1L, limiter.describe().get("timedOut"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
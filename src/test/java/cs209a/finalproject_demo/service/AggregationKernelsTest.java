@@ -0,0 +1,49 @@
+package cs209a.finalproject_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class AggregationKernelsTest {
+
+    private final AggregationKernels scalar = AggregationKernels.select("scalar");
+
+    @Test
+    void vectorKernelsMatchScalar() {
+        assumeTrue(AggregationKernels.isVectorApiAvailable(), "jdk.incubator.vector not enabled");
+        AggregationKernels vector = AggregationKernels.select("vector");
+        assertNotEquals("scalar", vector.name());
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int size : new int[]{0, 1, 63, 64, 65, 1000, 4099}) {
+            long[] dates = new long[size];
+            int[] values = new int[size];
+            long[] rows = new long[(size + 63) >>> 6];
+            for (int i = 0; i < size; i++) {
+                dates[i] = random.nextLong(1_000_000);
+                values[i] = random.nextInt(-10, Integer.MAX_VALUE);
+                if (random.nextInt(3) > 0) {
+                    rows[i >>> 6] |= 1L << i;
+                }
+            }
+
+            long[] expected = new long[rows.length];
+            long[] actual = new long[rows.length];
+            assertEquals(scalar.selectRange(dates, 250_000, 750_000, expected),
+                    vector.selectRange(dates, 250_000, 750_000, actual), "size " + size);
+            assertArrayEquals(expected, actual, "size " + size);
+
+            assertEquals(scalar.maskedSum(values, rows), vector.maskedSum(values, rows), "size " + size);
+            assertEquals(scalar.maskedSumNonNegative(values, rows), vector.maskedSumNonNegative(values, rows));
+            assertEquals(scalar.maskedCountNonNegative(values, rows), vector.maskedCountNonNegative(values, rows));
+        }
+    }
+
+    @Test
+    void scalarModeIsAlwaysHonoured() {
+        assertEquals("scalar", scalar.name());
+    }
+}
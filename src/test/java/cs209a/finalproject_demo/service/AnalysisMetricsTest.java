@@ -0,0 +1,55 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void register() {
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterEach
+    void unregister() {
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    void loadsAndAnalysesRecordTheirMeters() throws Exception {
+        Path file = directory.resolve("metrics.json");
+        new SyntheticDataGenerator().generate(file.toString(), 3000, 1, ProgressListener.NONE);
+        List<Question> questions = new DataCollectionService().loadData(file.toString());
+        DataAnalysisService analysis = new DataAnalysisService();
+        QuestionDataset dataset = analysis.index(questions);
+        analysis.analyzeTopicTrends(dataset, 3);
+        analysis.analyzeSolvability(dataset);
+
+        assertEquals(3000, registry.get("analysis.dataset.records.parsed").tag("file", "metrics.json")
+                .counter().count());
+        assertEquals(Files.size(file), registry.get("analysis.dataset.bytes.parsed").tag("file", "metrics.json")
+                .counter().count());
+        for (String[] stage : new String[][]{{"load", "parse"}, {"load", "prepare"}, {"index", "match"},
+                {"trends", "filter"}, {"trends", "aggregate"}, {"solvability", "aggregate"}}) {
+            assertEquals(1, registry.get("analysis.stage").tag("analysis", stage[0]).tag("stage", stage[1])
+                    .timer().count(), String.join("/", stage));
+        }
+    }
+}
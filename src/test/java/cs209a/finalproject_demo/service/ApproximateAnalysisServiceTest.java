@@ -0,0 +1,86 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.answer;
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApproximateAnalysisServiceTest {
+
+    private static final long DAY = 24 * 60 * 60;
+    private static final String[] TAGS = {"spring", "multithreading", "generics", "io", "jpa"};
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final ApproximateAnalysisService service = new ApproximateAnalysisService(analysisService);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fullSampleReproducesExactResults() {
+        QuestionDataset dataset = analysisService.index(questions(300));
+        service.setPerStratum(1000);
+        ApproximateAnalysisService.Sample sample = service.sample(dataset);
+
+        assertEquals(300, sample.size());
+        Map<String, Object> stats = service.analyzeStatistics(sample);
+        Map<String, Object> exact = analysisService.analyzeStatistics(dataset);
+        assertEquals(exact.get("answeredQuestions"), stats.get("answeredQuestions"));
+        assertEquals((double) exact.get("avgScore"), (double) stats.get("avgScore"), 1e-9);
+        Map<String, List<Double>> intervals = (Map<String, List<Double>>) stats.get("intervals");
+        assertEquals(intervals.get("totalAnswers").get(0), intervals.get("totalAnswers").get(1));
+
+        assertEquals(analysisService.analyzeTopicTrends(dataset, 3).get("topicTrends"),
+                service.analyzeTopicTrends(sample, 3).get("topicTrends"));
+        assertEquals(analysisService.analyzeSolvability(dataset).get("factors"),
+                service.analyzeSolvability(sample).get("factors"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void intervalsCoverTheExactValues() {
+        QuestionDataset dataset = analysisService.index(questions(20000));
+        service.setPerStratum(60);
+        ApproximateAnalysisService.Sample sample = service.sample(dataset);
+        assertTrue(sample.size() < 20000 / 5);
+        assertEquals(20000, sample.populationSize());
+
+        Map<String, Object> stats = service.analyzeStatistics(sample);
+        assertCovers(((Number) analysisService.analyzeStatistics(dataset).get("answeredQuestions")).doubleValue(),
+                ((Map<String, List<Double>>) stats.get("intervals")).get("answeredQuestions"));
+
+        Map<String, Object> solvability = service.analyzeSolvability(sample);
+        assertCovers((int) analysisService.analyzeSolvability(dataset).get("solvableCount"),
+                ((Map<String, List<Double>>) solvability.get("intervals")).get("solvableCount"));
+
+        Map<String, Object> pitfalls = service.analyzeMultithreadingPitfalls(sample, 8);
+        Map<String, Object> exactPitfalls = analysisService.analyzeMultithreadingPitfalls(dataset, 8);
+        assertCovers((int) exactPitfalls.get("totalMultithreadingQuestions"),
+                ((Map<String, List<Double>>) pitfalls.get("intervals")).get("totalMultithreadingQuestions"));
+    }
+
+    private static void assertCovers(double expected, List<Double> interval) {
+        assertTrue(interval.get(0) <= expected && expected <= interval.get(1), expected + " not in " + interval);
+    }
+
+    private static List<Question> questions(int count) {
+        Random random = new Random(7);
+        long now = System.currentTimeMillis() / 1000;
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String tag = TAGS[random.nextInt(TAGS.length)];
+            boolean answered = random.nextDouble() < (tag.equals("spring") ? 0.8 : 0.4);
+            questions.add(question(i + 1, "Question about " + tag + (random.nextBoolean() ? " deadlock" : ""),
+                    "<p>text</p>", List.of("java", tag), now - random.nextInt(6 * 365) * DAY,
+                    answered, null, random.nextInt(20) - 5, random.nextInt(1000), random.nextInt(5000),
+                    answer(random.nextBoolean() ? "<pre>x</pre>" : "<p>y</p>", random.nextInt(3) - 1)));
+        }
+        return questions;
+    }
+}
@@ -0,0 +1,51 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.CodeFeatures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeBlockScannerTest {
+
+    @Test
+    void countsPreAndInlineCodeOnce() {
+        CodeFeatures features = CodeBlockScanner.scan(
+                "<p>Use <code>map()</code>:</p><pre class=\"lang-java s-code-block\"><code>int x = 1;</code></pre>");
+
+        assertEquals(2, features.getBlockCount());
+        assertEquals("map()".length() + "int x = 1;".length(), features.getCodeLength());
+        assertEquals(List.of("java"), features.getLanguages());
+        assertFalse(features.hasBracePair());
+    }
+
+    @Test
+    void recognisesFencesAndBraces() {
+        CodeFeatures features = CodeBlockScanner.scan("Try\n```kotlin\nfun f() { }\n```\ndone");
+
+        assertEquals(1, features.getBlockCount());
+        assertEquals(List.of("kotlin"), features.getLanguages());
+        assertTrue(features.hasBracePair());
+    }
+
+    @Test
+    void plainTextHasNoCode() {
+        CodeFeatures features = CodeBlockScanner.scan("<p>A <preview> of } then {</p>");
+
+        assertFalse(features.hasCode());
+        assertFalse(features.hasBracePair());
+        assertSame(CodeFeatures.NONE, CodeBlockScanner.scan(null));
+    }
+
+    @Test
+    void hostileInputStaysLinear() {
+        String body = "{".repeat(200_000) + "<".repeat(200_000) + "<code".repeat(50_000);
+
+        long start = System.nanoTime();
+        CodeFeatures features = CodeBlockScanner.scan(body);
+
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        assertFalse(features.hasBracePair());
+    }
+}
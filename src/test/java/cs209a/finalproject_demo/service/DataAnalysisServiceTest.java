@@ -0,0 +1,137 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataAnalysisServiceTest {
+
+    private static final long DAY = 24 * 60 * 60;
+
+    private final DataAnalysisService service = new DataAnalysisService();
+
+    private final QuestionDataset dataset = service.index(List.of(
+            question(1, "Bean wiring", "<p>fails</p>", List.of("java", "spring-boot"), daysAgo(30),
+                    true, 11L, 5, 100, 50, answer("<p>use <code>@Autowired</code></p>", 2)),
+            question(2, "Deadlock in pool", "<p>two locks</p>", List.of("java", "multithreading"), daysAgo(60),
+                    false, null, 1, 10, 5),
+            question(3, "Wildcard bounds", "<p>List of T</p>", List.of("java", "generics"), 1330000000L,
+                    true, null, 3, 30, 100)));
+
+    @Test
+    void statistics() {
+        Map<String, Object> stats = service.analyzeStatistics(dataset);
+
+        assertEquals(3, stats.get("totalQuestions"));
+        assertEquals(1, stats.get("totalAnswers"));
+        assertEquals(3.0, stats.get("avgScore"));
+        assertEquals(2L, stats.get("answeredQuestions"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void topicTrendsOnlyCountQuestionsInRange() {
+        Map<String, Object> result = service.analyzeTopicTrends(dataset, 3);
+        Map<String, Map<String, Integer>> trends = (Map<String, Map<String, Integer>>) result.get("topicTrends");
+
+        assertEquals(2, result.get("totalQuestions"));
+        assertEquals(Map.of("spring", 1, "spring-boot", 1, "multithreading", 1, "thread", 1),
+                Map.of("spring", sum(trends.get("spring")), "spring-boot", sum(trends.get("spring-boot")),
+                        "multithreading", sum(trends.get("multithreading")), "thread", sum(trends.get("thread"))));
+        assertFalse(trends.containsKey("generics"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cooccurrenceRanksPairs() {
+        Map<String, Object> result = service.analyzeTopicCooccurrence(dataset, 1);
+        List<Map<String, Object>> pairs = (List<Map<String, Object>>) result.get("topPairs");
+
+        assertEquals(1, pairs.size());
+        assertEquals("multithreading & thread", pairs.get(0).get("topics"));
+        assertEquals(1, pairs.get(0).get("count"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pitfallsMatchWordPrefixes() {
+        Map<String, Object> result = service.analyzeMultithreadingPitfalls(dataset, 8);
+        List<Map<String, Object>> pitfalls = (List<Map<String, Object>>) result.get("topPitfalls");
+
+        assertEquals(1, result.get("totalMultithreadingQuestions"));
+        assertEquals(List.of("Deadlock", "Thread Synchronization"),
+                pitfalls.stream().map(p -> p.get("name")).toList());
+        assertEquals(List.of("Deadlock in pool"), pitfalls.get(0).get("examples"));
+        assertEquals("100.00%", pitfalls.get(0).get("percentage"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void solvabilityFactors() {
+        Map<String, Object> result = service.analyzeSolvability(dataset);
+        Map<String, Map<String, Object>> factors = (Map<String, Map<String, Object>>) result.get("factors");
+
+        assertEquals(2, result.get("solvableCount"));
+        assertEquals(1, result.get("hardToSolveCount"));
+        assertEquals("50.00%", factors.get("Answer Has Code Snippet").get("solvable"));
+        assertEquals("0.00%", factors.get("Answer Has Code Snippet").get("hardToSolve"));
+        assertEquals("75", factors.get("Owner Reputation").get("solvable"));
+        assertEquals("2.00", factors.get("Number of Tags").get("hardToSolve"));
+    }
+
+    @Test
+    void dashboardMatchesSeparateAnalyses() {
+        Map<String, Object> dashboard = service.analyzeDashboard(dataset,
+                DataAnalysisService.dashboardSections(null), 3, 10, 8);
+
+        assertEquals(DataAnalysisService.DASHBOARD_SECTIONS, List.copyOf(dashboard.keySet()));
+        assertEquals(service.analyzeStatistics(dataset), dashboard.get("stats"));
+        assertEquals(service.analyzeTopicTrends(dataset, 3), dashboard.get("trends"));
+        assertEquals(service.analyzeTopicCooccurrence(dataset, 10), dashboard.get("cooccurrence"));
+        assertEquals(service.analyzeMultithreadingPitfalls(dataset, 8), dashboard.get("pitfalls"));
+        assertEquals(service.analyzeSolvability(dataset), dashboard.get("solvability"));
+
+        assertEquals(List.of("pitfalls", "stats"), DataAnalysisService.dashboardSections("pitfalls, STATS,pitfalls"));
+        assertThrows(IllegalArgumentException.class, () -> DataAnalysisService.dashboardSections("stats,latency"));
+    }
+
+    private static int sum(Map<String, Integer> counts) {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static long daysAgo(int days) {
+        return System.currentTimeMillis() / 1000 - days * DAY;
+    }
+
+    static Question question(long id, String title, String body, List<String> tags, long created,
+                            boolean answered, Long acceptedAnswerId, int score, int views, int reputation,
+                            Answer... answers) {
+        Question question = new Question();
+        question.setQuestionId(id);
+        question.setTitle(title);
+        question.setBody(body);
+        question.setTags(tags);
+        question.setCreationDate(created);
+        question.setAnswered(answered);
+        question.setAcceptedAnswerId(acceptedAnswerId);
+        question.setScore(score);
+        question.setViewCount(views);
+        question.setOwnerReputation(reputation);
+        question.setAnswerCount(answers.length);
+        question.setAnswers(List.of(answers));
+        return question;
+    }
+
+    static Answer answer(String body, int score) {
+        Answer answer = new Answer();
+        answer.setBody(body);
+        answer.setScore(score);
+        return answer;
+    }
+}
@@ -0,0 +1,140 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.Question;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.answer;
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetHolderTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final ApproximateAnalysisService approximateService = new ApproximateAnalysisService(analysisService);
+    private final DataCollectionService collectionService = new DataCollectionService() {
+        @Override
+        public List<Question> loadData(String filename, Predicate<Question> keep, ProgressListener listener)
+                throws IOException {
+            loads.incrementAndGet();
+            try {
+                // Keep the load running while the other callers arrive
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.loadData(filename, keep, listener);
+        }
+    };
+    private final DatasetHolder holder = new DatasetHolder(collectionService, analysisService,
+            new RelatedQuestionService(), approximateService,
+            new StreamingAnalysisService(analysisService, approximateService), new QueryService());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        holder.setDataFile(writeData(5).getPath());
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<DatasetHolder.Snapshot>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return holder.get();
+                }));
+            }
+            start.countDown();
+            Set<DatasetHolder.Snapshot> snapshots = new HashSet<>();
+            for (Future<DatasetHolder.Snapshot> future : futures) {
+                snapshots.add(future.get());
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, snapshots.size());
+            assertEquals(5, snapshots.iterator().next().getQuestions().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reloadPublishesNewVersion() throws Exception {
+        File file = writeData(3);
+        holder.setDataFile(file.getPath());
+        DatasetHolder.Snapshot first = holder.get();
+        assertSame(first, holder.get());
+
+        new ObjectMapper().writeValue(file, questions(4));
+        DatasetHolder.Snapshot second = holder.reload();
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals(4, second.getDataset().size());
+        // Readers of the old snapshot keep their questions
+        assertEquals(3, first.getQuestions().size());
+        assertSame(second, holder.get());
+    }
+
+    @Test
+    void missingFileIsRetried() throws Exception {
+        File file = directory.resolve("missing.json").toFile();
+        holder.setDataFile(file.getPath());
+        assertTrue(holder.get().isEmpty());
+
+        new ObjectMapper().writeValue(file, questions(2));
+        assertEquals(2, holder.get().getQuestions().size());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void malformedArraysFailInsteadOfLoadingShort() throws Exception {
+        String valid = new ObjectMapper().writeValueAsString(questions(2));
+        String first = valid.substring(1, valid.indexOf("},{") + 1);
+        File file = directory.resolve("data.json").toFile();
+        StreamingAnalysisService streaming = new StreamingAnalysisService(analysisService, approximateService);
+
+        // A null element, and a collector write interrupted after a complete object
+        for (String json : List.of("[" + first + ",null," + first + "]", "[" + first + ",")) {
+            Files.writeString(file.toPath(), json);
+            assertThrows(IOException.class, () -> collectionService.loadData(file.getPath()), json);
+            assertThrows(IOException.class, () -> streaming.aggregate(file.getPath(), 3), json);
+        }
+        Files.writeString(file.toPath(), valid);
+        assertEquals(2, collectionService.loadData(file.getPath()).size());
+        assertEquals(2, streaming.aggregate(file.getPath(), 3).getQuestionCount());
+    }
+
+    private File writeData(int count) throws IOException {
+        File file = directory.resolve("data.json").toFile();
+        new ObjectMapper().writeValue(file, questions(count));
+        return file;
+    }
+
+    private static List<Question> questions(int count) {
+        long now = System.currentTimeMillis() / 1000;
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            questions.add(question(i + 1, "Question " + i, "<p>body " + i + "</p>", List.of("java", "spring"),
+                    now - i * 86400L, i % 2 == 0, null, i, 10 * i, 100, answer("<p>answer</p>", 1)));
+        }
+        return questions;
+    }
+}
@@ -0,0 +1,107 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.Question;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetRegistryTest {
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final ApproximateAnalysisService approximateService = new ApproximateAnalysisService(analysisService);
+    private final CountDownLatch bothLoading = new CountDownLatch(2);
+    private final DataCollectionService collectionService = new DataCollectionService() {
+        @Override
+        public List<Question> loadData(String filename, Predicate<Question> keep, ProgressListener listener)
+                throws IOException {
+            bothLoading.countDown();
+            try {
+                // Both loads only get past this if they run at the same time
+                if (!bothLoading.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Datasets were not loaded concurrently");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.loadData(filename, keep, listener);
+        }
+    };
+    private final StreamingAnalysisService streamingService = new StreamingAnalysisService(analysisService, approximateService);
+    private final DatasetHolder holder = new DatasetHolder(collectionService, analysisService,
+            new RelatedQuestionService(), approximateService, streamingService, new QueryService());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void datasetsLoadSideBySideAndReloadIndependently() throws Exception {
+        File spring = write("spring.json", 3, "spring");
+        File android = write("android.json", 5, "android");
+        DatasetRegistry registry = new DatasetRegistry(holder, "spring=" + spring + ", android=" + android);
+        JobService jobs = new JobService(collectionService, registry, streamingService, new SyntheticDataGenerator(), 1, 4);
+        try {
+            JobService.Job springLoad = jobs.startLoad("spring");
+            JobService.Job androidLoad = jobs.startLoad("android");
+            assertEquals("done", springLoad.getCompletion().get().getState());
+            assertEquals("done", androidLoad.getCompletion().get().getState());
+        } finally {
+            jobs.shutdown();
+        }
+
+        DatasetHolder.Snapshot springData = registry.get("spring").get();
+        DatasetHolder.Snapshot androidData = registry.get("android").get();
+        assertEquals(3, springData.getQuestions().size());
+        assertEquals(5, androidData.getQuestions().size());
+        assertNotEquals(springData.getVersion(), androidData.getVersion());
+        // Both corpora refer to the same interned "java" tag
+        assertEquals(springData.getQuestions().get(0).getTagIds()[0], androidData.getQuestions().get(0).getTagIds()[0]);
+
+        new ObjectMapper().writeValue(spring, questions(4, "spring"));
+        DatasetHolder.Snapshot reloaded = registry.get("spring").reload();
+        assertEquals(4, reloaded.getQuestions().size());
+        assertSame(androidData, registry.get("android").get());
+
+        Map<?, ?> described = (Map<?, ?>) registry.describe().get("spring");
+        assertEquals(reloaded.getVersion(), described.get("version"));
+        assertEquals(false, ((Map<?, ?>) registry.describe().get(DatasetRegistry.DEFAULT)).get("loaded"));
+    }
+
+    @Test
+    void rejectsUnknownAndMalformedDatasets() {
+        DatasetRegistry registry = new DatasetRegistry(holder, "");
+        assertSame(holder, registry.get(null));
+        assertSame(holder, registry.get(DatasetRegistry.DEFAULT));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("android"));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetRegistry(holder, "android"));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetRegistry(holder, "a=x.json,a=y.json"));
+    }
+
+    private File write(String name, int count, String tag) throws IOException {
+        File file = directory.resolve(name).toFile();
+        new ObjectMapper().writeValue(file, questions(count, tag));
+        return file;
+    }
+
+    private static List<Question> questions(int count, String tag) {
+        long now = System.currentTimeMillis() / 1000;
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            questions.add(question(i + 1, tag + " question " + i, "<p>body " + i + "</p>", List.of("java", tag),
+                    now - i * 86400L, true, null, i, 10 * i, 100));
+        }
+        return questions;
+    }
+}
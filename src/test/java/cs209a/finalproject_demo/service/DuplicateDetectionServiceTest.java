@@ -0,0 +1,75 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateDetectionServiceTest {
+
+    private static final String BODY = "<p>I start two threads that both call <code>synchronized</code> methods on "
+            + "the same object and after a while the whole application freezes without any exception. "
+            + "How can I find out which locks are held and fix the deadlock?</p>";
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final DuplicateDetectionService service = new DuplicateDetectionService(analysisService);
+
+    private final QuestionDataset dataset = analysisService.index(List.of(
+            question(1, "Application freezes with two threads", BODY, List.of("java", "multithreading"),
+                    2000L, true, null, 4, 40, 10),
+            question(2, "How to read a file line by line", "<p>Which reader should I use for large text files?</p>",
+                    List.of("java", "io"), 3000L, true, null, 1, 10, 10),
+            question(3, "Application freezes with two threads!", BODY.replace("<code>", "").replace("</code>", ""),
+                    List.of("java", "thread"), 1000L, false, null, 0, 5, 10)));
+
+    @Test
+    void identicalTextHasFullSimilarity() {
+        Question a = dataset.getQuestions().get(0);
+        int[] signature = MinHasher.signature(TopicMatcher.searchText(a));
+
+        assertEquals(MinHasher.SIGNATURE_LENGTH, signature.length);
+        assertEquals(1.0, MinHasher.similarity(signature, signature));
+        assertEquals(0, MinHasher.signature(new byte[0]).length);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void clustersNearDuplicatesWithEarliestAsOriginal() {
+        Map<String, Object> result = service.analyzeDuplicates(dataset, 0.8, 10);
+        List<Map<String, Object>> clusters = (List<Map<String, Object>>) result.get("clusters");
+
+        assertEquals(1, result.get("clusterCount"));
+        assertEquals(1, result.get("duplicateQuestions"));
+        assertEquals(3L, ((Map<String, Object>) clusters.get(0).get("original")).get("questionId"));
+        List<Map<String, Object>> duplicates = (List<Map<String, Object>>) clusters.get(0).get("duplicates");
+        assertEquals(1L, duplicates.get(0).get("questionId"));
+    }
+
+    @Test
+    void excludingDuplicatesKeepsOriginals() {
+        QuestionDataset deduplicated = service.withoutDuplicates(dataset);
+
+        assertEquals(List.of(2L, 3L), deduplicated.getQuestions().stream()
+                .map(Question::getQuestionId).sorted().toList());
+        assertSame(deduplicated, service.withoutDuplicates(dataset));
+    }
+
+    @Test
+    void thresholdsShareClustersAtTheSignatureResolution() {
+        DuplicateDetectionService.Clusters clusters = service.findClusters(dataset, 0.8);
+
+        // 0.8 and 0.80001 both need 103 of 128 positions to agree
+        assertSame(clusters, service.findClusters(dataset, 0.80001));
+        assertNotSame(clusters, service.findClusters(dataset, 0.81));
+        // Only a few thresholds are kept, the least recently used go first
+        for (int agreeing = 110; agreeing < 120; agreeing++) {
+            service.findClusters(dataset, agreeing / 128.0);
+        }
+        assertNotSame(clusters, service.findClusters(dataset, 0.8));
+    }
+}
@@ -0,0 +1,183 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.ExpertGraph;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpertRankingServiceTest {
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final ExpertRankingService service = new ExpertRankingService();
+
+    // User 10 answers the spring questions, user 13 the generics ones (one of them asked
+    // by 10); 11, 12 and 13 never ask, so they are dangling nodes for PageRank
+    private final QuestionDataset dataset = analysisService.index(List.of(
+            asked(1, 1, "spring", answeredBy(10, "Spring Expert"), answeredBy(11, null),
+                    answeredBy(1, null), answeredBy(0, "Anonymous")),
+            asked(2, 2, "spring", answeredBy(10, "Spring Expert")),
+            asked(3, 3, "spring", answeredBy(10, "Spring Expert"), answeredBy(12, null)),
+            asked(4, 4, "generics", answeredBy(13, "Generics Expert")),
+            asked(5, 5, "generics", answeredBy(13, "Generics Expert")),
+            asked(6, 6, "generics", answeredBy(13, "Generics Expert")),
+            asked(7, 10, "generics", answeredBy(13, "Generics Expert"))));
+
+    @Test
+    void graphSkipsSelfAnswersAndAnonymousUsers() {
+        ExpertGraph graph = ExpertGraph.build(dataset, row -> true);
+
+        assertEquals(10, graph.nodeCount());
+        assertEquals(9, graph.edgeCount());
+        assertEquals(2, graph.outDegree(node(graph, 1)));
+        assertEquals(0, graph.inDegree(node(graph, 1)));
+        assertEquals(3, graph.inDegree(node(graph, 10)));
+        assertEquals(1, graph.outDegree(node(graph, 10)));
+        assertEquals(4, graph.inDegree(node(graph, 13)));
+        assertEquals(0, graph.outDegree(node(graph, 13)));
+        assertEquals("Spring Expert", graph.displayName(node(graph, 10)));
+        assertEquals(-1, node(graph, 0));
+    }
+
+    @Test
+    void pageRankSumsToOneWithDanglingNodes() {
+        ExpertGraph graph = ExpertGraph.build(dataset, row -> true);
+        double[] pageRank = service.pageRank(graph);
+
+        assertEquals(1.0, Arrays.stream(pageRank).sum(), 1e-9);
+        assertTrue(pageRank[node(graph, 13)] > pageRank[node(graph, 10)]);
+        assertEquals(0, service.pageRank(ExpertGraph.build(dataset, row -> false)).length);
+    }
+
+    @Test
+    void authorityRanksTheBusiestAnswererFirst() {
+        ExpertGraph graph = ExpertGraph.build(dataset, row -> true);
+        double[][] hits = service.hits(graph);
+        double[] authority = hits[0];
+
+        assertEquals(1.0, Math.sqrt(Arrays.stream(authority).map(a -> a * a).sum()), 1e-9);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            if (node != node(graph, 13)) {
+                assertTrue(authority[node(graph, 13)] > authority[node]);
+            }
+        }
+        // Askers that only ask have no authority
+        assertEquals(0.0, authority[node(graph, 4)]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void topicRestrictsTheGraph() {
+        Map<String, Object> result = service.rankExperts(dataset, "spring", 10, "pagerank");
+
+        assertEquals("spring", result.get("topic"));
+        assertEquals(6, result.get("users"));
+        assertEquals(5, result.get("edges"));
+        List<Map<String, Object>> experts = (List<Map<String, Object>>) result.get("topExperts");
+        // Only users that answered are ranked, and 13 answered no spring question
+        assertEquals(List.of(10L, 11L, 12L), experts.stream().map(e -> e.get("userId")).sorted().toList());
+        assertEquals(10L, experts.get(0).get("userId"));
+        assertEquals(3, experts.get(0).get("answers"));
+        assertEquals("Spring Expert", experts.get(0).get("displayName"));
+
+        assertEquals(10, service.rankExperts(dataset, null, 10, "pagerank").get("users"));
+        assertThrows(IllegalArgumentException.class, () -> service.rankExperts(dataset, "cobol", 10, "pagerank"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expertsAreSortedByTheRequestedScore() {
+        for (String sortBy : List.of("pagerank", "authority")) {
+            Map<String, Object> result = service.rankExperts(dataset, null, 3, sortBy);
+            List<Map<String, Object>> experts = (List<Map<String, Object>>) result.get("topExperts");
+            String score = sortBy.equals("authority") ? "authority" : "pageRank";
+
+            assertEquals(3, experts.size());
+            assertEquals(13L, experts.get(0).get("userId"));
+            for (int i = 1; i < experts.size(); i++) {
+                assertTrue((double) experts.get(i - 1).get(score) >= (double) experts.get(i).get(score));
+            }
+        }
+        // sortBy ignores case, and topN cuts the list
+        List<Map<String, Object>> byAuthority = (List<Map<String, Object>>)
+                service.rankExperts(dataset, "spring", 1, "AUTHORITY").get("topExperts");
+        assertEquals(1, byAuthority.size());
+        assertEquals(10L, byAuthority.get(0).get("userId"));
+    }
+
+    @Test
+    void concurrentCallersShareOneRanking() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExpertRankingService counting = new ExpertRankingService() {
+            @Override
+            Ranking rank(ExpertGraph graph) {
+                builds.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.rank(graph);
+            }
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<String, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> counting.rankExperts(dataset, "spring", 3, "pagerank")));
+            }
+            // Let every caller reach the ranking before it is built
+            Thread.sleep(300);
+            release.countDown();
+
+            for (Future<Map<String, Object>> result : results) {
+                assertEquals(results.get(0).get(), result.get());
+            }
+            assertEquals(1, builds.get());
+        } finally {
+            pool.shutdownNow();
+        }
+        counting.rankExperts(dataset, "spring", 3, "authority");
+        assertEquals(1, builds.get());
+    }
+
+    private static Question asked(long id, long askerId, String tag, Answer... answers) {
+        Question question = question(id, "Question " + id, "<p>body</p>", List.of("java", tag),
+                1_600_000_000L + id, true, null, 0, 0, 0, answers);
+        question.setOwnerId(askerId);
+        return question;
+    }
+
+    private static Answer answeredBy(long ownerId, String displayName) {
+        Answer answer = DataAnalysisServiceTest.answer("<p>answer</p>", 1);
+        answer.setOwnerId(ownerId);
+        if (displayName != null) {
+            answer.setOwnerDisplayName(displayName);
+        }
+        return answer;
+    }
+
+    private static int node(ExpertGraph graph, long userId) {
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            if (graph.userId(node) == userId) {
+                return node;
+            }
+        }
+        return -1;
+    }
+}
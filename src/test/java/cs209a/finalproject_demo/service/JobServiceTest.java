@@ -0,0 +1,267 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final ApproximateAnalysisService approximateService = new ApproximateAnalysisService(analysisService);
+    private final DataCollectionService collectionService = new DataCollectionService() {
+        @Override
+        public List<Question> loadData(String filename, Predicate<Question> keep, ProgressListener listener)
+                throws IOException {
+            try {
+                // Hold the load until the test has looked at the running job
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.loadData(filename, keep, listener);
+        }
+    };
+    private final StreamingAnalysisService streamingService = new StreamingAnalysisService(analysisService, approximateService);
+    private final DatasetHolder holder = new DatasetHolder(collectionService, analysisService,
+            new RelatedQuestionService(), approximateService, streamingService, new QueryService());
+    private final JobService service = new JobService(collectionService, new DatasetRegistry(holder, ""), streamingService, new SyntheticDataGenerator(), 2, 16);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loadRunsInBackgroundAndReportsProgress() throws Exception {
+        File file = directory.resolve("data.json").toFile();
+        new ObjectMapper().writeValue(file, questions(2500));
+        holder.setDataFile(file.getPath());
+        streamingService.setStorage("memory");
+
+        JobService.Job job = service.startLoad(null);
+        assertFalse(job.isFinished());
+        // A second request joins the running load
+        assertSame(job, service.startLoad(null));
+        release.countDown();
+
+        Map<String, Object> progress = await(job);
+        assertEquals("done", progress.get("state"));
+        assertEquals(2500L, progress.get("records"));
+        assertEquals(file.length(), progress.get("bytesRead"));
+        assertEquals(0.0, progress.get("etaSeconds"));
+        assertEquals(2500, ((Map<String, Object>) progress.get("result")).get("collected"));
+        assertEquals(2500, holder.get().getQuestions().size());
+        assertSame(job, service.getJob(job.getId()));
+    }
+
+    @Test
+    void missingDataFailsTheJob() throws Exception {
+        holder.setDataFile(directory.resolve("missing.json").toString());
+        streamingService.setStorage("memory");
+        release.countDown();
+
+        Map<String, Object> progress = await(service.startLoad(null));
+        assertEquals("failed", progress.get("state"));
+        assertTrue(((String) progress.get("error")).startsWith("No data found"));
+        // The next request starts a new job
+        assertNotEquals(progress.get("id"), service.startLoad(null).getId());
+    }
+
+    @Test
+    void analysesRunByPriorityAndShareIdenticalJobs() throws Exception {
+        JobService single = new JobService(collectionService, new DatasetRegistry(holder, ""), streamingService, new SyntheticDataGenerator(), 1, 16);
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            List<String> order = new CopyOnWriteArrayList<>();
+            single.submitAnalysis("block", "block", JobService.PRIORITY_NORMAL, 10_000, () -> {
+                blocker.await();
+                return Map.of();
+            });
+            JobService.Job low = single.submitAnalysis("low", "low", JobService.PRIORITY_LOW, 10_000,
+                    () -> record(order, "low"));
+            JobService.Job high = single.submitAnalysis("high", "high", JobService.PRIORITY_HIGH, 10_000,
+                    () -> record(order, "high"));
+            // Same key: joins the queued job instead of queueing the work twice
+            assertSame(high, single.submitAnalysis("high", "high", JobService.PRIORITY_LOW, 10_000,
+                    () -> record(order, "duplicate")));
+
+            blocker.countDown();
+            await(low);
+            await(high);
+            assertEquals(List.of("high", "low"), order);
+            assertEquals(Map.of("ran", "high"), high.getResult());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void cancelledAndExpiredJobsAreDropped() throws Exception {
+        JobService single = new JobService(collectionService, new DatasetRegistry(holder, ""), streamingService, new SyntheticDataGenerator(), 1, 2);
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            JobService.Job running = single.submitAnalysis("block", "block", JobService.PRIORITY_NORMAL, 10_000, () -> {
+                blocker.await();
+                return Map.of();
+            });
+            // Off the queue before filling it
+            for (int i = 0; i < 500 && !"running".equals(running.getState()); i++) {
+                Thread.sleep(10);
+            }
+            List<String> order = new CopyOnWriteArrayList<>();
+            JobService.Job shared = single.submitAnalysis("a", "a", JobService.PRIORITY_NORMAL, 10_000,
+                    () -> record(order, "a"));
+            assertSame(shared, single.submitAnalysis("a", "a", JobService.PRIORITY_NORMAL, 10_000,
+                    () -> record(order, "a")));
+            JobService.Job expiring = single.submitAnalysis("b", "b", JobService.PRIORITY_NORMAL, 1,
+                    () -> record(order, "b"));
+            // Two jobs queued: the queue is full
+            assertThrows(RejectedExecutionException.class, () -> single.submitAnalysis("c", "c",
+                    JobService.PRIORITY_HIGH, 10_000, () -> record(order, "c")));
+
+            // One of two submitters cancelling leaves the job queued
+            assertTrue(single.cancel(shared));
+            assertFalse(shared.isFinished());
+            assertTrue(single.cancel(shared));
+            assertEquals("cancelled", shared.getState());
+            assertEquals(409, shared.getStatus());
+
+            Map<String, Object> expired = await(expiring);
+            assertEquals("cancelled", expired.get("state"));
+            assertEquals("Deadline exceeded", expired.get("error"));
+
+            blocker.countDown();
+            assertEquals("done", await(running).get("state"));
+            assertTrue(order.isEmpty());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void cancelledQueuedJobsFreeTheirQueueSlots() throws Exception {
+        JobService single = new JobService(collectionService, new DatasetRegistry(holder, ""), streamingService, new SyntheticDataGenerator(), 1, 2);
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            JobService.Job running = single.submitAnalysis("block", "block", JobService.PRIORITY_NORMAL, 10_000, () -> {
+                blocker.await();
+                return Map.of();
+            });
+            for (int i = 0; i < 500 && !"running".equals(running.getState()); i++) {
+                Thread.sleep(10);
+            }
+            List<String> order = new CopyOnWriteArrayList<>();
+            JobService.Job cancelled = single.submitAnalysis("a", "a", JobService.PRIORITY_NORMAL, 10_000,
+                    () -> record(order, "a"));
+            JobService.Job expiring = single.submitAnalysis("b", "b", JobService.PRIORITY_NORMAL, 1,
+                    () -> record(order, "b"));
+            assertThrows(RejectedExecutionException.class, () -> single.submitAnalysis("c", "c",
+                    JobService.PRIORITY_NORMAL, 10_000, () -> record(order, "c")));
+
+            assertTrue(single.cancel(cancelled));
+            assertEquals("Deadline exceeded", await(expiring).get("error"));
+            // Both slots are free again while the worker is still busy
+            JobService.Job first = single.submitAnalysis("c", "c", JobService.PRIORITY_NORMAL, 10_000,
+                    () -> record(order, "c"));
+            JobService.Job second = single.submitAnalysis("d", "d", JobService.PRIORITY_NORMAL, 10_000,
+                    () -> record(order, "d"));
+            assertEquals("running", running.getState());
+
+            blocker.countDown();
+            assertEquals("done", await(first).get("state"));
+            assertEquals("done", await(second).get("state"));
+            assertEquals(List.of("c", "d"), order);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void cancelledAnalysisFreesItsWorker() throws Exception {
+        JobService single = new JobService(collectionService, new DatasetRegistry(holder, ""), streamingService, new SyntheticDataGenerator(), 1, 4);
+        try {
+            QuestionDataset dataset = analysisService.index(questions(5000));
+            // Never finishes on its own and never looks at interrupts: only the
+            // cancellation check inside aggregate() can stop it
+            JobService.Job endless = single.submitAnalysis("endless", "endless", JobService.PRIORITY_NORMAL, 10_000, () -> {
+                while (true) {
+                    analysisService.aggregate(dataset, 3);
+                }
+            });
+            JobService.Job overdue = single.submitAnalysis("overdue", "overdue", JobService.PRIORITY_NORMAL, 300, () -> {
+                while (true) {
+                    analysisService.aggregate(dataset, 3);
+                }
+            });
+            JobService.Job next = single.submitAnalysis("next", "next", JobService.PRIORITY_NORMAL, 10_000,
+                    () -> Map.of("interrupted", Thread.currentThread().isInterrupted()));
+            for (int i = 0; i < 500 && !"running".equals(endless.getState()); i++) {
+                Thread.sleep(10);
+            }
+
+            assertTrue(single.cancel(endless));
+            assertEquals("cancelled", await(endless).get("state"));
+            assertEquals("Deadline exceeded", await(overdue).get("error"));
+            assertEquals("done", await(next).get("state"));
+            assertEquals(Map.of("interrupted", false), next.getResult());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void failedAnalysisKeepsItsStatus() throws Exception {
+        JobService.Job job = service.submitAnalysis("bad", "bad", JobService.PRIORITY_NORMAL, 10_000, () -> {
+            throw new JobService.JobFailedException(400, "topN must be positive");
+        });
+        Map<String, Object> progress = await(job);
+        assertEquals("failed", progress.get("state"));
+        assertEquals(400, job.getStatus());
+        assertEquals("topN must be positive", job.getError());
+        assertFalse(service.cancel(service.startLoad(null)));
+    }
+
+    private static Map<String, Object> record(List<String> order, String name) {
+        order.add(name);
+        return Map.of("ran", name);
+    }
+
+    private static Map<String, Object> await(JobService.Job job) throws InterruptedException {
+        for (int i = 0; i < 500 && !job.isFinished(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished());
+        return job.describe();
+    }
+
+    private static List<Question> questions(int count) {
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            questions.add(question(i + 1, "Question " + i, "<p>body</p>", List.of("java"), 1_600_000_000L + i,
+                    false, null, 0, 0, 0));
+        }
+        return questions;
+    }
+}
@@ -0,0 +1,175 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryServiceTest {
+
+    private static final List<String> TAGS = List.of("java", "spring", "generics", "multithreading", "jvm", "maven");
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final QueryService service = new QueryService();
+    private final List<Question> questions = questions(5000);
+    private final QuestionDataset dataset = analysisService.index(questions);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void everyAccessPathAgreesWithAFilteredScan() {
+        // Tags alone use the postings, a narrow date range the time order, neither a scan
+        assertPlan("tagPostings", "jvm,maven", null, null, 2, null);
+        assertPlan("timeRange", "java", "2021-03-01", "2021-03-31", null, null);
+        assertPlan("scan", null, null, null, 5, true);
+        assertPlan("timeRange", null, "2019-01-01", "2020-12-31", -3, false);
+
+        QueryService.Query query = new QueryService.Query();
+        query.setTags("nosuchtag");
+        assertEquals(0, service.query(dataset, query).get("matched"));
+        assertEquals(0, ((List<Object>) service.query(dataset, query).get("groups")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void groupsAndMetrics() {
+        QueryService.Query query = new QueryService.Query();
+        query.setTags("spring");
+        query.setGroupBy("year");
+        query.setMetrics("count,sum(score),avg(views),min(score),max(score),p50(views),p100(views)");
+        Map<String, Object> result = service.query(dataset, query);
+        List<Map<String, Object>> groups = (List<Map<String, Object>>) result.get("groups");
+
+        long total = 0;
+        for (Map<String, Object> group : groups) {
+            int year = (Integer) group.get("key");
+            List<Question> members = questions.stream()
+                    .filter(question -> question.getTags().contains("spring") && year(question) == year)
+                    .toList();
+            List<Integer> views = members.stream().map(Question::getViewCount).sorted().toList();
+            assertEquals((long) members.size(), group.get("count"));
+            assertEquals(members.stream().mapToLong(Question::getScore).sum(), group.get("sum(score)"));
+            assertEquals(members.stream().mapToInt(Question::getScore).min().getAsInt(), group.get("min(score)"));
+            assertEquals(members.stream().mapToInt(Question::getScore).max().getAsInt(), group.get("max(score)"));
+            assertEquals(views.get((views.size() + 1) / 2 - 1), group.get("p50(views)"));
+            assertEquals(views.get(views.size() - 1), group.get("p100(views)"));
+            assertEquals(Math.round(views.stream().mapToLong(Integer::longValue).sum() * 100.0 / views.size()) / 100.0,
+                    group.get("avg(views)"));
+            total += members.size();
+        }
+        assertEquals(total, ((Integer) result.get("matched")).longValue());
+
+        query.setGroupBy("tag");
+        query.setMetrics("count");
+        query.setLimit(2);
+        groups = (List<Map<String, Object>>) service.query(dataset, query).get("groups");
+        // Every question is tagged java, so java ties with spring ahead of the rest
+        assertEquals(List.of("java", "spring"), groups.stream().map(group -> group.get("key")).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void nullAndRepeatedTagsAreCountedOnce() {
+        Question nullTag = new Question();
+        nullTag.setQuestionId(1);
+        nullTag.setTags(Arrays.asList("java", null));
+        Question repeated = new Question();
+        repeated.setQuestionId(2);
+        repeated.setTags(List.of("java", "spring", "spring"));
+        QuestionDataset odd = analysisService.index(List.of(nullTag, repeated));
+        // Indexing a null tag used to fail the whole load
+        service.buildIndex(odd);
+
+        QueryService.Query query = new QueryService.Query();
+        query.setTags("spring");
+        query.setGroupBy("tag");
+        Map<String, Object> result = service.query(odd, query);
+        assertEquals("tagPostings", ((Map<?, ?>) result.get("plan")).get("access"));
+        assertEquals(1, result.get("matched"));
+        assertEquals(List.of(Map.of("key", "java", "count", 1L), Map.of("key", "spring", "count", 1L)),
+                result.get("groups"));
+
+        // The scan groups tags the same way
+        QueryService.Query scan = new QueryService.Query();
+        scan.setAnswered(false);
+        scan.setGroupBy("tag");
+        result = service.query(odd, scan);
+        assertEquals("scan", ((Map<?, ?>) result.get("plan")).get("access"));
+        List<Map<String, Object>> groups = (List<Map<String, Object>>) result.get("groups");
+        assertEquals(List.of(Map.of("key", "java", "count", 2L), Map.of("key", "spring", "count", 1L)), groups);
+    }
+
+    @Test
+    void rejectsUnknownNames() {
+        QueryService.Query query = new QueryService.Query();
+        assertThrows(IllegalArgumentException.class, () -> query.setGroupBy("weekday"));
+        assertThrows(IllegalArgumentException.class, () -> query.setMetrics("avg(title)"));
+        assertThrows(IllegalArgumentException.class, () -> query.setTopics("cobol"));
+        assertThrows(IllegalArgumentException.class, () -> query.setFrom("last week"));
+    }
+
+    private void assertPlan(String access, String tags, String from, String to, Integer minScore, Boolean answered) {
+        QueryService.Query query = new QueryService.Query();
+        query.setTags(tags);
+        query.setFrom(from);
+        query.setTo(to);
+        query.setScore(minScore, null);
+        query.setAnswered(answered);
+        Map<String, Object> result = service.query(dataset, query);
+
+        long fromSecond = from != null ? epochSecond(LocalDate.parse(from)) : Long.MIN_VALUE;
+        long toSecond = to != null ? epochSecond(LocalDate.parse(to).plusDays(1)) : Long.MAX_VALUE;
+        long expected = questions.stream()
+                .filter(question -> tags == null || question.getTags().containsAll(List.of(tags.split(","))))
+                .filter(question -> question.getCreationDate() >= fromSecond && question.getCreationDate() < toSecond)
+                .filter(question -> minScore == null || question.getScore() >= minScore)
+                .filter(question -> answered == null || question.isAnswered() == answered)
+                .count();
+        assertEquals(access, ((Map<?, ?>) result.get("plan")).get("access"));
+        assertEquals(expected, ((Integer) result.get("matched")).longValue());
+    }
+
+    private static int year(Question question) {
+        return LocalDate.ofInstant(Instant.ofEpochSecond(question.getCreationDate()), ZoneId.systemDefault())
+                .getYear();
+    }
+
+    private static long epochSecond(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static List<Question> questions(int count) {
+        Random random = new Random(42);
+        long start = epochSecond(LocalDate.of(2018, 1, 1));
+        long end = epochSecond(LocalDate.of(2024, 1, 1));
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Question question = new Question();
+            question.setQuestionId(i + 1);
+            question.setTitle("Question " + i);
+            question.setBody("<p>body</p>");
+            List<String> tags = new ArrayList<>();
+            for (String tag : TAGS) {
+                if (tag.equals("java") || random.nextInt(4) == 0) {
+                    tags.add(tag);
+                }
+            }
+            question.setTags(tags);
+            question.setCreationDate(start + (long) (random.nextDouble() * (end - start)));
+            question.setScore(random.nextInt(20) - 5);
+            question.setViewCount(random.nextInt(10_000));
+            question.setAnswered(random.nextBoolean());
+            questions.add(question);
+        }
+        return questions;
+    }
+}
@@ -0,0 +1,76 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.answer;
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionExportServiceTest {
+
+    private final QuestionExportService service = new QuestionExportService();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Question> questions = List.of(
+            question(1, "First", "<p>one</p>", List.of("java"), 1_600_000_000L, true, null, 3, 10, 100,
+                    answer("<p>a</p>", 1)),
+            question(2, "Second", "<p>two</p>", List.of("java", "spring"), 1_600_000_100L, false, null, 5, 20, 200),
+            question(3, "Third", "<p>three</p>", List.of("java"), 1_600_000_200L, true, null, 7, 30, 300));
+
+    @Test
+    void projectionKeepsOnlyRequestedFields() throws Exception {
+        Set<String> fields = service.fields("question_id, title,score");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeJson(out, questions, 1, 3, fields);
+
+        JsonNode page = objectMapper.readTree(out.toByteArray());
+        assertEquals(2, page.size());
+        assertEquals(Set.of("question_id", "title", "score"), Set.copyOf(fieldNames(page.get(0))));
+        assertEquals("Second", page.get(0).get("title").asText());
+        assertEquals(7, page.get(1).get("score").asInt());
+
+        assertTrue(service.getFieldNames().contains("answers_data"));
+        assertFalse(service.getFieldNames().contains("searchText"));
+        assertThrows(IllegalArgumentException.class, () -> service.fields("title,searchText"));
+    }
+
+    @Test
+    void ndjsonWritesOneQuestionPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeNdjson(out, questions, 0, 3, null);
+
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("}\n"));
+        String[] lines = text.split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Question question = objectMapper.readValue(lines[i], Question.class);
+            assertEquals(questions.get(i).getQuestionId(), question.getQuestionId());
+            assertEquals(questions.get(i).getBody(), question.getBody());
+        }
+        assertEquals(1, objectMapper.readValue(lines[0], Question.class).getAnswers().size());
+    }
+
+    @Test
+    void cursorsCarryTheDatasetVersion() {
+        String cursor = service.cursor(4, 250);
+        assertEquals(250, service.row(cursor, 4));
+        assertThrows(IllegalStateException.class, () -> service.row(cursor, 5));
+        assertThrows(IllegalArgumentException.class, () -> service.row("not a cursor", 4));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,90 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.model.TfIdfIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelatedQuestionServiceTest {
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final RelatedQuestionService service = new RelatedQuestionService();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ranksQuestionsSharingRareTermsFirst() {
+        QuestionDataset dataset = analysisService.index(List.of(
+                question(1, "HashMap iteration order", "<p>Why is my HashMap iteration order random?</p>",
+                        List.of("java", "collections"), 1000L, true, null, 1, 10, 1),
+                question(2, "LinkedHashMap keeps iteration order", "<p>Does LinkedHashMap keep insertion order?</p>",
+                        List.of("java", "collections"), 1000L, true, null, 1, 10, 1),
+                question(3, "Socket timeout", "<p>My socket read blocks forever</p>",
+                        List.of("java", "socket"), 1000L, true, null, 1, 10, 1),
+                question(4, "HashMap order random", "<p>iteration of a HashMap is random</p>",
+                        List.of("java", "collections"), 1000L, true, null, 1, 10, 1)));
+
+        Map<String, Object> result = service.findRelated(dataset, 1, 2);
+        List<Map<String, Object>> related = (List<Map<String, Object>>) result.get("related");
+
+        assertEquals(List.of(4L, 2L), related.stream().map(r -> r.get("questionId")).toList());
+        assertTrue((double) related.get(0).get("similarity") > (double) related.get(1).get("similarity"));
+        assertNull(service.findRelated(dataset, 99, 2));
+    }
+
+    @Test
+    void maxScoreMatchesBruteForce() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[200];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "word" + i;
+        }
+        List<Question> questions = new ArrayList<>();
+        for (int id = 1; id <= 400; id++) {
+            StringBuilder body = new StringBuilder();
+            int words = 5 + random.nextInt(30);
+            for (int w = 0; w < words; w++) {
+                // Skewed towards low indexes, like real term frequencies
+                int index = (int) (vocabulary.length * Math.pow(random.nextDouble(), 3));
+                body.append(vocabulary[index]).append(' ');
+            }
+            questions.add(question(id, "", body.toString(), List.of("java"), 1000L, true, null, 0, 0, 1));
+        }
+        QuestionDataset dataset = analysisService.index(questions);
+
+        TfIdfIndex index = RelatedQuestionService.buildTfIdf(dataset);
+        for (int doc = 0; doc < 50; doc++) {
+            RelatedQuestionService.Neighbours neighbours = RelatedQuestionService.search(index, doc, 10);
+            double[] expected = bruteForce(index, doc);
+            assertEquals(10, neighbours.scores.length);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected[i], neighbours.scores[i], 1e-5, "doc " + doc + " rank " + i);
+            }
+        }
+    }
+
+    // Similarities of doc with every other document, descending
+    private static double[] bruteForce(TfIdfIndex index, int doc) {
+        int[] offsets = index.docOffsets();
+        Map<Integer, Float> query = new HashMap<>();
+        for (int i = offsets[doc]; i < offsets[doc + 1]; i++) {
+            query.put(index.docTerms()[i], index.docWeights()[i]);
+        }
+        List<Double> scores = new ArrayList<>();
+        for (int other = 0; other < index.docCount(); other++) {
+            if (other == doc) {
+                continue;
+            }
+            double score = 0;
+            for (int i = offsets[other]; i < offsets[other + 1]; i++) {
+                score += query.getOrDefault(index.docTerms()[i], 0f) * index.docWeights()[i];
+            }
+            scores.add(score);
+        }
+        return scores.stream().sorted(Comparator.reverseOrder()).mapToDouble(Double::doubleValue).toArray();
+    }
+}
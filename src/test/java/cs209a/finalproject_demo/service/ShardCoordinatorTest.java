@@ -0,0 +1,133 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import cs209a.finalproject_demo.model.PartialAggregate;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.Shard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.answer;
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardCoordinatorTest {
+
+    private static final List<String> TAGS = List.of("java", "generics", "multithreading", "concurrency", "spring",
+            "lambda", "stream", "junit");
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Question> questions = questions(600);
+    private final List<HttpServer> workers = new ArrayList<>();
+
+    @AfterEach
+    void stopWorkers() {
+        workers.forEach(worker -> worker.stop(0));
+    }
+
+    @Test
+    void mergedShardsMatchTheWholeDataset() throws IOException {
+        for (Shard.By by : Shard.By.values()) {
+            // Workers listed out of shard order, merged in shard order all the same
+            String urls = startWorkers(new Shard(2, 3, by), new Shard(0, 3, by), new Shard(1, 3, by));
+            long[] window = analysisService.trendWindow(3);
+
+            PartialAggregate merged = new ShardCoordinator(urls, 5000).aggregate(null, window);
+            PartialAggregate whole = analysisService.aggregate(analysisService.index(questions), window);
+
+            assertEquals(whole.getQuestionCount(), merged.getQuestionCount());
+            assertEquals(analysisService.analyzeStatistics(whole), analysisService.analyzeStatistics(merged));
+            assertEquals(analysisService.analyzeSolvability(whole), analysisService.analyzeSolvability(merged));
+            assertEquals(analysisService.analyzeTopicCooccurrence(whole, 5),
+                    analysisService.analyzeTopicCooccurrence(merged, 5));
+            assertEquals(analysisService.analyzeTopicTrends(whole, 3), analysisService.analyzeTopicTrends(merged, 3));
+            assertArrayEquals(whole.getPitfallCounts(), merged.getPitfallCounts());
+            stopWorkers();
+            workers.clear();
+        }
+    }
+
+    @Test
+    void rejectsShardsThatDoNotAddUp() {
+        // Two workers holding the same shard would count its questions twice and miss the other
+        String urls = startWorkers(new Shard(0, 2, Shard.By.HASH), new Shard(0, 2, Shard.By.HASH));
+        ShardCoordinator coordinator = new ShardCoordinator(urls, 5000);
+        IOException e = assertThrows(IOException.class,
+                () -> coordinator.aggregate(null, analysisService.trendWindow(3)));
+        assertTrue(e.getMessage().contains("distinct shards"));
+
+        // Distinct indexes, but a hash shard and a year shard overlap and leave gaps
+        ShardCoordinator mixed = new ShardCoordinator(
+                startWorkers(new Shard(0, 2, Shard.By.HASH), new Shard(1, 2, Shard.By.YEAR)), 5000);
+        e = assertThrows(IOException.class, () -> mixed.aggregate(null, analysisService.trendWindow(3)));
+        assertTrue(e.getMessage().contains("analysis.shard-by"));
+
+        assertFalse(new ShardCoordinator("", 5000).isEnabled());
+        assertThrows(IllegalArgumentException.class, () -> new ShardCoordinator("localhost:8081", 5000));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("3/3", "hash"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("0/2", "month"));
+        assertSame(Shard.ALL, Shard.parse("", "hash"));
+    }
+
+    // Serves /api/partial the way a worker holding the shard does
+    private String startWorkers(Shard... shards) {
+        List<String> urls = new ArrayList<>();
+        for (Shard shard : shards) {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+                server.createContext("/api/partial", exchange -> {
+                    Map<String, String> params = List.of(exchange.getRequestURI().getQuery().split("&")).stream()
+                            .map(param -> param.split("=", 2))
+                            .collect(Collectors.toMap(param -> param[0], param -> param[1]));
+                    long[] window = {Long.parseLong(params.get("trendStart")), Long.parseLong(params.get("trendEnd"))};
+                    List<Question> mine = questions.stream().filter(shard::contains).toList();
+                    PartialAggregate partial = analysisService.aggregate(analysisService.index(mine), window);
+                    byte[] body = objectMapper.writeValueAsBytes(Map.of("shard", shard, "partial", partial));
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.start();
+                workers.add(server);
+                urls.add("http://127.0.0.1:" + server.getAddress().getPort());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return String.join(",", urls);
+    }
+
+    private static List<Question> questions(int count) {
+        Random random = new Random(7);
+        long now = System.currentTimeMillis() / 1000;
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<String> tags = new ArrayList<>(List.of("java"));
+            for (String tag : TAGS.subList(1, TAGS.size())) {
+                if (random.nextInt(3) == 0) {
+                    tags.add(tag);
+                }
+            }
+            String body = random.nextBoolean() ? "<p>a race condition and a deadlock</p>" : "<p>plain body</p>";
+            boolean answered = random.nextBoolean();
+            questions.add(question(i + 1, "Question " + i, body, tags,
+                    now - (long) (random.nextDouble() * 6 * 365 * 86400), answered, answered ? (long) i : null,
+                    random.nextInt(30) - 5, random.nextInt(5000), random.nextInt(20_000),
+                    answer(random.nextBoolean() ? "<pre><code>x()</code></pre>" : "<p>no code</p>", 1)));
+        }
+        return questions;
+    }
+}
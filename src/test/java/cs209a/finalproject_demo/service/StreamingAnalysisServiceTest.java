@@ -0,0 +1,220 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.PartialAggregate;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionDataset;
+import cs209a.finalproject_demo.model.StringDictionary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.answer;
+import static cs209a.finalproject_demo.service.DataAnalysisServiceTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAnalysisServiceTest {
+
+    private static final long DAY = 24 * 60 * 60;
+
+    private final DataAnalysisService analysisService = new DataAnalysisService();
+    private final StreamingAnalysisService service = new StreamingAnalysisService(analysisService,
+            new ApproximateAnalysisService(analysisService));
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamingPassMatchesInMemoryAnalyses() throws Exception {
+        List<Question> questions = questions();
+        File file = directory.resolve("data.json").toFile();
+        objectMapper.writeValue(file, questions);
+        // Several chunks, the last one partial
+        service.setChunkSize(3);
+
+        PartialAggregate partial = service.aggregate(file.getPath(), 3);
+        QuestionDataset dataset = analysisService.index(objectMapper.readValue(file,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Question.class)));
+
+        assertEquals(analysisService.analyzeStatistics(dataset), analysisService.analyzeStatistics(partial));
+        assertEquals(analysisService.analyzeTopicTrends(dataset, 3), analysisService.analyzeTopicTrends(partial, 3));
+        assertEquals(analysisService.analyzeTopicCooccurrence(dataset, 10),
+                analysisService.analyzeTopicCooccurrence(partial, 10));
+        assertEquals(analysisService.analyzeMultithreadingPitfalls(dataset, 8),
+                analysisService.analyzeMultithreadingPitfalls(partial, 8));
+        assertEquals(analysisService.analyzeSolvability(dataset), analysisService.analyzeSolvability(partial));
+        assertSame(partial, service.aggregate(file.getPath(), 3));
+    }
+
+    @Test
+    void concurrentRequestsShareOnePass() throws Exception {
+        File file = directory.resolve("data.json").toFile();
+        objectMapper.writeValue(file, questions());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger passes = new AtomicInteger();
+        StreamingAnalysisService counting = counting(passes, release);
+
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> counting.aggregate(file.getPath(), 3)));
+            }
+            for (int i = 0; i < 2; i++) {
+                results.add(pool.submit(() -> counting.sample(file.getPath())));
+            }
+            // Let every request reach the pass before it finishes
+            Thread.sleep(300);
+            release.countDown();
+
+            Object partial = results.get(0).get();
+            for (int i = 1; i < 4; i++) {
+                assertSame(partial, results.get(i).get());
+            }
+            assertSame(results.get(4).get(), results.get(5).get());
+            assertEquals(1, passes.get());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Another window needs a pass of its own
+        PartialAggregate whole = counting.aggregate(file.getPath(), 3);
+        counting.aggregate(file.getPath(), new long[]{whole.getTrendStart(), whole.getTrendEnd() + 1});
+        assertEquals(2, passes.get());
+    }
+
+    @Test
+    void passesAreKeptPerFileAndWindow() throws Exception {
+        File first = directory.resolve("first.json").toFile();
+        File second = directory.resolve("second.json").toFile();
+        objectMapper.writeValue(first, questions());
+        objectMapper.writeValue(second, questions().subList(0, 5));
+        AtomicInteger passes = new AtomicInteger();
+        StreamingAnalysisService counting = counting(passes, new CountDownLatch(0));
+
+        for (int round = 0; round < 3; round++) {
+            counting.aggregate(first.getPath(), 3);
+            counting.aggregate(second.getPath(), 3);
+            counting.aggregate(first.getPath(), 5);
+            counting.sample(second.getPath());
+        }
+        assertEquals(3, passes.get());
+
+        // A changed file is scanned again, the other file's passes stay
+        objectMapper.writeValue(second, questions());
+        assertTrue(second.setLastModified(second.lastModified() + 2000));
+        assertEquals(questions().size(), counting.aggregate(second.getPath(), 3).getQuestionCount());
+        counting.aggregate(first.getPath(), 3);
+        assertEquals(4, passes.get());
+    }
+
+    @Test
+    void waitersRetryAPassCancelledByItsCaller() throws Exception {
+        File file = directory.resolve("data.json").toFile();
+        objectMapper.writeValue(file, questions());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger passes = new AtomicInteger();
+        StreamingAnalysisService counting = counting(passes, release);
+        // Cancellation is checked once per full chunk
+        counting.setChunkSize(2);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            Future<PartialAggregate> first = pool.submit(() -> {
+                Cancellation.enter(cancelled::get);
+                try {
+                    return counting.aggregate(file.getPath(), 3);
+                } finally {
+                    Cancellation.exit();
+                }
+            });
+            Thread.sleep(100);
+            Future<PartialAggregate> second = pool.submit(() -> counting.aggregate(file.getPath(), 3));
+            Thread.sleep(200);
+            cancelled.set(true);
+            release.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class, first::get);
+            assertInstanceOf(CancellationException.class, failure.getCause());
+            assertEquals(questions().size(), second.get().getQuestionCount());
+            assertEquals(2, passes.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Counts the passes it makes, each held until release
+    private StreamingAnalysisService counting(AtomicInteger passes, CountDownLatch release) {
+        return new StreamingAnalysisService(analysisService, new ApproximateAnalysisService(analysisService)) {
+            @Override
+            Pass scan(File file, long[] window, ProgressListener listener) throws IOException {
+                passes.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.scan(file, window, listener);
+            }
+        };
+    }
+
+    @Test
+    void streamingPassDoesNotInternOwnerNames() throws Exception {
+        File file = directory.resolve("data.json").toFile();
+        Files.writeString(file.toPath(), "[{\"question_id\":1,\"tags\":[\"java\"],"
+                + "\"owner\":{\"user_id\":7,\"display_name\":\"streamed asker\",\"reputation\":10},"
+                + "\"answers\":[{\"owner\":{\"user_id\":8,\"display_name\":\"streamed answerer\"}}]}]");
+
+        assertEquals(1, service.aggregate(file.getPath(), 3).getQuestionCount());
+        assertEquals(StringDictionary.NO_ID, StringDictionary.OWNER_NAMES.idOf("streamed asker"));
+        assertEquals(StringDictionary.NO_ID, StringDictionary.OWNER_NAMES.idOf("streamed answerer"));
+        // Only the pass skips them
+        Question loaded = objectMapper.readValue(file, Question[].class)[0];
+        assertEquals("streamed asker", loaded.getOwnerDisplayName());
+    }
+
+    @Test
+    void partialsSurviveJsonAndMerge() throws Exception {
+        QuestionDataset dataset = analysisService.index(questions());
+        PartialAggregate whole = analysisService.aggregate(dataset, 3);
+
+        long[] window = {whole.getTrendStart(), whole.getTrendEnd()};
+        PartialAggregate first = analysisService.newPartial(window);
+        PartialAggregate second = analysisService.newPartial(window);
+        analysisService.accumulate(first, dataset, 0, 4);
+        analysisService.accumulate(second, dataset, 4, dataset.size());
+        PartialAggregate copy = objectMapper.readValue(objectMapper.writeValueAsString(second), PartialAggregate.class);
+
+        assertEquals(objectMapper.writeValueAsString(whole), objectMapper.writeValueAsString(first.merge(copy)));
+    }
+
+    private static List<Question> questions() {
+        long now = System.currentTimeMillis() / 1000;
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            questions.add(question(10 + i, "Deadlock number " + i, "<p>two locks, wait() and notify</p>",
+                    List.of("java", i % 2 == 0 ? "multithreading" : "spring"), now - i * 90 * DAY,
+                    i % 3 == 0, i % 4 == 0 ? 7L : null, i, 10 * i, 100 + i,
+                    answer(i % 2 == 0 ? "<pre><code>x</code></pre>" : "<p>no</p>", i % 3 - 1)));
+        }
+        questions.add(question(30, null, null, List.of("java"), 1300000000L, false, null, 0, 0, 1));
+        return questions;
+    }
+}
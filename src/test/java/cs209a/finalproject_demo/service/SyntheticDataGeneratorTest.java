@@ -0,0 +1,70 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Question;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticDataGeneratorTest {
+
+    private final SyntheticDataGenerator generator = new SyntheticDataGenerator();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sameSeedWritesTheSameFileWhateverTheThreads() throws Exception {
+        // Several blocks, the last one partial
+        int count = SyntheticDataGenerator.BLOCK_SIZE * 3 + 17;
+        Path single = directory.resolve("single.json");
+        Path parallel = directory.resolve("parallel.json");
+        Path other = directory.resolve("other.json");
+
+        generator.setThreads(1);
+        generator.generate(single.toString(), count, 7, ProgressListener.NONE);
+        generator.setThreads(4);
+        generator.generate(parallel.toString(), count, 7, ProgressListener.NONE);
+        generator.generate(other.toString(), count, 8, ProgressListener.NONE);
+
+        assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(parallel));
+        assertFalse(Files.readString(single).equals(Files.readString(other)));
+        assertFalse(Files.exists(directory.resolve("single.json.part")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loadsAndLooksLikeStackOverflow() throws Exception {
+        Path file = directory.resolve("synthetic.json");
+        generator.generate(file.toString(), 5000, 42, ProgressListener.NONE);
+        List<Question> questions = new DataCollectionService().loadData(file.toString());
+
+        assertEquals(5000, questions.size());
+        long spring = questions.stream().filter(question -> question.getTags().contains("spring")).count();
+        long unicode = questions.stream().filter(question -> question.getTags().contains("unicode")).count();
+        assertTrue(spring > 10 * unicode, "tags should be Zipf-distributed");
+        for (Question question : questions) {
+            assertEquals("java", question.getTags().get(0));
+            assertTrue(question.getCreationDate() >= 1262304000L && question.getCreationDate() < 1767225600L);
+            assertEquals(question.getAnswerCount(), question.getAnswers().size());
+            if (question.getAcceptedAnswerId() != null) {
+                assertTrue(question.getAnswers().stream().filter(Answer::isAccepted)
+                        .allMatch(answer -> answer.getAnswerId() == question.getAcceptedAnswerId()));
+            }
+        }
+        assertTrue(questions.stream().filter(question -> question.getScore() <= 2).count() > questions.size() / 2,
+                "most scores should be small");
+        assertTrue(questions.stream().anyMatch(question -> question.getScore() > 50));
+        assertTrue(questions.stream().anyMatch(question -> question.getCodeFeatures().hasCode()));
+
+        DataAnalysisService analysis = new DataAnalysisService();
+        Map<String, Object> pitfalls = analysis.analyzeMultithreadingPitfalls(analysis.index(questions), 8);
+        assertFalse(((List<Object>) pitfalls.get("topPitfalls")).isEmpty());
+    }
+}
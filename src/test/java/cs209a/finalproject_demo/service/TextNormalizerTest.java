@@ -0,0 +1,33 @@
+package cs209a.finalproject_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextNormalizerTest {
+
+    @Test
+    void stripsMarkupDecodesEntitiesAndFoldsCase() {
+        byte[] text = TextNormalizer.normalize("Why &quot;Deadlock&quot;?",
+                "<p>Calling <code>wait()</code>&#x20;in\n\n<b>Thread</b>&lt;T&gt;</p>");
+
+        assertEquals("why \"deadlock\"? calling wait() in thread <t>", new String(text, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void wordPrefixMatchesLikeRegexWordBoundary() {
+        byte[] text = TextNormalizer.normalize("", "unlocked; locks (wait() here)");
+
+        assertTrue(TextNormalizer.containsWordPrefix(text, TextNormalizer.keyword("lock")));
+        assertTrue(TextNormalizer.containsWordPrefix(text, TextNormalizer.keyword("wait()")));
+        assertFalse(TextNormalizer.containsWordPrefix(text, TextNormalizer.keyword("ocked")));
+        assertTrue(TextNormalizer.contains(text, TextNormalizer.keyword("ocked")));
+    }
+
+    @Test
+    void unterminatedMarkupIsKeptAsText() {
+        assertEquals("a <b & c", new String(TextNormalizer.normalize(null, "A <b & c"), StandardCharsets.UTF_8));
+    }
+}